@@ -11,18 +11,37 @@ import us.irdev.gtk.xyw.*;
 
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static us.irdev.gtk.xyw.Polygon.Classification;
 import static us.irdev.gtk.xyw.Polygon.Classification.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
 import static us.irdev.gtk.xyw.Tuple.VEC;
 
 public class Classifier {
     private static final Logger log = LogManager.getLogger(Classifier.class);
 
-    public record Container(boolean trivialAccept, RingArray ringArray) {}
+    // a ring array in a cell, either trivially accepted, or with the local polygon (the edges that
+    // touch the cell) for testing points in the cell
+    public record Container(boolean trivialAccept, RingArray ringArray, LocalPolygon local) {
+        public Container(boolean trivialAccept, RingArray ringArray) {
+            this(trivialAccept, ringArray, null);
+        }
+
+        public boolean contains(double x, double y) {
+            return trivialAccept || ((local != null) ? local.contains(x, y) : ringArray.contains(x, y));
+        }
+    }
     public final Grid<Container> grid;
 
+    // the ring arrays in the order they were given, and a reverse lookup for the index of each one
+    public final List<RingArray> ringArrays;
+    private final Map<RingArray, Integer> indices;
+
     public Classifier (List<RingArray> ringArrays) {
+        this.ringArrays = List.copyOf (ringArrays);
+        indices = indicesOf (this.ringArrays);
+
         /*
         var computedDomain = ListFunc.reduce(ringArrays, new Domain(), (ringArray, dom) -> Domain.union (ringArray.domain (), dom));
         var gridDomain = computedDomain.valid() ? computedDomain : new Domain (-180., 180., -90., 90.);
@@ -30,70 +49,441 @@ public class Classifier {
         */
         grid = new Grid<> (new Domain (-180., 180., -90., 90.), VEC(0.25, 0.25));
 
-        // populate the grid, this is not particularly efficient
-        // XXX could we trim the ring arrays to the domains?
+        // classify the cells for each ring array in parallel, then merge the results into the grid
         log.info ("Populating {} Ring Arrays", ringArrays.size());
-        for (var ringArray : ringArrays) {
-            var domains = grid.enumerate (ringArray.domain());
-            //log.info ("Populating into {} domains", domains.size());
-            for (var domain : domains) {
-                switch (ringArray.classify (domain)) {
-                    case NO_INTERSECTION:
-                        break;
-                    case CONTAINS_DOMAIN:
-                        grid.putAt (domain.center(), new Container(true, ringArray));
-                        break;
-                    case NON_TRIVIAL_INTERSECTION:
-                        grid.putAt (domain.center(), new Container(false, ringArray));
-                        break;
+        var populated = this.ringArrays.parallelStream ().map (this::populate).toList ();
+        for (var cells : populated) {
+            for (var i = 0; i < cells.count; ++i) {
+                var center = PT (grid.domain.min.x + (grid.spacing.x * (cells.xs[i] + 0.5)), grid.domain.min.y + (grid.spacing.y * (cells.ys[i] + 0.5)));
+                grid.putAt (center, new Container (cells.locals[i] == null, cells.ringArray, cells.locals[i]));
+            }
+        }
+
+        // pack the grid cells now that they are all populated, in ring array order so a classifier
+        // file (see ClassifierFile) lists them the same way
+        grid.freeze (order ());
+        boundaries = boundaries ();
+    }
+
+    /**
+     * a classifier over simplified copies of the ring arrays (see RingArray.simplify), which trades
+     * accuracy near the boundaries for fewer edges to store and test. the copies keep the order and
+     * the properties of the originals, and they are in ringArrays in place of them. the ring arrays
+     * are simplified together, so neighbors still share their borders exactly, and a point near a
+     * border isn't in both or neither.
+     * @param ringArrays the ring arrays to classify
+     * @param tolerance the smallest vertex importance (triangle area) to keep
+     */
+    public Classifier (List<RingArray> ringArrays, double tolerance) {
+        this (RingArray.simplify (ringArrays, tolerance));
+    }
+
+    private static Map<RingArray, Integer> indicesOf (List<RingArray> ringArrays) {
+        var indices = new IdentityHashMap<RingArray, Integer> ();
+        for (var i = 0; i < ringArrays.size (); ++i) {
+            indices.putIfAbsent (ringArrays.get (i), i);
+        }
+        return indices;
+    }
+
+    // the order of the containers in each cell
+    private Comparator<Container> order () {
+        return Comparator.comparingInt (container -> indexOf (container.ringArray));
+    }
+
+    /**
+     * @return the index in ringArrays of a ring array, or NONE if it isn't one of them
+     */
+    public int indexOf (RingArray ringArray) {
+        return indices.getOrDefault (ringArray, NONE);
+    }
+
+    // the cells a ring array touches or covers, as grid cell coordinates, buffered by the thread
+    // that classified them until they are merged into the grid
+    private static class Cells {
+        final RingArray ringArray;
+        int count;
+        int[] xs = new int[16];
+        int[] ys = new int[16];
+        LocalPolygon[] locals = new LocalPolygon[16];
+
+        Cells (RingArray ringArray) {
+            this.ringArray = ringArray;
+        }
+
+        // add a cell, with a local polygon, or null for a trivial accept
+        void add (int x, int y, LocalPolygon local) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf (xs, count * 2);
+                ys = Arrays.copyOf (ys, count * 2);
+                locals = Arrays.copyOf (locals, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            locals[count++] = local;
+        }
+    }
+
+    // candidate heights for the reference points in a row of cells, as fractions of the cell
+    // height, tried in order until none of the reference points in the row is on an edge
+    private static final double[] REFERENCE_FRACTIONS = { 0.5, 0.382, 0.618, 0.271, 0.729 };
+
+    /**
+     * classify the cells covered by a ring array's domain, the same as calling ringArray.classify on
+     * each cell, but in one pass. every edge (of the boundary and the holes) is listed in the cells
+     * it passes through, which makes those cells non-trivial. then each row is walked left to right
+     * through a reference point in every cell, starting outside the ring array, counting the edge
+     * crossings between consecutive reference points to track whether each one is inside each ring.
+     * the untouched cells are in or out according to their reference point, and the touched cells
+     * get a local polygon with their edges and the state of their reference point, so testing a
+     * point later only involves the edges in its cell.
+     */
+    private Cells populate (RingArray ringArray) {
+        var cells = new Cells (ringArray);
+        var input = Domain.intersection (grid.domain, ringArray.domain ());
+        if (! input.valid ()) {
+            return cells;
+        }
+
+        // the window of cells to classify, the same cells grid.enumerate would give
+        var spacing = grid.spacing;
+        var x0 = (int) Math.floor ((input.min.x - grid.domain.min.x) / spacing.x);
+        var y0 = (int) Math.floor ((input.min.y - grid.domain.min.y) / spacing.y);
+        var cols = (int) Math.ceil ((input.max.x - grid.domain.min.x) / spacing.x) - x0;
+        var rows = (int) Math.ceil ((input.max.y - grid.domain.min.y) / spacing.y) - y0;
+        if ((cols <= 0) || (rows <= 0)) {
+            return cells;
+        }
+        var originX = grid.domain.min.x + (x0 * spacing.x);
+        var originY = grid.domain.min.y + (y0 * spacing.y);
+
+        // list the edges of each ring in the cells they pass through, padded so edges on or near a
+        // cell boundary are listed in the cells on both sides. the edges that reach left of the
+        // start of each row (where the ring array extends past the west edge of the grid) are also
+        // listed by row, to find the state of the start
+        var seedX = originX - (spacing.x * 0.5);
+        var rings = new ArrayList<Polygon> ();
+        rings.add (ringArray.boundary);
+        rings.addAll (ringArray.holes);
+        var magnitude = Math.max (Math.max (Math.abs (input.min.x), Math.abs (input.max.x)), Math.max (Math.abs (input.min.y), Math.abs (input.max.y)));
+        var pad = Numerics.TOLERANCE * (1 + magnitude);
+        var cellEdges = new CellEdges[rings.size ()];
+        var westEdges = new CellEdges[rings.size ()];
+        var touched = new boolean[cols * rows];
+        for (var r = 0; r < cellEdges.length; ++r) {
+            cellEdges[r] = new CellEdges (cols * rows);
+            westEdges[r] = new CellEdges (rows);
+            listEdges (rings.get (r), cellEdges[r], westEdges[r], touched, cols, rows, originX, originY, seedX, pad);
+        }
+        var westX = ringArray.domain ().min.x - spacing.x;
+
+        // walk the rows
+        var stamps = new int[rings.size ()][];
+        for (var r = 0; r < stamps.length; ++r) {
+            stamps[r] = new int[rings.get (r).segments.length];
+        }
+        var stamp = 0;
+        var inside = new boolean[rings.size ()][cols];
+        for (var row = 0; row < rows; ++row) {
+            var refY = referenceY (rings, cellEdges, row, cols, originX, originY);
+            for (var r = 0; r < rings.size (); ++r) {
+                // start half a cell left of the window, with the state from the crossings between
+                // there and a point left of the whole ring array, which is outside every ring
+                var segments = rings.get (r).segments.segments;
+                var state = false;
+                for (int e = 0, count = westEdges[r].counts[row]; e < count; ++e) {
+                    var segment = segments.get (westEdges[r].edges[row][e]);
+                    if (PackedPolygon.crosses (segment.a.x, segment.a.y, segment.b.x, segment.b.y, seedX, refY, westX, refY)) {
+                        state = ! state;
+                    }
+                }
+                var lastX = seedX;
+                for (var col = 0; col < cols; ++col) {
+                    var refX = originX + (spacing.x * (col + 0.5));
+
+                    // any edge crossing the path from the last reference point is listed in this
+                    // cell or the one before it, count each of them once
+                    ++stamp;
+                    var crossings = 0;
+                    for (var cell = (row * cols) + Math.max (0, col - 1); cell <= (row * cols) + col; ++cell) {
+                        var edges = cellEdges[r].edges[cell];
+                        for (int e = 0, count = cellEdges[r].counts[cell]; e < count; ++e) {
+                            var edge = edges[e];
+                            if (stamps[r][edge] != stamp) {
+                                stamps[r][edge] = stamp;
+                                var segment = segments.get (edge);
+                                if (PackedPolygon.crosses (segment.a.x, segment.a.y, segment.b.x, segment.b.y, refX, refY, lastX, refY)) {
+                                    ++crossings;
+                                }
+                            }
+                        }
+                    }
+                    state ^= (crossings & 1) == 1;
+                    inside[r][col] = state;
+                    lastX = refX;
+                }
+            }
+
+            // classify the cells in the row
+            for (var col = 0; col < cols; ++col) {
+                var cell = (row * cols) + col;
+                if (touched[cell]) {
+                    var local = localPolygon (rings, cellEdges, inside, cell, col, originX + (spacing.x * (col + 0.5)), refY);
+                    if (local != null) {
+                        cells.add (x0 + col, y0 + row, local);
+                    }
+                } else {
+                    var contained = inside[0][col];
+                    for (var r = 1; (r < rings.size ()) && contained; ++r) {
+                        contained = ! inside[r][col];
+                    }
+                    if (contained) {
+                        cells.add (x0 + col, y0 + row, null);
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    // the lists of edges of one ring in each cell of a window
+    private static class CellEdges {
+        final int[][] edges;
+        final int[] counts;
+
+        CellEdges (int cellCount) {
+            edges = new int[cellCount][];
+            counts = new int[cellCount];
+        }
+
+        void add (int cell, int edge) {
+            if (edges[cell] == null) {
+                edges[cell] = new int[4];
+            } else if (counts[cell] == edges[cell].length) {
+                edges[cell] = Arrays.copyOf (edges[cell], counts[cell] * 2);
+            }
+            edges[cell][counts[cell]++] = edge;
+        }
+    }
+
+    private void listEdges (Polygon polygon, CellEdges cellEdges, CellEdges westEdges, boolean[] touched, int cols, int rows, double originX, double originY, double seedX, double pad) {
+        var spacing = grid.spacing;
+        var segments = polygon.segments.segments;
+        for (var index = 0; index < segments.size (); ++index) {
+            var segment = segments.get (index);
+            var ax = segment.a.x;
+            var ay = segment.a.y;
+            var bx = segment.b.x;
+            var by = segment.b.y;
+            var minY = Math.min (ay, by);
+            var maxY = Math.max (ay, by);
+            var rowStart = Math.max (0, (int) Math.floor ((minY - pad - originY) / spacing.y));
+            var rowEnd = Math.min (rows - 1, (int) Math.floor ((maxY + pad - originY) / spacing.y));
+            for (var row = rowStart; row <= rowEnd; ++row) {
+                // the x-extent of the part of the edge inside this row
+                var slabMin = Math.max (minY, originY + (spacing.y * row) - pad);
+                var slabMax = Math.min (maxY, originY + (spacing.y * (row + 1)) + pad);
+                double xa, xb;
+                if (ay == by) {
+                    xa = ax;
+                    xb = bx;
+                } else {
+                    var slope = (bx - ax) / (by - ay);
+                    xa = ax + ((slabMin - ay) * slope);
+                    xb = ax + ((slabMax - ay) * slope);
+                }
+                if (Math.min (xa, xb) - pad < seedX) {
+                    westEdges.add (row, index);
+                }
+                var colStart = Math.max (0, (int) Math.floor ((Math.min (xa, xb) - pad - originX) / spacing.x));
+                var colEnd = Math.min (cols - 1, (int) Math.floor ((Math.max (xa, xb) + pad - originX) / spacing.x));
+                for (var col = colStart; col <= colEnd; ++col) {
+                    cellEdges.add ((row * cols) + col, index);
+                    touched[(row * cols) + col] = true;
                 }
             }
         }
     }
 
+    // pick a height for the reference points in a row, so that none of them is on an edge
+    private double referenceY (List<Polygon> rings, CellEdges[] cellEdges, int row, int cols, double originX, double originY) {
+        var spacing = grid.spacing;
+        var refY = 0.0;
+        for (var fraction : REFERENCE_FRACTIONS) {
+            refY = originY + (spacing.y * (row + fraction));
+            var clear = true;
+            for (var col = 0; (col < cols) && clear; ++col) {
+                var pt = PT (originX + (spacing.x * (col + 0.5)), refY);
+                var cell = (row * cols) + col;
+                for (var r = 0; (r < rings.size ()) && clear; ++r) {
+                    var segments = rings.get (r).segments.segments;
+                    for (int e = 0, count = cellEdges[r].counts[cell]; (e < count) && clear; ++e) {
+                        clear = ! segments.get (cellEdges[r].edges[cell][e]).contains (pt);
+                    }
+                }
+            }
+            if (clear) {
+                break;
+            }
+        }
+        return refY;
+    }
+
+    // build the local polygon for a touched cell, or return null if the ring array can't contain
+    // any of the cell
+    private static LocalPolygon localPolygon (List<Polygon> rings, CellEdges[] cellEdges, boolean[][] inside, int cell, int col, double refX, double refY) {
+        var localRings = new ArrayList<Polygon> ();
+        var holes = new ArrayList<Boolean> ();
+        var refInside = new ArrayList<Boolean> ();
+        for (var r = 0; r < rings.size (); ++r) {
+            var count = cellEdges[r].counts[cell];
+            if (count > 0) {
+                var segments = rings.get (r).segments.segments;
+                var local = new ArrayList<Segment> (count);
+                for (var e = 0; e < count; ++e) {
+                    local.add (segments.get (cellEdges[r].edges[cell][e]));
+                }
+                localRings.add (new Polygon (new Segments (local)));
+                holes.add (r > 0);
+                refInside.add (inside[r][col]);
+            } else if (inside[r][col] == (r > 0)) {
+                // the cell is entirely outside the boundary, or entirely inside a hole
+                return null;
+            }
+        }
+        var holeArray = new boolean[holes.size ()];
+        var refInsideArray = new boolean[refInside.size ()];
+        for (var i = 0; i < holeArray.length; ++i) {
+            holeArray[i] = holes.get (i);
+            refInsideArray[i] = refInside.get (i);
+        }
+        return new LocalPolygon (localRings.toArray (new Polygon[0]), holeArray, refX, refY, refInsideArray);
+    }
+
     public BagObject getAt (Tuple pt) {
         var children = grid.getAt(pt);
         for (var child : children) {
-            if (child.trivialAccept || child.ringArray.contains (pt)) {
+            if (child.contains (pt.x, pt.y)) {
                 return child.ringArray.properties;
             }
         }
         return null;
     }
 
-    public double distanceToNearestBoundary (Tuple pt, double limitRadius) {
-        // compute the search domain
-        var delta = VEC(limitRadius, limitRadius);
-        var min = pt.subtract(delta);
-        var max = pt.add(delta);
-        var searchDomain = new Domain (min, max);
-
-        // set up the nearest edge value
-        var nearestDistance = Double.POSITIVE_INFINITY;
-
-        // enumerate the grid cell domains that overlap our search domain
-        var searchDomains = grid.enumerate (searchDomain);
-        for (var domain : searchDomains) {
-            var children = grid.getAt(domain.center());
-            for (var child : children) {
-                if (!child.trivialAccept) {
-                    var ringArray = child.ringArray;
-                    var boundary = ringArray.boundary;
-                    var trimmedBoundary = boundary.segments.trimToDomain (domain);
-                    if (trimmedBoundary != null) {
-                        for (var segment : trimmedBoundary.segments) {
-                            var distance = Math.abs(segment.line.distanceToPoint(pt));
-                            if (distance < nearestDistance) {
-                                nearestDistance = distance;
-                            }
-                        }
-                    }
+    // the value classify uses for a point that isn't in any ring array
+    public static final int NONE = -1;
+
+    // the number of (sorted) points in each parallel chunk of a batch
+    private static final int CLASSIFY_CHUNK = 1 << 14;
+
+    /**
+     * classify a batch of points, giving the same answer as getAt for each one. the points are
+     * sorted by grid cell so that the ring arrays for each cell are tested against all the points
+     * in that cell together, and chunks of the sorted points are classified in parallel.
+     * @param lons the x-coordinates (longitude) of the points
+     * @param lats the y-coordinates (latitude) of the points
+     * @return the index in ringArrays of the ring array containing each point, or NONE
+     */
+    public int[] classify (double[] lons, double[] lats) {
+        assert (lons.length == lats.length);
+        var count = lons.length;
+
+        // sort the points by cell, with the cell index in the high bits and the point index in the
+        // low bits of a long, so the sort is on primitives
+        var order = new long[count];
+        IntStream.range (0, count).parallel ().forEach (i -> order[i] = ((long) grid.cellIndex (lons[i], lats[i]) << 32) | i);
+        Arrays.parallelSort (order);
+
+        // classify the chunks
+        var result = new int[count];
+        var chunks = (count + CLASSIFY_CHUNK - 1) / CLASSIFY_CHUNK;
+        IntStream.range (0, chunks).parallel ().forEach (chunk ->
+                classify (lons, lats, order, chunk * CLASSIFY_CHUNK, Math.min (count, (chunk + 1) * CLASSIFY_CHUNK), result)
+        );
+        return result;
+    }
+
+    private void classify (double[] lons, double[] lats, long[] order, int start, int end, int[] result) {
+        var children = new Container[0];
+        var childIndices = new int[0];
+        var cell = 0L;
+        for (var i = start; i < end; ++i) {
+            // fetch the containers when the cell changes
+            var key = order[i];
+            if ((i == start) || ((key >> 32) != cell)) {
+                cell = key >> 32;
+                var point = (int) key;
+                children = grid.getAt (lons[point], lats[point]).toArray (new Container[0]);
+                childIndices = new int[children.length];
+                for (var c = 0; c < children.length; ++c) {
+                    childIndices[c] = indexOf (children[c].ringArray);
+                }
+            }
+
+            // test the point against the containers, in the same order as getAt
+            var point = (int) key;
+            var x = lons[point];
+            var y = lats[point];
+            var found = NONE;
+            for (var c = 0; (c < childIndices.length) && (found == NONE); ++c) {
+                if (children[c].contains (x, y)) {
+                    found = childIndices[c];
                 }
             }
+            result[point] = found;
         }
+    }
+
+    // the boundary segments of every ring array, for nearest boundary queries, with the index of the
+    // ring array each one came from, ClassifierFile writes the tree out as it is
+    record Boundaries (SegmentTree tree, int[] owners) {}
+    final Boundaries boundaries;
+
+    private Boundaries boundaries () {
+        var segments = new ArrayList<Segment> ();
+        var owners = new ArrayList<Integer> ();
+        for (var i = 0; i < ringArrays.size (); ++i) {
+            // only list a ring array once, even if it was given more than once
+            if (indexOf (ringArrays.get (i)) == i) {
+                for (var segment : ringArrays.get (i).boundary.segments.segments) {
+                    segments.add (segment);
+                    owners.add (i);
+                }
+            }
+        }
+        return new Boundaries (new SegmentTree (segments), owners.stream ().mapToInt (Integer::intValue).toArray ());
+    }
+
+    /**
+     * the nearest boundary to a point, the ring array it belongs to, and the segment and distance
+     * @param ringArray the ring array whose boundary is nearest
+     * @param segment the nearest segment of that boundary
+     * @param distance the distance from the point to the segment
+     */
+    public record NearestBoundary (RingArray ringArray, Segment segment, double distance) {}
+
+    /**
+     * find the nearest boundary segment of any ring array to a point (holes aren't included)
+     * @param pt the point to search from
+     * @param limitRadius the largest distance to search
+     * @return the nearest boundary, or null if there is none within the limit
+     */
+    public NearestBoundary nearestBoundary (Tuple pt, double limitRadius) {
+        var nearest = boundaries.tree.nearest (pt.x, pt.y, limitRadius);
+        if (nearest == null) {
+            return null;
+        }
+        var index = nearest.index ();
+        return new NearestBoundary (ringArrays.get (boundaries.owners[index]), boundaries.tree.segments.get (index), nearest.distance ());
+    }
 
-        // return the found nearest distance
-        return nearestDistance;
+    /**
+     * @return the distance from a point to the nearest boundary segment, or infinity if there is none
+     * within the limit
+     */
+    public double distanceToNearestBoundary (Tuple pt, double limitRadius) {
+        var nearest = nearestBoundary (pt, limitRadius);
+        return (nearest != null) ? nearest.distance : Double.POSITIVE_INFINITY;
     }
 
     private Classification classifyChildren (Set<Container> children) {
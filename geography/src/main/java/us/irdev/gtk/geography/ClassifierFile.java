@@ -0,0 +1,980 @@
+package us.irdev.gtk.geography;
+
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.bedrock.bag.BagObjectFrom;
+import us.irdev.gtk.xyw.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+/**
+ * A binary snapshot of a populated Classifier, written once offline and then queried in place. a
+ * loaded file answers getAt, classify, and distanceToNearestBoundary straight from the mapped
+ * bytes, nothing is rebuilt, so opening one is a header check and a few mappings however big it
+ * is, and the operating system only pages in the parts the queries touch. the file is mapped in
+ * chunks (like SamplesMapped), so it isn't limited to 2GB.
+ *
+ * all values are little-endian. the file is a header:
+ *
+ *   magic "GTKC" (4 bytes), version (int), the grid domain (4 doubles: min x, min y, max x, max y),
+ *   the grid spacing (2 doubles), and the counts of the sections below (14 longs: properties,
+ *   property bytes, ring arrays, rings, chains, vertices, cells, containers, local polygons, local
+ *   rings, edges, tree nodes, tree leaves, and tree segments)
+ *
+ * followed by flat sections, in this order, each starting on an 8-byte boundary:
+ *
+ *   properties: the offset of the JSON of each in the bytes that follow (count + 1 longs), then
+ *     the UTF-8 bytes
+ *   ring arrays: the index of the properties of each (ints, -1 for none), and the first ring of
+ *     each (count + 1 ints), the boundary then the holes
+ *   rings: the first chain of each ring (count + 1 ints)
+ *   chains: the first vertex of each chain (count + 1 longs), the rings are packed into chains of
+ *     vertices the same way PackedPolygon packs them
+ *   vertices: x, y, and the line equation (a, b, c) of the edge that starts at the vertex (5
+ *     doubles each, the line is 0 at the end of a chain)
+ *   cells: the keys of the occupied grid cells in ascending order (ints), and the first container
+ *     of each (count + 1 longs), the frozen grid as compressed sparse rows
+ *   containers: the ring array of each (ints), then its local polygon (longs, -1 for a trivial
+ *     accept, -2 for the whole ring array)
+ *   local polygons: the reference point of each (2 doubles), and the first local ring of each
+ *     (count + 1 longs)
+ *   local rings: whether each is a hole and whether the reference point is inside the whole ring
+ *     (2 ints each), and the first edge of each (count + 1 longs)
+ *   edges: the vertex that starts each local edge (longs)
+ *   boundary tree: the box of each node of the SegmentTree over the ring array boundaries (4
+ *     doubles: min x, min y, max x, max y), the range of its children (2 ints), the segment at each
+ *     entry in leaf order (ints), then the vertex that starts each segment (longs), and the ring
+ *     array it belongs to (ints)
+ *
+ * the queries do the same arithmetic on the same values as the classifier that was written (see
+ * PackedPolygon.onEdge and winding, and SegmentTree.nearest), so they give identical answers.
+ * only the header and the last entry of each offset section are checked when a file is read, the
+ * rest of the sections are trusted.
+ */
+public class ClassifierFile {
+    private static final int MAGIC = ('G') | ('T' << 8) | ('K' << 16) | ('C' << 24);
+    private static final int VERSION = 2;
+
+    // the local polygon of a container that doesn't have one
+    private static final long TRIVIAL = -1;
+    private static final long WHOLE = -2;
+
+    private static final int VERTEX_BYTES = 40;
+    static final int HEADER_BYTES = 8 + (6 * 8) + (14 * 8);
+
+    // the size of each mapped chunk
+    private static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+    // -----------------------------------------------------------------------------------------------
+    // layout
+    // -----------------------------------------------------------------------------------------------
+
+    // the number of entries in each section, as stored in the header
+    private record Counts (long properties, long propertyBytes, long ringArrays, long rings, long chains,
+                           long vertices, long cells, long containers, long locals, long localRings,
+                           long edges, long nodes, long leaves, long segments) {
+        long[] toArray () {
+            return new long[] { properties, propertyBytes, ringArrays, rings, chains, vertices, cells, containers, locals, localRings, edges, nodes, leaves, segments };
+        }
+
+        static Counts of (long[] counts) {
+            return new Counts (counts[0], counts[1], counts[2], counts[3], counts[4], counts[5], counts[6], counts[7], counts[8], counts[9], counts[10], counts[11], counts[12], counts[13]);
+        }
+    }
+
+    // the byte offset of each section, which follows from the counts
+    private static class Layout {
+        final long propertyOffsets, propertyBytes, ringArrayProperties, ringArrayRings, ringChains, chainVertices, vertices;
+        final long cellKeys, cellContainers, containerRingArrays, containerLocals, localRefs, localRings, localRingFlags, localRingEdges, edges;
+        final long nodeBoxes, nodeChildren, entries, segmentVertices, segmentOwners;
+        final long end;
+        private long next = HEADER_BYTES;
+
+        Layout (Counts counts) {
+            propertyOffsets = section ((counts.properties + 1) * 8);
+            propertyBytes = section (counts.propertyBytes);
+            ringArrayProperties = section (counts.ringArrays * 4);
+            ringArrayRings = section ((counts.ringArrays + 1) * 4);
+            ringChains = section ((counts.rings + 1) * 4);
+            chainVertices = section ((counts.chains + 1) * 8);
+            vertices = section (counts.vertices * VERTEX_BYTES);
+            cellKeys = section (counts.cells * 4);
+            cellContainers = section ((counts.cells + 1) * 8);
+            containerRingArrays = section (counts.containers * 4);
+            containerLocals = section (counts.containers * 8);
+            localRefs = section (counts.locals * 16);
+            localRings = section ((counts.locals + 1) * 8);
+            localRingFlags = section (counts.localRings * 8);
+            localRingEdges = section ((counts.localRings + 1) * 8);
+            edges = section (counts.edges * 8);
+            nodeBoxes = section (counts.nodes * 32);
+            nodeChildren = section (counts.nodes * 8);
+            entries = section (counts.segments * 4);
+            segmentVertices = section (counts.segments * 8);
+            segmentOwners = section (counts.segments * 4);
+            end = next;
+        }
+
+        private long section (long bytes) {
+            var start = next;
+            next = (next + bytes + 7) & ~7L;
+            return start;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // writing
+    // -----------------------------------------------------------------------------------------------
+
+    // a little-endian output buffer that is written to the channel whenever it fills up
+    private static class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate (1 << 20).order (ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output (Path path) throws IOException {
+            channel = FileChannel.open (path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private Output room (int bytes) throws IOException {
+            if (buffer.remaining () < bytes) {
+                flush ();
+            }
+            position += bytes;
+            return this;
+        }
+
+        private void flush () throws IOException {
+            buffer.flip ();
+            while (buffer.hasRemaining ()) {
+                channel.write (buffer);
+            }
+            buffer.clear ();
+        }
+
+        Output putInt (int value) throws IOException {
+            room (4).buffer.putInt (value);
+            return this;
+        }
+
+        Output putLong (long value) throws IOException {
+            room (8).buffer.putLong (value);
+            return this;
+        }
+
+        Output putDouble (double value) throws IOException {
+            room (8).buffer.putDouble (value);
+            return this;
+        }
+
+        Output putBytes (byte[] bytes) throws IOException {
+            for (var offset = 0; offset < bytes.length; ) {
+                if (! buffer.hasRemaining ()) {
+                    flush ();
+                }
+                var length = Math.min (bytes.length - offset, buffer.remaining ());
+                buffer.put (bytes, offset, length);
+                position += length;
+                offset += length;
+            }
+            return this;
+        }
+
+        // pad to the start of the next section, which must be where the layout puts it
+        Output section (long start) throws IOException {
+            while ((position & 7) != 0) {
+                room (1).buffer.put ((byte) 0);
+            }
+            assert (position == start);
+            return this;
+        }
+
+        @Override
+        public void close () throws IOException {
+            try {
+                flush ();
+            } finally {
+                channel.close ();
+            }
+        }
+    }
+
+    private static boolean continues (Segment last, Segment segment) {
+        return (last != null) && (last.b.x == segment.a.x) && (last.b.y == segment.a.y);
+    }
+
+    private static Output putVertex (Output output, Tuple vertex, Line line) throws IOException {
+        output.putDouble (vertex.x).putDouble (vertex.y);
+        return (line != null)
+                ? output.putDouble (line.abc.x).putDouble (line.abc.y).putDouble (line.abc.w)
+                : output.putDouble (0).putDouble (0).putDouble (0);
+    }
+
+    /**
+     * write a classifier to a file
+     * @param classifier the classifier to write
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write (Classifier classifier, Path path) throws IOException {
+        var grid = classifier.grid;
+        var ringArrays = classifier.ringArrays;
+        var tree = classifier.boundaries.tree ();
+
+        // the distinct properties, shared ring arrays (like the parts of a multipolygon) share them
+        var properties = new ArrayList<byte[]> ();
+        var propertyIndices = new IdentityHashMap<BagObject, Integer> ();
+        var propertyBytes = 0L;
+        for (var ringArray : ringArrays) {
+            if ((ringArray.properties != null) && (! propertyIndices.containsKey (ringArray.properties))) {
+                propertyIndices.put (ringArray.properties, properties.size ());
+                properties.add (ringArray.properties.toString ().getBytes (StandardCharsets.UTF_8));
+                propertyBytes += properties.get (properties.size () - 1).length;
+            }
+        }
+
+        // the rings, and the vertex that starts each of their segments, counted the way they will be
+        // packed into chains
+        var rings = new ArrayList<List<Segment>> ();
+        var vertexOf = new IdentityHashMap<Segment, Long> ();
+        var chainCount = 0L;
+        var vertexCount = 0L;
+        for (var ringArray : ringArrays) {
+            for (var ring : ringArray.rings ()) {
+                var segments = ring.segments.segments;
+                rings.add (segments);
+                Segment last = null;
+                for (var segment : segments) {
+                    if (! continues (last, segment)) {
+                        ++chainCount;
+                        vertexCount += (last != null) ? 1 : 0;
+                    }
+                    vertexOf.putIfAbsent (segment, vertexCount++);
+                    last = segment;
+                }
+                vertexCount += (last != null) ? 1 : 0;
+            }
+        }
+
+        // the occupied cells, by key
+        var cells = new TreeMap<Integer, List<Classifier.Container>> ();
+        var containerCount = 0L;
+        var localCount = 0L;
+        var localRingCount = 0L;
+        var edgeCount = 0L;
+        for (var domain : grid.enumerate ()) {
+            var center = domain.center ();
+            var containers = grid.getAt (center);
+            if (! containers.isEmpty ()) {
+                cells.put (grid.cellIndex (center.x, center.y), List.copyOf (containers));
+                containerCount += containers.size ();
+                for (var container : containers) {
+                    if ((! container.trivialAccept ()) && (container.local () != null)) {
+                        ++localCount;
+                        localRingCount += container.local ().rings.length;
+                        edgeCount += container.local ().edgeCount ();
+                    }
+                }
+            }
+        }
+
+        var counts = new Counts (properties.size (), propertyBytes, ringArrays.size (), rings.size (), chainCount, vertexCount,
+                cells.size (), containerCount, localCount, localRingCount, edgeCount, tree.nodeCount (), tree.leafCount (), tree.size ());
+        var layout = new Layout (counts);
+        try (var output = new Output (path)) {
+            // the header
+            output.putInt (MAGIC).putInt (VERSION);
+            output.putDouble (grid.domain.min.x).putDouble (grid.domain.min.y).putDouble (grid.domain.max.x).putDouble (grid.domain.max.y);
+            output.putDouble (grid.spacing.x).putDouble (grid.spacing.y);
+            for (var count : counts.toArray ()) {
+                output.putLong (count);
+            }
+
+            // the properties
+            output.section (layout.propertyOffsets);
+            var offset = 0L;
+            for (var bytes : properties) {
+                output.putLong (offset);
+                offset += bytes.length;
+            }
+            output.putLong (offset);
+            output.section (layout.propertyBytes);
+            for (var bytes : properties) {
+                output.putBytes (bytes);
+            }
+
+            // the ring arrays
+            output.section (layout.ringArrayProperties);
+            for (var ringArray : ringArrays) {
+                output.putInt ((ringArray.properties != null) ? propertyIndices.get (ringArray.properties) : -1);
+            }
+            output.section (layout.ringArrayRings);
+            var ringCount = 0;
+            for (var ringArray : ringArrays) {
+                output.putInt (ringCount);
+                ringCount += 1 + ringArray.holes.size ();
+            }
+            output.putInt (ringCount);
+
+            // the rings, packed into chains of vertices
+            output.section (layout.ringChains);
+            var chain = 0;
+            for (var segments : rings) {
+                output.putInt (chain);
+                Segment last = null;
+                for (var segment : segments) {
+                    chain += continues (last, segment) ? 0 : 1;
+                    last = segment;
+                }
+            }
+            output.putInt (chain);
+            output.section (layout.chainVertices);
+            var vertex = 0L;
+            for (var segments : rings) {
+                Segment last = null;
+                for (var segment : segments) {
+                    if (! continues (last, segment)) {
+                        vertex += (last != null) ? 1 : 0;
+                        output.putLong (vertex);
+                    }
+                    ++vertex;
+                    last = segment;
+                }
+                vertex += (last != null) ? 1 : 0;
+            }
+            output.putLong (vertex);
+            output.section (layout.vertices);
+            for (var segments : rings) {
+                Segment last = null;
+                for (var segment : segments) {
+                    if ((last != null) && (! continues (last, segment))) {
+                        putVertex (output, last.b, null);
+                    }
+                    putVertex (output, segment.a, segment.line);
+                    last = segment;
+                }
+                if (last != null) {
+                    putVertex (output, last.b, null);
+                }
+            }
+
+            // the cells
+            output.section (layout.cellKeys);
+            for (var key : cells.keySet ()) {
+                output.putInt (key);
+            }
+            output.section (layout.cellContainers);
+            var container = 0L;
+            for (var containers : cells.values ()) {
+                output.putLong (container);
+                container += containers.size ();
+            }
+            output.putLong (container);
+
+            // the containers, the locals are numbered in the order they come up
+            var locals = new ArrayList<LocalPolygon> ();
+            output.section (layout.containerRingArrays);
+            for (var containers : cells.values ()) {
+                for (var c : containers) {
+                    var index = classifier.indexOf (c.ringArray ());
+                    if (index == Classifier.NONE) {
+                        throw new IOException ("cell contains a ring array the classifier doesn't list");
+                    }
+                    output.putInt (index);
+                }
+            }
+            output.section (layout.containerLocals);
+            for (var containers : cells.values ()) {
+                for (var c : containers) {
+                    if (c.trivialAccept ()) {
+                        output.putLong (TRIVIAL);
+                    } else if (c.local () == null) {
+                        output.putLong (WHOLE);
+                    } else {
+                        output.putLong (locals.size ());
+                        locals.add (c.local ());
+                    }
+                }
+            }
+
+            // the local polygons, with their edges as the vertices that start them
+            output.section (layout.localRefs);
+            for (var local : locals) {
+                output.putDouble (local.refX).putDouble (local.refY);
+            }
+            output.section (layout.localRings);
+            var localRing = 0L;
+            for (var local : locals) {
+                output.putLong (localRing);
+                localRing += local.rings.length;
+            }
+            output.putLong (localRing);
+            output.section (layout.localRingFlags);
+            for (var local : locals) {
+                for (var i = 0; i < local.rings.length; ++i) {
+                    output.putInt (local.holes[i] ? 1 : 0).putInt (local.refInside (i) ? 1 : 0);
+                }
+            }
+            output.section (layout.localRingEdges);
+            var edge = 0L;
+            for (var local : locals) {
+                for (var ring : local.rings) {
+                    output.putLong (edge);
+                    edge += ring.segments.length;
+                }
+            }
+            output.putLong (edge);
+            output.section (layout.edges);
+            for (var local : locals) {
+                for (var ring : local.rings) {
+                    for (var segment : ring.segments.segments) {
+                        var start = vertexOf.get (segment);
+                        if (start == null) {
+                            throw new IOException ("local polygon edge isn't part of its ring array");
+                        }
+                        output.putLong (start);
+                    }
+                }
+            }
+
+            // the boundary tree
+            output.section (layout.nodeBoxes);
+            for (var node = 0; node < tree.nodeCount (); ++node) {
+                output.putDouble (tree.minX (node)).putDouble (tree.minY (node)).putDouble (tree.maxX (node)).putDouble (tree.maxY (node));
+            }
+            output.section (layout.nodeChildren);
+            for (var node = 0; node < tree.nodeCount (); ++node) {
+                output.putInt (tree.childStart (node)).putInt (tree.childEnd (node));
+            }
+            output.section (layout.entries);
+            for (var e = 0; e < tree.size (); ++e) {
+                output.putInt (tree.entry (e));
+            }
+            output.section (layout.segmentVertices);
+            for (var segment : tree.segments) {
+                var start = vertexOf.get (segment);
+                if (start == null) {
+                    throw new IOException ("boundary segment isn't part of a ring array");
+                }
+                output.putLong (start);
+            }
+            output.section (layout.segmentOwners);
+            for (var owner : classifier.boundaries.owners ()) {
+                output.putInt (owner);
+            }
+            output.section (layout.end);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // reading
+    // -----------------------------------------------------------------------------------------------
+
+    // a file mapped read-only as a series of chunks, like SamplesMapped, so it can be bigger than a
+    // single mapping allows. every value is aligned to its size, so none of them straddle chunks.
+    private static class Chunks {
+        private final MappedByteBuffer[] chunks;
+        private final int chunkShift;
+        private final long chunkMask;
+        final long size;
+
+        Chunks (Path path, int chunkBytes) throws IOException {
+            assert (Integer.bitCount (chunkBytes) == 1) && (chunkBytes >= 8);
+            chunkShift = Integer.numberOfTrailingZeros (chunkBytes);
+            chunkMask = chunkBytes - 1;
+
+            // map the chunks, the mappings stay valid after the channel is closed
+            try (var channel = FileChannel.open (path, StandardOpenOption.READ)) {
+                size = channel.size ();
+                chunks = new MappedByteBuffer[(int) ((size + chunkMask) >> chunkShift)];
+                for (var i = 0; i < chunks.length; ++i) {
+                    var chunkStart = (long) i << chunkShift;
+                    chunks[i] = channel.map (FileChannel.MapMode.READ_ONLY, chunkStart, Math.min (size - chunkStart, chunkBytes));
+                    chunks[i].order (ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+        }
+
+        byte get (long at) {
+            return chunks[(int) (at >> chunkShift)].get ((int) (at & chunkMask));
+        }
+
+        int getInt (long at) {
+            return chunks[(int) (at >> chunkShift)].getInt ((int) (at & chunkMask));
+        }
+
+        long getLong (long at) {
+            return chunks[(int) (at >> chunkShift)].getLong ((int) (at & chunkMask));
+        }
+
+        double getDouble (long at) {
+            return chunks[(int) (at >> chunkShift)].getDouble ((int) (at & chunkMask));
+        }
+    }
+
+    private final Chunks chunks;
+    private final Counts counts;
+    private final Layout layout;
+
+    // the grid the cell keys were computed on, with no cells of its own
+    private final Grid<Void> grid;
+
+    // the boundary tree, read in place
+    private final SegmentTreeNodes tree;
+
+    // the properties of each ring array, parsed on first use. the atomic array publishes a parsed bag
+    // safely to the other threads, and if two threads race to parse the same one, the first to set
+    // it wins and both return that one.
+    private final AtomicReferenceArray<BagObject> properties;
+
+    /**
+     * memory-map a classifier file to query it in place
+     * @param path the file to read
+     * @return the classifier file, which gives the same answers as the classifier that was written
+     * @throws IOException if the file can't be read, or isn't a valid classifier file
+     */
+    public static ClassifierFile read (Path path) throws IOException {
+        return new ClassifierFile (new Chunks (path, DEFAULT_CHUNK_BYTES));
+    }
+
+    // read with a chunk size, which must be a power of 2 of at least 8 bytes
+    static ClassifierFile read (Path path, int chunkBytes) throws IOException {
+        return new ClassifierFile (new Chunks (path, chunkBytes));
+    }
+
+    private ClassifierFile (Chunks chunks) throws IOException {
+        this.chunks = chunks;
+
+        // the header
+        if ((chunks.size < 8) || (chunks.getInt (0) != MAGIC)) {
+            throw new IOException ("not a classifier file");
+        }
+        var version = chunks.getInt (4);
+        if (version != VERSION) {
+            throw new IOException ("unsupported classifier file version: " + version);
+        }
+        if (chunks.size < HEADER_BYTES) {
+            throw new IOException ("unexpected end of file");
+        }
+        var domain = new Domain (PT (chunks.getDouble (8), chunks.getDouble (16)), PT (chunks.getDouble (24), chunks.getDouble (32)));
+        var spacing = Tuple.VEC (chunks.getDouble (40), chunks.getDouble (48));
+        var values = new long[14];
+        for (var i = 0; i < values.length; ++i) {
+            values[i] = chunks.getLong (56 + (i * 8L));
+            // the property bytes, vertices, cells, containers, locals, local rings, and edges are
+            // indexed by longs, the rest by ints
+            var limit = ((i == 1) || ((i >= 5) && (i <= 10))) ? Long.MAX_VALUE / (VERTEX_BYTES * 16) : Integer.MAX_VALUE - 1;
+            if ((values[i] < 0) || (values[i] > limit)) {
+                throw new IOException ("invalid count: " + values[i]);
+            }
+        }
+        counts = Counts.of (values);
+        layout = new Layout (counts);
+        if (chunks.size < layout.end) {
+            throw new IOException ("unexpected end of file");
+        }
+
+        // the last entry of each offset section must close the section it indexes
+        for (var sentinel : sentinels ()) {
+            var value = (sentinel.bytes == 8) ? chunks.getLong (sentinel.offset) : chunks.getInt (sentinel.offset);
+            if (value != sentinel.value) {
+                throw new IOException ("inconsistent classifier file sections");
+            }
+        }
+        if ((counts.leaves > counts.nodes) || ((counts.nodes == 0) && (counts.segments > 0))) {
+            throw new IOException ("inconsistent classifier file sections");
+        }
+
+        grid = new Grid<> (domain, spacing);
+        properties = new AtomicReferenceArray<> ((int) counts.properties);
+        tree = new Tree ();
+    }
+
+    // a value read checks in the sections, the last entry of an offset section
+    record Sentinel (long offset, int bytes, long value) {}
+
+    // the sentinels of this file, these and the header are all read looks at
+    List<Sentinel> sentinels () {
+        return List.of (
+                new Sentinel (layout.propertyOffsets + (counts.properties * 8), 8, counts.propertyBytes),
+                new Sentinel (layout.ringArrayRings + (counts.ringArrays * 4), 4, counts.rings),
+                new Sentinel (layout.ringChains + (counts.rings * 4), 4, counts.chains),
+                new Sentinel (layout.chainVertices + (counts.chains * 8), 8, counts.vertices),
+                new Sentinel (layout.cellContainers + (counts.cells * 8), 8, counts.containers),
+                new Sentinel (layout.localRings + (counts.locals * 8), 8, counts.localRings),
+                new Sentinel (layout.localRingEdges + (counts.localRings * 8), 8, counts.edges)
+        );
+    }
+
+    /**
+     * @return the grid domain
+     */
+    public Domain domain () {
+        return grid.domain;
+    }
+
+    /**
+     * @return the number of ring arrays, the range of the indices classify gives
+     */
+    public int ringArrayCount () {
+        return (int) counts.ringArrays;
+    }
+
+    /**
+     * @return the properties of a ring array
+     */
+    public BagObject properties (int ringArray) {
+        var index = chunks.getInt (layout.ringArrayProperties + (ringArray * 4L));
+        if (index < 0) {
+            return null;
+        }
+        var bag = properties.get (index);
+        if (bag == null) {
+            var start = chunks.getLong (layout.propertyOffsets + (index * 8L));
+            var bytes = new byte[(int) (chunks.getLong (layout.propertyOffsets + ((index + 1) * 8L)) - start)];
+            for (var i = 0; i < bytes.length; ++i) {
+                bytes[i] = chunks.get (layout.propertyBytes + start + i);
+            }
+            bag = BagObjectFrom.string (new String (bytes, StandardCharsets.UTF_8));
+            if (bag == null) {
+                throw new UncheckedIOException (new IOException ("invalid properties: " + index));
+            }
+            if (! properties.compareAndSet (index, null, bag)) {
+                bag = properties.get (index);
+            }
+        }
+        return bag;
+    }
+
+    // the coordinates and line equation of a vertex
+    private double x (long vertex) {
+        return chunks.getDouble (layout.vertices + (vertex * VERTEX_BYTES));
+    }
+
+    private double y (long vertex) {
+        return chunks.getDouble (layout.vertices + (vertex * VERTEX_BYTES) + 8);
+    }
+
+    // Segment.contains for the edge that starts at a vertex
+    private boolean onEdge (long vertex, double x, double y) {
+        var at = layout.vertices + (vertex * VERTEX_BYTES);
+        return PackedPolygon.onEdge (chunks.getDouble (at + 16), chunks.getDouble (at + 24), chunks.getDouble (at + 32),
+                chunks.getDouble (at), chunks.getDouble (at + 8), x (vertex + 1), y (vertex + 1), x, y);
+    }
+
+    private int firstRing (int ringArray) {
+        return chunks.getInt (layout.ringArrayRings + (ringArray * 4L));
+    }
+
+    private int firstChain (int ring) {
+        return chunks.getInt (layout.ringChains + (ring * 4L));
+    }
+
+    private long firstVertex (int chain) {
+        return chunks.getLong (layout.chainVertices + (chain * 8L));
+    }
+
+    /**
+     * @return a ring array, built from the file on each call
+     */
+    public RingArray ringArray (int index) {
+        var rings = new ArrayList<Polygon> ();
+        for (int ring = firstRing (index), end = firstRing (index + 1); ring < end; ++ring) {
+            var segments = new ArrayList<Segment> ();
+            for (int chain = firstChain (ring), chainEnd = firstChain (ring + 1); chain < chainEnd; ++chain) {
+                for (long vertex = firstVertex (chain), last = firstVertex (chain + 1) - 1; vertex < last; ++vertex) {
+                    segments.add (new Segment (x (vertex), y (vertex), x (vertex + 1), y (vertex + 1)));
+                }
+            }
+            rings.add (new Polygon (new Segments (segments)));
+        }
+        return new RingArray (rings, properties (index));
+    }
+
+    // PackedPolygon.contains for a ring
+    private boolean ringContains (int ring, double x, double y) {
+        var windingNumber = 0;
+        for (int chain = firstChain (ring), end = firstChain (ring + 1); chain < end; ++chain) {
+            var last = firstVertex (chain + 1) - 1;
+            var vertex = firstVertex (chain);
+            double ax = x (vertex), ay = y (vertex);
+            for (; vertex < last; ++vertex) {
+                double bx = x (vertex + 1), by = y (vertex + 1);
+                if (onEdge (vertex, x, y)) {
+                    return true;
+                }
+                windingNumber += PackedPolygon.winding (ax, ay, bx, by, x, y);
+                ax = bx;
+                ay = by;
+            }
+        }
+        return windingNumber != 0;
+    }
+
+    // RingArray.contains, the boundary and not any of the holes
+    private boolean ringArrayContains (int ringArray, double x, double y) {
+        var ring = firstRing (ringArray);
+        if (! ringContains (ring, x, y)) {
+            return false;
+        }
+        for (int end = firstRing (ringArray + 1); ++ring < end; ) {
+            if (ringContains (ring, x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // LocalPolygon.ringContains for a local ring
+    private boolean localRingContains (long localRing, double x, double y, double refX, double refY) {
+        var start = chunks.getLong (layout.localRingEdges + (localRing * 8));
+        var end = chunks.getLong (layout.localRingEdges + ((localRing + 1) * 8));
+        for (var edge = start; edge < end; ++edge) {
+            if (onEdge (chunks.getLong (layout.edges + (edge * 8)), x, y)) {
+                return true;
+            }
+        }
+        var crossings = 0;
+        for (var edge = start; edge < end; ++edge) {
+            var vertex = chunks.getLong (layout.edges + (edge * 8));
+            if (PackedPolygon.crosses (x (vertex), y (vertex), x (vertex + 1), y (vertex + 1), x, y, refX, refY)) {
+                ++crossings;
+            }
+        }
+        var refInside = chunks.getInt (layout.localRingFlags + (localRing * 8) + 4) != 0;
+        return refInside == ((crossings & 1) == 0);
+    }
+
+    private boolean hole (long localRing) {
+        return chunks.getInt (layout.localRingFlags + (localRing * 8)) != 0;
+    }
+
+    // LocalPolygon.contains, the boundary rings first, then the holes
+    private boolean localContains (long local, double x, double y) {
+        var refX = chunks.getDouble (layout.localRefs + (local * 16));
+        var refY = chunks.getDouble (layout.localRefs + (local * 16) + 8);
+        var start = chunks.getLong (layout.localRings + (local * 8));
+        var end = chunks.getLong (layout.localRings + ((local + 1) * 8));
+        for (var localRing = start; localRing < end; ++localRing) {
+            if ((! hole (localRing)) && (! localRingContains (localRing, x, y, refX, refY))) {
+                return false;
+            }
+        }
+        for (var localRing = start; localRing < end; ++localRing) {
+            if (hole (localRing) && localRingContains (localRing, x, y, refX, refY)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Classifier.Container.contains
+    private boolean containerContains (long container, double x, double y) {
+        var local = chunks.getLong (layout.containerLocals + (container * 8));
+        if (local == TRIVIAL) {
+            return true;
+        }
+        return (local == WHOLE) ? ringArrayContains (containerRingArray (container), x, y) : localContains (local, x, y);
+    }
+
+    private int containerRingArray (long container) {
+        return chunks.getInt (layout.containerRingArrays + (container * 4));
+    }
+
+    // the slot of the cell containing a point in the cell sections, by binary search on the keys,
+    // or -1 if the cell is empty
+    private long slotAt (double x, double y) {
+        var key = grid.cellIndex (x, y);
+        long low = 0, high = counts.cells - 1;
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var midKey = chunks.getInt (layout.cellKeys + (mid * 4));
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long firstContainer (long slot) {
+        return chunks.getLong (layout.cellContainers + (slot * 8));
+    }
+
+    /**
+     * @return the indices of the ring arrays listed in the grid cell containing a point, in the
+     * order they are tested
+     */
+    public int[] ringArraysAt (double x, double y) {
+        var slot = slotAt (x, y);
+        if (slot < 0) {
+            return new int[0];
+        }
+        var start = firstContainer (slot);
+        var result = new int[(int) (firstContainer (slot + 1) - start)];
+        for (var i = 0; i < result.length; ++i) {
+            result[i] = containerRingArray (start + i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the first ring array containing a point, or Classifier.NONE, the same as
+     * the ring array Classifier.getAt finds
+     */
+    public int indexAt (double x, double y) {
+        var slot = slotAt (x, y);
+        if (slot >= 0) {
+            for (long container = firstContainer (slot), end = firstContainer (slot + 1); container < end; ++container) {
+                if (containerContains (container, x, y)) {
+                    return containerRingArray (container);
+                }
+            }
+        }
+        return Classifier.NONE;
+    }
+
+    /**
+     * @return the properties of the first ring array containing a point, or null, the same as
+     * Classifier.getAt
+     */
+    public BagObject getAt (Tuple pt) {
+        var index = indexAt (pt.x, pt.y);
+        return (index != Classifier.NONE) ? properties (index) : null;
+    }
+
+    // the number of (sorted) points in each parallel chunk of a batch
+    private static final int CLASSIFY_CHUNK = 1 << 14;
+
+    /**
+     * classify a batch of points, giving the same answer as Classifier.classify. the points are
+     * sorted by grid cell so each cell is looked up once for all the points in it, and chunks of the
+     * sorted points are classified in parallel.
+     * @param lons the x-coordinates (longitude) of the points
+     * @param lats the y-coordinates (latitude) of the points
+     * @return the index of the ring array containing each point, or Classifier.NONE
+     */
+    public int[] classify (double[] lons, double[] lats) {
+        assert (lons.length == lats.length);
+        var count = lons.length;
+        var order = new long[count];
+        IntStream.range (0, count).parallel ().forEach (i -> order[i] = ((long) grid.cellIndex (lons[i], lats[i]) << 32) | i);
+        Arrays.parallelSort (order);
+
+        var result = new int[count];
+        var batches = (count + CLASSIFY_CHUNK - 1) / CLASSIFY_CHUNK;
+        IntStream.range (0, batches).parallel ().forEach (batch -> {
+            long start = 0, end = 0;
+            for (int i = batch * CLASSIFY_CHUNK, last = Math.min (count, (batch + 1) * CLASSIFY_CHUNK); i < last; ++i) {
+                // look up the containers when the cell changes
+                var point = (int) order[i];
+                double x = lons[point], y = lats[point];
+                if ((i == batch * CLASSIFY_CHUNK) || ((order[i] >> 32) != (order[i - 1] >> 32))) {
+                    var slot = slotAt (x, y);
+                    start = (slot >= 0) ? firstContainer (slot) : 0;
+                    end = (slot >= 0) ? firstContainer (slot + 1) : 0;
+                }
+                var found = Classifier.NONE;
+                for (var container = start; (container < end) && (found == Classifier.NONE); ++container) {
+                    if (containerContains (container, x, y)) {
+                        found = containerRingArray (container);
+                    }
+                }
+                result[point] = found;
+            }
+        });
+        return result;
+    }
+
+    // the boundary tree nodes, read from the mapped sections
+    private class Tree implements SegmentTreeNodes {
+        @Override
+        public int nodeCount () {
+            return (int) counts.nodes;
+        }
+
+        @Override
+        public int leafCount () {
+            return (int) counts.leaves;
+        }
+
+        @Override
+        public double minX (int node) {
+            return chunks.getDouble (layout.nodeBoxes + (node * 32L));
+        }
+
+        @Override
+        public double minY (int node) {
+            return chunks.getDouble (layout.nodeBoxes + (node * 32L) + 8);
+        }
+
+        @Override
+        public double maxX (int node) {
+            return chunks.getDouble (layout.nodeBoxes + (node * 32L) + 16);
+        }
+
+        @Override
+        public double maxY (int node) {
+            return chunks.getDouble (layout.nodeBoxes + (node * 32L) + 24);
+        }
+
+        @Override
+        public int childStart (int node) {
+            return chunks.getInt (layout.nodeChildren + (node * 8L));
+        }
+
+        @Override
+        public int childEnd (int node) {
+            return chunks.getInt (layout.nodeChildren + (node * 8L) + 4);
+        }
+
+        @Override
+        public int size () {
+            return (int) counts.segments;
+        }
+
+        @Override
+        public int entry (int e) {
+            return chunks.getInt (layout.entries + (e * 4L));
+        }
+
+        @Override
+        public double distance (int index, double x, double y) {
+            var vertex = chunks.getLong (layout.segmentVertices + (index * 8L));
+            return SegmentTree.distance (x (vertex), y (vertex), x (vertex + 1), y (vertex + 1), x, y);
+        }
+    }
+
+    /**
+     * @return the index of the ring array whose boundary is nearest to a point (holes aren't
+     * included), or Classifier.NONE if there is none within the limit
+     */
+    public int nearestBoundary (Tuple pt, double limitRadius) {
+        var nearest = SegmentTree.nearest (tree, pt.x, pt.y, 1, limitRadius);
+        return nearest.isEmpty () ? Classifier.NONE : chunks.getInt (layout.segmentOwners + (nearest.get (0).index () * 4L));
+    }
+
+    /**
+     * @return the distance from a point to the nearest boundary segment, or infinity if there is none
+     * within the limit, the same as Classifier.distanceToNearestBoundary
+     */
+    public double distanceToNearestBoundary (Tuple pt, double limitRadius) {
+        var nearest = SegmentTree.nearest (tree, pt.x, pt.y, 1, limitRadius);
+        return nearest.isEmpty () ? Double.POSITIVE_INFINITY : nearest.get (0).distance ();
+    }
+}
@@ -5,13 +5,13 @@ import org.apache.logging.log4j.Logger;
 
 import us.irdev.bedrock.bag.BagArray;
 import us.irdev.bedrock.bag.BagObject;
-import us.irdev.bedrock.bag.BagObjectFrom;
 import us.irdev.gtk.svg.Frame;
 import us.irdev.gtk.xyw.*;
 
 import static us.irdev.gtk.xyw.Tuple.PT;
 
 import java.io.*;
+import java.net.URI;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
@@ -24,19 +24,28 @@ public class Feature {
     public final BagObject properties;
     public final List<RingArray> ringArrays;
 
-    // a coordinate is an array of floats (maybe 2 or 3)
-    private static Tuple coordinateFrom(BagArray tupleArray) {
-        return PT(tupleArray.getFloat(0), tupleArray.getFloat(1));
+    // a ring is an array of coordinates, it may be closed (polygon) or open (polyline). each
+    // coordinate is an array of numbers (maybe 2 or 3), and only the first two are used
+    private static Polygon ringFrom(BagArray ring) {
+        var count = ring.getCount();
+        var xs = new double[count];
+        var ys = new double[count];
+        for (var i = 0; i < count; ++i) {
+            var tupleArray = ring.getBagArray(i);
+            xs[i] = tupleArray.getDouble(0);
+            ys[i] = tupleArray.getDouble(1);
+        }
+        return ringFrom(xs, ys, count);
     }
 
-    // a ring is an array of coordinates, it may be closed (polygon) or open (polyline)
-    private static Polygon ringFrom(BagArray ring) {
+    // a ring from the first count coordinates in a pair of arrays
+    static Polygon ringFrom(double[] xs, double[] ys, int count) {
         var tuples = new ArrayList<Tuple>();
         // geojson transmits the last point the same as the first, so we don't need to grab the last
         // one, but it doesn't seem to protect against duplicate tuples...
         var lastTuple = PT(1.0e9, 1.0e9);
-        for (int i = 0, count = ring.getCount() - 1; i < count; ++i) {
-            var tuple = coordinateFrom(ring.getBagArray(i));
+        for (int i = 0, end = count - 1; i < end; ++i) {
+            var tuple = PT(xs[i], ys[i]);
             if (!Tuple.similar(tuple, lastTuple)) {
                 lastTuple = tuple;
                 tuples.add(tuple);
@@ -81,6 +90,11 @@ public class Feature {
         return result;
     }
 
+    Feature(BagObject properties, List<RingArray> ringArrays) {
+        this.properties = properties;
+        this.ringArrays = ringArrays;
+    }
+
     public Feature(BagObject bagObject) {
         assert (bagObject.getString("type").equals("Feature"));
         properties = bagObject.getBagObject("properties");
@@ -128,39 +142,23 @@ public class Feature {
         throw new Exception("File or resource not found: " + source);
     }
 
-    private static InputStream getSourceAsInputStream(String source) throws Exception {
-        var inputStream = getFileOrResource (source);
+    static InputStream getSourceAsInputStream(String source) throws Exception {
+        var inputStream = source.startsWith("https://") ? URI.create(source).toURL().openStream() : getFileOrResource (source);
         return source.endsWith(".gz") ? new GZIPInputStream(inputStream) : inputStream;
     }
 
+    /**
+     * read all the features in a GeoJSON file, resource, or https url, which is streamed so only the
+     * features themselves are kept in memory. use a FeatureReader directly to handle the features
+     * one at a time instead.
+     */
     public static List<Feature> fromGeoJson(String source) throws Exception {
-        BagObject root;
-        if (source.startsWith("https://")) {
-            root = BagObjectFrom.url(source);
-        } else {
-            root = BagObjectFrom.inputStream(getSourceAsInputStream(source));
+        var result = new ArrayList<Feature>();
+        try (var reader = FeatureReader.open(source)) {
+            reader.forEachRemaining(result::add);
         }
         log.info ("Loaded {}", source);
-
-        // handle the geojson contents
-        switch (root.getString("type")) {
-            case "Feature": {
-                return List.of(new Feature(root));
-            }
-            case "FeatureCollection": {
-                var result = new ArrayList<Feature>();
-                var features = root.getBagArray("features");
-                for (int i = 0, count = features.getCount(); i < count; ++i) {
-                    var node = features.getBagObject(i);
-                    if (node.getString("type").equals("Feature")) {
-                        result.add(new Feature(node));
-                    }
-                }
-                return result;
-            }
-            default:
-                return new ArrayList<Feature>();
-        }
+        return result;
     }
 
     public void toSvg(Frame frame) {
@@ -0,0 +1,475 @@
+package us.irdev.gtk.geography;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.bedrock.bag.BagObjectFrom;
+import us.irdev.gtk.xyw.Polygon;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// a pull parser for GeoJSON that reads one feature at a time from a stream, without building a
+// tree for the whole document. the coordinates of each ring are read straight into arrays of
+// doubles, at full precision, and only the properties of each feature are handed to bedrock (as
+// the raw text of the properties object). the document can be a single Feature, or a
+// FeatureCollection, in which case the features are read as they are asked for. other members of
+// the document are skipped.
+public class FeatureReader implements Iterator<Feature>, Closeable {
+    private static final Logger log = LogManager.getLogger(FeatureReader.class);
+
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private long offset;
+
+    // reusable buffers for numbers, strings, and ring coordinates
+    private final StringBuilder text = new StringBuilder();
+    private double[] xs = new double[1024];
+    private double[] ys = new double[1024];
+
+    // the parse state: whether we are in the features array of a collection, and the next feature
+    private boolean inFeatures;
+    private boolean firstFeature;
+    private Feature next;
+
+    /**
+     * @param inputStream the UTF-8 GeoJSON to read, which is closed when the reader is
+     */
+    public FeatureReader(InputStream inputStream) throws IOException {
+        reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        start();
+    }
+
+    /**
+     * open a file, resource, or https url, decompressing it as it's read if the name ends in .gz
+     */
+    public static FeatureReader open(String source) throws Exception {
+        return new FeatureReader(Feature.getSourceAsInputStream(source));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ((next == null) && inFeatures) {
+            try {
+                next = advance();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Feature next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var feature = next;
+        next = null;
+        return feature;
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // the document structure
+    // -----------------------------------------------------------------------------------------------
+
+    // the members of a feature object, as they are read
+    private static class Parts {
+        String type;
+        String properties;
+        String geometryType;
+        Object coordinates;
+    }
+
+    // read the root object up to the features array, or the whole thing if it's a single feature
+    private void start() throws IOException {
+        expect('{');
+        var parts = new Parts();
+        if (!members(parts, true)) {
+            // stopped at the start of the features array
+            inFeatures = true;
+            firstFeature = true;
+        } else if ("Feature".equals(parts.type)) {
+            next = feature(parts);
+        }
+    }
+
+    // read the next feature in the features array, skipping anything that isn't a feature
+    private Feature advance() throws IOException {
+        while (true) {
+            skipWhitespace();
+            if (peek() == ']') {
+                ++position;
+                inFeatures = false;
+
+                // the rest of the root object
+                skipWhitespace();
+                if (read() != '}') {
+                    --position;
+                    expect(',');
+                    members(new Parts(), false);
+                }
+                return null;
+            }
+            if (!firstFeature) {
+                expect(',');
+                skipWhitespace();
+            }
+            firstFeature = false;
+            if (peek() == '{') {
+                ++position;
+                var parts = new Parts();
+                members(parts, false);
+                if ("Feature".equals(parts.type)) {
+                    return feature(parts);
+                }
+            } else {
+                skipValue(null);
+            }
+        }
+    }
+
+    /**
+     * read the members of an object, after the opening brace, up to and including the closing one.
+     * @param stopAtFeatures stop after the opening bracket of a features array
+     * @return false if it stopped at a features array
+     */
+    private boolean members(Parts parts, boolean stopAtFeatures) throws IOException {
+        skipWhitespace();
+        if (peek() == '}') {
+            ++position;
+            return true;
+        }
+        while (true) {
+            skipWhitespace();
+            var key = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            switch (key) {
+                case "type" -> parts.type = string();
+                case "properties" -> {
+                    text.setLength(0);
+                    skipValue(text);
+                    parts.properties = text.toString();
+                }
+                case "geometry" -> geometry(parts);
+                case "features" -> {
+                    if (stopAtFeatures && (peek() == '[')) {
+                        ++position;
+                        return false;
+                    }
+                    skipValue(null);
+                }
+                default -> skipValue(null);
+            }
+            skipWhitespace();
+            if (read() == '}') {
+                return true;
+            }
+            --position;
+            expect(',');
+        }
+    }
+
+    private void geometry(Parts parts) throws IOException {
+        if (peek() != '{') {
+            // a null geometry
+            skipValue(null);
+            return;
+        }
+        ++position;
+        skipWhitespace();
+        if (peek() == '}') {
+            ++position;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            var key = string();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            switch (key) {
+                case "type" -> parts.geometryType = string();
+                case "coordinates" -> {
+                    expect('[');
+                    parts.coordinates = coordinates();
+                }
+                default -> skipValue(null);
+            }
+            skipWhitespace();
+            if (read() == '}') {
+                return;
+            }
+            --position;
+            expect(',');
+        }
+    }
+
+    private static Feature feature(Parts parts) {
+        var properties = ((parts.properties == null) || parts.properties.equals("null")) ? null : BagObjectFrom.string(parts.properties);
+        var ringArrays = new ArrayList<RingArray>();
+        var type = (parts.geometryType != null) ? parts.geometryType : "None";
+        switch (type) {
+            case "MultiPolygon" -> {
+                for (var polygon : nested(parts.coordinates)) {
+                    ringArrays.add(ringArray(polygon, properties));
+                }
+            }
+            case "Polygon" -> ringArrays.add(ringArray(parts.coordinates, properties));
+            default -> log.warn("No geometry read, found type: {}", type);
+        }
+        return new Feature(properties, ringArrays);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> nested(Object coordinates) {
+        return (coordinates instanceof List) ? (List<Object>) coordinates : List.of();
+    }
+
+    private static RingArray ringArray(Object coordinates, BagObject properties) {
+        var rings = new ArrayList<Polygon>();
+        for (var ring : nested(coordinates)) {
+            if (ring instanceof Polygon polygon) {
+                rings.add(polygon);
+            }
+        }
+        return new RingArray(rings, properties);
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // coordinates
+    // -----------------------------------------------------------------------------------------------
+
+    // read a coordinates array, after its opening bracket, as nested lists with a polygon for each
+    // array of positions
+    private Object coordinates() throws IOException {
+        skipWhitespace();
+        var c = peek();
+        if (c == ']') {
+            ++position;
+            return List.of();
+        }
+        if (c != '[') {
+            // a single position, which isn't part of any ring
+            skipPosition();
+            return null;
+        }
+
+        // look inside the first element, to see if this is an array of positions
+        ++position;
+        skipWhitespace();
+        c = peek();
+        if ((c != '[') && (c != ']')) {
+            return ring();
+        }
+        var list = new ArrayList<>();
+        list.add(coordinates());
+        while (true) {
+            skipWhitespace();
+            if (read() == ']') {
+                return list;
+            }
+            --position;
+            expect(',');
+            skipWhitespace();
+            expect('[');
+            list.add(coordinates());
+        }
+    }
+
+    // read the rest of an array of positions, after the opening bracket of the first one
+    private Polygon ring() throws IOException {
+        var count = 0;
+        while (true) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = number();
+            skipWhitespace();
+            expect(',');
+            skipWhitespace();
+            ys[count++] = number();
+            skipPosition();
+            skipWhitespace();
+            if (read() == ']') {
+                return Feature.ringFrom(xs, ys, count);
+            }
+            --position;
+            expect(',');
+            skipWhitespace();
+            expect('[');
+            skipWhitespace();
+        }
+    }
+
+    // skip any remaining values in a position, and the closing bracket
+    private void skipPosition() throws IOException {
+        while (true) {
+            skipWhitespace();
+            var c = read();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                --position;
+            }
+            skipWhitespace();
+            if (peek() != ']') {
+                number();
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // tokens
+    // -----------------------------------------------------------------------------------------------
+
+    private IOException error(String message) {
+        return new IOException(message + " at offset " + (offset + position));
+    }
+
+    // make sure there are unread characters in the buffer, returns false at the end of the input.
+    // the unread characters are kept, with one character before them so a read can be undone.
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        var keep = Math.min(position, 1);
+        System.arraycopy(buffer, position - keep, buffer, 0, keep);
+        offset += position - keep;
+        position = keep;
+        var count = reader.read(buffer, keep, buffer.length - keep);
+        limit = keep + Math.max(count, 0);
+        return count > 0;
+    }
+
+    private char peek() throws IOException {
+        if (!fill()) {
+            throw error("unexpected end of input");
+        }
+        return buffer[position];
+    }
+
+    private char read() throws IOException {
+        var c = peek();
+        ++position;
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        var c = read();
+        if (c != expected) {
+            throw error("expected '" + expected + "' but found '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (fill() && Character.isWhitespace(buffer[position])) {
+            ++position;
+        }
+    }
+
+    private static boolean isNumberChar(char c) {
+        return ((c >= '0') && (c <= '9')) || (c == '-') || (c == '+') || (c == '.') || (c == 'e') || (c == 'E');
+    }
+
+    private double number() throws IOException {
+        text.setLength(0);
+        while (fill() && isNumberChar(buffer[position])) {
+            text.append(buffer[position++]);
+        }
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException exception) {
+            throw error("invalid number '" + text + "'");
+        }
+    }
+
+    private String string() throws IOException {
+        expect('"');
+        text.setLength(0);
+        while (true) {
+            var c = read();
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        var code = 0;
+                        for (var i = 0; i < 4; ++i) {
+                            var digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw error("invalid unicode escape");
+                            }
+                            code = (code << 4) | digit;
+                        }
+                        text.append((char) code);
+                    }
+                    default -> text.append(c);
+                }
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    /**
+     * skip a value of any type, copying its text if a builder is given
+     */
+    private void skipValue(StringBuilder copy) throws IOException {
+        var c = peek();
+        if ((c == '"') || (c == '{') || (c == '[')) {
+            // read up to the end of the string, or the matching close
+            var depth = 0;
+            var inString = false;
+            do {
+                c = read();
+                if (copy != null) {
+                    copy.append(c);
+                }
+                if (inString) {
+                    if (c == '\\') {
+                        c = read();
+                        if (copy != null) {
+                            copy.append(c);
+                        }
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if ((c == '{') || (c == '[')) {
+                    ++depth;
+                } else if ((c == '}') || (c == ']')) {
+                    --depth;
+                }
+            } while (inString || (depth > 0));
+        } else {
+            // a number or a literal, up to the next delimiter
+            while (fill() && (",}]".indexOf(buffer[position]) < 0) && !Character.isWhitespace(buffer[position])) {
+                c = read();
+                if (copy != null) {
+                    copy.append(c);
+                }
+            }
+        }
+    }
+}
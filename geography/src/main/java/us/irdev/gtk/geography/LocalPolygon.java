@@ -0,0 +1,124 @@
+package us.irdev.gtk.geography;
+
+import us.irdev.gtk.xyw.*;
+
+import java.util.List;
+
+// the part of a ring array that passes through a small region, with enough information to answer
+// containment for points in that region without the rest of the rings. each local ring keeps just
+// the edges that touch the region, and whether a reference point in the region is inside the whole
+// ring. a point is on the same side of the ring as the reference point if the segment between
+// them crosses the local edges an even number of times. rings that don't touch the region at all
+// are left out, the region is either entirely inside the boundary or entirely outside the holes
+// they would describe.
+public class LocalPolygon {
+    public final Polygon[] rings;
+    public final boolean[] holes;
+    public final double refX;
+    public final double refY;
+    private final boolean[] refInside;
+    private final PackedPolygon[] packed;
+
+    /**
+     * @param rings the edges of each ring that touch the region
+     * @param holes whether each ring is a hole
+     * @param refX the x-coordinate of the reference point, which must not be on any ring
+     * @param refY the y-coordinate of the reference point
+     * @param refInside whether the reference point is inside each whole ring
+     */
+    public LocalPolygon (Polygon[] rings, boolean[] holes, double refX, double refY, boolean[] refInside) {
+        this.rings = rings;
+        this.holes = holes;
+        this.refX = refX;
+        this.refY = refY;
+        this.refInside = refInside;
+        packed = new PackedPolygon[rings.length];
+        for (var i = 0; i < rings.length; ++i) {
+            packed[i] = rings[i].packed ();
+        }
+    }
+
+    // test a point against one ring, on its boundary counts as inside, like Polygon.contains
+    private boolean ringContains (int i, double x, double y) {
+        return packed[i].onBoundary (x, y) || (refInside[i] == ((packed[i].crossings (x, y, refX, refY) & 1) == 0));
+    }
+
+    /**
+     * @return true if the point is inside the boundary and not inside any of the holes, the same as
+     * RingArray.contains for points in the region
+     */
+    public boolean contains (double x, double y) {
+        // check the boundary first, since most points fail there if they fail at all
+        for (var i = 0; i < rings.length; ++i) {
+            if ((! holes[i]) && (! ringContains (i, x, y))) {
+                return false;
+            }
+        }
+        for (var i = 0; i < rings.length; ++i) {
+            if (holes[i] && ringContains (i, x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the reference point is inside the whole of ring i
+     */
+    public boolean refInside (int i) {
+        return refInside[i];
+    }
+
+    public int edgeCount () {
+        var count = 0;
+        for (var ring : rings) {
+            count += ring.segments.length;
+        }
+        return count;
+    }
+
+    /**
+     * test whether a segment passes through a box, expanded by a margin on every side
+     */
+    public static boolean overlaps (Segment segment, double minX, double minY, double maxX, double maxY, double margin) {
+        // clip the parametric segment against the x slab, then the y slab (liang-barsky)
+        var ax = segment.a.x;
+        var ay = segment.a.y;
+        var dx = segment.b.x - ax;
+        var dy = segment.b.y - ay;
+        var t0 = 0.0;
+        var t1 = 1.0;
+        if (dx == 0) {
+            if ((ax < minX - margin) || (ax > maxX + margin)) {
+                return false;
+            }
+        } else {
+            var ta = (minX - margin - ax) / dx;
+            var tb = (maxX + margin - ax) / dx;
+            t0 = Math.max (t0, Math.min (ta, tb));
+            t1 = Math.min (t1, Math.max (ta, tb));
+        }
+        if (dy == 0) {
+            return (t0 <= t1) && (ay >= minY - margin) && (ay <= maxY + margin);
+        }
+        var ta = (minY - margin - ay) / dy;
+        var tb = (maxY + margin - ay) / dy;
+        return Math.max (t0, Math.min (ta, tb)) <= Math.min (t1, Math.max (ta, tb));
+    }
+
+    /**
+     * count the segments (from a list, by index) that cross the segment from p to q, the same way
+     * PackedPolygon.crossings does
+     * @return the number of crossings
+     */
+    public static int crossings (List<Segment> segments, int[] indices, double px, double py, double qx, double qy) {
+        var count = 0;
+        for (var index : indices) {
+            var segment = segments.get (index);
+            if (PackedPolygon.crosses (segment.a.x, segment.a.y, segment.b.x, segment.b.y, px, py, qx, qy)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,354 @@
+package us.irdev.gtk.geography;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.gtk.xyw.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// a classifier that stores the ring arrays in an adaptive quadtree instead of a fixed grid. a node
+// is only subdivided while more than a given number of edges pass through it, so open areas are
+// covered by a few large leaves, and coastlines get small leaves that each hold just a few edges.
+// every leaf lists the ring arrays that touch or cover it, either as a trivial accept, or as a
+// LocalPolygon holding only the edges in that leaf.
+public class QuadtreeClassifier {
+    private static final Logger log = LogManager.getLogger(QuadtreeClassifier.class);
+
+    public static final int DEFAULT_MAX_EDGES = 32;
+    public static final int DEFAULT_MAX_DEPTH = 20;
+
+    // an entry in a leaf, the index of a ring array and its local polygon, or null for a trivial
+    // accept
+    private record Entry(int index, LocalPolygon local) {}
+
+    private static class Node {
+        final double minX, minY, maxX, maxY;
+        final double midX, midY;
+        Node[] children;
+        Entry[] entries;
+
+        Node (double minX, double minY, double maxX, double maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            midX = (minX + maxX) / 2;
+            midY = (minY + maxY) / 2;
+        }
+
+        Node child (double x, double y) {
+            return children[((x >= midX) ? 1 : 0) + ((y >= midY) ? 2 : 0)];
+        }
+    }
+
+    public final List<RingArray> ringArrays;
+    public final Domain domain;
+    private final int maxEdges;
+    private final int maxDepth;
+    private final double pad;
+    private final Node root;
+    private int leafCount;
+    private long entryCount;
+
+    public QuadtreeClassifier (List<RingArray> ringArrays) {
+        this (ringArrays, DEFAULT_MAX_EDGES, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param ringArrays the ring arrays to classify points into
+     * @param maxEdges the number of edges a node can hold before it is subdivided
+     * @param maxDepth the maximum depth of the tree
+     */
+    public QuadtreeClassifier (List<RingArray> ringArrays, int maxEdges, int maxDepth) {
+        this.ringArrays = List.copyOf (ringArrays);
+        this.maxEdges = maxEdges;
+        this.maxDepth = maxDepth;
+
+        // the root covers all of the ring arrays, made square so the leaves are too
+        var bounds = new Domain ();
+        var longest = 0.0;
+        for (var ringArray : ringArrays) {
+            bounds = Domain.union (bounds, ringArray.domain ());
+            for (var segment : ringArray.boundary.segments.segments) {
+                longest = Math.max (longest, segment.length ());
+            }
+        }
+        if (! bounds.valid ()) {
+            bounds = new Domain (-180., 180., -90., 90.);
+        }
+        var half = Math.max (bounds.width (), bounds.height ()) / 2;
+        var center = bounds.center ();
+        domain = new Domain (center.x - half, center.x + half, center.y - half, center.y + half);
+        var magnitude = Math.max (Math.max (Math.abs (domain.min.x), Math.abs (domain.max.x)), Math.max (Math.abs (domain.min.y), Math.abs (domain.max.y)));
+
+        // pad the nodes so that edges within the boundary tolerance of a node are always in it
+        pad = Numerics.TOLERANCE * (1 + magnitude + longest);
+
+        // set up the state of every ring at the root, with all of its edges, and a reference point
+        // whose containment is found the slow way
+        root = new Node (domain.min.x, domain.min.y, domain.max.x, domain.max.y);
+        var candidates = new ArrayList<ArrayState> ();
+        for (var index = 0; index < this.ringArrays.size (); ++index) {
+            var ringArray = this.ringArrays.get (index);
+            var rings = new ArrayList<RingState> ();
+            rings.add (RingState.whole (ringArray.boundary, false));
+            for (var hole : ringArray.holes) {
+                rings.add (RingState.whole (hole, true));
+            }
+            candidates.add (new ArrayState (index, rings));
+        }
+        var ref = reference (root, candidates);
+        var states = new ArrayList<ArrayState> ();
+        for (var candidate : candidates) {
+            var rings = new ArrayList<RingState> ();
+            for (var ring : candidate.rings) {
+                rings.add (new RingState (ring.ring, ring.hole, ring.edges, ring.ring.packed ().contains (ref[0], ref[1])));
+            }
+            states.add (new ArrayState (candidate.index, rings));
+        }
+        build (root, states, ref, 0);
+        log.info ("Built quadtree with {} leaves, and {} entries", leafCount, entryCount);
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // construction
+    // -----------------------------------------------------------------------------------------------
+
+    // the state of one ring in a node: the indices of the ring's edges that touch the node, and
+    // whether the node's reference point is inside the whole ring
+    private record RingState (Polygon ring, boolean hole, int[] edges, boolean refInside) {
+        static RingState whole (Polygon ring, boolean hole) {
+            var edges = new int[ring.segments.length];
+            for (var i = 0; i < edges.length; ++i) {
+                edges[i] = i;
+            }
+            return new RingState (ring, hole, edges, false);
+        }
+    }
+
+    // the state of one ring array in a node, only the rings that touch the node are kept
+    private record ArrayState (int index, List<RingState> rings) {}
+
+    // a set of candidate positions for a reference point in a node, as fractions of its size,
+    // tried in order until one isn't on any of the edges
+    private static final double[][] REFERENCE_FRACTIONS = {
+            { 0.5, 0.5 }, { 0.382, 0.618 }, { 0.618, 0.382 }, { 0.271, 0.271 }, { 0.729, 0.729 }, { 0.137, 0.863 }
+    };
+
+    private static double[] reference (Node node, List<ArrayState> states) {
+        double[] ref = null;
+        for (var fraction : REFERENCE_FRACTIONS) {
+            ref = new double[] { node.minX + ((node.maxX - node.minX) * fraction[0]), node.minY + ((node.maxY - node.minY) * fraction[1]) };
+            if (! onAnyEdge (states, ref)) {
+                break;
+            }
+        }
+        return ref;
+    }
+
+    private static boolean onAnyEdge (List<ArrayState> states, double[] ref) {
+        var pt = Tuple.PT (ref[0], ref[1]);
+        for (var state : states) {
+            for (var ring : state.rings) {
+                var segments = ring.ring.segments.segments;
+                for (var edge : ring.edges) {
+                    if (segments.get (edge).contains (pt)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void build (Node node, List<ArrayState> states, double[] ref, int depth) {
+        var edges = 0;
+        for (var state : states) {
+            for (var ring : state.rings) {
+                edges += ring.edges.length;
+            }
+        }
+
+        if ((edges <= maxEdges) || (depth >= maxDepth)) {
+            // make this a leaf
+            node.entries = new Entry[states.size ()];
+            for (var i = 0; i < node.entries.length; ++i) {
+                node.entries[i] = entry (states.get (i), ref);
+            }
+            ++leafCount;
+            entryCount += node.entries.length;
+            return;
+        }
+
+        // subdivide
+        node.children = new Node[] {
+                new Node (node.minX, node.minY, node.midX, node.midY),
+                new Node (node.midX, node.minY, node.maxX, node.midY),
+                new Node (node.minX, node.midY, node.midX, node.maxY),
+                new Node (node.midX, node.midY, node.maxX, node.maxY)
+        };
+        for (var child : node.children) {
+            // gather the edges in the child first, so the reference point can avoid them
+            var childEdges = new ArrayList<int[][]> (states.size ());
+            var candidates = new ArrayList<ArrayState> (states.size ());
+            for (var state : states) {
+                var ringEdges = new int[state.rings.size ()][];
+                var rings = new ArrayList<RingState> ();
+                for (var r = 0; r < ringEdges.length; ++r) {
+                    var ring = state.rings.get (r);
+                    ringEdges[r] = edgesIn (ring, child);
+                    rings.add (new RingState (ring.ring, ring.hole, ringEdges[r], false));
+                }
+                childEdges.add (ringEdges);
+                candidates.add (new ArrayState (state.index, rings));
+            }
+            var childRef = reference (child, candidates);
+
+            // work out the state of every ring at the child's reference point from the parent's
+            // reference point and the parent's edges, dropping rings that don't touch the child,
+            // and ring arrays that can't contain any of it
+            var childStates = new ArrayList<ArrayState> ();
+            for (var s = 0; s < states.size (); ++s) {
+                var state = states.get (s);
+                var rings = new ArrayList<RingState> ();
+                var excluded = false;
+                for (var r = 0; (r < state.rings.size ()) && (! excluded); ++r) {
+                    var ring = state.rings.get (r);
+                    var crossings = LocalPolygon.crossings (ring.ring.segments.segments, ring.edges, childRef[0], childRef[1], ref[0], ref[1]);
+                    var inside = ring.refInside == ((crossings & 1) == 0);
+                    var inChild = childEdges.get (s)[r];
+                    if (inChild.length > 0) {
+                        rings.add (new RingState (ring.ring, ring.hole, inChild, inside));
+                    } else {
+                        // the ring doesn't touch the child, so the whole child is on one side of it
+                        excluded = (inside == ring.hole);
+                    }
+                }
+                if (! excluded) {
+                    childStates.add (new ArrayState (state.index, rings));
+                }
+            }
+            build (child, childStates, childRef, depth + 1);
+        }
+    }
+
+    private int[] edgesIn (RingState ring, Node node) {
+        var segments = ring.ring.segments.segments;
+        var result = new int[ring.edges.length];
+        var count = 0;
+        for (var edge : ring.edges) {
+            if (LocalPolygon.overlaps (segments.get (edge), node.minX, node.minY, node.maxX, node.maxY, pad)) {
+                result[count++] = edge;
+            }
+        }
+        return Arrays.copyOf (result, count);
+    }
+
+    private Entry entry (ArrayState state, double[] ref) {
+        if (state.rings.isEmpty ()) {
+            return new Entry (state.index, null);
+        }
+        var count = state.rings.size ();
+        var rings = new Polygon[count];
+        var holes = new boolean[count];
+        var refInside = new boolean[count];
+        for (var r = 0; r < count; ++r) {
+            var ring = state.rings.get (r);
+            var segments = ring.ring.segments.segments;
+            var local = new ArrayList<Segment> (ring.edges.length);
+            for (var edge : ring.edges) {
+                local.add (segments.get (edge));
+            }
+            rings[r] = new Polygon (new Segments (local));
+            holes[r] = ring.hole;
+            refInside[r] = ring.refInside;
+        }
+        return new Entry (state.index, new LocalPolygon (rings, holes, ref[0], ref[1], refInside));
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // queries
+    // -----------------------------------------------------------------------------------------------
+
+    private Node leaf (double x, double y) {
+        if ((x < root.minX) || (x > root.maxX) || (y < root.minY) || (y > root.maxY)) {
+            return null;
+        }
+        var node = root;
+        while (node.children != null) {
+            node = node.child (x, y);
+        }
+        return node;
+    }
+
+    /**
+     * @return the index in ringArrays of the first ring array containing the point (x, y), or
+     * Classifier.NONE
+     */
+    public int indexAt (double x, double y) {
+        var leaf = leaf (x, y);
+        if (leaf != null) {
+            for (var entry : leaf.entries) {
+                if ((entry.local == null) || entry.local.contains (x, y)) {
+                    return entry.index;
+                }
+            }
+        }
+        return Classifier.NONE;
+    }
+
+    public BagObject getAt (Tuple pt) {
+        var index = indexAt (pt.x, pt.y);
+        return (index != Classifier.NONE) ? ringArrays.get (index).properties : null;
+    }
+
+    /**
+     * the distance from a point to the nearest boundary segment (holes aren't included), the same
+     * as Classifier.distanceToNearestBoundary
+     * @param pt the point to measure from
+     * @param limitRadius the largest distance to search
+     * @return the distance, or positive infinity if there is no boundary segment within the limit
+     */
+    public double distanceToNearestBoundary (Tuple pt, double limitRadius) {
+        var result = new double[] { Double.POSITIVE_INFINITY };
+        nearest (root, pt, pt.x - limitRadius, pt.y - limitRadius, pt.x + limitRadius, pt.y + limitRadius, result);
+        return (result[0] <= limitRadius) ? result[0] : Double.POSITIVE_INFINITY;
+    }
+
+    private void nearest (Node node, Tuple pt, double minX, double minY, double maxX, double maxY, double[] result) {
+        if ((node.minX > maxX) || (node.maxX < minX) || (node.minY > maxY) || (node.maxY < minY)) {
+            return;
+        }
+        if (node.children != null) {
+            for (var child : node.children) {
+                nearest (child, pt, minX, minY, maxX, maxY, result);
+            }
+            return;
+        }
+        for (var entry : node.entries) {
+            if (entry.local != null) {
+                for (var r = 0; r < entry.local.rings.length; ++r) {
+                    // holes aren't measured, as in Classifier
+                    if (! entry.local.holes[r]) {
+                        for (var segment : entry.local.rings[r].segments.segments) {
+                            if (LocalPolygon.overlaps (segment, minX, minY, maxX, maxY, 0)) {
+                                result[0] = Math.min (result[0], SegmentTree.distance (segment, pt.x, pt.y));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int leafCount () {
+        return leafCount;
+    }
+
+    public long entryCount () {
+        return entryCount;
+    }
+}
@@ -8,6 +8,7 @@ import us.irdev.gtk.functional.ListFunc;
 import static us.irdev.gtk.xyw.Polygon.Classification;
 import static us.irdev.gtk.xyw.Polygon.Classification.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 // the name ring array is taken from the GeoJSON spec discussing polygons
@@ -30,6 +31,19 @@ public class RingArray {
         return ListFunc.reduce (holes, boundary.contains (pt), (hole, value) -> value && !hole.contains (pt));
     }
 
+    // the same test as contains (Tuple), using the packed polygons directly
+    public boolean contains(double x, double y) {
+        if (! boundary.packed ().contains (x, y)) {
+            return false;
+        }
+        for (var hole : holes) {
+            if (hole.packed ().contains (x, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Classification classify (Domain domain) {
         // check the boundary classification, if it contains the entire domain, we need to see if
         // any of the holes have complex containment, necessitating additional testing vs. the
@@ -57,6 +71,162 @@ public class RingArray {
         return boundary.domain();
     }
 
+    /**
+     * @return the rings of this ring array, the boundary then the holes
+     */
+    public List<Polygon> rings () {
+        var rings = new ArrayList<Polygon>();
+        rings.add (boundary);
+        rings.addAll (holes);
+        return rings;
+    }
+
+    private List<RingArray> compute (RingArray ringArray, PolygonBoolean.Operation operation) {
+        return ListFunc.map (PolygonBoolean.compute (List.of (rings ()), List.of (ringArray.rings ()), operation), rings -> new RingArray (rings, properties));
+    }
+
+    /**
+     * @return the ring arrays covered by both this ring array and another, with the properties of
+     * this one
+     */
+    public List<RingArray> intersection (RingArray ringArray) {
+        return compute (ringArray, PolygonBoolean.Operation.INTERSECTION);
+    }
+
+    /**
+     * @return the ring arrays covered by this ring array or another, with the properties of this one
+     */
+    public List<RingArray> union (RingArray ringArray) {
+        return compute (ringArray, PolygonBoolean.Operation.UNION);
+    }
+
+    /**
+     * @return the ring arrays covered by this ring array but not another, with the properties of
+     * this one
+     */
+    public List<RingArray> difference (RingArray ringArray) {
+        return compute (ringArray, PolygonBoolean.Operation.DIFFERENCE);
+    }
+
+    /**
+     * clip the ring array to a rectangle, the fast path for cutting tiles. the boundary and each
+     * hole are clipped on their own (see Polygon.clipToDomain), so the result has the same
+     * containment as this ring array inside the domain.
+     * @param domain the rectangle to clip to
+     * @return the clipped ring array, or null if nothing is left
+     */
+    public RingArray clipToDomain (Domain domain) {
+        var clippedBoundary = boundary.clipToDomain (domain);
+        if (clippedBoundary == null) {
+            return null;
+        }
+        var clippedHoles = new ArrayList<Polygon>();
+        for (var hole : holes) {
+            var clippedHole = hole.clipToDomain (domain);
+            if (clippedHole != null) {
+                clippedHoles.add (clippedHole);
+            }
+        }
+        return new RingArray (clippedBoundary, clippedHoles, properties);
+    }
+
+    // the importance of each vertex of the boundary and then the holes, built on first use
+    private double[][] importance;
+
+    /**
+     * @return the Visvalingam importance of each vertex of the boundary, then of each hole,
+     * computed once with the rings simplified together so they don't cross each other
+     */
+    public double[][] importance () {
+        if (importance == null) {
+            importance = Simplifier.importance (ListFunc.map (rings (), Polygon::vertices), true);
+        }
+        return importance;
+    }
+
+    private static Polygon simplify (Polygon ring, double[] importance, double tolerance) {
+        var kept = Simplifier.select (ring.vertices (), importance, tolerance);
+        return (kept.size () == ring.segments.length) ? ring : new Polygon (kept);
+    }
+
+    /**
+     * simplify the ring array, without letting the boundary or the holes cross themselves or each
+     * other
+     * @param tolerance the smallest vertex importance (triangle area) to keep
+     * @return a ring array with only the vertices at or above the tolerance, and the same properties
+     */
+    public RingArray simplify (double tolerance) {
+        var importance = importance ();
+        var simplifiedHoles = new ArrayList<Polygon>(holes.size ());
+        for (var i = 0; i < holes.size (); ++i) {
+            simplifiedHoles.add (simplify (holes.get (i), importance[i + 1], tolerance));
+        }
+        return new RingArray (simplify (boundary, importance[0], tolerance), simplifiedHoles, properties);
+    }
+
+    /**
+     * simplify ring arrays that share borders, like the regions of a map, so the borders stay
+     * shared. a vertex on the border between ring arrays is kept or dropped in all of them (see
+     * Simplifier.sharedImportance), so no gaps or overlaps open up between neighbors.
+     * @param ringArrays the ring arrays to simplify together
+     * @param tolerance the smallest vertex importance (triangle area) to keep
+     * @return the simplified ring arrays, in the same order and with the same properties
+     */
+    public static List<RingArray> simplify (List<RingArray> ringArrays, double tolerance) {
+        var rings = new ArrayList<Tuple[]> ();
+        for (var ringArray : ringArrays) {
+            for (var ring : ringArray.rings ()) {
+                rings.add (ring.vertices ());
+            }
+        }
+        var importance = Simplifier.sharedImportance (rings);
+        var result = new ArrayList<RingArray> (ringArrays.size ());
+        var r = 0;
+        for (var ringArray : ringArrays) {
+            var simplifiedBoundary = simplify (ringArray.boundary, importance[r++], tolerance);
+            var simplifiedHoles = new ArrayList<Polygon> (ringArray.holes.size ());
+            for (var hole : ringArray.holes) {
+                simplifiedHoles.add (simplify (hole, importance[r++], tolerance));
+            }
+            result.add (new RingArray (simplifiedBoundary, simplifiedHoles, ringArray.properties));
+        }
+        return result;
+    }
+
+    /**
+     * @return the ring array cut into triangles (see Triangulator), over the vertices of the
+     * boundary and then each hole, in order
+     */
+    public Triangulator.Mesh triangulate () {
+        return Triangulator.triangulate (rings ());
+    }
+
+    /**
+     * set the samples of a function inside this ring array to a value (see Rasterizer.fill)
+     */
+    public void fill (SampledFunction function, double value) {
+        Rasterizer.fill (function, rings (), value);
+    }
+
+    /**
+     * set every sample of a function to the fraction of its cell inside this ring array (see
+     * Rasterizer.coverage)
+     */
+    public void coverage (SampledFunction function) {
+        Rasterizer.coverage (function, rings ());
+    }
+
+    /**
+     * set the samples of a function inside each of many ring arrays to a value for that ring array,
+     * like an id, in one pass (see Rasterizer.fillAll)
+     * @param function the function to fill
+     * @param ringArrays the ring arrays, later ones win where they overlap
+     * @param values the value for each ring array
+     */
+    public static void fillAll (SampledFunction function, List<RingArray> ringArrays, double[] values) {
+        Rasterizer.fillAll (function, ListFunc.map (ringArrays, RingArray::rings), values);
+    }
+
     public void toSvg (Frame frame) {
         frame
                 .begin(new Traits(0.01, "#008", "none"))
@@ -67,4 +237,9 @@ public class RingArray {
                     .poly(hole);
         }
     }
+
+    // draw the ring array simplified to a tolerance, usually about the area of a pixel
+    public void toSvg (Frame frame, double tolerance) {
+        simplify (tolerance).toSvg (frame);
+    }
 }
@@ -2,6 +2,8 @@ package us.irdev.gtk.geography;
 
 import us.irdev.gtk.xyw.Tuple;
 
+import java.util.stream.IntStream;
+
 public class Sphere {
     public static final double EARTH_RADIUS_MILES = (3963.1906 + 3949.9028) / 2.0;
 
@@ -15,6 +17,15 @@ public class Sphere {
         this(EARTH_RADIUS_MILES);
     }
 
+    // the haversine formula for the angle between two points, in radians, with the cosines of the
+    // latitudes already computed
+    private static double angle (double rLatA, double rLonA, double cosLatA, double rLatB, double rLonB, double cosLatB) {
+        double sinLat = Math.sin((rLatB - rLatA) / 2);
+        double sinLon = Math.sin((rLonB - rLonA) / 2);
+        double a = (sinLat * sinLat) + (cosLatA * cosLatB * sinLon * sinLon);
+        return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
     public static double greatArcLength (Tuple ta, Tuple tb, double radius) {
         // convert degrees to radians
         double rLatA = Math.toRadians(ta.y);
@@ -22,19 +33,120 @@ public class Sphere {
         double rLatB = Math.toRadians(tb.y);
         double rLonB = Math.toRadians(tb.x);
 
-        // compute deltas
-        double deltaLat = rLatB - rLatA;
-        double deltaLon = rLonB - rLonA;
-
         // use the Haversine formula to compute the length of a great arc between two points
-        double a = Math.pow(Math.sin(deltaLat / 2), 2) + Math.cos(rLatA) * Math.cos(rLatB) * Math.pow(Math.sin(deltaLon / 2), 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        // compute the distance
-        return radius * c;
+        return radius * angle(rLatA, rLonA, Math.cos(rLatA), rLatB, rLonB, Math.cos(rLatB));
     }
 
     public double greatArcLength (Tuple ta, Tuple tb) {
         return greatArcLength(ta, tb, radius);
     }
+
+    // -----------------------------------------------------------------------------------------------
+    // batches
+    // -----------------------------------------------------------------------------------------------
+
+    // a set of points prepared for the batch kernels, in radians with the cosine of each latitude
+    public static class Points {
+        public final double[] rLons;
+        public final double[] rLats;
+        public final double[] cosLats;
+
+        /**
+         * @param lons the longitudes of the points, in degrees
+         * @param lats the latitudes of the points, in degrees
+         */
+        public Points (double[] lons, double[] lats) {
+            assert (lons.length == lats.length);
+            rLons = new double[lons.length];
+            rLats = new double[lats.length];
+            cosLats = new double[lats.length];
+            for (var i = 0; i < lons.length; ++i) {
+                rLons[i] = Math.toRadians(lons[i]);
+                rLats[i] = Math.toRadians(lats[i]);
+                cosLats[i] = Math.cos(rLats[i]);
+            }
+        }
+
+        public int size () {
+            return rLons.length;
+        }
+    }
+
+    // the great arc length from a point (in radians) to one of a set of points
+    double greatArcLength (double rLon, double rLat, double cosLat, Points points, int i) {
+        return radius * angle(rLat, rLon, cosLat, points.rLats[i], points.rLons[i], points.cosLats[i]);
+    }
+
+    // the number of rows in each parallel block of a many to many batch
+    private static final int ROW_BLOCK = 64;
+
+    /**
+     * the great arc lengths from one point to each of a set of points, the same as calling
+     * greatArcLength for each one
+     * @param lon the longitude of the point, in degrees
+     * @param lat the latitude of the point, in degrees
+     * @param points the points to measure to
+     * @return the length of the arc to each point
+     */
+    public double[] greatArcLengths (double lon, double lat, Points points) {
+        var result = new double[points.size()];
+        var rLon = Math.toRadians(lon);
+        var rLat = Math.toRadians(lat);
+        var cosLat = Math.cos(rLat);
+        for (var i = 0; i < result.length; ++i) {
+            result[i] = greatArcLength(rLon, rLat, cosLat, points, i);
+        }
+        return result;
+    }
+
+    /**
+     * the great arc lengths between every pair of points in two sets, the same as calling
+     * greatArcLength for each pair. blocks of rows are computed in parallel.
+     * @param a the points for the rows
+     * @param b the points for the columns
+     * @return the lengths in row order, the length from a[i] to b[j] is at (i * b.size ()) + j
+     * @throws IllegalArgumentException if there are more pairs than fit in an array, use the form
+     * that computes a range of rows for those
+     */
+    public double[] greatArcLengths (Points a, Points b) {
+        var count = (long) a.size() * b.size();
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException ("too many pairs for an array (" + count + "), compute a range of rows at a time");
+        }
+        var result = new double[(int) count];
+        greatArcLengths(a, 0, a.size(), b, result);
+        return result;
+    }
+
+    /**
+     * the great arc lengths from a range of the rows of one set of points to every point in
+     * another, so a matrix too big to hold at once can be computed a band of rows at a time. blocks
+     * of rows are computed in parallel.
+     * @param a the points for the rows
+     * @param rowStart the first row to compute
+     * @param rowEnd one past the last row to compute
+     * @param b the points for the columns
+     * @param out where the lengths go, in row order starting from rowStart, the length from a[i] to
+     *            b[j] is at ((i - rowStart) * b.size ()) + j
+     * @throws IllegalArgumentException if the rows are out of range or out is too small
+     */
+    public void greatArcLengths (Points a, int rowStart, int rowEnd, Points b, double[] out) {
+        if ((rowStart < 0) || (rowEnd > a.size()) || (rowStart > rowEnd)) {
+            throw new IllegalArgumentException ("invalid rows: " + rowStart + " to " + rowEnd);
+        }
+        var columns = b.size();
+        if (((long) (rowEnd - rowStart) * columns) > out.length) {
+            throw new IllegalArgumentException ("output too small for " + (rowEnd - rowStart) + " rows of " + columns);
+        }
+        var blocks = (rowEnd - rowStart + ROW_BLOCK - 1) / ROW_BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            for (int i = rowStart + (block * ROW_BLOCK), end = Math.min(rowEnd, i + ROW_BLOCK); i < end; ++i) {
+                double rLat = a.rLats[i], rLon = a.rLons[i], cosLat = a.cosLats[i];
+                var row = (i - rowStart) * columns;
+                for (var j = 0; j < columns; ++j) {
+                    out[row + j] = greatArcLength(rLon, rLat, cosLat, b, j);
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,243 @@
+package us.irdev.gtk.geography;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// a k-d tree over points on a sphere, for finding the nearest neighbors of a point by great arc
+// length without measuring to every point. the points are stored as 3d unit vectors, where the
+// straight line (chord) distance between two points grows with the angle between them, so the
+// nearest points by chord are the nearest by arc. the tree is implicit: the points are reordered so
+// that each range has its splitting point in the middle, with the smaller coordinates on the axis
+// before it and the larger ones after it.
+public class SphereTree {
+    /**
+     * a point found by a query
+     * @param index the index of the point in the arrays the tree was built from
+     * @param distance the great arc length to the point
+     */
+    public record Neighbor(int index, double distance) {}
+
+    private final Sphere sphere;
+    private final Sphere.Points points;
+
+    // the unit vectors in tree order, the index of each one, and the split axis at each middle
+    private final double[] xs, ys, zs;
+    private final int[] indices;
+    private final byte[] axes;
+
+    /**
+     * @param sphere the sphere to measure distances on
+     * @param lons the longitudes of the points, in degrees
+     * @param lats the latitudes of the points, in degrees
+     */
+    public SphereTree(Sphere sphere, double[] lons, double[] lats) {
+        this.sphere = sphere;
+        points = new Sphere.Points(lons, lats);
+        var count = points.size();
+        xs = new double[count];
+        ys = new double[count];
+        zs = new double[count];
+        indices = new int[count];
+        axes = new byte[count];
+        for (var i = 0; i < count; ++i) {
+            var cosLat = points.cosLats[i];
+            xs[i] = cosLat * Math.cos(points.rLons[i]);
+            ys[i] = cosLat * Math.sin(points.rLons[i]);
+            zs[i] = Math.sin(points.rLats[i]);
+            indices[i] = i;
+        }
+        build(0, count);
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    private double coordinate(int axis, int i) {
+        return (axis == 0) ? xs[i] : (axis == 1) ? ys[i] : zs[i];
+    }
+
+    private void swap(int a, int b) {
+        double x = xs[a], y = ys[a], z = zs[a];
+        xs[a] = xs[b];
+        ys[a] = ys[b];
+        zs[a] = zs[b];
+        xs[b] = x;
+        ys[b] = y;
+        zs[b] = z;
+        var index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
+    }
+
+    // split a range on the axis with the largest spread, at its middle, then split the two halves
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+            double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+            for (var i = lo; i < hi; ++i) {
+                for (var axis = 0; axis < 3; ++axis) {
+                    min[axis] = Math.min(min[axis], coordinate(axis, i));
+                    max[axis] = Math.max(max[axis], coordinate(axis, i));
+                }
+            }
+            var axis = 0;
+            for (var a = 1; a < 3; ++a) {
+                if ((max[a] - min[a]) > (max[axis] - min[axis])) {
+                    axis = a;
+                }
+            }
+            var mid = (lo + hi) >>> 1;
+            select(axis, lo, hi, mid);
+            axes[mid] = (byte) axis;
+
+            // recurse on the smaller half, and loop on the larger one
+            if ((mid - lo) < (hi - mid - 1)) {
+                build(lo, mid);
+                lo = mid + 1;
+            } else {
+                build(mid + 1, hi);
+                hi = mid;
+            }
+        }
+    }
+
+    // partially sort a range so the k-th point is in place on the axis (quickselect)
+    private void select(int axis, int lo, int hi, int k) {
+        --hi;
+        while (lo < hi) {
+            var pivot = coordinate(axis, (lo + hi) >>> 1);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (coordinate(axis, i) < pivot) ++i;
+                while (coordinate(axis, j) > pivot) --j;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // queries
+    // -----------------------------------------------------------------------------------------------
+
+    // the k best points found so far, a max-heap on the squared chord length
+    private static class Best {
+        final double[] keys;
+        final int[] items;
+        int size;
+
+        Best(int k) {
+            keys = new double[k];
+            items = new int[k];
+        }
+
+        double worst() {
+            return (size < keys.length) ? Double.POSITIVE_INFINITY : keys[0];
+        }
+
+        void offer(double key, int item) {
+            if (size < keys.length) {
+                // sift up
+                var i = size++;
+                while (i > 0) {
+                    var parent = (i - 1) >> 1;
+                    if (keys[parent] >= key) break;
+                    keys[i] = keys[parent];
+                    items[i] = items[parent];
+                    i = parent;
+                }
+                keys[i] = key;
+                items[i] = item;
+            } else if (key < keys[0]) {
+                siftDown(key, item);
+            }
+        }
+
+        // put an item in place of the top, and move it down to where it belongs
+        private void siftDown(double key, int item) {
+            var i = 0;
+            while (true) {
+                var child = (2 * i) + 1;
+                if (child >= size) break;
+                if ((child + 1 < size) && (keys[child + 1] > keys[child])) ++child;
+                if (keys[child] <= key) break;
+                keys[i] = keys[child];
+                items[i] = items[child];
+                i = child;
+            }
+            keys[i] = key;
+            items[i] = item;
+        }
+
+        // remove the farthest item
+        int poll() {
+            var item = items[0];
+            if (--size > 0) {
+                siftDown(keys[size], items[size]);
+            }
+            return item;
+        }
+    }
+
+    private void search(int lo, int hi, double x, double y, double z, Best best) {
+        while (lo < hi) {
+            var mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - x, dy = ys[mid] - y, dz = zs[mid] - z;
+            best.offer((dx * dx) + (dy * dy) + (dz * dz), mid);
+            if (hi - lo == 1) {
+                return;
+            }
+
+            // search the side the query is on first, then the other side if it could be closer
+            var axis = axes[mid];
+            var delta = ((axis == 0) ? x : (axis == 1) ? y : z) - coordinate(axis, mid);
+            int nearLo = (delta < 0) ? lo : mid + 1, nearHi = (delta < 0) ? mid : hi;
+            int farLo = (delta < 0) ? mid + 1 : lo, farHi = (delta < 0) ? hi : mid;
+            search(nearLo, nearHi, x, y, z, best);
+            if ((delta * delta) >= best.worst()) {
+                return;
+            }
+            lo = farLo;
+            hi = farHi;
+        }
+    }
+
+    /**
+     * find the k points nearest to a point, by great arc length
+     * @param lon the longitude of the point, in degrees
+     * @param lat the latitude of the point, in degrees
+     * @param k the number of neighbors to find
+     * @return up to k neighbors, nearest first
+     */
+    public List<Neighbor> nearest(double lon, double lat, int k) {
+        var result = new ArrayList<Neighbor>();
+        if ((k <= 0) || (indices.length == 0)) {
+            return result;
+        }
+        var rLon = Math.toRadians(lon);
+        var rLat = Math.toRadians(lat);
+        var cosLat = Math.cos(rLat);
+        var best = new Best(Math.min(k, indices.length));
+        search(0, indices.length, cosLat * Math.cos(rLon), cosLat * Math.sin(rLon), Math.sin(rLat), best);
+
+        // empty the heap from the farthest, filling the result from the end
+        var found = new int[best.size];
+        for (var i = found.length - 1; i >= 0; --i) {
+            found[i] = best.poll();
+        }
+        for (var slot : found) {
+            var index = indices[slot];
+            result.add(new Neighbor(index, sphere.greatArcLength(rLon, rLat, cosLat, points, index)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,314 @@
+package us.irdev.gtk.geography;
+
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.bedrock.bag.BagObjectFrom;
+import us.irdev.gtk.svg.Frame;
+import us.irdev.gtk.svg.Traits;
+import us.irdev.gtk.xyw.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+/**
+ * one z/x/y tile built by a Tiler. each shape is a ring array clipped to the tile (plus its buffer),
+ * with the rings as integer coordinates in the tile extent: x across from the left edge of the tile,
+ * and y down from the top edge. coordinates outside 0 to extent are in the buffer.
+ *
+ * a tile is written as a small little-endian file: magic "GTKT" (4 bytes), version (int), z, x, y,
+ * and extent (4 ints), the tile domain (4 doubles: min x, min y, max x, max y), and the number of
+ * properties (int), each as the length (int) and UTF-8 bytes of its JSON. then the number of shapes
+ * (int), each as the index of its properties (int, -1 for none) and the number of rings (int, the
+ * boundary then the holes). each ring is the number of vertices (int), then the vertices as the
+ * differences from the one before (starting from 0, 0), each coordinate a zigzag-encoded varint.
+ */
+public class Tile {
+    private static final int MAGIC = ('G') | ('T' << 8) | ('K' << 16) | ('T' << 24);
+    private static final int VERSION = 1;
+
+    /**
+     * a ring array in a tile
+     * @param properties the properties of the ring array
+     * @param rings the boundary, then the holes, each as interleaved x and y coordinates
+     */
+    public record Shape(BagObject properties, int[][] rings) {}
+
+    public final int z, x, y, extent;
+    public final Domain domain;
+    public final List<Shape> shapes;
+
+    public Tile (int z, int x, int y, int extent, Domain domain, List<Shape> shapes) {
+        this.z = z;
+        this.x = x;
+        this.y = y;
+        this.extent = extent;
+        this.domain = domain;
+        this.shapes = List.copyOf (shapes);
+    }
+
+    /**
+     * @return the total number of vertices in the shapes
+     */
+    public int vertexCount () {
+        var count = 0;
+        for (var shape : shapes) {
+            for (var ring : shape.rings) {
+                count += ring.length / 2;
+            }
+        }
+        return count;
+    }
+
+    // twice the signed area of a ring of interleaved coordinates
+    static long area (int[] ring) {
+        var area = 0L;
+        for (int i = 0, count = ring.length; i < count; i += 2) {
+            var j = (i + 2) % count;
+            area += ((long) ring[i] * ring[j + 1]) - ((long) ring[j] * ring[i + 1]);
+        }
+        return area;
+    }
+
+    // even-odd crossing test of a point (in tile units) against a ring of interleaved coordinates
+    private static boolean contains (int[] ring, double px, double py) {
+        var inside = false;
+        for (int i = 0, count = ring.length, j = count - 2; i < count; j = i, i += 2) {
+            double ax = ring[j], ay = ring[j + 1], bx = ring[i], by = ring[i + 1];
+            if (((ay > py) != (by > py)) && (px < ax + (((py - ay) / (by - ay)) * (bx - ax)))) {
+                inside = ! inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * @return the properties of the shapes that contain a point, as quantised in this tile
+     */
+    public List<BagObject> getAt (Tuple pt) {
+        var px = ((pt.x - domain.min.x) / domain.width ()) * extent;
+        var py = ((domain.max.y - pt.y) / domain.height ()) * extent;
+        var result = new ArrayList<BagObject> ();
+        for (var shape : shapes) {
+            var inside = contains (shape.rings[0], px, py);
+            for (var i = 1; inside && (i < shape.rings.length); ++i) {
+                inside = ! contains (shape.rings[i], px, py);
+            }
+            if (inside) {
+                result.add (shape.properties);
+            }
+        }
+        return result;
+    }
+
+    // a ring back in the coordinates of the domain
+    private Polygon ringFrom (int[] ring) {
+        var pixelX = domain.width () / extent;
+        var pixelY = domain.height () / extent;
+        var tuples = new ArrayList<Tuple> (ring.length / 2);
+        for (var i = 0; i < ring.length; i += 2) {
+            tuples.add (PT (domain.min.x + (ring[i] * pixelX), domain.max.y - (ring[i + 1] * pixelY)));
+        }
+        return new Polygon (tuples);
+    }
+
+    /**
+     * @return the shapes as ring arrays, back in the coordinates of the domain
+     */
+    public List<RingArray> ringArrays () {
+        var result = new ArrayList<RingArray> (shapes.size ());
+        for (var shape : shapes) {
+            var rings = new ArrayList<Polygon> (shape.rings.length);
+            for (var ring : shape.rings) {
+                rings.add (ringFrom (ring));
+            }
+            result.add (new RingArray (rings, shape.properties));
+        }
+        return result;
+    }
+
+    public void toSvg (Frame frame) {
+        for (var shape : shapes) {
+            frame
+                    .begin (new Traits (0.01, "#008", "none"))
+                    .poly (ringFrom (shape.rings[0]));
+            for (var i = 1; i < shape.rings.length; ++i) {
+                frame
+                        .begin (new Traits (0.005, "#080", "none"))
+                        .poly (ringFrom (shape.rings[i]));
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // writing
+    // -----------------------------------------------------------------------------------------------
+
+    private static ByteBuffer room (ByteBuffer buffer, int bytes) {
+        if (buffer.remaining () >= bytes) {
+            return buffer;
+        }
+        var grown = ByteBuffer.allocate (Math.max (buffer.capacity () * 2, buffer.position () + bytes)).order (ByteOrder.LITTLE_ENDIAN);
+        return grown.put (buffer.flip ());
+    }
+
+    private static ByteBuffer putVarint (ByteBuffer buffer, int value) {
+        buffer = room (buffer, 5);
+        var zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7f) != 0) {
+            buffer.put ((byte) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        return buffer.put ((byte) zigzag);
+    }
+
+    /**
+     * @return the tile in its file form
+     */
+    public byte[] toBytes () {
+        // the distinct properties
+        var properties = new ArrayList<BagObject> ();
+        var propertyIndices = new IdentityHashMap<BagObject, Integer> ();
+        for (var shape : shapes) {
+            if ((shape.properties != null) && (! propertyIndices.containsKey (shape.properties))) {
+                propertyIndices.put (shape.properties, properties.size ());
+                properties.add (shape.properties);
+            }
+        }
+
+        var buffer = ByteBuffer.allocate (1 << 12).order (ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt (MAGIC).putInt (VERSION).putInt (z).putInt (x).putInt (y).putInt (extent);
+        buffer.putDouble (domain.min.x).putDouble (domain.min.y).putDouble (domain.max.x).putDouble (domain.max.y);
+        buffer.putInt (properties.size ());
+        for (var bag : properties) {
+            var bytes = bag.toString ().getBytes (StandardCharsets.UTF_8);
+            buffer = room (buffer, 4 + bytes.length).putInt (bytes.length).put (bytes);
+        }
+        buffer = room (buffer, 4).putInt (shapes.size ());
+        for (var shape : shapes) {
+            buffer = room (buffer, 8).putInt ((shape.properties != null) ? propertyIndices.get (shape.properties) : -1).putInt (shape.rings.length);
+            for (var ring : shape.rings) {
+                buffer = room (buffer, 4).putInt (ring.length / 2);
+                int lastX = 0, lastY = 0;
+                for (var i = 0; i < ring.length; i += 2) {
+                    buffer = putVarint (buffer, ring[i] - lastX);
+                    buffer = putVarint (buffer, ring[i + 1] - lastY);
+                    lastX = ring[i];
+                    lastY = ring[i + 1];
+                }
+            }
+        }
+        return Arrays.copyOf (buffer.array (), buffer.position ());
+    }
+
+    /**
+     * write the tile to a file
+     * @throws IOException if the file can't be written
+     */
+    public void write (Path path) throws IOException {
+        Files.write (path, toBytes ());
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // reading
+    // -----------------------------------------------------------------------------------------------
+
+    /**
+     * read a tile from its file form
+     * @throws IOException if the bytes aren't a valid tile
+     */
+    public static Tile fromBytes (byte[] bytes) throws IOException {
+        try {
+            return read (ByteBuffer.wrap (bytes).order (ByteOrder.LITTLE_ENDIAN));
+        } catch (BufferUnderflowException exception) {
+            throw new IOException ("unexpected end of tile");
+        }
+    }
+
+    /**
+     * read a tile from a file
+     * @throws IOException if the file can't be read, or isn't a valid tile
+     */
+    public static Tile read (Path path) throws IOException {
+        return fromBytes (Files.readAllBytes (path));
+    }
+
+    // read a count, which can't be negative
+    private static int count (ByteBuffer buffer) throws IOException {
+        var count = buffer.getInt ();
+        if (count < 0) {
+            throw new IOException ("invalid count: " + count);
+        }
+        return count;
+    }
+
+    private static int getVarint (ByteBuffer buffer) throws IOException {
+        var zigzag = 0;
+        for (var shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IOException ("invalid varint");
+            }
+            var b = buffer.get ();
+            zigzag |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+    }
+
+    private static Tile read (ByteBuffer buffer) throws IOException {
+        if (buffer.getInt () != MAGIC) {
+            throw new IOException ("not a tile");
+        }
+        var version = buffer.getInt ();
+        if (version != VERSION) {
+            throw new IOException ("unsupported tile version: " + version);
+        }
+        int z = buffer.getInt (), x = buffer.getInt (), y = buffer.getInt (), extent = buffer.getInt ();
+        var domain = new Domain (PT (buffer.getDouble (), buffer.getDouble ()), PT (buffer.getDouble (), buffer.getDouble ()));
+
+        var properties = new BagObject[count (buffer)];
+        for (var i = 0; i < properties.length; ++i) {
+            var bytes = new byte[count (buffer)];
+            buffer.get (bytes);
+            properties[i] = BagObjectFrom.string (new String (bytes, StandardCharsets.UTF_8));
+            if (properties[i] == null) {
+                throw new IOException ("invalid properties: " + i);
+            }
+        }
+
+        var shapeCount = count (buffer);
+        var shapes = new ArrayList<Shape> (shapeCount);
+        for (var s = 0; s < shapeCount; ++s) {
+            var property = buffer.getInt ();
+            if ((property < -1) || (property >= properties.length)) {
+                throw new IOException ("invalid properties index: " + property);
+            }
+            var rings = new int[count (buffer)][];
+            if (rings.length == 0) {
+                throw new IOException ("shape without a boundary: " + s);
+            }
+            for (var r = 0; r < rings.length; ++r) {
+                var vertexCount = count (buffer);
+                if (vertexCount < 3) {
+                    throw new IOException ("ring with fewer than 3 vertices");
+                }
+                var ring = new int[vertexCount * 2];
+                int lastX = 0, lastY = 0;
+                for (var i = 0; i < ring.length; i += 2) {
+                    lastX = ring[i] = lastX + getVarint (buffer);
+                    lastY = ring[i + 1] = lastY + getVarint (buffer);
+                }
+                rings[r] = ring;
+            }
+            shapes.add (new Shape ((property >= 0) ? properties[property] : null, rings));
+        }
+        return new Tile (z, x, y, extent, domain, shapes);
+    }
+}
@@ -0,0 +1,449 @@
+package us.irdev.gtk.geography;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import us.irdev.gtk.xyw.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * cuts ring arrays into z/x/y tiles, in the manner of vector tiles, so a request or a render costs
+ * what is in the tiles it touches rather than the whole dataset. at zoom z the domain is divided
+ * into 2^z by 2^z tiles, with x counting columns from the left and y counting rows from the top.
+ * the geometry in a tile is simplified to about a pixel (one unit of the tile extent squared),
+ * clipped to the tile plus a buffer so strokes don't show seams at the tile edges, and quantised to
+ * integer coordinates in the tile extent.
+ *
+ * the tiles are cut top down: the pieces of the ring arrays in a tile (clipped to the tile and its
+ * buffer, at full resolution) are cut from the pieces in its parent, so a tile only touches the
+ * vertices near it rather than every ring array. the pieces keep the importance of each vertex,
+ * computed over all the ring arrays together so neighbors keep or drop the same vertices along
+ * the borders they share (see Simplifier.sharedImportance), and the points added where a ring
+ * crosses the edge of a piece are always kept, so a tile is simplified by just dropping the
+ * vertices below its tolerance.
+ *
+ * building a tile only reads the ring arrays, so tiles can be built from many threads at once.
+ * the most recently used tiles are kept in a cache, and getTile builds the ones that aren't there.
+ * the pieces of the most recently used tiles are kept too, so a tile next to one that was just
+ * built only has to cut its pieces from their shared parent.
+ */
+public class Tiler {
+    private static final Logger log = LogManager.getLogger(Tiler.class);
+
+    public static final Domain WORLD = new Domain (-180., 180., -90., 90.);
+    public static final int DEFAULT_EXTENT = 4096;
+    public static final int DEFAULT_BUFFER = 64;
+    public static final int MAX_ZOOM = 24;
+
+    public final Domain domain;
+    public final int extent;
+    public final int buffer;
+
+    // the ring arrays, and their pieces in the tile at zoom 0
+    private final List<RingArray> ringArrays;
+    private final List<Piece> rootPieces;
+
+    // the most recently used tiles, and the pieces in the most recently used tiles, in access order
+    private final int cacheSize;
+    private final LinkedHashMap<Long, Tile> cache;
+    private final LinkedHashMap<Long, List<Piece>> pieceCache;
+
+    /**
+     * @param ringArrays the ring arrays to tile
+     * @param domain the area covered by the single tile at zoom 0
+     * @param extent the size of a tile in quantised units, like the pixels in a rendered tile
+     * @param buffer how far the geometry in a tile reaches past its edges, in quantised units
+     * @param cacheSize the number of built tiles to keep
+     */
+    public Tiler (List<RingArray> ringArrays, Domain domain, int extent, int buffer, int cacheSize) {
+        assert ((extent > 0) && (buffer >= 0) && (cacheSize >= 0));
+        this.domain = domain;
+        this.extent = extent;
+        this.buffer = buffer;
+        this.ringArrays = List.copyOf (ringArrays);
+
+        // compute the simplification of every ring array up front, all of them together so the
+        // borders they share keep the same vertices (see Simplifier.sharedImportance), and keep it
+        // with the vertices in the pieces for zoom 0
+        log.info ("Simplifying {} Ring Arrays", this.ringArrays.size ());
+        var vertices = new ArrayList<Tuple[]> ();
+        var firstRings = new int[this.ringArrays.size () + 1];
+        for (var i = 0; i < this.ringArrays.size (); ++i) {
+            firstRings[i] = vertices.size ();
+            for (var ring : this.ringArrays.get (i).rings ()) {
+                vertices.add (ring.vertices ());
+            }
+        }
+        firstRings[this.ringArrays.size ()] = vertices.size ();
+        var importance = Simplifier.sharedImportance (vertices);
+        rootPieces = IntStream.range (0, this.ringArrays.size ()).parallel ()
+                .mapToObj (i -> Piece.of (i, vertices.subList (firstRings[i], firstRings[i + 1]), Arrays.copyOfRange (importance, firstRings[i], firstRings[i + 1])))
+                .toList ();
+
+        // the piece cache always has room for the chain of parents of a tile
+        this.cacheSize = cacheSize;
+        cache = new LinkedHashMap<> (16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Long, Tile> eldest) {
+                return size () > Tiler.this.cacheSize;
+            }
+        };
+        pieceCache = new LinkedHashMap<> (16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Long, List<Piece>> eldest) {
+                return size () > Tiler.this.cacheSize + MAX_ZOOM + 1;
+            }
+        };
+    }
+
+    /**
+     * a tiler over the whole world in degrees, with the default extent and buffer
+     */
+    public Tiler (List<RingArray> ringArrays, int cacheSize) {
+        this (ringArrays, WORLD, DEFAULT_EXTENT, DEFAULT_BUFFER, cacheSize);
+    }
+
+    /**
+     * a tiler over the ring arrays of a list of features, over the whole world in degrees
+     */
+    public static Tiler fromFeatures (List<Feature> features, int cacheSize) {
+        var ringArrays = new ArrayList<RingArray> ();
+        for (var feature : features) {
+            ringArrays.addAll (feature.ringArrays);
+        }
+        return new Tiler (ringArrays, cacheSize);
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // tile addressing
+    // -----------------------------------------------------------------------------------------------
+
+    private static void check (int z, int x, int y) {
+        if ((z < 0) || (z > MAX_ZOOM) || (x < 0) || (x >= (1 << z)) || (y < 0) || (y >= (1 << z))) {
+            throw new IllegalArgumentException ("invalid tile: " + z + "/" + x + "/" + y);
+        }
+    }
+
+    // a tile address packed in a long, for the cache and the sets of tiles to build
+    private static long key (int z, int x, int y) {
+        return ((long) z << 56) | ((long) x << 28) | y;
+    }
+
+    /**
+     * @return the area covered by a tile, without the buffer
+     */
+    public Domain tileDomain (int z, int x, int y) {
+        check (z, x, y);
+        var tiles = 1 << z;
+        var width = domain.width () / tiles;
+        var height = domain.height () / tiles;
+        var left = domain.min.x + (x * width);
+        var top = domain.max.y - (y * height);
+        return new Domain (left, left + width, top - height, top);
+    }
+
+    // the area the geometry in a tile is clipped to, the tile and its buffer
+    private Domain clipDomain (int z, int x, int y) {
+        var tileDomain = tileDomain (z, x, y);
+        var bufferX = buffer * (tileDomain.width () / extent);
+        var bufferY = buffer * (tileDomain.height () / extent);
+        return new Domain (tileDomain.min.x - bufferX, tileDomain.max.x + bufferX, tileDomain.min.y - bufferY, tileDomain.max.y + bufferY);
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // pieces
+    // -----------------------------------------------------------------------------------------------
+
+    // the part of a ring array in a tile, at full resolution, with the bounds of the boundary. the
+    // rings are the boundary then the holes, as interleaved x and y coordinates, with the
+    // importance of each vertex.
+    private record Piece (int index, double[][] rings, double[][] importance, double minX, double minY, double maxX, double maxY) {
+        static Piece of (int index, List<Tuple[]> vertices, double[][] importance) {
+            var rings = new double[vertices.size ()][];
+            for (var r = 0; r < rings.length; ++r) {
+                var ring = vertices.get (r);
+                rings[r] = new double[ring.length * 2];
+                for (var i = 0; i < ring.length; ++i) {
+                    rings[r][i * 2] = ring[i].x;
+                    rings[r][(i * 2) + 1] = ring[i].y;
+                }
+            }
+            return of (index, rings, importance);
+        }
+
+        static Piece of (int index, double[][] rings, double[][] importance) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            var boundary = rings[0];
+            for (var i = 0; i < boundary.length; i += 2) {
+                minX = Math.min (minX, boundary[i]);
+                maxX = Math.max (maxX, boundary[i]);
+                minY = Math.min (minY, boundary[i + 1]);
+                maxY = Math.max (maxY, boundary[i + 1]);
+            }
+            return new Piece (index, rings, importance, minX, minY, maxX, maxY);
+        }
+
+        // the piece clipped to a rectangle, itself if it's wholly inside, or null if nothing is left
+        Piece clip (Domain clip) {
+            if ((maxX < clip.min.x) || (minX > clip.max.x) || (maxY < clip.min.y) || (minY > clip.max.y)) {
+                return null;
+            }
+            if ((minX >= clip.min.x) && (maxX <= clip.max.x) && (minY >= clip.min.y) && (maxY <= clip.max.y)) {
+                return this;
+            }
+            var clippedRings = new ArrayList<double[]> (rings.length);
+            var clippedImportance = new ArrayList<double[]> (rings.length);
+            for (var r = 0; r < rings.length; ++r) {
+                var clipped = clipRing (rings[r], importance[r], clip);
+                if (clipped != null) {
+                    clippedRings.add (clipped[0]);
+                    clippedImportance.add (clipped[1]);
+                } else if (r == 0) {
+                    return null;
+                }
+            }
+            return of (index, clippedRings.toArray (double[][]::new), clippedImportance.toArray (double[][]::new));
+        }
+    }
+
+    // clip a ring to a rectangle one side at a time (Sutherland-Hodgman, as Polygon.clipToDomain),
+    // carrying the importance of the vertices, with the new points where the ring crosses a side
+    // always kept. returns the coordinates and the importance, or null if nothing is left.
+    private static double[][] clipRing (double[] ring, double[] importance, Domain clip) {
+        var clipped = new double[][] { ring, importance };
+        clipped = clipToSide (clipped[0], clipped[1], 0, clip.min.x, 1);
+        clipped = clipToSide (clipped[0], clipped[1], 0, clip.max.x, -1);
+        clipped = clipToSide (clipped[0], clipped[1], 1, clip.min.y, 1);
+        clipped = clipToSide (clipped[0], clipped[1], 1, clip.max.y, -1);
+
+        // drop repeated points, which happen where a vertex is on a side, keeping the larger
+        // importance
+        var coordinates = clipped[0];
+        var values = clipped[1];
+        var count = 0;
+        for (var i = 0; i < values.length; ++i) {
+            if ((count > 0) && (coordinates[i * 2] == coordinates[(count - 1) * 2]) && (coordinates[(i * 2) + 1] == coordinates[((count - 1) * 2) + 1])) {
+                values[count - 1] = Math.max (values[count - 1], values[i]);
+                continue;
+            }
+            coordinates[count * 2] = coordinates[i * 2];
+            coordinates[(count * 2) + 1] = coordinates[(i * 2) + 1];
+            values[count++] = values[i];
+        }
+        while ((count > 1) && (coordinates[0] == coordinates[(count - 1) * 2]) && (coordinates[1] == coordinates[((count - 1) * 2) + 1])) {
+            values[0] = Math.max (values[0], values[--count]);
+        }
+        return (count > 2) ? new double[][] { Arrays.copyOf (coordinates, count * 2), Arrays.copyOf (values, count) } : null;
+    }
+
+    // clip a ring to the side of a line on one axis (0 for x, 1 for y) where (value - bound) * sign
+    // isn't negative
+    private static double[][] clipToSide (double[] ring, double[] importance, int axis, double bound, int sign) {
+        var count = importance.length;
+        var coordinates = new double[(count * 4) + 4];
+        var values = new double[(count * 2) + 2];
+        var out = 0;
+        for (var i = 0; i < count; ++i) {
+            var j = (i + count - 1) % count;
+            var d = (ring[(i * 2) + axis] - bound) * sign;
+            var dPrev = (ring[(j * 2) + axis] - bound) * sign;
+            if ((d >= 0) != (dPrev >= 0)) {
+                // the edge from the one before crosses the line
+                var t = dPrev / (dPrev - d);
+                coordinates[out * 2] = ring[j * 2] + ((ring[i * 2] - ring[j * 2]) * t);
+                coordinates[(out * 2) + 1] = ring[(j * 2) + 1] + ((ring[(i * 2) + 1] - ring[(j * 2) + 1]) * t);
+                coordinates[(out * 2) + axis] = bound;
+                values[out++] = Double.POSITIVE_INFINITY;
+            }
+            if (d >= 0) {
+                coordinates[out * 2] = ring[i * 2];
+                coordinates[(out * 2) + 1] = ring[(i * 2) + 1];
+                values[out++] = importance[i];
+            }
+        }
+        return new double[][] { Arrays.copyOf (coordinates, out * 2), Arrays.copyOf (values, out) };
+    }
+
+    // cut the pieces of a tile from the pieces of its parent
+    private List<Piece> clip (List<Piece> parentPieces, int z, int x, int y) {
+        var clip = clipDomain (z, x, y);
+        var pieces = new ArrayList<Piece> ();
+        for (var piece : parentPieces) {
+            var clipped = piece.clip (clip);
+            if (clipped != null) {
+                pieces.add (clipped);
+            }
+        }
+        return pieces;
+    }
+
+    // the pieces in a tile, from the cache or cut from the pieces of its parent
+    private List<Piece> pieces (int z, int x, int y) {
+        if (z == 0) {
+            return rootPieces;
+        }
+        var key = key (z, x, y);
+        synchronized (pieceCache) {
+            var pieces = pieceCache.get (key);
+            if (pieces != null) {
+                return pieces;
+            }
+        }
+        var pieces = clip (pieces (z - 1, x >> 1, y >> 1), z, x, y);
+        synchronized (pieceCache) {
+            var cached = pieceCache.putIfAbsent (key, pieces);
+            return (cached != null) ? cached : pieces;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------
+    // building
+    // -----------------------------------------------------------------------------------------------
+
+    /**
+     * build a tile, without the tile cache. this is safe to call from many threads at once.
+     * @return the tile, which may have no shapes in it
+     */
+    public Tile build (int z, int x, int y) {
+        return build (z, x, y, pieces (z, x, y));
+    }
+
+    // build a tile from its pieces, simplified to about a pixel and quantised
+    private Tile build (int z, int x, int y, List<Piece> pieces) {
+        var tileDomain = tileDomain (z, x, y);
+        var pixelX = tileDomain.width () / extent;
+        var pixelY = tileDomain.height () / extent;
+        var tolerance = pixelX * pixelY;
+
+        var shapes = new ArrayList<Tile.Shape> ();
+        for (var piece : pieces) {
+            var boundary = quantise (piece.rings[0], piece.importance[0], tolerance, tileDomain, pixelX, pixelY);
+            if (boundary == null) {
+                continue;
+            }
+            var rings = new ArrayList<int[]> ();
+            rings.add (boundary);
+            for (var r = 1; r < piece.rings.length; ++r) {
+                var ring = quantise (piece.rings[r], piece.importance[r], tolerance, tileDomain, pixelX, pixelY);
+                if (ring != null) {
+                    rings.add (ring);
+                }
+            }
+            shapes.add (new Tile.Shape (ringArrays.get (piece.index).properties, rings.toArray (int[][]::new)));
+        }
+        return new Tile (z, x, y, extent, tileDomain, shapes);
+    }
+
+    // round the vertices of a ring at or above the tolerance to the tile grid (with y down from the
+    // top of the tile), dropping repeats, or return null if the ring collapses to nothing
+    private static int[] quantise (double[] ring, double[] importance, double tolerance, Domain tileDomain, double pixelX, double pixelY) {
+        var coordinates = new int[ring.length];
+        var count = 0;
+        for (var i = 0; i < importance.length; ++i) {
+            if (importance[i] < tolerance) {
+                continue;
+            }
+            var qx = (int) Math.round ((ring[i * 2] - tileDomain.min.x) / pixelX);
+            var qy = (int) Math.round ((tileDomain.max.y - ring[(i * 2) + 1]) / pixelY);
+            if ((count == 0) || (qx != coordinates[count - 2]) || (qy != coordinates[count - 1])) {
+                coordinates[count++] = qx;
+                coordinates[count++] = qy;
+            }
+        }
+        while ((count > 2) && (coordinates[0] == coordinates[count - 2]) && (coordinates[1] == coordinates[count - 1])) {
+            count -= 2;
+        }
+        coordinates = Arrays.copyOf (coordinates, count);
+        return ((count >= 6) && (Tile.area (coordinates) != 0)) ? coordinates : null;
+    }
+
+    /**
+     * get a tile from the cache, building it (and maybe evicting the least recently used tile) if it
+     * isn't there
+     */
+    public Tile getTile (int z, int x, int y) {
+        var key = key (z, x, y);
+        synchronized (cache) {
+            var tile = cache.get (key);
+            if (tile != null) {
+                return tile;
+            }
+        }
+
+        // build outside the lock so other requests aren't held up, if two threads race for the same
+        // tile the first one built wins
+        var tile = build (z, x, y);
+        synchronized (cache) {
+            var cached = cache.putIfAbsent (key, tile);
+            return (cached != null) ? cached : tile;
+        }
+    }
+
+    /**
+     * @return the number of tiles in the cache
+     */
+    public int cachedCount () {
+        synchronized (cache) {
+            return cache.size ();
+        }
+    }
+
+    /**
+     * build every tile at a zoom level that has something in it, in parallel, without the caches.
+     * the pieces are cut top down from zoom 0, a level at a time, only into the tiles under a
+     * parent that had something in it.
+     * @return the tiles that aren't empty, in z/x/y order
+     */
+    public List<Tile> buildAll (int z) {
+        check (z, 0, 0);
+        var level = Map.of (key (0, 0, 0), rootPieces);
+        for (var zoom = 1; zoom <= z; ++zoom) {
+            var childZoom = zoom;
+            level = level.entrySet ().parallelStream ()
+                    .flatMap (entry -> {
+                        var parentX = (int) ((entry.getKey () >> 28) & 0x0fffffff);
+                        var parentY = (int) (entry.getKey () & 0x0fffffff);
+                        var children = new ArrayList<Map.Entry<Long, List<Piece>>> (4);
+                        for (var child = 0; child < 4; ++child) {
+                            var x = (parentX * 2) + (child & 1);
+                            var y = (parentY * 2) + (child >> 1);
+                            var pieces = clip (entry.getValue (), childZoom, x, y);
+                            if (! pieces.isEmpty ()) {
+                                children.add (Map.entry (key (childZoom, x, y), pieces));
+                            }
+                        }
+                        return children.stream ();
+                    })
+                    .collect (Collectors.toMap (Map.Entry::getKey, Map.Entry::getValue));
+        }
+        log.info ("Building {} tiles at zoom {}", level.size (), z);
+        return new TreeMap<> (level).entrySet ().stream ().parallel ()
+                .map (entry -> build (z, (int) ((entry.getKey () >> 28) & 0x0fffffff), (int) (entry.getKey () & 0x0fffffff), entry.getValue ()))
+                .filter (tile -> ! tile.shapes.isEmpty ())
+                .toList ();
+    }
+
+    /**
+     * build every tile from one zoom level to another and write them under a directory, as
+     * z/x/y.gtkt (see Tile.write)
+     * @param directory the root of the tile tree
+     * @param minZoom the first zoom level to write
+     * @param maxZoom the last zoom level to write
+     * @throws IOException if a tile can't be written
+     */
+    public void write (Path directory, int minZoom, int maxZoom) throws IOException {
+        for (var z = minZoom; z <= maxZoom; ++z) {
+            for (var tile : buildAll (z)) {
+                var path = directory.resolve (Integer.toString (z)).resolve (Integer.toString (tile.x)).resolve (tile.y + ".gtkt");
+                Files.createDirectories (path.getParent ());
+                tile.write (path);
+            }
+        }
+    }
+}
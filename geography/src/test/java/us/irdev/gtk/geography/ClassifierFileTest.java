@@ -0,0 +1,177 @@
+package us.irdev.gtk.geography;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.gtk.xyw.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Assertions.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class ClassifierFileTest {
+    private static ClassifierFile roundTrip(Classifier classifier) throws IOException {
+        return roundTrip(classifier, null);
+    }
+
+    // write a classifier and map it back, in chunks of a given size if there is one
+    private static ClassifierFile roundTrip(Classifier classifier, Integer chunkBytes) throws IOException {
+        Path path = Files.createTempFile("classifier", ".gtkc");
+        try {
+            ClassifierFile.write(classifier, path);
+            return (chunkBytes != null) ? ClassifierFile.read(path, chunkBytes) : ClassifierFile.read(path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static String json(BagObject bagObject) {
+        return (bagObject != null) ? bagObject.toString() : null;
+    }
+
+    // a few states, and the classifier for them
+    private static List<RingArray> states;
+    private static Classifier statesClassifier;
+
+    @BeforeAll
+    public static void buildStates() throws Exception {
+        var features = Feature.fromGeoJson("data/USA-ADM1.geojson.gz");
+        states = new ArrayList<>();
+        for (var feature : features) {
+            var name = feature.properties.getString("shapeName");
+            if (List.of("Utah", "Colorado", "Maryland", "Michigan", "Hawaii").contains(name)) {
+                states.addAll(feature.ringArrays);
+            }
+        }
+        statesClassifier = new Classifier(states);
+    }
+
+    // check that a classifier file gives the same answers as the classifier it was written from
+    private static void assertSame(Classifier classifier, ClassifierFile loaded) {
+        // the same ring arrays, and the same ring arrays in every cell, in the same order
+        assertEquals(classifier.ringArrays.size(), loaded.ringArrayCount());
+        for (var i = 0; i < classifier.ringArrays.size(); ++i) {
+            var expect = classifier.ringArrays.get(i);
+            var actual = loaded.ringArray(i);
+            assertEquals(json(expect.properties), json(actual.properties));
+            assertEquals(expect.holes.size(), actual.holes.size());
+            assertEquals(expect.boundary.segments.length, actual.boundary.segments.length);
+            assertEquals(expect.boundary.segments.segments.get(0).a.x, actual.boundary.segments.segments.get(0).a.x);
+        }
+        for (var domain : classifier.grid.enumerate()) {
+            var center = domain.center();
+            var expect = classifier.grid.getAt(center).stream().mapToInt(container -> classifier.indexOf(container.ringArray())).toArray();
+            assertArrayEquals(expect, loaded.ringArraysAt(center.x, center.y));
+        }
+
+        // random points over the ring arrays, and points on their boundaries
+        var random = new Random(8675309);
+        var points = new ArrayList<Tuple>();
+        for (var ringArray : classifier.ringArrays) {
+            var domain = ringArray.domain();
+            for (var i = 0; i < 500; ++i) {
+                points.add(PT(domain.min.x + (random.nextDouble() * domain.size().x), domain.min.y + (random.nextDouble() * domain.size().y)));
+            }
+            for (var ring : ringArray.rings()) {
+                var segments = ring.segments.segments;
+                for (var i = 0; i < segments.size(); i += 7) {
+                    points.add(segments.get(i).a);
+                    points.add(segments.get(i).mid());
+                }
+            }
+        }
+        for (var pt : points) {
+            assertEquals(json(classifier.getAt(pt)), json(loaded.getAt(pt)), pt.toString());
+        }
+        for (var i = 0; i < points.size(); i += 97) {
+            var pt = points.get(i);
+            assertEquals(classifier.distanceToNearestBoundary(pt, 0.5), loaded.distanceToNearestBoundary(pt, 0.5), pt.toString());
+            var nearest = classifier.nearestBoundary(pt, 0.5);
+            assertEquals((nearest != null) ? classifier.indexOf(nearest.ringArray()) : Classifier.NONE, loaded.nearestBoundary(pt, 0.5));
+        }
+
+        // the batch classification gives the same indices
+        var lons = points.stream().mapToDouble(pt -> pt.x).toArray();
+        var lats = points.stream().mapToDouble(pt -> pt.y).toArray();
+        assertArrayEquals(classifier.classify(lons, lats), loaded.classify(lons, lats));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        assertSame(statesClassifier, roundTrip(statesClassifier));
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        // small chunks, so the sections are spread over hundreds of mappings
+        assertSame(statesClassifier, roundTrip(statesClassifier, 1 << 12));
+        var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
+        var classifier = new Classifier(features.get(0).ringArrays);
+        assertSame(classifier, roundTrip(classifier, 8));
+    }
+
+    @Test
+    public void testReadChecksOnlyHeader() throws Exception {
+        Path path = Files.createTempFile("classifier", ".gtkc");
+        try {
+            ClassifierFile.write(statesClassifier, path);
+            var point = states.get(0).boundary.segments.segments.get(0).mid();
+            var loaded = ClassifierFile.read(path);
+            assertNotNull(loaded.getAt(point));
+
+            // zero the sections, all but the sentinels read checks
+            var bytes = Files.readAllBytes(path);
+            var zeroed = new byte[bytes.length];
+            System.arraycopy(bytes, 0, zeroed, 0, ClassifierFile.HEADER_BYTES);
+            for (var sentinel : loaded.sentinels()) {
+                System.arraycopy(bytes, (int) sentinel.offset(), zeroed, (int) sentinel.offset(), sentinel.bytes());
+            }
+            Files.write(path, zeroed);
+
+            // opening the file doesn't look at the rest of the sections, only querying it does
+            var broken = ClassifierFile.read(path);
+            assertEquals(loaded.ringArrayCount(), broken.ringArrayCount());
+            assertTrue(Domain.similar(loaded.domain(), broken.domain()));
+            assertNull(broken.getAt(point));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testDistance() throws Exception {
+        var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
+        var classifier = roundTrip(new Classifier(features.get(0).ringArrays));
+        assertEquals(Double.POSITIVE_INFINITY, classifier.distanceToNearestBoundary(PT(-15, 15), 3));
+        assertSimilar(5, classifier.distanceToNearestBoundary(PT(-15, 15), 7));
+        assertSimilar(3, classifier.distanceToNearestBoundary(PT(-17, 15), 4));
+        assertSimilar(2, classifier.distanceToNearestBoundary(PT(-12, 15), 4));
+        assertSimilar(3, classifier.distanceToNearestBoundary(PT(-15, 17), 4));
+        assertSimilar(2, classifier.distanceToNearestBoundary(PT(-15, 12), 4));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        Path path = Files.createTempFile("classifier", ".gtkc");
+        try {
+            // not a classifier file
+            Files.writeString(path, "{ \"type\": \"FeatureCollection\" }");
+            assertThrows(IOException.class, () -> ClassifierFile.read(path));
+
+            // a truncated file
+            var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
+            ClassifierFile.write(new Classifier(features.get(0).ringArrays), path);
+            var bytes = Files.readAllBytes(path);
+            Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+            assertThrows(IOException.class, () -> ClassifierFile.read(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
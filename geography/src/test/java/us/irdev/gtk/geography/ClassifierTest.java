@@ -224,6 +224,111 @@ public class ClassifierTest {
         testADM2toADM1("MEX");
     }
 
+    @Test
+    public void testPopulate() throws Exception {
+        var features = Feature.fromGeoJson("data/USA-ADM1.geojson.gz");
+        var ringArrays = new ArrayList<RingArray>();
+        for (var name : List.of("Utah", "Texas", "Maryland", "Michigan", "Hawaii")) {
+            ringArrays.addAll(find(features, name).ringArrays);
+        }
+        var classifier = new Classifier(ringArrays);
+
+        // the grid should agree exactly with classifying each cell separately
+        for (var ringArray : ringArrays) {
+            for (var domain : classifier.grid.enumerate(ringArray.domain())) {
+                Boolean trivialAccept = null;
+                for (var container : classifier.grid.getAt(domain.center())) {
+                    if (container.ringArray() == ringArray) {
+                        trivialAccept = container.trivialAccept();
+                    }
+                }
+                var actual = (trivialAccept == null) ? Polygon.Classification.NO_INTERSECTION
+                        : trivialAccept ? Polygon.Classification.CONTAINS_DOMAIN : Polygon.Classification.NON_TRIVIAL_INTERSECTION;
+                assertEquals(ringArray.classify(domain), actual, domain.toString());
+            }
+        }
+
+        // the local polygons in the cells should agree with testing the whole ring arrays
+        var random = new Random(8675309);
+        for (var ringArray : ringArrays) {
+            var domain = ringArray.domain();
+            for (int i = 0; i < 200; ++i) {
+                var pt = PT(domain.min.x + (random.nextDouble() * domain.width()), domain.min.y + (random.nextDouble() * domain.height()));
+                var expect = (BagObject) null;
+                for (var candidate : ringArrays) {
+                    if ((expect == null) && candidate.contains(pt)) {
+                        expect = candidate.properties;
+                    }
+                }
+                assertSame(expect, classifier.getAt(pt), pt.toString());
+            }
+            for (var segment : ringArray.boundary.segments.segments.subList(0, Math.min(100, ringArray.boundary.segments.length))) {
+                assertSame(ringArray.properties, classifier.getAt(segment.mid()), segment.mid().toString());
+            }
+        }
+    }
+
+    @Test
+    public void testWestOfGrid() throws Exception {
+        // a ring array with a hole, both reaching past the west edge of the grid at -180, so the
+        // rows start inside the boundary and inside the hole
+        var boundary = new Polygon(List.of(PT(-190, 10), PT(-170, 10), PT(-170, 20), PT(-190, 20)));
+        var hole = new Polygon(List.of(PT(-186, 13), PT(-186, 17), PT(-174, 17), PT(-174, 13)));
+        var ringArray = new RingArray(boundary, List.of(hole), BagObject.open("name", "west"));
+        var classifier = new Classifier(List.of(ringArray));
+
+        for (var domain : classifier.grid.enumerate(ringArray.domain())) {
+            var expect = ringArray.classify(domain);
+            var containers = classifier.grid.getAt(domain.center());
+            switch (expect) {
+                case NO_INTERSECTION -> assertTrue(containers.isEmpty(), domain.toString());
+                case CONTAINS_DOMAIN -> assertTrue(containers.iterator().next().trivialAccept(), domain.toString());
+                case NON_TRIVIAL_INTERSECTION -> assertFalse(containers.iterator().next().trivialAccept(), domain.toString());
+            }
+        }
+        assertSame(ringArray.properties, classifier.getAt(PT(-179.9, 11)));
+        assertSame(ringArray.properties, classifier.getAt(PT(-172, 15)));
+        assertNull(classifier.getAt(PT(-179.9, 15)));
+        assertNull(classifier.getAt(PT(-175, 15)));
+    }
+
+    @Test
+    public void testClassifyBatch() throws Exception {
+        var classifier = new Classifier(ringArraysFromGeoJson("data/USA-ADM1.geojson.gz"));
+
+        // a batch of random points over the lower 48 and some ocean, plus a few known cities
+        var random = new Random(8675309);
+        var count = 100000;
+        var lons = new double[count];
+        var lats = new double[count];
+        for (int i = 0; i < count; ++i) {
+            lons[i] = -125 + (random.nextDouble() * 60);
+            lats[i] = 24 + (random.nextDouble() * 26);
+        }
+        lons[0] = -95.3701; lats[0] = 29.7601;
+        lons[1] = -76.61198; lats[1] = 39.28589;
+        lons[2] = -95.31868; lats[2] = 27.93636;
+
+        var result = classifier.classify(lons, lats);
+        assertEquals(count, result.length);
+        assertEquals("Texas", classifier.ringArrays.get(result[0]).properties.getString("shapeName"));
+        assertEquals("Maryland", classifier.ringArrays.get(result[1]).properties.getString("shapeName"));
+        assertEquals(Classifier.NONE, result[2]);
+
+        // every point should match the single point query
+        var inside = 0;
+        for (int i = 0; i < count; ++i) {
+            var expect = classifier.getAt(PT(lons[i], lats[i]));
+            if (expect == null) {
+                assertEquals(Classifier.NONE, result[i]);
+            } else {
+                assertSame(expect, classifier.ringArrays.get(result[i]).properties);
+                ++inside;
+            }
+        }
+        assertTrue(inside > count / 2);
+    }
+
     @Test
     public void testDistance() throws Exception {
         var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
@@ -236,5 +341,15 @@ public class ClassifierTest {
 
         assertSimilar (3, classifier.distanceToNearestBoundary (PT(-15, 17), 4));
         assertSimilar (2, classifier.distanceToNearestBoundary (PT(-15, 12), 4));
+
+        // the distance is to the nearest point on a segment, past the corner it's to the vertex
+        assertSimilar (Math.sqrt (8), classifier.distanceToNearestBoundary (PT(-22, 22), 4));
+        assertEquals (Double.POSITIVE_INFINITY, classifier.distanceToNearestBoundary (PT(-22, 22), 2.5));
+        var nearest = classifier.nearestBoundary (PT(-9, 15), 4);
+        assertSame (features.get(0).ringArrays.get(0), nearest.ringArray());
+        assertSimilar (1, nearest.distance());
+        assertSimilar (-10, nearest.segment().a.x);
+        assertSimilar (-10, nearest.segment().b.x);
+        assertNull (classifier.nearestBoundary (PT(-15, 15), 3));
     }
 }
@@ -0,0 +1,110 @@
+package us.irdev.gtk.geography;
+
+import org.junit.jupiter.api.Test;
+import us.irdev.bedrock.bag.BagObjectFrom;
+import us.irdev.gtk.xyw.Segment;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureReaderTest {
+    private static List<Feature> read(String json) throws Exception {
+        var result = new ArrayList<Feature>();
+        try (var reader = new FeatureReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            reader.forEachRemaining(result::add);
+        }
+        return result;
+    }
+
+    @Test
+    public void testMatchesBagObject() throws Exception {
+        // the streamed features are the same as the ones built from the whole document
+        var root = BagObjectFrom.inputStream(new GZIPInputStream(Files.newInputStream(Paths.get("data", "USA-ADM1.geojson.gz"))));
+        var nodes = root.getBagArray("features");
+        var streamed = Feature.fromGeoJson(Paths.get("data", "USA-ADM1.geojson.gz").toString());
+        assertEquals(nodes.getCount(), streamed.size());
+        for (var i = 0; i < streamed.size(); ++i) {
+            var expect = new Feature(nodes.getBagObject(i));
+            var actual = streamed.get(i);
+            assertEquals(expect.properties.toString(), actual.properties.toString());
+            assertEquals(expect.ringArrays.size(), actual.ringArrays.size());
+            for (var r = 0; r < expect.ringArrays.size(); ++r) {
+                var expectRingArray = expect.ringArrays.get(r);
+                var actualRingArray = actual.ringArrays.get(r);
+                assertSame(actual.properties, actualRingArray.properties);
+                assertEquals(expectRingArray.holes.size(), actualRingArray.holes.size());
+                var expectSegments = expectRingArray.boundary.segments.segments;
+                var actualSegments = actualRingArray.boundary.segments.segments;
+                assertEquals(expectSegments.size(), actualSegments.size());
+                for (var s = 0; s < expectSegments.size(); ++s) {
+                    assertEquals(expectSegments.get(s).a.x, actualSegments.get(s).a.x);
+                    assertEquals(expectSegments.get(s).a.y, actualSegments.get(s).a.y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStructure() throws Exception {
+        // a collection with members around the features, and features that aren't polygons
+        var features = read("""
+                        { "bbox": [ -1, -1, 1, 1 ], "type": "FeatureCollection", "features": [
+                            { "geometry": { "coordinates": [ [ [ 0.1234567890123, 0 ], [ 1, 0, 5 ], [ 1, 1 ], [ 0.1234567890123, 0 ] ] ], "type": "Polygon" },
+                                "type": "Feature", "properties": { "name": "A \\"quoted\\" [name]", "nested": { "type": "x", "features": [] } } },
+                            { "type": "Feature", "properties": null, "geometry": null },
+                            { "type": "Feature", "properties": { "name": "point" }, "geometry": { "type": "Point", "coordinates": [ 1, 2 ] } },
+                            { "type": "NotAFeature" },
+                            { "type": "Feature", "properties": { "name": "multi" }, "geometry": { "type": "MultiPolygon", "coordinates": [
+                                [ [ [ 0, 0 ], [ 1, 0 ], [ 1, 1 ], [ 0, 0 ] ] ],
+                                [ [ [ 2, 0 ], [ 4, 0 ], [ 4, 2 ], [ 2, 2 ], [ 2, 0 ] ], [ [ 3, 1 ], [ 3.5, 1 ], [ 3.5, 1.5 ], [ 3, 1 ] ] ]
+                            ] } }
+                        ], "crs": { "type": "name" } }
+                        """);
+        assertEquals(4, features.size());
+
+        // coordinates keep their full precision, extra values in a position are ignored
+        var a = features.get(0);
+        assertEquals("A \"quoted\" [name]", a.properties.getString("name"));
+        assertEquals(1, a.ringArrays.size());
+        List<Segment> segments = a.ringArrays.get(0).boundary.segments.segments;
+        assertEquals(3, segments.size());
+        assertEquals(0.1234567890123, segments.get(0).a.x);
+        assertEquals(1.0, segments.get(1).a.x);
+
+        assertNull(features.get(1).properties);
+        assertTrue(features.get(1).ringArrays.isEmpty());
+        assertEquals("point", features.get(2).properties.getString("name"));
+        assertTrue(features.get(2).ringArrays.isEmpty());
+
+        var multi = features.get(3);
+        assertEquals(2, multi.ringArrays.size());
+        assertEquals(0, multi.ringArrays.get(0).holes.size());
+        assertEquals(1, multi.ringArrays.get(1).holes.size());
+        assertEquals(4, multi.ringArrays.get(1).boundary.segments.length);
+        assertEquals(3, multi.ringArrays.get(1).holes.get(0).segments.length);
+    }
+
+    @Test
+    public void testSingleFeature() throws Exception {
+        var features = Feature.fromGeoJson(Paths.get("data", "world.json").toString());
+        assertEquals(1, features.size());
+        assertEquals("World", features.get(0).properties.getString("name"));
+        assertTrue(features.get(0).ringArrays.isEmpty());
+
+        assertTrue(read("{ \"type\": \"FeatureCollection\", \"features\": [] }").isEmpty());
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(UncheckedIOException.class, () -> read("{ \"type\": \"FeatureCollection\", \"features\": [ { \"type\": \"Feature\" } "));
+        assertThrows(UncheckedIOException.class, () -> read("{ \"type\": \"FeatureCollection\", \"features\": [ { \"type\": \"Feature\", \"geometry\": { \"type\": \"Polygon\", \"coordinates\": [ [ [ 0, x ] ] ] } } ] }"));
+    }
+}
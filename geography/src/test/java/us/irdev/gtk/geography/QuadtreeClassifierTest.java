@@ -0,0 +1,122 @@
+package us.irdev.gtk.geography;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import us.irdev.gtk.xyw.Polygon;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Assertions.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class QuadtreeClassifierTest {
+    private static final Logger log = LogManager.getLogger(QuadtreeClassifierTest.class);
+
+    private List<RingArray> ringArraysFromGeoJson(String source) throws Exception {
+        var ringArrays = new ArrayList<RingArray>();
+        for (var feature : Feature.fromGeoJson(source)) {
+            ringArrays.addAll(feature.ringArrays);
+        }
+        return ringArrays;
+    }
+
+    @Test
+    public void testMatchesClassifier() throws Exception {
+        var ringArrays = ringArraysFromGeoJson("data/USA-ADM1.geojson.gz");
+        var classifier = new Classifier(ringArrays);
+        var quadtree = new QuadtreeClassifier(ringArrays);
+        log.info("{} leaves, {} entries", quadtree.leafCount(), quadtree.entryCount());
+
+        // known points
+        assertEquals("Texas", quadtree.getAt(PT(-95.3701, 29.7601)).getString("shapeName"));
+        assertEquals("Louisiana", quadtree.getAt(PT(-90.0758, 29.9509)).getString("shapeName"));
+        assertEquals("Maryland", quadtree.getAt(PT(-76.61198, 39.28589)).getString("shapeName"));
+        assertNull(quadtree.getAt(PT(-95.31868, 27.93636)));
+        assertNull(quadtree.getAt(PT(100, 0)));
+
+        // random points, including points right on the boundaries
+        var random = new Random(8675309);
+        var points = new ArrayList<us.irdev.gtk.xyw.Tuple>();
+        for (int i = 0; i < 100000; ++i) {
+            points.add(PT(-125 + (random.nextDouble() * 60), 24 + (random.nextDouble() * 26)));
+        }
+        for (var ringArray : ringArrays) {
+            var segments = ringArray.boundary.segments.segments;
+            for (int i = 0; i < 20; ++i) {
+                var segment = segments.get(random.nextInt(segments.size()));
+                points.add(segment.a);
+                points.add(segment.mid());
+            }
+        }
+        for (var pt : points) {
+            var expect = classifier.getAt(pt);
+            var actual = quadtree.getAt(pt);
+            if (expect == null) {
+                assertNull(actual, pt.toString());
+            } else {
+                // points on a shared border belong to both neighbors, either is fine
+                assertNotNull(actual, pt.toString());
+                if (expect != actual) {
+                    var index = quadtree.indexAt(pt.x, pt.y);
+                    assertTrue(quadtree.ringArrays.get(index).contains(pt), pt.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHole() throws Exception {
+        var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
+        var quadtree = new QuadtreeClassifier(features.get(0).ringArrays, 2, 8);
+        assertTrue(quadtree.leafCount() > 1);
+        assertNotNull(quadtree.getAt(PT(-12, 12)));
+        assertNotNull(quadtree.getAt(PT(-20, 20)));
+        assertNotNull(quadtree.getAt(PT(-10, 15)));
+        assertNotNull(quadtree.getAt(PT(-13.9, 15)));
+
+        // the hole boundary is part of the hole, as in RingArray.contains
+        assertNull(quadtree.getAt(PT(-14, 15)));
+        assertNull(quadtree.getAt(PT(-15, 15)));
+        assertNull(quadtree.getAt(PT(-21, 15)));
+        assertNull(quadtree.getAt(PT(-15, 9)));
+    }
+
+    @Test
+    public void testDistance() throws Exception {
+        var features = Feature.fromGeoJson(Paths.get("data", "simple_with_hole.json").toString());
+        var quadtree = new QuadtreeClassifier(features.get(0).ringArrays);
+        assertEquals (Double.POSITIVE_INFINITY, quadtree.distanceToNearestBoundary (PT(-15, 15), 3));
+        assertSimilar (5, quadtree.distanceToNearestBoundary (PT(-15, 15), 7));
+
+        assertSimilar (3, quadtree.distanceToNearestBoundary (PT(-17, 15), 4));
+        assertSimilar (2, quadtree.distanceToNearestBoundary (PT(-12, 15), 4));
+
+        assertSimilar (3, quadtree.distanceToNearestBoundary (PT(-15, 17), 4));
+        assertSimilar (2, quadtree.distanceToNearestBoundary (PT(-15, 12), 4));
+    }
+
+    @Test
+    public void testDistanceMatchesClassifier() throws Exception {
+        // the distance is to the segment, not the line through it, and only within the radius
+        var triangle = new RingArray(new Polygon(List.of(PT(0, 0), PT(10, 0), PT(5, 1))), List.of(), null);
+        var classifier = new Classifier(List.of(triangle));
+        var quadtree = new QuadtreeClassifier(List.of(triangle));
+        assertSimilar(Math.hypot(2, 0.5), quadtree.distanceToNearestBoundary(PT(12, 0.5), 3));
+        assertEquals(classifier.distanceToNearestBoundary(PT(12, 0.5), 3), quadtree.distanceToNearestBoundary(PT(12, 0.5), 3));
+        assertEquals(Double.POSITIVE_INFINITY, quadtree.distanceToNearestBoundary(PT(12, 2.5), 3));
+
+        // random points around the states agree with the classifier
+        var ringArrays = ringArraysFromGeoJson("data/USA-ADM1.geojson.gz");
+        classifier = new Classifier(ringArrays);
+        quadtree = new QuadtreeClassifier(ringArrays);
+        var random = new Random(8675309);
+        for (var i = 0; i < 2000; ++i) {
+            var pt = PT(-125 + (random.nextDouble() * 60), 24 + (random.nextDouble() * 26));
+            var radius = random.nextDouble() * 2;
+            assertEquals(classifier.distanceToNearestBoundary(pt, radius), quadtree.distanceToNearestBoundary(pt, radius), pt.toString());
+        }
+    }
+}
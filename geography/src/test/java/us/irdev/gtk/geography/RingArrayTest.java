@@ -1,4 +1,174 @@
 package us.irdev.gtk.geography;
 
+import org.junit.jupiter.api.Test;
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.gtk.xyw.Domain;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorClamp;
+import us.irdev.gtk.xyw.Polygon;
+import us.irdev.gtk.xyw.SampledFunction;
+import us.irdev.gtk.xyw.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Shapes.box;
+import static us.irdev.gtk.xyw.Shapes.frame;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
 public class RingArrayTest {
+    // a 4x4 square with a 2x2 hole in the middle
+    private static final List<Polygon> FRAME = frame(0, 0, 4, 4, 1);
+
+    @Test
+    public void testClipToDomain() {
+        var properties = new BagObject().put("name", "frame");
+        var ringArray = new RingArray(FRAME, properties);
+
+        // a domain over one corner of the hole keeps the hole, clipped
+        var domain = new Domain(2, 5, 2, 5);
+        var clipped = ringArray.clipToDomain(domain);
+        assertSame(properties, clipped.properties);
+        assertEquals(1, clipped.holes.size());
+        for (var pt : new Tuple[] { PT(2.5, 2.5), PT(3.5, 2.5), PT(3.5, 3.5), PT(4.5, 4.5), PT(2.5, 3.5) }) {
+            assertEquals(ringArray.contains(pt) && domain.contains(pt), clipped.contains(pt), pt.toString());
+        }
+
+        // a domain inside the hole, or outside the frame, leaves nothing or only the hole
+        assertNull(ringArray.clipToDomain(new Domain(5, 6, 5, 6)));
+        assertFalse(ringArray.clipToDomain(new Domain(1.5, 2.5, 1.5, 2.5)).contains(PT(2, 2)));
+    }
+
+    @Test
+    public void testBoolean() {
+        var properties = new BagObject().put("name", "frame");
+        var ringArray = new RingArray(FRAME, properties);
+        var bar = new RingArray(box(-1, 1.5, 5, 2.5), List.of(), null);
+
+        // the bar cuts the frame into two pieces, each without a hole
+        var difference = ringArray.difference(bar);
+        assertEquals(2, difference.size());
+        for (var piece : difference) {
+            assertSame(properties, piece.properties);
+            assertTrue(piece.holes.isEmpty());
+        }
+
+        // the intersection is the two parts of the bar over the frame
+        var intersection = ringArray.intersection(bar);
+        assertEquals(2, intersection.size());
+        assertTrue(intersection.stream().anyMatch(piece -> piece.contains(PT(0.5, 2))));
+        assertTrue(intersection.stream().noneMatch(piece -> piece.contains(PT(2, 2))));
+
+        // the union fills the middle of the hole, and leaves two holes
+        var union = ringArray.union(bar);
+        assertEquals(1, union.size());
+        assertEquals(2, union.get(0).holes.size());
+        assertTrue(union.get(0).contains(PT(2, 2)));
+        assertFalse(union.get(0).contains(PT(2, 1.25)));
+        assertTrue(union.get(0).contains(PT(4.5, 2)));
+    }
+
+    @Test
+    public void testSimplify() {
+        var properties = new BagObject().put("name", "frame");
+        var ringArray = new RingArray(FRAME, properties);
+        assertSame(ringArray.importance(), ringArray.importance());
+
+        // the hole drops to a triangle, but cutting any corner of the boundary would cross the hole
+        var simplified = ringArray.simplify(100);
+        assertSame(properties, simplified.properties);
+        assertEquals(4, simplified.boundary.segments.length);
+        assertEquals(3, simplified.holes.get(0).segments.length);
+        for (var pt : simplified.holes.get(0).vertices()) {
+            assertTrue(simplified.boundary.contains(pt), pt.toString());
+        }
+
+        // nothing goes at a zero tolerance
+        assertSame(ringArray.boundary, ringArray.simplify(0).boundary);
+    }
+
+    @Test
+    public void testSimplifyShared() {
+        // two squares side by side, with a noisy shared border
+        var random = new Random(8675309);
+        var border = new ArrayList<Tuple>();
+        for (var i = 1; i < 50; ++i) {
+            border.add(PT(1 + ((random.nextDouble() - 0.5) * 0.3 * Math.sin(Math.PI * i / 50)), i / 50.0));
+        }
+        var left = new ArrayList<>(List.of(PT(0, 0), PT(1, 0)));
+        left.addAll(border);
+        left.addAll(List.of(PT(1, 1), PT(0, 1)));
+        var right = new ArrayList<>(List.of(PT(2, 1), PT(1, 1)));
+        var reversed = new ArrayList<>(border);
+        Collections.reverse(reversed);
+        right.addAll(reversed);
+        right.addAll(List.of(PT(1, 0), PT(2, 0)));
+        var ringArrays = List.of(
+                new RingArray(new Polygon(left), List.of(), new BagObject().put("name", "left")),
+                new RingArray(new Polygon(right), List.of(), new BagObject().put("name", "right"))
+        );
+
+        // the border keeps the same vertices on both sides, so the classifier puts every point
+        // away from it in exactly one of the squares
+        var simplified = RingArray.simplify(ringArrays, 0.01);
+        var leftBorder = new ArrayList<Tuple>();
+        for (var vertex : simplified.get(0).boundary.vertices()) {
+            if (vertex.x > 0.5) {
+                leftBorder.add(vertex);
+            }
+        }
+        var rightBorder = new ArrayList<Tuple>();
+        for (var vertex : simplified.get(1).boundary.vertices()) {
+            if (vertex.x < 1.5) {
+                rightBorder.add(vertex);
+            }
+        }
+        assertTrue(leftBorder.size() < border.size());
+        Collections.reverse(rightBorder);
+        assertEquals(leftBorder, rightBorder);
+
+        var classifier = new Classifier(ringArrays, 0.01);
+        for (var i = 0; i < 1000; ++i) {
+            var pt = PT(0.01 + (random.nextDouble() * 1.98), 0.01 + (random.nextDouble() * 0.98));
+            var count = 0;
+            for (var ringArray : classifier.ringArrays) {
+                count += ringArray.contains(pt) ? 1 : 0;
+            }
+            assertEquals(1, count, pt.toString());
+            assertNotNull(classifier.getAt(pt), pt.toString());
+        }
+    }
+
+    @Test
+    public void testTriangulate() {
+        var mesh = new RingArray(FRAME, null).triangulate();
+        assertEquals(8, mesh.triangleCount());
+        assertEquals(12, mesh.area(), 1e-12);
+        assertEquals(16, mesh.coordinates().length);
+    }
+
+    @Test
+    public void testRasterize() {
+        // samples every 0.5 over the frame, so each sample's cell is a quarter unit in area
+        var ringArray = new RingArray(FRAME, null);
+        var function = new SampledFunction(new Domain(0, 4, 0, 4), Tuple.VEC(0.5, 0.5), new BoundaryBehaviorClamp());
+        ringArray.coverage(function);
+        var sum = 0.0;
+        for (var y = 0.0; y <= 4; y += 0.5) {
+            for (var x = 0.0; x <= 4; x += 0.5) {
+                sum += function.f(PT(x, y));
+            }
+        }
+        assertEquals(12, sum * 0.25, 1e-9);
+
+        // the bar fills over the frame where they overlap
+        var ids = new SampledFunction(new Domain(0, 4, 0, 4), Tuple.VEC(0.5, 0.5), new BoundaryBehaviorClamp());
+        RingArray.fillAll(ids, List.of(ringArray, new RingArray(box(-1, 1.75, 5, 2.25), List.of(), null)), new double[] { 1, 2 });
+        assertEquals(1, ids.f(PT(0.5, 0.5)));
+        assertEquals(2, ids.f(PT(2, 2)));
+        assertEquals(2, ids.f(PT(0.5, 2)));
+        assertEquals(0, ids.f(PT(1.5, 1.5)));
+    }
 }
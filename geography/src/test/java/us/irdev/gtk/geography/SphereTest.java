@@ -4,7 +4,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static us.irdev.gtk.geography.Sphere.greatArcLength;
 import static us.irdev.gtk.xyw.Assertions.assertSimilar;
 import static us.irdev.gtk.xyw.Tuple.PT;
@@ -30,4 +36,83 @@ public class SphereTest {
         assertSimilar(69.0547669239163, greatArcLength (PT (1, 0), PT(0, 0), Sphere.EARTH_RADIUS_MILES));
         assertSimilar(69.0547669239163, greatArcLength (PT (0, 1), PT(0, 0), Sphere.EARTH_RADIUS_MILES));
     }
+
+    private static double[][] randomPoints(Random random, int count) {
+        var lons = new double[count];
+        var lats = new double[count];
+        for (var i = 0; i < count; ++i) {
+            lons[i] = (random.nextDouble() * 360) - 180;
+            lats[i] = Math.toDegrees(Math.asin((random.nextDouble() * 2) - 1));
+        }
+        return new double[][] { lons, lats };
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        var random = new Random(8675309);
+        var sphere = new Sphere();
+        var a = randomPoints(random, 150);
+        var b = randomPoints(random, 70);
+        var pointsA = new Sphere.Points(a[0], a[1]);
+        var pointsB = new Sphere.Points(b[0], b[1]);
+
+        // the batches give exactly the same lengths as the scalar version
+        var matrix = sphere.greatArcLengths(pointsA, pointsB);
+        assertEquals(150 * 70, matrix.length);
+        for (var i = 0; i < 150; ++i) {
+            var row = sphere.greatArcLengths(a[0][i], a[1][i], pointsB);
+            for (var j = 0; j < 70; ++j) {
+                var expect = sphere.greatArcLength(PT(a[0][i], a[1][i]), PT(b[0][j], b[1][j]));
+                assertEquals(expect, row[j]);
+                assertEquals(expect, matrix[(i * 70) + j]);
+            }
+        }
+
+        // a band of rows matches the same rows of the whole matrix
+        var band = new double[40 * 70];
+        sphere.greatArcLengths(pointsA, 55, 95, pointsB, band);
+        for (var k = 0; k < band.length; ++k) {
+            assertEquals(matrix[(55 * 70) + k], band[k]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> sphere.greatArcLengths(pointsA, 100, 150, pointsB, band));
+        assertThrows(IllegalArgumentException.class, () -> sphere.greatArcLengths(pointsA, 140, 160, pointsB, band));
+
+        // a matrix with more than 2^31 - 1 lengths has to be computed a band at a time
+        var many = new double[50_000];
+        var manyPoints = new Sphere.Points(many, many);
+        assertThrows(IllegalArgumentException.class, () -> sphere.greatArcLengths(manyPoints, manyPoints));
+    }
+
+    @Test
+    public void testSphereTree() throws Exception {
+        var random = new Random(8675309);
+        var sphere = new Sphere();
+        for (var count : new int[] { 0, 1, 2, 17, 5000 }) {
+            var points = randomPoints(random, count);
+            var tree = new SphereTree(sphere, points[0], points[1]);
+            assertEquals(count, tree.size());
+            var queries = randomPoints(random, 100);
+            for (var q = 0; q < 100; ++q) {
+                var lon = queries[0][q];
+                var lat = queries[1][q];
+                var found = tree.nearest(lon, lat, 8);
+
+                // the same as sorting all the points by distance
+                var distances = sphere.greatArcLengths(lon, lat, new Sphere.Points(points[0], points[1]));
+                var expect = IntStream.range(0, count).boxed().sorted(Comparator.comparingDouble(i -> distances[i])).limit(8).mapToDouble(i -> distances[i]).toArray();
+                assertEquals(expect.length, found.size());
+                for (var i = 0; i < expect.length; ++i) {
+                    assertSimilar(expect[i], found.get(i).distance());
+                    assertEquals(distances[found.get(i).index()], found.get(i).distance());
+                }
+            }
+        }
+
+        // a point near the antimeridian finds its neighbor across it
+        var tree = new SphereTree(sphere, new double[] { 179.9, -179.9, 0, 170 }, new double[] { 10, 10, 10, 10 });
+        var found = tree.nearest(-179.95, 10, 2);
+        assertEquals(1, found.get(0).index());
+        assertEquals(0, found.get(1).index());
+        assertTrue(tree.nearest(0, 0, 0).isEmpty());
+    }
 }
@@ -0,0 +1,206 @@
+package us.irdev.gtk.geography;
+
+import org.junit.jupiter.api.Test;
+import us.irdev.bedrock.bag.BagObject;
+import us.irdev.gtk.xyw.Domain;
+import us.irdev.gtk.xyw.Polygon;
+import us.irdev.gtk.xyw.Tuple;
+
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Shapes.box;
+import static us.irdev.gtk.xyw.Shapes.circle;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class TilerTest {
+    // a finely sampled circle, with a square hole in the middle
+    private static RingArray disc(double cx, double cy, double radius, int count, BagObject properties) {
+        var half = radius * 0.25;
+        return new RingArray(circle(cx, cy, radius, count), List.of(box(cx - half, cy - half, cx + half, cy + half)), properties);
+    }
+
+    private static List<RingArray> ringArrays() {
+        return List.of(
+                disc(-100, 40, 30, 5000, new BagObject().put("name", "a")),
+                disc(60, -20, 10, 2000, new BagObject().put("name", "b"))
+        );
+    }
+
+    @Test
+    public void testTileDomain() {
+        var tiler = new Tiler(List.of(), 4);
+        assertTrue(Domain.similar(Tiler.WORLD, tiler.tileDomain(0, 0, 0)));
+        assertTrue(Domain.similar(new Domain(-180, 0, 0, 90), tiler.tileDomain(1, 0, 0)));
+        assertTrue(Domain.similar(new Domain(0, 180, -90, 0), tiler.tileDomain(1, 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> tiler.tileDomain(1, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> tiler.tileDomain(-1, 0, 0));
+    }
+
+    @Test
+    public void testBuild() {
+        var ringArrays = ringArrays();
+        var tiler = new Tiler(ringArrays, 16);
+        var random = new Random(8675309);
+        for (var z = 0; z <= 6; ++z) {
+            var tiles = tiler.buildAll(z);
+            assertFalse(tiles.isEmpty());
+
+            // points in each tile, away from the edges of the discs, are in the same shapes
+            for (var tile : tiles) {
+                assertTrue(tile.vertexCount() < 5000);
+                for (var i = 0; i < 50; ++i) {
+                    var pt = tile.domain.randomSample();
+                    var expect = new ArrayList<BagObject>();
+                    var nearEdge = false;
+                    for (var ringArray : ringArrays) {
+                        if (ringArray.contains(pt)) {
+                            expect.add(ringArray.properties);
+                        }
+                        var center = ringArray.boundary.domain().center();
+                        var r = Math.hypot(pt.x - center.x, pt.y - center.y);
+                        var radius = ringArray.boundary.domain().width() / 2;
+                        var half = radius * 0.25;
+                        nearEdge |= (Math.abs(r - radius) < radius * 0.01) ||
+                                (Math.abs(Math.max(Math.abs(pt.x - center.x), Math.abs(pt.y - center.y)) - half) < radius * 0.01);
+                    }
+                    if (!nearEdge) {
+                        assertEquals(expect, tile.getAt(pt), tile.z + "/" + tile.x + "/" + tile.y + " at " + pt);
+                    }
+                }
+            }
+        }
+
+        // zoom 0 keeps far fewer vertices than the source, and zooming in keeps more of them
+        var world = tiler.build(0, 0, 0);
+        assertEquals(2, world.shapes.size());
+        assertTrue(world.vertexCount() < 500, Integer.toString(world.vertexCount()));
+        var detail = tiler.buildAll(6).stream().mapToInt(Tile::vertexCount).sum();
+        assertTrue(detail > world.vertexCount());
+
+        // a tile built on its own, cut from its cached parents, matches the one cut top down
+        for (var tile : tiler.buildAll(5)) {
+            var single = tiler.build(5, tile.x, tile.y);
+            assertEquals(tile.shapes.size(), single.shapes.size());
+            for (var i = 0; i < tile.shapes.size(); ++i) {
+                assertSame(tile.shapes.get(i).properties(), single.shapes.get(i).properties());
+                assertArrayEquals(tile.shapes.get(i).rings(), single.shapes.get(i).rings());
+            }
+        }
+
+        // an empty tile
+        assertTrue(tiler.build(2, 3, 3).shapes.isEmpty());
+    }
+
+    // the quantised vertices of a ring in a tile (not its buffer), inside a box in the domain
+    private static Set<List<Integer>> verticesIn(Tile tile, int[] ring, Domain box) {
+        var result = new HashSet<List<Integer>>();
+        for (var i = 0; i < ring.length; i += 2) {
+            var pt = PT(tile.domain.min.x + ((ring[i] * tile.domain.width()) / tile.extent), tile.domain.max.y - ((ring[i + 1] * tile.domain.height()) / tile.extent));
+            if ((ring[i] >= 0) && (ring[i] <= tile.extent) && (ring[i + 1] >= 0) && (ring[i + 1] <= tile.extent) && box.contains(pt)) {
+                result.add(List.of(ring[i], ring[i + 1]));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testSharedBorder() {
+        // two regions that share a finely sampled border at x = 20, with small bumps into the east
+        // one. the west one has a lake in each bump, which blocks removing the tip of the bump, so
+        // if the regions were simplified apart the east one would drop tips the west one keeps.
+        var random = new Random(8675309);
+        var border = new ArrayList<Tuple>();
+        var lakes = new ArrayList<Polygon>();
+        for (var i = 0; i <= 2000; ++i) {
+            var y = 10 + (i * 0.02);
+            if ((i % 50) == 25) {
+                border.add(PT(20.04, y));
+                lakes.add(new Polygon(List.of(PT(20.006, y - 0.001), PT(20.006, y + 0.001), PT(20.004, y))));
+            } else {
+                border.add(PT(20 + (random.nextDouble() * 0.002), y));
+            }
+        }
+        var west = new ArrayList<>(List.of(PT(-10, 10)));
+        west.addAll(border);
+        west.add(PT(-10, 50));
+        var east = new ArrayList<>(border);
+        Collections.reverse(east);
+        east.addAll(List.of(PT(50, 10), PT(50, 50)));
+        var tiler = new Tiler(List.of(
+                new RingArray(new Polygon(west), lakes, new BagObject().put("name", "west")),
+                new RingArray(new Polygon(east), List.of(), new BagObject().put("name", "east"))
+        ), 16);
+
+        var box = new Domain(19.9, 20.1, 10, 50);
+        for (var z = 0; z <= 4; ++z) {
+            // the border vertices left in each tile are the same in both shapes
+            var shared = 0;
+            for (var tile : tiler.buildAll(z)) {
+                if (tile.shapes.size() == 2) {
+                    var westBorder = verticesIn(tile, tile.shapes.get(0).rings()[0], box);
+                    assertEquals(westBorder, verticesIn(tile, tile.shapes.get(1).rings()[0], box), tile.z + "/" + tile.x + "/" + tile.y);
+                    shared += westBorder.size();
+                }
+            }
+            assertTrue(shared > 0);
+
+            // points near the border, and in the bumps, are in exactly one of the shapes
+            var tiles = 1 << z;
+            for (var i = 0; i < 2000; ++i) {
+                var pt = (i % 2 == 0) ? PT(19.9 + (random.nextDouble() * 0.2), 10.1 + (random.nextDouble() * 39.8))
+                        : PT(20.018 + (random.nextDouble() * 0.006), 10.5 + random.nextInt(40) + ((random.nextDouble() - 0.5) * 0.006));
+                var tile = tiler.build(z, (int) Math.floor(((pt.x + 180) / 360) * tiles), (int) Math.floor(((90 - pt.y) / 180) * tiles));
+                assertEquals(1, tile.getAt(pt).size(), z + " at " + pt);
+            }
+        }
+    }
+
+    @Test
+    public void testCache() {
+        var tiler = new Tiler(ringArrays(), 2);
+        var a = tiler.getTile(1, 0, 0);
+        assertSame(a, tiler.getTile(1, 0, 0));
+        var b = tiler.getTile(1, 1, 1);
+        assertSame(a, tiler.getTile(1, 0, 0));
+        assertEquals(2, tiler.cachedCount());
+
+        // the least recently used tile goes when a third one comes in
+        tiler.getTile(0, 0, 0);
+        assertEquals(2, tiler.cachedCount());
+        assertSame(a, tiler.getTile(1, 0, 0));
+        assertNotSame(b, tiler.getTile(1, 1, 1));
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        var tiler = new Tiler(ringArrays(), 0);
+        var directory = Files.createTempDirectory("tiles");
+        try {
+            tiler.write(directory, 0, 2);
+            for (var z = 0; z <= 2; ++z) {
+                for (var tile : tiler.buildAll(z)) {
+                    var read = Tile.read(directory.resolve(z + "/" + tile.x + "/" + tile.y + ".gtkt"));
+                    assertEquals(tile.z, read.z);
+                    assertEquals(tile.x, read.x);
+                    assertEquals(tile.y, read.y);
+                    assertEquals(tile.extent, read.extent);
+                    assertTrue(Domain.similar(tile.domain, read.domain));
+                    assertEquals(tile.shapes.size(), read.shapes.size());
+                    for (var i = 0; i < tile.shapes.size(); ++i) {
+                        assertEquals(tile.shapes.get(i).properties().toString(), read.shapes.get(i).properties().toString());
+                        assertArrayEquals(tile.shapes.get(i).rings(), read.shapes.get(i).rings());
+                    }
+                }
+            }
+            assertThrows(java.io.IOException.class, () -> Tile.fromBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+        } finally {
+            try (var paths = Files.walk(directory)) {
+                for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}
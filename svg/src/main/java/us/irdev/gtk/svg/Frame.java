@@ -68,6 +68,15 @@ public class Frame {
     return poly (polygon.segments);
   }
 
+  // draw a polygon simplified to a tolerance, usually about the area of a pixel
+  public Frame poly (Polygon polygon, double tolerance) {
+    return poly (polygon.simplify (tolerance));
+  }
+
+  public Frame poly (PolyLine polyline, double tolerance) {
+    return poly (polyline.simplify (tolerance));
+  }
+
   public Frame points (double size, Tuple... points) {
     return element (new Points (size, points));
   }
@@ -0,0 +1,51 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+// shapes for testing code that uses polygons
+public class Shapes {
+  // a random star shaped ring around a center, with the radius varying from half to all of the
+  // given radius
+  public static Polygon star (Random random, double cx, double cy, double radius, int count) {
+    List<Tuple> tuples = new ArrayList<> ();
+    for (int i = 0; i < count; ++i) {
+      double angle = (Math.PI * 2 * i) / count;
+      double r = radius * (0.5 + (random.nextDouble () * 0.5));
+      tuples.add (PT (cx + (Math.cos (angle) * r), cy + (Math.sin (angle) * r)));
+    }
+    return new Polygon (tuples);
+  }
+
+  // a counterclockwise ring of evenly spaced points on a circle
+  public static Polygon circle (double cx, double cy, double radius, int count) {
+    List<Tuple> tuples = new ArrayList<> ();
+    for (int i = 0; i < count; ++i) {
+      double angle = (Math.PI * 2 * i) / count;
+      tuples.add (PT (cx + (Math.cos (angle) * radius), cy + (Math.sin (angle) * radius)));
+    }
+    return new Polygon (tuples);
+  }
+
+  // a counterclockwise rectangle
+  public static Polygon box (double x0, double y0, double x1, double y1) {
+    return new Polygon (new Tuple[] { PT (x0, y0), PT (x1, y0), PT (x1, y1), PT (x0, y1) });
+  }
+
+  // a rectangle with a rectangular hole inset from its edges, as the boundary then the hole
+  public static List<Polygon> frame (double x0, double y0, double x1, double y1, double inset) {
+    return List.of (box (x0, y0, x1, y1), box (x0 + inset, y0 + inset, x1 - inset, y1 - inset));
+  }
+
+  // the signed area of a ring, by the shoelace formula
+  public static double area (Polygon ring) {
+    double area = 0;
+    for (Segment segment : ring.segments.segments) {
+      area += (segment.a.x * segment.b.y) - (segment.b.x * segment.a.y);
+    }
+    return area * 0.5;
+  }
+}
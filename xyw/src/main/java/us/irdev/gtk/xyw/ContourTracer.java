@@ -0,0 +1,198 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Traces an iso-contour through the cells of a SampledFunction, producing connected PolyLines
+ * directly. the grid is walked a row at a time, and each edge crossing is computed exactly once
+ * and given an index. the two cells that share an edge both refer to the crossing by its index
+ * (the horizontal edges are passed from one row to the next, and the vertical edges from one cell
+ * to the next), so connecting the lines is just following links between indices - there is no
+ * endpoint matching involved.
+ */
+class ContourTracer {
+  private final SampledFunction function;
+  private final double targetValue;
+
+  // the crossings in the order they are found, with up to two links to neighboring crossings each
+  private double[] xs = new double[1024], ys = new double[1024];
+  private int[] links = new int[2048];
+  private int count;
+
+  /**
+   * Constructor - use SampledFunction.isoLines
+   * @param function the sampled function to trace
+   * @param targetValue the value to trace the iso-contour for
+   */
+  ContourTracer (SampledFunction function, double targetValue) {
+    this.function = function;
+    this.targetValue = targetValue;
+  }
+
+  /**
+   * @return the index of a new crossing at (x, y)
+   */
+  private int addCrossing (double x, double y) {
+    if (count == xs.length) {
+      xs = Arrays.copyOf (xs, count * 2);
+      ys = Arrays.copyOf (ys, count * 2);
+      links = Arrays.copyOf (links, count * 4);
+    }
+    xs[count] = x;
+    ys[count] = y;
+    links[count * 2] = links[(count * 2) + 1] = -1;
+    return count++;
+  }
+
+  /**
+   * connect two crossings, each crossing is on an edge shared by at most two cells, so it never
+   * gets more than two links
+   */
+  private void link (int a, int b) {
+    links[(a * 2) + ((links[a * 2] < 0) ? 0 : 1)] = b;
+    links[(b * 2) + ((links[b * 2] < 0) ? 0 : 1)] = a;
+  }
+
+  /**
+   * @return the squared distance between two crossings
+   */
+  private double distanceSq (int a, int b) {
+    double dx = xs[b] - xs[a], dy = ys[b] - ys[a];
+    return (dx * dx) + (dy * dy);
+  }
+
+  /**
+   * walk the cells, computing the crossings and linking them
+   */
+  private void linkCells () {
+    int[] end = function.isoEnd ();
+    int cellsX = end[0], cellsY = end[1];
+    int dimX = function.dimX, dimY = function.dimY;
+    Tuple min = function.domain.min, interval = function.interval;
+    MinMaxPyramid pyramid = function.pyramid ();
+    double[] levels = { targetValue };
+
+    // the crossings on the horizontal edges at the bottom and top of the current row of cells
+    int[] bottom = new int[cellsX], top = new int[cellsX];
+    if (cellsY > 0) {
+      for (int ix = 0; ix < cellsX; ++ix) {
+        double a = function.getSample (ix, 0), b = function.getSample ((ix + 1) % dimX, 0);
+        bottom[ix] = ((a >= targetValue) != (b >= targetValue))
+                ? addCrossing (Numerics.where (targetValue, min.x + (ix * interval.x), a, min.x + ((ix + 1) * interval.x), b), min.y)
+                : -1;
+      }
+    }
+
+    for (int iy = 0; iy < cellsY; ++iy) {
+      double y = min.y + (iy * interval.y);
+      double y1 = min.y + ((iy + 1) * interval.y);
+      int iy1 = (iy + 1) % dimY;
+      Arrays.fill (top, -1);
+
+      // right is the crossing on the right edge of the last cell we visited, which is the left edge
+      // of the current cell if we didn't skip anything to get here
+      int right = -1, lastIx = -2;
+      int checkedEnd = 0;
+      for (int ix = 0; ix < cellsX; ix++) {
+        if ((pyramid != null) && (ix >= checkedEnd)) {
+          int next = pyramid.skip (ix, iy, levels);
+          if (next > ix) {
+            ix = next - 1;
+            continue;
+          }
+          checkedEnd = pyramid.blockEnd (ix);
+        }
+
+        double x = min.x + (ix * interval.x);
+        double x1 = min.x + ((ix + 1) * interval.x);
+        int ix1 = (ix + 1) % dimX;
+
+        // get the 4 samples for the corners of the cell, and compute the code the same way iso does
+        //
+        //      c - d
+        //      |   |
+        //      a - b
+
+        double a = function.getSample(ix, iy), b = function.getSample (ix1, iy), c = function.getSample (ix, iy1), d = function.getSample (ix1, iy1);
+        boolean ath = (a >= targetValue), bth = (b >= targetValue), cth = (c >= targetValue), dth = (d >= targetValue);
+        int code = (ath ? 1 : 0) | (bth ? 2 : 0) | (cth ? 4 : 0) | (dth ? 8 : 0);
+
+        // fetch or compute the crossings on each edge of the cell
+        int l = (lastIx == ix - 1) ? right : ((ath != cth) ? addCrossing (x, Numerics.where (targetValue, y, a, y1, c)) : -1);
+        int r = (bth != dth) ? addCrossing (x1, Numerics.where (targetValue, y, b, y1, d)) : -1;
+        int t = (cth != dth) ? addCrossing (Numerics.where (targetValue, x, c, x1, d), y1) : -1;
+        int bt = bottom[ix];
+        top[ix] = t;
+        right = r;
+        lastIx = ix;
+
+        // link the crossings based on the code, this mirrors iso
+        switch (code) {
+          case 0: case 15: break;
+          case 1: case 14: link (l, bt); break;
+          case 2: case 13: link (r, bt); break;
+          case 4: case 11: link (l, t); break;
+          case 8: case 7: link (r, t); break;
+          case 3: case 12: link (l, r); break;
+          case 5: case 10: link (bt, t); break;
+          case 6: case 9:
+            // saddle point, resolve the ambiguity by choosing the shortest combined pair
+            if ((distanceSq (l, t) + distanceSq (r, bt)) < (distanceSq (l, bt) + distanceSq (r, t))) {
+              link (l, t);
+              link (r, bt);
+            } else {
+              link (l, bt);
+              link (r, t);
+            }
+            break;
+        }
+      }
+
+      // the top of this row is the bottom of the next one
+      int[] swap = bottom;
+      bottom = top;
+      top = swap;
+    }
+  }
+
+  /**
+   * follow the links from a starting crossing until we run out of unvisited crossings
+   */
+  private PolyLine extractLine (int start, boolean[] visited, boolean closed) {
+    List<Tuple> points = new ArrayList<>();
+    for (int current = start; current >= 0; ) {
+      visited[current] = true;
+      points.add (Tuple.PT (xs[current], ys[current]));
+      int n0 = links[current * 2], n1 = links[(current * 2) + 1];
+      current = ((n0 >= 0) && (! visited[n0])) ? n0 : (((n1 >= 0) && (! visited[n1])) ? n1 : -1);
+    }
+    return new PolyLine (points, closed);
+  }
+
+  /**
+   * @return the traced iso-contour as a list of polylines, open lines first in the order their
+   * first endpoint was found, then closed loops
+   */
+  List<PolyLine> trace () {
+    linkCells ();
+    List<PolyLine> output = new ArrayList<>();
+    boolean[] visited = new boolean[count];
+
+    // crossings with only one link are the ends of open lines (at the edge of the grid)
+    for (int i = 0; i < count; ++i) {
+      if ((! visited[i]) && (links[(i * 2) + 1] < 0)) {
+        output.add (extractLine (i, visited, false));
+      }
+    }
+
+    // everything left is part of a closed loop
+    for (int i = 0; i < count; ++i) {
+      if (! visited[i]) {
+        output.add (extractLine (i, visited, true));
+      }
+    }
+    return output;
+  }
+}
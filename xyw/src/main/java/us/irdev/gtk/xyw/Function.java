@@ -54,4 +54,38 @@ public abstract class Function implements Fxy {
   public Tuple dxdy (double x, double y) {
     return at (Tuple.PT (x, y)).dxdy;
   }
+
+  // -----------------------------------------------------------------------------------------------
+  // batch evaluation
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * evaluate the function and its 1st derivatives at a batch of coordinates. this default
+   * implementation just loops over the scalar evaluation, subclasses should override it with
+   * something that doesn't allocate per point.
+   * @param xs x-coordinates to evaluate in the domain
+   * @param ys y-coordinates to evaluate in the domain, must be the same length as xs
+   * @param f output array for the value of the function at each (x, y), at least as long as xs
+   * @param dx optional output array for the x-derivative at each (x, y), may be null
+   * @param dy optional output array for the y-derivative at each (x, y), may be null
+   */
+  public void at (double[] xs, double[] ys, double[] f, double[] dx, double[] dy) {
+    assert (xs.length == ys.length);
+    for (int i = 0, count = xs.length; i < count; ++i) {
+      At at = at (Tuple.PT (xs[i], ys[i]));
+      f[i] = at.f;
+      if (dx != null) dx[i] = at.dxdy.x;
+      if (dy != null) dy[i] = at.dxdy.y;
+    }
+  }
+
+  /**
+   * evaluate the function at a batch of coordinates
+   * @param xs x-coordinates to evaluate in the domain
+   * @param ys y-coordinates to evaluate in the domain, must be the same length as xs
+   * @param f output array for the value of the function at each (x, y), at least as long as xs
+   */
+  public void f (double[] xs, double[] ys, double[] f) {
+    at (xs, ys, f, null, null);
+  }
 }
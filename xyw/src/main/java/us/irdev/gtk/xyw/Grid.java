@@ -11,7 +11,25 @@ public class Grid<T> {
     public final Tuple spacing;
     private final int width;
     private final int height;
-    private final Map<Integer, Set<T>> cells;
+
+    // while the grid is being built, each put is appended to a pair of growable arrays, the cell
+    // index and the value, so values can be added in any order. freezing the grid sorts them by
+    // cell, drops the repeats in each cell, and packs them into flat arrays (CSR style): the values
+    // of all the cells in one array ordered by cell, and the offset to the start of each cell's
+    // values. a dense grid has an offset for every cell, a sparse grid also keeps the sorted
+    // indices of just the occupied cells, and finds a cell by binary search. a map of sets is only
+    // built if the grid is read before it is frozen.
+    private int[] putKeys;
+    private Object[] putValues;
+    private int putCount;
+    private Map<Integer, Set<T>> cells;
+    private int[] keys;
+    private int[] offsets;
+    private Object[] values;
+    private int occupied;
+
+    // the occupancy at or above which a frozen grid uses the dense layout
+    public static final double DENSE_OCCUPANCY = 0.25;
 
     public Grid (Domain domain, Tuple spacing) {
         this.domain = domain;
@@ -19,7 +37,8 @@ public class Grid<T> {
         var size = domain.size().hquotient (spacing).ceil ();
         width = (int) size.x;
         height = (int) size.y;
-        cells = new HashMap<> ();
+        putKeys = new int[16];
+        putValues = new Object[16];
     }
 
     private static Tuple computeSpacing (Domain domain, int n) {
@@ -34,17 +53,234 @@ public class Grid<T> {
     }
 
     protected int hash (Tuple pt) {
-        var cell = pt.subtract(domain.min).hquotient (spacing).floor();
-        return (int) cell.x + ((int) cell.y * width);
+        return cellIndex (pt.x, pt.y);
+    }
+
+    /**
+     * @return the index of the cell containing the point (x, y), the same value used to look up
+     * the cell contents, so points with the same index share a cell
+     */
+    public int cellIndex (double x, double y) {
+        var cellX = Math.floor ((x - domain.min.x) / spacing.x);
+        var cellY = Math.floor ((y - domain.min.y) / spacing.y);
+        return (int) cellX + ((int) cellY * width);
     }
 
     public Set<T> getAt (Tuple pt) {
-        var result = cells.get (hash (pt));
+        if (values != null) {
+            return frozenAt (hash (pt));
+        }
+        var result = cells ().get (hash (pt));
         return (result != null) ? Collections.unmodifiableSet (result) : Collections.emptySet();
     }
 
+    /**
+     * look up the contents of the cell containing the point (x, y) without wrapping the set or
+     * allocating a tuple, the returned set must not be modified
+     */
+    public Set<T> getAt (double x, double y) {
+        if (values != null) {
+            return frozenAt (cellIndex (x, y));
+        }
+        var result = cells ().get (cellIndex (x, y));
+        return (result != null) ? result : Collections.emptySet();
+    }
+
+    // the cells as a map of sets, for reading a grid before it is frozen, built from the puts on
+    // first use and then kept up to date with them
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Set<T>> cells () {
+        if (cells == null) {
+            cells = new HashMap<> ();
+            for (var i = 0; i < putCount; ++i) {
+                cells.computeIfAbsent (putKeys[i], k -> new LinkedHashSet<> ()).add ((T) putValues[i]);
+            }
+        }
+        return cells;
+    }
+
     public void putAt (Tuple pt, T value) {
-        cells.computeIfAbsent(hash (pt), k -> new HashSet<>()).add(value);
+        if (values != null) {
+            throw new UnsupportedOperationException ("the grid is frozen");
+        }
+        var key = hash (pt);
+        if (putCount == putKeys.length) {
+            putKeys = Arrays.copyOf (putKeys, putCount * 2);
+            putValues = Arrays.copyOf (putValues, putCount * 2);
+        }
+        putKeys[putCount] = key;
+        putValues[putCount++] = value;
+        if (cells != null) {
+            cells.computeIfAbsent (key, k -> new LinkedHashSet<> ()).add (value);
+        }
+    }
+
+    /**
+     * pack the cells into flat arrays, after which the grid can't be changed. the dense layout is
+     * used if the occupancy is at least DENSE_OCCUPANCY, and every value was put inside the domain.
+     * @return this grid, for chaining
+     */
+    public Grid<T> freeze () {
+        return freeze (null);
+    }
+
+    /**
+     * pack the cells into flat arrays, like freeze (), with the values in each cell sorted so the
+     * order they are iterated in doesn't depend on the order they were put
+     * @param order the order of the values in each cell, or null to leave them in the order they
+     *              were put
+     * @return this grid, for chaining
+     */
+    public Grid<T> freeze (Comparator<? super T> order) {
+        if (values == null) {
+            // sort the puts by cell, keeping the order they were put within each cell, by packing
+            // the cell index over the put index
+            var sorted = new long[putCount];
+            for (var i = 0; i < putCount; ++i) {
+                sorted[i] = ((long) putKeys[i] << 32) | i;
+            }
+            Arrays.sort (sorted);
+
+            // count the occupied cells, and move the values into cell order without the repeats
+            var sortedKeys = new int[putCount];
+            var starts = new int[putCount + 1];
+            var packedValues = new Object[putCount];
+            var next = 0;
+            occupied = 0;
+            Set<Object> seen = null;
+            for (var i = 0; i < putCount; ++i) {
+                var key = (int) (sorted[i] >> 32);
+                var value = putValues[(int) sorted[i]];
+                if ((occupied == 0) || (sortedKeys[occupied - 1] != key)) {
+                    sortedKeys[occupied] = key;
+                    starts[occupied++] = next;
+                    seen = null;
+                } else {
+                    // a scan finds the repeats in a small cell, a big one switches to a hash set
+                    var start = starts[occupied - 1];
+                    if ((seen == null) && ((next - start) >= SCAN_LIMIT)) {
+                        seen = new HashSet<> (Arrays.asList (packedValues).subList (start, next));
+                    }
+                    if ((seen != null) ? (! seen.add (value)) : contains (packedValues, start, next, value)) {
+                        continue;
+                    }
+                }
+                packedValues[next++] = value;
+            }
+            starts[occupied] = next;
+            sortedKeys = Arrays.copyOf (sortedKeys, occupied);
+            packedValues = Arrays.copyOf (packedValues, next);
+            if (order != null) {
+                for (var i = 0; i < occupied; ++i) {
+                    sortCell (packedValues, starts[i], starts[i + 1], order);
+                }
+            }
+
+            // a dense grid spreads the offsets out to every cell, the empty ones start where the
+            // next occupied one does
+            var cellCount = width * height;
+            var dense = ((occupied / (double) cellCount) >= DENSE_OCCUPANCY) && ((occupied == 0) || ((sortedKeys[0] >= 0) && (sortedKeys[occupied - 1] < cellCount)));
+            var packedOffsets = dense ? new int[cellCount + 1] : Arrays.copyOf (starts, occupied + 1);
+            if (dense) {
+                for (int i = 0, cell = 0; cell <= cellCount; ++cell) {
+                    while ((i < occupied) && (sortedKeys[i] < cell)) {
+                        ++i;
+                    }
+                    packedOffsets[cell] = starts[i];
+                }
+            }
+
+            keys = dense ? null : sortedKeys;
+            offsets = packedOffsets;
+            values = packedValues;
+            putKeys = null;
+            putValues = null;
+            cells = null;
+        }
+        return this;
+    }
+
+    // the number of values in a cell above which freezing finds the repeats with a hash set
+    private static final int SCAN_LIMIT = 16;
+
+    // whether a value is in part of an array
+    private static boolean contains (Object[] values, int start, int end, Object value) {
+        for (var i = start; i < end; ++i) {
+            if (Objects.equals (values[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void sortCell (Object[] values, int start, int end, Comparator<? super T> order) {
+        Arrays.sort (values, start, end, (a, b) -> order.compare ((T) a, (T) b));
+    }
+
+    public boolean isFrozen () {
+        return values != null;
+    }
+
+    public boolean isDense () {
+        return (values != null) && (keys == null);
+    }
+
+    private Set<T> frozenAt (int key) {
+        int slot;
+        if (keys == null) {
+            if ((key < 0) || (key >= offsets.length - 1)) {
+                return Collections.emptySet ();
+            }
+            slot = key;
+        } else {
+            slot = Arrays.binarySearch (keys, key);
+            if (slot < 0) {
+                return Collections.emptySet ();
+            }
+        }
+        var start = offsets[slot];
+        var end = offsets[slot + 1];
+        return (start < end) ? new Cell<> (values, start, end) : Collections.emptySet ();
+    }
+
+    // a read-only view of the values of one cell in a frozen grid
+    private static class Cell<T> extends AbstractSet<T> {
+        private final Object[] values;
+        private final int start;
+        private final int end;
+
+        Cell (Object[] values, int start, int end) {
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int size () {
+            return end - start;
+        }
+
+        @Override
+        @SuppressWarnings ("unchecked")
+        public Iterator<T> iterator () {
+            return new Iterator<> () {
+                private int next = start;
+
+                @Override
+                public boolean hasNext () {
+                    return next < end;
+                }
+
+                @Override
+                public T next () {
+                    if (next >= end) {
+                        throw new NoSuchElementException ();
+                    }
+                    return (T) values[next++];
+                }
+            };
+        }
     }
 
     public List<Domain> enumerate () {
@@ -73,6 +309,6 @@ public class Grid<T> {
     }
 
     public double occupancy () {
-        return cells.size() / (double) (width * height);
+        return ((values != null) ? occupied : cells ().size()) / (double) (width * height);
     }
 }
@@ -0,0 +1,313 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hierarchical min/max index (a quadtree of blocks of cells) over the sample grid of a
+ * SampledFunction. each block at the base level covers a small square of cells, and each block at
+ * the next level up covers a 2x2 square of blocks from the level below, until a single block
+ * covers the whole grid. every block stores the minimum and maximum of the samples at the corners
+ * of its cells, which bounds the bi-linear interpolation everywhere inside the block.
+ * NaN samples are treated as below any value, the same way the marching squares code treats them.
+ */
+public class MinMaxPyramid {
+  /**
+   * each block at the base level covers (1 << BASE_SHIFT) x (1 << BASE_SHIFT) cells, which keeps
+   * the pyramid much smaller than the samples array
+   */
+  static final int BASE_SHIFT = 2;
+
+  private final SampledFunction function;
+  private final int cellsX, cellsY;
+  private final int[] widths;
+  private final double[][] mins, maxs;
+
+  /**
+   * Constructor - use SampledFunction.buildPyramid
+   * @param function the sampled function to index
+   */
+  MinMaxPyramid (SampledFunction function) {
+    this.function = function;
+    int[] end = function.isoEnd ();
+    cellsX = end[0];
+    cellsY = end[1];
+
+    // figure out how many levels we need, stopping when a single block covers the whole grid
+    List<int[]> dims = new ArrayList<>();
+    int width = (cellsX + (1 << BASE_SHIFT) - 1) >> BASE_SHIFT;
+    int height = (cellsY + (1 << BASE_SHIFT) - 1) >> BASE_SHIFT;
+    dims.add (new int[] { width, height });
+    while ((width > 1) || (height > 1)) {
+      width = (width + 1) >> 1;
+      height = (height + 1) >> 1;
+      dims.add (new int[] { width, height });
+    }
+    widths = new int[dims.size ()];
+    mins = new double[dims.size ()][];
+    maxs = new double[dims.size ()][];
+    for (int level = 0; level < dims.size (); ++level) {
+      int[] dim = dims.get (level);
+      widths[level] = dim[0];
+      mins[level] = new double[dim[0] * dim[1]];
+      maxs[level] = new double[dim[0] * dim[1]];
+      Arrays.fill (mins[level], Double.POSITIVE_INFINITY);
+      Arrays.fill (maxs[level], Double.NEGATIVE_INFINITY);
+    }
+
+    // fill the base level from the cells, carrying the right column of each cell over as the left
+    // column of the next one so each sample is only read twice
+    int dimX = function.dimX, dimY = function.dimY;
+    double[] min0 = mins[0], max0 = maxs[0];
+    for (int iy = 0; iy < cellsY; ++iy) {
+      int iy1 = (iy + 1) % dimY;
+      int row = (iy >> BASE_SHIFT) * widths[0];
+      double a = SampledFunction.isoBelow (function.getSample (0, iy));
+      double c = SampledFunction.isoBelow (function.getSample (0, iy1));
+      for (int ix = 0; ix < cellsX; ++ix) {
+        int ix1 = (ix + 1) % dimX;
+        double b = SampledFunction.isoBelow (function.getSample (ix1, iy));
+        double d = SampledFunction.isoBelow (function.getSample (ix1, iy1));
+        int block = row + (ix >> BASE_SHIFT);
+        min0[block] = Math.min (min0[block], Math.min (Math.min (a, b), Math.min (c, d)));
+        max0[block] = Math.max (max0[block], Math.max (Math.max (a, b), Math.max (c, d)));
+        a = b;
+        c = d;
+      }
+    }
+
+    // reduce each level into the one above it
+    for (int level = 1; level < widths.length; ++level) {
+      int below = level - 1;
+      int belowHeight = mins[below].length / widths[below];
+      for (int by = 0; by < belowHeight; ++by) {
+        for (int bx = 0; bx < widths[below]; ++bx) {
+          int from = (by * widths[below]) + bx;
+          int to = ((by >> 1) * widths[level]) + (bx >> 1);
+          mins[level][to] = Math.min (mins[level][to], mins[below][from]);
+          maxs[level][to] = Math.max (maxs[level][to], maxs[below][from]);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of levels in the pyramid, the top level is a single block
+   */
+  public int levels () {
+    return widths.length;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // cell culling for iso extraction
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * @param level the level of the block
+   * @return the log2 of the number of cells a block covers along each axis at the given level
+   */
+  private static int shift (int level) {
+    return level + BASE_SHIFT;
+  }
+
+  /**
+   * @return whether any of the sorted levels might cross the block at (bx, by) in the given level
+   */
+  private boolean crosses (int level, int bx, int by, double[] sorted) {
+    int block = (by * widths[level]) + bx;
+    return SampledFunction.isoCrosses (mins[level][block], maxs[level][block], sorted);
+  }
+
+  /**
+   * @return the index of the first cell past the end of the block containing ix at the given level
+   */
+  private int blockEnd (int level, int ix) {
+    int shift = shift (level);
+    return (int) Math.min (((long) (ix >> shift) + 1) << shift, cellsX);
+  }
+
+  /**
+   * @param ix the x-index of a cell
+   * @return the index of the first cell past the end of the base level block containing ix
+   */
+  int blockEnd (int ix) {
+    return blockEnd (0, ix);
+  }
+
+  /**
+   * find how far along a row of cells we can skip because no level crosses any of them. we start
+   * at the base level and climb while the parent block is also excluded, so the skip is as large as
+   * the pyramid allows.
+   * @param ix the x-index of a cell
+   * @param iy the y-index of a cell
+   * @param sorted the levels to look for, sorted and distinct
+   * @return ix if the base block containing the cell might be crossed, otherwise the x-index of the
+   * first cell past the largest block containing (ix, iy) that can't be crossed
+   */
+  int skip (int ix, int iy, double[] sorted) {
+    if (crosses (0, ix >> BASE_SHIFT, iy >> BASE_SHIFT, sorted)) {
+      return ix;
+    }
+    int level = 0;
+    while ((level + 1 < widths.length) && (! crosses (level + 1, ix >> shift (level + 1), iy >> shift (level + 1), sorted))) {
+      ++level;
+    }
+    return blockEnd (level, ix);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // range queries
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * compute the range of cells that overlap a domain, clamped to the sample grid. the bi-linear
+   * interpolation is continuous across cell edges, so cells that only touch the domain are left out
+   * @return an array with [x0, y0, x1, y1], where the end indices are exclusive
+   */
+  private int[] cellRange (Domain query) {
+    Tuple lo = query.min.subtract (function.domain.min).hquotient (function.interval);
+    Tuple hi = query.max.subtract (function.domain.min).hquotient (function.interval);
+    // a domain entirely off one side of the grid doesn't overlap any cell
+    if ((hi.x < 0) || (hi.y < 0) || (lo.x >= cellsX) || (lo.y >= cellsY)) {
+      return new int[] { 0, 0, 0, 0 };
+    }
+    // a domain that lies on a grid line still needs the cell on one side of it
+    int x0 = (int) Math.max (0, Math.floor (lo.x)), y0 = (int) Math.max (0, Math.floor (lo.y));
+    int x1 = (int) Math.min (cellsX, Math.max (Math.ceil (hi.x), x0 + 1));
+    int y1 = (int) Math.min (cellsY, Math.max (Math.ceil (hi.y), y0 + 1));
+    return new int[] { x0, y0, x1, y1 };
+  }
+
+  /**
+   * @return the corner samples of the cell at (ix, iy), with NaN mapped below any value
+   */
+  private double[] corners (int ix, int iy) {
+    int ix1 = (ix + 1) % function.dimX, iy1 = (iy + 1) % function.dimY;
+    return new double[] {
+            SampledFunction.isoBelow (function.getSample (ix, iy)), SampledFunction.isoBelow (function.getSample (ix1, iy)),
+            SampledFunction.isoBelow (function.getSample (ix, iy1)), SampledFunction.isoBelow (function.getSample (ix1, iy1))
+    };
+  }
+
+  /**
+   * recursively reduce the minimum or maximum over the cells in a range, using the stored value for
+   * any block that is entirely inside the range
+   */
+  private double reduce (int level, int bx, int by, int[] range, boolean max) {
+    int shift = shift (level);
+    long x0 = (long) bx << shift, y0 = (long) by << shift;
+    long x1 = Math.min (x0 + (1L << shift), cellsX), y1 = Math.min (y0 + (1L << shift), cellsY);
+    double result = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+
+    // skip blocks outside the range, and use the stored value for blocks entirely inside it
+    if ((x1 <= range[0]) || (y1 <= range[1]) || (x0 >= range[2]) || (y0 >= range[3])) {
+      return result;
+    }
+    int block = (by * widths[level]) + bx;
+    if ((x0 >= range[0]) && (y0 >= range[1]) && (x1 <= range[2]) && (y1 <= range[3])) {
+      return max ? maxs[level][block] : mins[level][block];
+    }
+
+    // the block straddles the range, so either check its cells or recur into the blocks below
+    if (level == 0) {
+      for (int iy = (int) Math.max (y0, range[1]), iyEnd = (int) Math.min (y1, range[3]); iy < iyEnd; ++iy) {
+        for (int ix = (int) Math.max (x0, range[0]), ixEnd = (int) Math.min (x1, range[2]); ix < ixEnd; ++ix) {
+          for (double corner : corners (ix, iy)) {
+            result = max ? Math.max (result, corner) : Math.min (result, corner);
+          }
+        }
+      }
+    } else {
+      int below = level - 1, belowHeight = mins[below].length / widths[below];
+      for (int cy = by * 2, cyEnd = Math.min (cy + 2, belowHeight); cy < cyEnd; ++cy) {
+        for (int cx = bx * 2, cxEnd = Math.min (cx + 2, widths[below]); cx < cxEnd; ++cx) {
+          double child = reduce (below, cx, cy, range, max);
+          result = max ? Math.max (result, child) : Math.min (result, child);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * compute the maximum of the samples at the corners of every cell that overlaps a domain. the
+   * bi-linear interpolation never exceeds its corners, so this is an upper bound for the function
+   * over the domain, and it is exact when the domain is aligned to the sample grid.
+   * @param query the domain to search
+   * @return the maximum, or negative infinity if the domain doesn't overlap the sample grid
+   */
+  public double max (Domain query) {
+    return ((cellsX > 0) && (cellsY > 0)) ? reduce (widths.length - 1, 0, 0, cellRange (query), true) : Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * compute the minimum of the samples at the corners of every cell that overlaps a domain. this
+   * is a lower bound for the function over the domain (see max), NaN samples count as negative
+   * infinity.
+   * @param query the domain to search
+   * @return the minimum, or positive infinity if the domain doesn't overlap the sample grid
+   */
+  public double min (Domain query) {
+    return ((cellsX > 0) && (cellsY > 0)) ? reduce (widths.length - 1, 0, 0, cellRange (query), false) : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * @return the domain covered by the cells in [x0..x1) x [y0..y1)
+   */
+  private Domain cellsDomain (long x0, long y0, long x1, long y1) {
+    Tuple min = function.domain.min, interval = function.interval;
+    return new Domain (min.x + (x0 * interval.x), min.x + (x1 * interval.x), min.y + (y0 * interval.y), min.y + (y1 * interval.y));
+  }
+
+  /**
+   * recursively gather the domains where the function might be above a value
+   */
+  private void above (int level, int bx, int by, double value, List<Domain> output) {
+    int block = (by * widths[level]) + bx;
+    if (maxs[level][block] <= value) {
+      return;
+    }
+    int shift = shift (level);
+    long x0 = (long) bx << shift, y0 = (long) by << shift;
+    long x1 = Math.min (x0 + (1L << shift), cellsX), y1 = Math.min (y0 + (1L << shift), cellsY);
+    if (mins[level][block] > value) {
+      // every corner in the block is above the value, so the whole block is
+      output.add (cellsDomain (x0, y0, x1, y1));
+    } else if (level == 0) {
+      for (long iy = y0; iy < y1; ++iy) {
+        for (long ix = x0; ix < x1; ++ix) {
+          double cellMax = Double.NEGATIVE_INFINITY;
+          for (double corner : corners ((int) ix, (int) iy)) {
+            cellMax = Math.max (cellMax, corner);
+          }
+          if (cellMax > value) {
+            output.add (cellsDomain (ix, iy, ix + 1, iy + 1));
+          }
+        }
+      }
+    } else {
+      int below = level - 1, belowHeight = mins[below].length / widths[below];
+      for (int cy = by * 2, cyEnd = Math.min (cy + 2, belowHeight); cy < cyEnd; ++cy) {
+        for (int cx = bx * 2, cxEnd = Math.min (cx + 2, widths[below]); cx < cxEnd; ++cx) {
+          above (below, cx, cy, value, output);
+        }
+      }
+    }
+  }
+
+  /**
+   * find where the function is above a value. the result is a list of domains that covers every
+   * point where f > value: blocks where every sample is above the value are returned whole, and
+   * the individual cells that straddle the value are returned on their own.
+   * @param value the threshold
+   * @return a list of non-overlapping domains
+   */
+  public List<Domain> above (double value) {
+    List<Domain> output = new ArrayList<>();
+    if ((cellsX > 0) && (cellsY > 0)) {
+      above (widths.length - 1, 0, 0, value, output);
+    }
+    return output;
+  }
+}
@@ -0,0 +1,264 @@
+package us.irdev.gtk.xyw;
+
+import java.util.List;
+
+import static us.irdev.gtk.xyw.Numerics.TOLERANCE;
+import static us.irdev.gtk.xyw.Polygon.SKIP;
+import static us.irdev.gtk.xyw.Polygon.TEST;
+import static us.irdev.gtk.xyw.Polygon.xflags;
+import static us.irdev.gtk.xyw.Polygon.yflags;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+/**
+ * A packed representation of a polygon boundary for fast containment tests. the vertices are
+ * stored in flat arrays (xs, ys) as a series of chains, where each pair of consecutive vertices in a
+ * chain is an edge, and the line equation of each edge is stored alongside its first vertex. the
+ * contains test does the same arithmetic as Polygon.contains (the Segment.contains boundary test
+ * with its tolerances, and the same winding number flags), so the results are identical, but it
+ * works directly on the arrays without allocating anything.
+ */
+public class PackedPolygon {
+  // the vertices of all the chains, and the offset of the first vertex in each chain, with one
+  // extra offset at the end so chain k spans [chains[k], chains[k + 1])
+  private final double[] xs, ys;
+  private final int[] chains;
+
+  // the line equation (ax + by + c = 0) of the edge starting at each vertex, unused for the last
+  // vertex in each chain
+  private final double[] lineA, lineB, lineC;
+
+  private final int edgeCount;
+
+  /**
+   * constructor - pack the segments of a polygon. consecutive segments that share an end point are
+   * packed into a single chain.
+   * @param polygon the polygon to pack
+   */
+  public PackedPolygon (Polygon polygon) {
+    List<Segment> segments = polygon.segments.segments;
+
+    // count the vertices and chains
+    int vertexCount = 0, chainCount = 0;
+    Segment last = null;
+    for (Segment segment : segments) {
+      if (! continues (last, segment)) {
+        ++chainCount;
+        ++vertexCount;
+      }
+      ++vertexCount;
+      last = segment;
+    }
+
+    // fill the arrays
+    xs = new double[vertexCount];
+    ys = new double[vertexCount];
+    lineA = new double[vertexCount];
+    lineB = new double[vertexCount];
+    lineC = new double[vertexCount];
+    chains = new int[chainCount + 1];
+    int vertex = 0, chain = 0;
+    last = null;
+    for (Segment segment : segments) {
+      if (! continues (last, segment)) {
+        chains[chain++] = vertex;
+        xs[vertex] = segment.a.x;
+        ys[vertex] = segment.a.y;
+        ++vertex;
+      }
+      // the line equation goes with the vertex that starts the edge
+      lineA[vertex - 1] = segment.line.abc.x;
+      lineB[vertex - 1] = segment.line.abc.y;
+      lineC[vertex - 1] = segment.line.abc.w;
+      xs[vertex] = segment.b.x;
+      ys[vertex] = segment.b.y;
+      ++vertex;
+      last = segment;
+    }
+    chains[chain] = vertex;
+    edgeCount = segments.size ();
+  }
+
+  /**
+   * constructor - pack a closed ring of vertices, the edge from the last vertex back to the first
+   * is implied
+   * @param xs the x-coordinates of the vertices
+   * @param ys the y-coordinates of the vertices
+   */
+  public PackedPolygon (double[] xs, double[] ys) {
+    assert (xs.length == ys.length) && (xs.length > 2);
+    int count = xs.length;
+    this.xs = new double[count + 1];
+    this.ys = new double[count + 1];
+    lineA = new double[count + 1];
+    lineB = new double[count + 1];
+    lineC = new double[count + 1];
+    for (int i = 0; i <= count; ++i) {
+      this.xs[i] = xs[i % count];
+      this.ys[i] = ys[i % count];
+    }
+    for (int i = 0; i < count; ++i) {
+      // use a segment to compute the line equation, so it's exactly the same as Polygon's
+      Line line = new Segment (PT (this.xs[i], this.ys[i]), PT (this.xs[i + 1], this.ys[i + 1])).line;
+      lineA[i] = line.abc.x;
+      lineB[i] = line.abc.y;
+      lineC[i] = line.abc.w;
+    }
+    chains = new int[] { 0, count + 1 };
+    edgeCount = count;
+  }
+
+  private static boolean continues (Segment last, Segment segment) {
+    return (last != null) && (last.b.x == segment.a.x) && (last.b.y == segment.a.y);
+  }
+
+  public int edgeCount () {
+    return edgeCount;
+  }
+
+  public int chainCount () {
+    return chains.length - 1;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the containment kernel
+  // -----------------------------------------------------------------------------------------------
+
+  // Numerics.similar (x, 0), as used by Tuple.hquotient and Line.pointIsOnLine
+  private static boolean nearZero (double x) {
+    return (x == 0) || (Math.abs (x) <= ((Math.abs (x) + 1) * TOLERANCE));
+  }
+
+  // the Polygon classification value for a coordinate relative to the test point, signum + 1
+  private static int classify (double value, double test) {
+    return (value > test) ? 2 : (value < test) ? 0 : 1;
+  }
+
+  // Segment.contains for edge i, with the cheapest rejection first
+  private boolean onEdge (int i, double ax, double ay, double bx, double by, double x, double y) {
+    return onEdge (lineA[i], lineB[i], lineC[i], ax, ay, bx, by, x, y);
+  }
+
+  /**
+   * Segment.contains for the edge from (ax, ay) to (bx, by), whose line equation (from
+   * Segment.line) is (a, b, c), so containment can be tested on edges stored somewhere other than
+   * a PackedPolygon with exactly the same arithmetic
+   * @return true if the point (x, y) is on the edge
+   */
+  public static boolean onEdge (double a, double b, double c, double ax, double ay, double bx, double by, double x, double y) {
+    if (nearZero ((x * a) + (y * b) + c)) {
+      double vx = bx - ax, vy = by - ay;
+      double dx = nearZero (vx) ? 0 : (x - ax) / vx;
+      double dy = nearZero (vy) ? 0 : (y - ay) / vy;
+      return (dx > -TOLERANCE) && (dy >= -TOLERANCE) && (dx <= 1 + TOLERANCE) && (dy <= 1 + TOLERANCE);
+    }
+    return false;
+  }
+
+  /**
+   * @param x the x-coordinate of the point to test
+   * @param y the y-coordinate of the point to test
+   * @return true if the point is inside the polygon or on its boundary
+   */
+  public boolean contains (double x, double y) {
+    int windingNumber = 0;
+    for (int chain = 0, chainCount = chains.length - 1; chain < chainCount; ++chain) {
+      int end = chains[chain + 1] - 1;
+      double ax = xs[chains[chain]], ay = ys[chains[chain]];
+      for (int i = chains[chain]; i < end; ++i) {
+        double bx = xs[i + 1], by = ys[i + 1];
+
+        // the boundary test
+        if (onEdge (i, ax, ay, bx, by, x, y)) {
+          return true;
+        }
+
+        windingNumber += winding (ax, ay, bx, by, x, y);
+        ax = bx;
+        ay = by;
+      }
+    }
+
+    // a properly closed polygon should never end up with an odd number of crossings
+    assert (windingNumber % 2 == 0);
+    return windingNumber != 0;
+  }
+
+  /**
+   * @return the contribution of the edge from (ax, ay) to (bx, by) to the winding number of the
+   * point (x, y), as contains counts it
+   */
+  public static int winding (double ax, double ay, double bx, double by, double x, double y) {
+    int xClass = (classify (ax, x) << 2) | classify (bx, x);
+    if (xflags[xClass] == TEST) {
+      int yFlag = yflags[(classify (ay, y) << 2) | classify (by, y)];
+      if (yFlag != SKIP) {
+        double t = (y - ay) / (by - ay);
+        if (((bx * t) + (ax * (1.0 - t))) - x > 0) {
+          return yFlag;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @param pt the point to test
+   * @return true if the point is inside the polygon or on its boundary
+   */
+  public boolean contains (Tuple pt) {
+    return contains (pt.x, pt.y);
+  }
+
+  /**
+   * @param x the x-coordinate of the point to test
+   * @param y the y-coordinate of the point to test
+   * @return true if the point is on one of the edges, with the same tolerances as contains
+   */
+  public boolean onBoundary (double x, double y) {
+    for (int chain = 0, chainCount = chains.length - 1; chain < chainCount; ++chain) {
+      for (int i = chains[chain], end = chains[chain + 1] - 1; i < end; ++i) {
+        if (onEdge (i, xs[i], ys[i], xs[i + 1], ys[i + 1], x, y)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * count the edges that cross the segment from (x0, y0) to (x1, y1), which must not touch the
+   * boundary at (x1, y1). the parity of the count tells whether the two ends of the segment are on
+   * the same side of the boundary, so if the containment of one end is known, the other follows.
+   * @return the number of crossings
+   */
+  public int crossings (double x0, double y0, double x1, double y1) {
+    int count = 0;
+    for (int chain = 0, chainCount = chains.length - 1; chain < chainCount; ++chain) {
+      for (int i = chains[chain], end = chains[chain + 1] - 1; i < end; ++i) {
+        if (crosses (xs[i], ys[i], xs[i + 1], ys[i + 1], x0, y0, x1, y1)) {
+          ++count;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * test whether the edge (a, b) crosses the segment (p, q). the ends of the edge are classified as
+   * strictly to the left of the segment or not, so an edge ending exactly on the segment is counted
+   * consistently with its neighbor, the same way a ray-crossing test handles vertices on the ray.
+   * @return true if the edge crosses the segment
+   */
+  public static boolean crosses (double ax, double ay, double bx, double by, double px, double py, double qx, double qy) {
+    double ux = qx - px, uy = qy - py;
+    boolean aLeft = ((ux * (ay - py)) - (uy * (ax - px))) > 0;
+    boolean bLeft = ((ux * (by - py)) - (uy * (bx - px))) > 0;
+    if (aLeft == bLeft) {
+      return false;
+    }
+    double vx = bx - ax, vy = by - ay;
+    boolean pLeft = ((vx * (py - ay)) - (vy * (px - ax))) > 0;
+    boolean qLeft = ((vx * (qy - ay)) - (vy * (qx - ax))) > 0;
+    return pLeft != qLeft;
+  }
+}
@@ -30,6 +30,29 @@ public class PolyLine {
     return closed;
   }
 
+  // the importance of each point for simplification, built on first use
+  private double[] importance;
+
+  /**
+   * @return the Visvalingam importance of each point (see Simplifier), computed once
+   */
+  public double[] importance () {
+    if (importance == null) {
+      importance = Simplifier.importance (List.<Tuple[]>of (points), closed)[0];
+    }
+    return importance;
+  }
+
+  /**
+   * simplify the line, without letting it cross itself. the ends of an open line are always kept.
+   * @param tolerance the smallest point importance (triangle area) to keep
+   * @return a line with only the points at or above the tolerance, or this line if they all are
+   */
+  public PolyLine simplify (double tolerance) {
+    List<Tuple> kept = Simplifier.select (points, importance (), tolerance);
+    return (kept.size () == points.length) ? this : new PolyLine (kept, closed);
+  }
+
   private static Segment getNextSegment(Tuple tuple, Segment source, Map<Tuple, List<Segment>> mappedSegments, List<Tuple> output) {
     // try to get the referred segment list, and check if it succeeded
     List<Segment> segments = mappedSegments.get (tuple);
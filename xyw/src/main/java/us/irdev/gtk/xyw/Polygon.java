@@ -5,6 +5,7 @@ import us.irdev.gtk.functional.ListFunc;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.ToDoubleFunction;
 
 import static us.irdev.gtk.xyw.Numerics.lerp;
 import static us.irdev.gtk.xyw.Tuple.VEC;
@@ -31,12 +32,13 @@ public class Polygon {
 
     private static final Tuple ONE = VEC(1, 1);
 
-    private static final int SKIP = 0;  // a trivial no
-    private static final int TEST = 1;  // requires further investigation
+    // the flag tables are shared with PackedPolygon, so the two contains tests can't drift apart
+    static final int SKIP = 0;  // a trivial no
+    static final int TEST = 1;  // requires further investigation
 
     // the x-classification is aggregated into a set of bits that we use to quickly determine what
     // to do, in particular skipping out on conditions that will always be trivially rejectable
-    private static final int[] xflags = {
+    static final int[] xflags = {
             // 0b0000, 0b0001, 0b0010, 0b0011
                SKIP,   SKIP,   TEST,   SKIP,
             // 0b0100, 0b0101, 0b0110, 0b0111
@@ -47,12 +49,12 @@ public class Polygon {
                SKIP,   SKIP,   SKIP,   SKIP,
     };
 
-    private static final int HALF = 1;
-    private static final int FULL = 2;
+    static final int HALF = 1;
+    static final int FULL = 2;
 
     // the y-classification is aggregated into a set of bits that we use to quickly determine what
     // to do, and how much to contribute to the winding number for each condition
-    private static final int[] yflags = {
+    static final int[] yflags = {
             // 0b0000, 0b0001, 0b0010, 0b0011
                SKIP,   +HALF,  +FULL,  SKIP,
             // 0b0100, 0b0101, 0b0110, 0b0111
@@ -90,50 +92,67 @@ public class Polygon {
         return 0;
     }
 
+    // the packed form of the polygon used for containment tests, built on first use
+    private PackedPolygon packed;
+
+    public PackedPolygon packed () {
+        if (packed == null) {
+            packed = new PackedPolygon (this);
+        }
+        return packed;
+    }
+
     public boolean contains (Tuple pt) {
         // a line intersecting a closed polygon (convex or concave) will have an even number of
         // intersection points. for a segment starting inside the polygon, the count will be odd.
         // the winding number test, which counts edge crossings of a horizontal line segment
-        // extending left from the test point, is a simple way to verify this.
-
-        // start with a zero winding number
-        var windingNumber = 0;
-
-        // loop over all the segments
-        for (var segment : segments.segments) {
-            // brutally test if the point is on this segment, the boundary of the polygon
-            // XXX this needs to be more efficient
-            if (segment.contains(pt)) return true;
-
-            // compute the classification values
-            var a = segment.a.subtract (pt).signum().add(ONE);
-            var b = segment.b.subtract (pt).signum().add(ONE);
-
-            // compute the x classification aggregate, and see if that's a testable situation
-            var x = ((int)a.x << 2) | ((int)b.x);
-            if (xflags[x] == TEST) {
-                // compute the y classification aggregate, the y-flag value, and see if that's a
-                // testable situation
-                var y = ((int) a.y << 2) | ((int) b.y);
-                var yFlag = yflags[y];
-                if (yFlag != SKIP) {
-                    // compute the intersection, if it's actually to the right, return the y-flag for
-                    // this segment
-                    var xIntersection = lerp (segment.a.x, segment.b.x, (pt.y - segment.a.y) / (segment.b.y - segment.a.y)) - pt.x;
-                    if (xIntersection > 0) windingNumber += yFlag;
-                }
-            }
-        }
-
-        // a properly closed polygon should never end up with an odd number of crossings
-        assert (windingNumber % 2 == 0);
-        return windingNumber != 0;
+        // extending left from the test point, is a simple way to verify this. the test itself is
+        // done on the packed form of the polygon, which doesn't allocate anything per edge.
+        return packed ().contains (pt.x, pt.y);
     }
 
     public Domain domain () {
         return segments.domain;
     }
 
+    /**
+     * @return the vertices of the polygon, in order, without repeating the first one
+     */
+    public Tuple[] vertices () {
+        return segments.segments.stream ().map (segment -> segment.a).toArray (Tuple[]::new);
+    }
+
+    // the importance of each vertex for simplification, built on first use
+    private double[] importance;
+
+    /**
+     * @return the Visvalingam importance of each vertex (see Simplifier), computed once
+     */
+    public double[] importance () {
+        if (importance == null) {
+            importance = Simplifier.importance (List.<Tuple[]>of (vertices ()), true)[0];
+        }
+        return importance;
+    }
+
+    /**
+     * simplify the polygon, without letting its boundary cross itself
+     * @param tolerance the smallest vertex importance (triangle area) to keep
+     * @return a polygon with only the vertices at or above the tolerance, or this polygon if they
+     * all are
+     */
+    public Polygon simplify (double tolerance) {
+        var kept = Simplifier.select (vertices (), importance (), tolerance);
+        return (kept.size () == segments.length) ? this : new Polygon (kept);
+    }
+
+    /**
+     * @return the polygon cut into triangles (see Triangulator), over its vertices in order
+     */
+    public Triangulator.Mesh triangulate () {
+        return Triangulator.triangulate (List.of (this));
+    }
+
     public static enum Classification {
         NO_INTERSECTION, CONTAINS_DOMAIN, NON_TRIVIAL_INTERSECTION;
     }
@@ -162,8 +181,105 @@ public class Polygon {
         return Classification.NO_INTERSECTION;
     }
 
-    // should implement:
-    // clipToDomain - create a new whole polygon
-    // clip to polygon - create a new whole polygon
-    // intersect, union, difference
+    /**
+     * check that the polygon boundary doesn't cross or touch itself anywhere, other than where
+     * consecutive edges meet at their shared vertex. this uses a sweep line, so it's fast enough to
+     * validate large rings.
+     * @return true if the polygon is simple
+     */
+    public boolean isSimple () {
+        var edges = segments.segments;
+        var count = edges.size ();
+        var simple = new boolean[] { true };
+        SweepLine.candidates (edges, (i, j) -> {
+            var a = Math.min (i, j);
+            var b = Math.max (i, j);
+            // consecutive edges (including the last and first) share a vertex, and can only meet
+            // there unless they are collinear, which Segment.intersect doesn't report anyway
+            var consecutive = (b == a + 1) || ((a == 0) && (b == count - 1));
+            if ((! consecutive) && (Segment.intersect (edges.get (a), edges.get (b)) != null)) {
+                simple[0] = false;
+            }
+            return simple[0];
+        });
+        return simple[0];
+    }
+
+    // clip a list of points to the half plane where side (pt) >= 0, crossing points are placed at t
+    // along the edge, where t comes from the side values of the two ends
+    private static List<Tuple> clipToHalfPlane (List<Tuple> points, ToDoubleFunction<Tuple> side) {
+        var result = new ArrayList<Tuple> (points.size () + 4);
+        var count = points.size ();
+        for (var i = 0; i < count; ++i) {
+            var a = points.get (i);
+            var b = points.get ((i + 1) % count);
+            var sa = side.applyAsDouble (a);
+            var sb = side.applyAsDouble (b);
+            if (sa >= 0) {
+                result.add (a);
+            }
+            if (((sa >= 0) && (sb < 0)) || ((sa < 0) && (sb >= 0))) {
+                var t = sa / (sa - sb);
+                result.add (Tuple.PT (lerp (a.x, b.x, t), lerp (a.y, b.y, t)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * clip the polygon to a rectangle, using Sutherland-Hodgman against each edge of the domain in
+     * turn. this is linear in the number of vertices, and much faster than the general boolean
+     * operations, but if the polygon is concave and leaves the domain more than once, the pieces
+     * come back as one ring joined by zero-width edges along the domain boundary. that's fine for
+     * filling or containment, for separate pieces use intersection with the domain as a polygon.
+     * @param domain the rectangle to clip to
+     * @return the clipped polygon, the polygon itself if it's wholly inside the domain, or null if
+     * nothing is left
+     */
+    public Polygon clipToDomain (Domain domain) {
+        if (! Domain.intersection (segments.domain, domain).valid ()) {
+            return null;
+        }
+        if (domain.contains (segments.domain.min) && domain.contains (segments.domain.max)) {
+            return this;
+        }
+        List<Tuple> points = ListFunc.map (segments.segments, (i, segment) -> segment.a);
+        points = clipToHalfPlane (points, pt -> pt.x - domain.min.x);
+        points = clipToHalfPlane (points, pt -> domain.max.x - pt.x);
+        points = clipToHalfPlane (points, pt -> pt.y - domain.min.y);
+        points = clipToHalfPlane (points, pt -> domain.max.y - pt.y);
+
+        // drop repeated points, which happen where a vertex is on a domain edge
+        var tuples = new ArrayList<Tuple> (points.size ());
+        for (var pt : points) {
+            if (tuples.isEmpty () || (! pt.equals (tuples.get (tuples.size () - 1)))) {
+                tuples.add (pt);
+            }
+        }
+        while ((tuples.size () > 1) && tuples.get (0).equals (tuples.get (tuples.size () - 1))) {
+            tuples.remove (tuples.size () - 1);
+        }
+        return (tuples.size () > 2) ? new Polygon (tuples) : null;
+    }
+
+    /**
+     * @return the polygons (each a boundary and its holes) covered by both this polygon and another
+     */
+    public List<List<Polygon>> intersection (Polygon polygon) {
+        return PolygonBoolean.intersection (List.of (List.of (this)), List.of (List.of (polygon)));
+    }
+
+    /**
+     * @return the polygons (each a boundary and its holes) covered by this polygon or another
+     */
+    public List<List<Polygon>> union (Polygon polygon) {
+        return PolygonBoolean.union (List.of (List.of (this)), List.of (List.of (polygon)));
+    }
+
+    /**
+     * @return the polygons (each a boundary and its holes) covered by this polygon but not another
+     */
+    public List<List<Polygon>> difference (Polygon polygon) {
+        return PolygonBoolean.difference (List.of (List.of (this)), List.of (List.of (polygon)));
+    }
 }
@@ -0,0 +1,745 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+import static us.irdev.gtk.xyw.Numerics.TOLERANCE;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+/**
+ * Boolean operations (intersection, union, difference, and exclusive or) on polygons with holes,
+ * using the Martinez-Rueda-Feito plane sweep. every edge becomes a pair of events (its left and
+ * right end points), which are processed in order of x. the edges crossing the sweep line are kept
+ * in order of y, and each edge is tested for intersection only with its neighbors there, splitting
+ * both at any crossing, so the cost is O((n + k) log n) for n edges and k intersections. when an
+ * edge is inserted, the edge below it tells whether it is inside each of the two polygons, and so
+ * whether it is part of the result. the result edges are then connected into rings, and each ring
+ * is attached as a hole of the ring below it when it is on the inside of that ring.
+ *
+ * overlapping edges (from the two polygons, or from touching rings) are handled by splitting them
+ * so they coincide exactly, and then counting only one of each coincident pair.
+ *
+ * a polygon is given as a list of rings, the boundary first and then any holes, the same way as a
+ * GeoJSON polygon, and a set of polygons is a list of those. the rings only need to be closed, the
+ * orientation doesn't matter. the results are in the same form.
+ */
+public class PolygonBoolean {
+  public enum Operation {
+    INTERSECTION, UNION, DIFFERENCE, XOR
+  }
+
+  // the ways an edge can relate to an edge of the other polygon that it overlaps
+  private static final int NORMAL = 0;
+  private static final int NON_CONTRIBUTING = 1;
+  private static final int SAME_TRANSITION = 2;
+  private static final int DIFFERENT_TRANSITION = 3;
+
+  // -----------------------------------------------------------------------------------------------
+  // sweep events
+  // -----------------------------------------------------------------------------------------------
+
+  private static class Event {
+    final double x, y;
+    boolean left;
+    Event other;
+    final boolean subject;
+    final long id;
+    int contourId;
+    int type = NORMAL;
+
+    // whether the edge is an inside-outside transition of its own polygon, and whether the edge
+    // below it (in the other polygon) is, looking upwards
+    boolean inOut;
+    boolean otherInOut;
+
+    // the nearest edge below that is in the result, and how this edge changes the result looking
+    // upwards (+1 going in, -1 going out, 0 not in the result)
+    Event prevInResult;
+    int resultTransition;
+
+    // the position of the event in the result events, and of the other event, and the ring
+    int pos;
+    int otherPos;
+    int outputContourId = -1;
+
+    Event (double x, double y, boolean left, Event other, boolean subject, long id) {
+      this.x = x;
+      this.y = y;
+      this.left = left;
+      this.other = other;
+      this.subject = subject;
+      this.id = id;
+    }
+
+    boolean isBelow (double px, double py) {
+      return left
+              ? signedArea (x, y, other.x, other.y, px, py) > 0
+              : signedArea (other.x, other.y, x, y, px, py) > 0;
+    }
+
+    boolean isAbove (double px, double py) {
+      return ! isBelow (px, py);
+    }
+
+    boolean isVertical () {
+      return x == other.x;
+    }
+
+    boolean inResult () {
+      return resultTransition != 0;
+    }
+
+    boolean samePoint (Event event) {
+      return (x == event.x) && (y == event.y);
+    }
+  }
+
+  private static double signedArea (double x0, double y0, double x1, double y1, double x2, double y2) {
+    return ((x0 - x2) * (y1 - y2)) - ((x1 - x2) * (y0 - y2));
+  }
+
+  // the order of events in the queue: by x, then y, then right ends before left ends, then the
+  // lower edge first
+  private static int compareEvents (Event e1, Event e2) {
+    if (e1.x != e2.x) {
+      return (e1.x > e2.x) ? 1 : -1;
+    }
+    if (e1.y != e2.y) {
+      return (e1.y > e2.y) ? 1 : -1;
+    }
+    if (e1.left != e2.left) {
+      return e1.left ? 1 : -1;
+    }
+    if (signedArea (e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) != 0) {
+      return (! e1.isBelow (e2.other.x, e2.other.y)) ? 1 : -1;
+    }
+    if (e1.subject != e2.subject) {
+      return e1.subject ? -1 : 1;
+    }
+    return Long.compare (e1.id, e2.id);
+  }
+
+  // the order of edges (by their left events) in the sweep line, from bottom to top
+  private static int compareSegments (Event le1, Event le2) {
+    if (le1 == le2) {
+      return 0;
+    }
+    if ((signedArea (le1.x, le1.y, le1.other.x, le1.other.y, le2.x, le2.y) != 0) ||
+            (signedArea (le1.x, le1.y, le1.other.x, le1.other.y, le2.other.x, le2.other.y) != 0)) {
+      // the edges aren't collinear. if they share their left end, use the right end to sort them
+      if (le1.samePoint (le2)) {
+        return le1.isBelow (le2.other.x, le2.other.y) ? -1 : 1;
+      }
+      if (le1.x == le2.x) {
+        return (le1.y < le2.y) ? -1 : 1;
+      }
+      // compare against whichever edge was inserted first. when the left end of the later edge is
+      // on the earlier edge (a vertex touching an edge), its right end decides
+      if (compareEvents (le1, le2) > 0) {
+        var side = signedArea (le2.x, le2.y, le2.other.x, le2.other.y, le1.x, le1.y);
+        if (side == 0) {
+          side = signedArea (le2.x, le2.y, le2.other.x, le2.other.y, le1.other.x, le1.other.y);
+        }
+        return (side > 0) ? 1 : -1;
+      }
+      var side = signedArea (le1.x, le1.y, le1.other.x, le1.other.y, le2.x, le2.y);
+      if (side == 0) {
+        side = signedArea (le1.x, le1.y, le1.other.x, le1.other.y, le2.other.x, le2.other.y);
+      }
+      return (side > 0) ? -1 : 1;
+    }
+
+    // collinear edges
+    if (le1.subject == le2.subject) {
+      if (le1.samePoint (le2)) {
+        if (le1.other.samePoint (le2.other)) {
+          // duplicate edges, any consistent order will do
+          return Long.compare (le1.id, le2.id);
+        }
+        return (le1.contourId > le2.contourId) ? 1 : (le1.contourId < le2.contourId) ? -1 : Long.compare (le1.id, le2.id);
+      }
+    } else {
+      return le1.subject ? -1 : 1;
+    }
+    return (compareEvents (le1, le2) > 0) ? 1 : -1;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the sweep
+  // -----------------------------------------------------------------------------------------------
+
+  private final Operation operation;
+  private final PriorityQueue<Event> queue = new PriorityQueue<> (PolygonBoolean::compareEvents);
+  private final TreeSet<Event> sweepLine = new TreeSet<> (PolygonBoolean::compareSegments);
+  private long nextId;
+  private int nextContourId;
+
+  private PolygonBoolean (Operation operation) {
+    this.operation = operation;
+  }
+
+  private Event event (double x, double y, boolean left, Event other, boolean subject) {
+    return new Event (x, y, left, other, subject, nextId++);
+  }
+
+  // add the edges of a set of polygons to the queue, and return their bounds
+  private Domain fill (List<List<Polygon>> polygons, boolean subject) {
+    var domain = new Domain ();
+    for (var polygon : polygons) {
+      for (var ring : polygon) {
+        var contourId = ++nextContourId;
+        for (var segment : ring.segments.segments) {
+          if ((segment.a.x == segment.b.x) && (segment.a.y == segment.b.y)) {
+            continue;
+          }
+          var e1 = event (segment.a.x, segment.a.y, false, null, subject);
+          var e2 = event (segment.b.x, segment.b.y, false, e1, subject);
+          e1.other = e2;
+          e1.contourId = e2.contourId = contourId;
+          if (compareEvents (e1, e2) > 0) {
+            e2.left = true;
+          } else {
+            e1.left = true;
+          }
+          queue.add (e1);
+          queue.add (e2);
+          domain = domain.add (segment.a).add (segment.b);
+        }
+      }
+    }
+    return domain;
+  }
+
+  private boolean inResult (Event event) {
+    return switch (event.type) {
+      case NORMAL -> switch (operation) {
+        case INTERSECTION -> ! event.otherInOut;
+        case UNION -> event.otherInOut;
+        case DIFFERENCE -> event.subject == event.otherInOut;
+        case XOR -> true;
+      };
+      case SAME_TRANSITION -> (operation == Operation.INTERSECTION) || (operation == Operation.UNION);
+      case DIFFERENT_TRANSITION -> operation == Operation.DIFFERENCE;
+      default -> false;
+    };
+  }
+
+  private int resultTransition (Event event) {
+    // above the edge. where the edge overlaps an edge of the other polygon, the other polygon
+    // changes across it too, the same way or the opposite way
+    var thisIn = ! event.inOut;
+    var thatIn = switch (event.type) {
+      case SAME_TRANSITION -> thisIn;
+      case DIFFERENT_TRANSITION -> ! thisIn;
+      default -> ! event.otherInOut;
+    };
+    var isIn = switch (operation) {
+      case INTERSECTION -> thisIn && thatIn;
+      case UNION -> thisIn || thatIn;
+      case XOR -> thisIn ^ thatIn;
+      case DIFFERENCE -> event.subject ? (thisIn && ! thatIn) : (thatIn && ! thisIn);
+    };
+    return isIn ? 1 : -1;
+  }
+
+  // compute the in/out flags of a left event from the edge below it in the sweep line
+  private void computeFields (Event event, Event prev) {
+    if (prev == null) {
+      event.inOut = false;
+      event.otherInOut = true;
+      event.prevInResult = null;
+    } else {
+      if (event.subject == prev.subject) {
+        event.inOut = ! prev.inOut;
+        event.otherInOut = prev.otherInOut;
+      } else {
+        event.inOut = ! prev.otherInOut;
+        event.otherInOut = prev.isVertical () ? ! prev.inOut : prev.inOut;
+      }
+      event.prevInResult = ((! inResult (prev)) || prev.isVertical ()) ? prev.prevInResult : prev;
+    }
+    event.resultTransition = inResult (event) ? resultTransition (event) : 0;
+  }
+
+  /**
+   * intersect two segments, a1-a2 and b1-b2
+   * @return null if they don't meet, one point if they cross or touch, or the two ends of the
+   * overlap if they are collinear and overlap
+   */
+  private static double[] intersection (double a1x, double a1y, double a2x, double a2y, double b1x, double b1y, double b2x, double b2y) {
+    double vax = a2x - a1x, vay = a2y - a1y;
+    double vbx = b2x - b1x, vby = b2y - b1y;
+    double ex = b1x - a1x, ey = b1y - a1y;
+    var kross = (vax * vby) - (vay * vbx);
+    if (kross != 0) {
+      var s = ((ex * vby) - (ey * vbx)) / kross;
+      if ((s < -TOLERANCE) || (s > 1 + TOLERANCE)) {
+        return null;
+      }
+      var t = ((ex * vay) - (ey * vax)) / kross;
+      if ((t < -TOLERANCE) || (t > 1 + TOLERANCE)) {
+        return null;
+      }
+
+      // a crossing at (or within rounding of) an end point is exactly that end point, otherwise a
+      // vertex touching an edge would split it into a sliver
+      if (s <= TOLERANCE) {
+        return new double[] { a1x, a1y };
+      }
+      if (s >= 1 - TOLERANCE) {
+        return new double[] { a2x, a2y };
+      }
+      if (t <= TOLERANCE) {
+        return new double[] { b1x, b1y };
+      }
+      if (t >= 1 - TOLERANCE) {
+        return new double[] { b2x, b2y };
+      }
+      return new double[] { a1x + (s * vax), a1y + (s * vay) };
+    }
+
+    // parallel, check if they are collinear
+    if (((ex * vay) - (ey * vax)) != 0) {
+      return null;
+    }
+    var lengthSq = (vax * vax) + (vay * vay);
+    var sa = ((vax * ex) + (vay * ey)) / lengthSq;
+    var sb = sa + (((vax * vbx) + (vay * vby)) / lengthSq);
+    var smin = Math.min (sa, sb);
+    var smax = Math.max (sa, sb);
+    if ((smin <= 1) && (smax >= 0)) {
+      if (smin == 1) {
+        return new double[] { a2x, a2y };
+      }
+      if (smax == 0) {
+        return new double[] { a1x, a1y };
+      }
+      var t0 = Math.max (smin, 0);
+      var t1 = Math.min (smax, 1);
+      return new double[] {
+              (t0 == 0) ? a1x : (t0 == 1) ? a2x : a1x + (t0 * vax), (t0 == 0) ? a1y : (t0 == 1) ? a2y : a1y + (t0 * vay),
+              (t1 == 0) ? a1x : (t1 == 1) ? a2x : a1x + (t1 * vax), (t1 == 0) ? a1y : (t1 == 1) ? a2y : a1y + (t1 * vay)
+      };
+    }
+    return null;
+  }
+
+  // split the edge of a left event at a point
+  private void divideSegment (Event le, double x, double y) {
+    var r = event (x, y, false, le, le.subject);
+    var l = event (x, y, true, le.other, le.subject);
+    r.contourId = l.contourId = le.contourId;
+
+    // avoid a rounding error, where the left event would be processed after the right event
+    if (compareEvents (l, le.other) > 0) {
+      le.other.left = true;
+      l.left = false;
+    }
+    le.other.other = l;
+    le.other = r;
+    queue.add (l);
+    queue.add (r);
+  }
+
+  private static boolean at (Event event, double x, double y) {
+    return (event.x == x) && (event.y == y);
+  }
+
+  /**
+   * check two neighboring edges for intersection, and split them where they meet
+   * @return 0 if they don't meet (or only at an end of both), 1 if they cross at a point, 2 if
+   * they overlap from the same left end, or 3 for any other overlap
+   */
+  private int possibleIntersection (Event se1, Event se2) {
+    var inter = intersection (se1.x, se1.y, se1.other.x, se1.other.y, se2.x, se2.y, se2.other.x, se2.other.y);
+    if (inter == null) {
+      return 0;
+    }
+    if (inter.length == 2) {
+      double x = inter[0], y = inter[1];
+      // the edges meet at an end of both
+      if (se1.samePoint (se2) || se1.other.samePoint (se2.other)) {
+        return 0;
+      }
+      if ((! at (se1, x, y)) && (! at (se1.other, x, y))) {
+        divideSegment (se1, x, y);
+      }
+      if ((! at (se2, x, y)) && (! at (se2.other, x, y))) {
+        divideSegment (se2, x, y);
+      }
+      return 1;
+    }
+
+    // overlapping edges of the same polygon are left alone
+    if (se1.subject == se2.subject) {
+      return 0;
+    }
+
+    // the edges overlap, sort out how
+    var events = new ArrayList<Event> (4);
+    var leftCoincide = false;
+    var rightCoincide = false;
+    if (se1.samePoint (se2)) {
+      leftCoincide = true;
+    } else if (compareEvents (se1, se2) > 0) {
+      events.add (se2);
+      events.add (se1);
+    } else {
+      events.add (se1);
+      events.add (se2);
+    }
+    if (se1.other.samePoint (se2.other)) {
+      rightCoincide = true;
+    } else if (compareEvents (se1.other, se2.other) > 0) {
+      events.add (se2.other);
+      events.add (se1.other);
+    } else {
+      events.add (se1.other);
+      events.add (se2.other);
+    }
+
+    if (leftCoincide) {
+      // both edges are equal, or share the left end, only count one of them
+      se2.type = NON_CONTRIBUTING;
+      se1.type = (se2.inOut == se1.inOut) ? SAME_TRANSITION : DIFFERENT_TRANSITION;
+      if (! rightCoincide) {
+        divideSegment (events.get (1).other, events.get (0).x, events.get (0).y);
+      }
+      return 2;
+    }
+    if (rightCoincide) {
+      // the edges share the right end
+      divideSegment (events.get (0), events.get (1).x, events.get (1).y);
+      return 3;
+    }
+    if (events.get (0) != events.get (3).other) {
+      // neither edge contains the other
+      divideSegment (events.get (0), events.get (1).x, events.get (1).y);
+      divideSegment (events.get (1), events.get (2).x, events.get (2).y);
+      return 3;
+    }
+
+    // one edge contains the other
+    divideSegment (events.get (0), events.get (1).x, events.get (1).y);
+    divideSegment (events.get (3).other, events.get (2).x, events.get (2).y);
+    return 3;
+  }
+
+  // run the sweep, and return the events in the order they were processed
+  private List<Event> subdivide (Domain subjectDomain, Domain clippingDomain) {
+    var sortedEvents = new ArrayList<Event> ();
+    var rightBound = Math.min (subjectDomain.max.x, clippingDomain.max.x);
+    while (! queue.isEmpty ()) {
+      var event = queue.poll ();
+      sortedEvents.add (event);
+
+      // nothing to the right of either polygon can be in an intersection, or to the right of the
+      // subject in a difference
+      if (((operation == Operation.INTERSECTION) && (event.x > rightBound)) ||
+              ((operation == Operation.DIFFERENCE) && (event.x > subjectDomain.max.x))) {
+        break;
+      }
+
+      if (event.left) {
+        sweepLine.add (event);
+        var prev = sweepLine.lower (event);
+        var next = sweepLine.higher (event);
+        computeFields (event, prev);
+        if ((next != null) && (possibleIntersection (event, next) == 2)) {
+          computeFields (event, prev);
+          computeFields (next, event);
+        }
+        if ((prev != null) && (possibleIntersection (prev, event) == 2)) {
+          computeFields (prev, sweepLine.lower (prev));
+          computeFields (event, prev);
+        }
+
+        // an edge split at a point that was already processed (where a vertex touches an edge of
+        // the other polygon) starts below the edges that were inserted there, which have to take
+        // their fields from it instead
+        for (var above = sweepLine.higher (event); (above != null) && above.samePoint (event); above = sweepLine.higher (above)) {
+          computeFields (above, sweepLine.lower (above));
+        }
+      } else {
+        var left = event.other;
+        if (sweepLine.contains (left)) {
+          var prev = sweepLine.lower (left);
+          var next = sweepLine.higher (left);
+          sweepLine.remove (left);
+          if ((prev != null) && (next != null)) {
+            possibleIntersection (prev, next);
+          }
+        }
+      }
+    }
+    return sortedEvents;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // connecting the result
+  // -----------------------------------------------------------------------------------------------
+
+  // a simple closed loop of result edges, each edge given by the position of its event at the
+  // start of the edge, and how the loop fits in the result
+  private static class Loop {
+    final List<Integer> edges = new ArrayList<> ();
+    boolean exterior;
+    int parent = -1;
+    final List<Integer> holes = new ArrayList<> ();
+  }
+
+  private static List<Event> orderEvents (List<Event> sortedEvents) {
+    var resultEvents = new ArrayList<Event> ();
+    for (var event : sortedEvents) {
+      if ((event.left && event.inResult ()) || ((! event.left) && event.other.inResult ())) {
+        resultEvents.add (event);
+      }
+    }
+
+    // overlapping edges can leave the result events slightly out of order, an insertion sort is
+    // close to linear on nearly sorted input
+    for (var i = 1; i < resultEvents.size (); ++i) {
+      var event = resultEvents.get (i);
+      var j = i - 1;
+      for (; (j >= 0) && (compareEvents (resultEvents.get (j), event) > 0); --j) {
+        resultEvents.set (j + 1, resultEvents.get (j));
+      }
+      resultEvents.set (j + 1, event);
+    }
+    for (var i = 0; i < resultEvents.size (); ++i) {
+      resultEvents.get (i).pos = i;
+    }
+    for (var event : resultEvents) {
+      event.otherPos = event.other.pos;
+    }
+    return resultEvents;
+  }
+
+  private record Vertex (double x, double y) {}
+
+  // whether a result edge is followed from this event to the other one, the result is above the
+  // edge (to the left of a vertical edge) when the transition is positive, and it should be on the
+  // left of the direction the edge is followed
+  private static boolean isStart (Event event) {
+    return event.left ? (event.resultTransition > 0) : (event.other.resultTransition < 0);
+  }
+
+  // the next edge out of the vertex at the end of an edge, bounding the same result region: the
+  // first edge leaving the vertex turning clockwise from the way back along the edge
+  private static int nextEdge (int pos, List<Event> resultEvents) {
+    var end = resultEvents.get (pos);
+    var start = end.other;
+    var back = Math.atan2 (start.y - end.y, start.x - end.x);
+    var best = -1;
+    var bestTurn = Double.POSITIVE_INFINITY;
+    for (var step = -1; step <= 1; step += 2) {
+      for (var q = pos + step; (q >= 0) && (q < resultEvents.size ()) && resultEvents.get (q).samePoint (end); q += step) {
+        var event = resultEvents.get (q);
+        if (isStart (event)) {
+          var turn = back - Math.atan2 (event.other.y - end.y, event.other.x - end.x);
+          if (turn <= 0) {
+            turn += Math.PI * 2;
+          }
+          if (turn < bestTurn) {
+            bestTurn = turn;
+            best = q;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * trace the boundaries of the result regions: each result edge is followed with the result on
+   * its left, and at each vertex the path takes the next edge around the same region, so the
+   * exteriors come out counterclockwise and the holes clockwise. a boundary that comes back to a
+   * vertex it already passed through (where the region touches itself at a point) is cut into
+   * separate simple loops there. the parent of a hole comes from the nearest result edge below the
+   * first vertex of the hole in sweep order, which bounds the region the hole is in, as a part of
+   * the exterior or of one of its other holes.
+   */
+  private static List<List<Polygon>> connectEdges (List<Event> sortedEvents) {
+    var resultEvents = orderEvents (sortedEvents);
+    var used = new boolean[resultEvents.size ()];
+    var loops = new ArrayList<Loop> ();
+    var stack = new ArrayList<Integer> ();
+    var starts = new HashMap<Vertex, Integer> ();
+    for (var i = 0; i < resultEvents.size (); ++i) {
+      if (used[i] || (! isStart (resultEvents.get (i)))) {
+        continue;
+      }
+      for (var pos = i; (pos >= 0) && (! used[pos]); ) {
+        used[pos] = true;
+        var start = resultEvents.get (pos);
+        starts.put (new Vertex (start.x, start.y), stack.size ());
+        stack.add (pos);
+        var endPos = start.otherPos;
+
+        // close a loop if this vertex was already passed
+        var end = resultEvents.get (endPos);
+        var at = starts.get (new Vertex (end.x, end.y));
+        if (at != null) {
+          var loop = new Loop ();
+          for (var k = at; k < stack.size (); ++k) {
+            var edge = stack.get (k);
+            loop.edges.add (edge);
+            starts.remove (new Vertex (resultEvents.get (edge).x, resultEvents.get (edge).y));
+          }
+          stack.subList (at, stack.size ()).clear ();
+          loops.add (loop);
+        }
+        pos = nextEdge (endPos, resultEvents);
+      }
+
+      // anything left over didn't close, which only happens with broken input
+      stack.clear ();
+      starts.clear ();
+    }
+
+    // the lowest event of each loop, which is the left event of its lowest edge at its first vertex
+    var lowest = new int[loops.size ()];
+    var loopOf = new int[resultEvents.size ()];
+    Arrays.fill (loopOf, -1);
+    for (var l = 0; l < loops.size (); ++l) {
+      lowest[l] = Integer.MAX_VALUE;
+      for (var edge : loops.get (l).edges) {
+        var other = resultEvents.get (edge).otherPos;
+        lowest[l] = Math.min (lowest[l], Math.min (edge, other));
+        loopOf[edge] = loopOf[other] = l;
+      }
+    }
+
+    // classify the loops in sweep order, so the loop below each one is done before it
+    var order = new ArrayList<Integer> ();
+    for (var l = 0; l < loops.size (); ++l) {
+      order.add (l);
+    }
+    order.sort ((a, b) -> Integer.compare (lowest[a], lowest[b]));
+    for (var l : order) {
+      var loop = loops.get (l);
+      var event = resultEvents.get (lowest[l]);
+      loop.exterior = isStart (event);
+      if (! loop.exterior) {
+        var below = event.prevInResult;
+        while ((below != null) && ((below.pos >= resultEvents.size ()) || (resultEvents.get (below.pos) != below) || (loopOf[below.pos] < 0))) {
+          below = below.prevInResult;
+        }
+        if (below == null) {
+          loop.exterior = true;
+        } else {
+          var belowLoop = loops.get (loopOf[below.pos]);
+          loop.parent = belowLoop.exterior ? loopOf[below.pos] : belowLoop.parent;
+          if (loop.parent < 0) {
+            loop.exterior = true;
+          } else {
+            loops.get (loop.parent).holes.add (l);
+          }
+        }
+      }
+    }
+
+    // gather the exteriors with their holes
+    var result = new ArrayList<List<Polygon>> ();
+    for (var loop : loops) {
+      if (loop.exterior) {
+        var boundary = ring (loop, resultEvents);
+        if (boundary != null) {
+          var rings = new ArrayList<Polygon> ();
+          rings.add (boundary);
+          for (var hole : loop.holes) {
+            var ring = ring (loops.get (hole), resultEvents);
+            if (ring != null) {
+              rings.add (ring);
+            }
+          }
+          result.add (rings);
+        }
+      }
+    }
+    return result;
+  }
+
+  // a ring from the edges of a loop, without repeated points, or null if it's degenerate
+  private static Polygon ring (Loop loop, List<Event> resultEvents) {
+    var tuples = new ArrayList<Tuple> (loop.edges.size ());
+    for (var edge : loop.edges) {
+      var event = resultEvents.get (edge);
+      var pt = PT (event.x, event.y);
+      if (tuples.isEmpty () || (! pt.equals (tuples.get (tuples.size () - 1)))) {
+        tuples.add (pt);
+      }
+    }
+    while ((tuples.size () > 1) && tuples.get (0).equals (tuples.get (tuples.size () - 1))) {
+      tuples.remove (tuples.size () - 1);
+    }
+    return (tuples.size () > 2) ? new Polygon (tuples) : null;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the operations
+  // -----------------------------------------------------------------------------------------------
+
+  private static boolean isEmpty (List<List<Polygon>> polygons) {
+    return polygons.stream ().allMatch (List::isEmpty);
+  }
+
+  private static List<List<Polygon>> concat (List<List<Polygon>> a, List<List<Polygon>> b) {
+    var result = new ArrayList<List<Polygon>> (a);
+    result.addAll (b);
+    return result;
+  }
+
+  /**
+   * compute a boolean operation on two sets of polygons
+   * @param subject the first set of polygons, each a list of rings (the boundary then the holes)
+   * @param clipping the second set of polygons
+   * @param operation the operation
+   * @return the resulting polygons, each a list of rings with the boundary first
+   */
+  public static List<List<Polygon>> compute (List<List<Polygon>> subject, List<List<Polygon>> clipping, Operation operation) {
+    // the trivial cases, when either set is empty
+    if (isEmpty (subject) || isEmpty (clipping)) {
+      return switch (operation) {
+        case INTERSECTION -> new ArrayList<> ();
+        case DIFFERENCE -> new ArrayList<> (subject);
+        case UNION, XOR -> concat (subject, clipping);
+      };
+    }
+
+    var engine = new PolygonBoolean (operation);
+    var subjectDomain = engine.fill (subject, true);
+    var clippingDomain = engine.fill (clipping, false);
+
+    // the trivial cases, when the sets don't overlap
+    if (! Domain.intersection (subjectDomain, clippingDomain).valid ()) {
+      return switch (operation) {
+        case INTERSECTION -> new ArrayList<> ();
+        case DIFFERENCE -> new ArrayList<> (subject);
+        case UNION, XOR -> concat (subject, clipping);
+      };
+    }
+
+    return connectEdges (engine.subdivide (subjectDomain, clippingDomain));
+  }
+
+  public static List<List<Polygon>> intersection (List<List<Polygon>> subject, List<List<Polygon>> clipping) {
+    return compute (subject, clipping, Operation.INTERSECTION);
+  }
+
+  public static List<List<Polygon>> union (List<List<Polygon>> subject, List<List<Polygon>> clipping) {
+    return compute (subject, clipping, Operation.UNION);
+  }
+
+  public static List<List<Polygon>> difference (List<List<Polygon>> subject, List<List<Polygon>> clipping) {
+    return compute (subject, clipping, Operation.DIFFERENCE);
+  }
+
+  public static List<List<Polygon>> xor (List<List<Polygon>> subject, List<List<Polygon>> clipping) {
+    return compute (subject, clipping, Operation.XOR);
+  }
+}
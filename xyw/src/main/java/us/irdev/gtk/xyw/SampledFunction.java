@@ -3,9 +3,16 @@ package us.irdev.gtk.xyw;
 import us.irdev.gtk.xyw.bb.BoundaryBehavior;
 import us.irdev.gtk.xyw.db.Row;
 import us.irdev.gtk.xyw.db.Rows;
+import us.irdev.gtk.xyw.samples.Samples;
+import us.irdev.gtk.xyw.samples.SamplesDouble;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static us.irdev.gtk.xyw.Tuple.PT;
 
@@ -19,7 +26,8 @@ public class SampledFunction extends Function {
   public final Tuple interval;
   public final BoundaryBehavior bbX, bbY;
   protected final int dimX, dimY;
-  protected final double[] samples;
+  protected final Samples samples;
+  private MinMaxPyramid pyramid;
 
   /**
    * Constructor - this raw constructor provides a set of 0 samples
@@ -29,6 +37,19 @@ public class SampledFunction extends Function {
    * @param bbY boundary behavior for the y-axis
    */
   public SampledFunction (Domain domain, Tuple interval, BoundaryBehavior bbX, BoundaryBehavior bbY) {
+    this (domain, interval, bbX, bbY, SamplesDouble::new);
+  }
+
+  /**
+   * Constructor - this raw constructor provides the samples from an allocator, which determines how
+   * (and where) they are stored
+   * @param domain min and max bounds of the function samples
+   * @param interval space between samples
+   * @param bbX boundary behavior for the x-axis
+   * @param bbY boundary behavior for the y-axis
+   * @param allocator creates the storage for the samples
+   */
+  public SampledFunction (Domain domain, Tuple interval, BoundaryBehavior bbX, BoundaryBehavior bbY, Samples.Allocator allocator) {
     // copy the parameters
     this.rawDomain = domain;
     this.interval = interval;
@@ -50,8 +71,9 @@ public class SampledFunction extends Function {
             Tuple.PT(bbX.adjustDomainMax(domain.min.x, domain.max.x, interval.x), bbY.adjustDomainMax(domain.min.y, domain.max.y, interval.y))
     ));
 
-    // create the samples array
-    samples = new double[dimX * dimY];
+    // create the samples storage
+    samples = allocator.allocate ((long) dimX * dimY);
+    assert (samples.size () == ((long) dimX * dimY));
   }
 
   /**
@@ -64,6 +86,17 @@ public class SampledFunction extends Function {
     this (domain, interval, bb, bb);
   }
 
+  /**
+   * Constructor - this raw constructor provides the samples from an allocator
+   * @param domain min and max bounds of the function samples
+   * @param interval space between samples
+   * @param bb boundary behavior for both the x-axis and y-axis
+   * @param allocator creates the storage for the samples
+   */
+  public SampledFunction (Domain domain, Tuple interval, BoundaryBehavior bb, Samples.Allocator allocator) {
+    this (domain, interval, bb, bb, allocator);
+  }
+
   /**
    * a helper function to create a populated SampledFunction from a "database"
    * @param rows an array of numbers representing (x, y, value) triples for each sample
@@ -116,8 +149,8 @@ public class SampledFunction extends Function {
    * @param y y-index to fetch in array space (range is [0..yDim))
    * @return the 1-dimensional array index in the samples array for the 2-dimensional index (x, y)
    */
-  private int coord (int x, int y) {
-    return (y * dimX) + x;
+  private long coord (int x, int y) {
+    return ((long) y * dimX) + x;
   }
 
   /**
@@ -125,8 +158,18 @@ public class SampledFunction extends Function {
    * @param y y-index to fetch in array space (range is [0..yDim))
    * @return the sample value for the 2-dimensional index (x, y)
    */
-  private double getSample (int x, int y) {
-    return samples[coord(x, y)];
+  double getSample (int x, int y) {
+    return samples.get (coord(x, y));
+  }
+
+  /**
+   * @param x x-index to store in array space (range is [0..xDim))
+   * @param y y-index to store in array space (range is [0..yDim))
+   * @param sample the value to store at the 2-dimensional index (x, y)
+   */
+  void putSample (int x, int y, double sample) {
+    samples.put (coord(x, y), sample);
+    pyramid = null;
   }
 
   /**
@@ -136,7 +179,32 @@ public class SampledFunction extends Function {
   public void putSample (Tuple xy, double sample) {
     // map from the domain to the coordinate space
     xy = xy.subtract(domain.min).hquotient (interval).round();
-    samples[coord((int) xy.x, (int) xy.y)] = sample;
+    samples.put (coord((int) xy.x, (int) xy.y), sample);
+
+    // any pyramid we built is stale now
+    pyramid = null;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // min/max pyramid
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * build a hierarchical min/max index over the cells of the sample grid. once built, iso
+   * extraction uses it to skip whole blocks of cells whose range excludes the target value(s). the
+   * pyramid is discarded by the next call to putSample, so build it after the samples are final.
+   * @return the new pyramid, which also supports range queries over the function
+   */
+  public MinMaxPyramid buildPyramid () {
+    pyramid = new MinMaxPyramid (this);
+    return pyramid;
+  }
+
+  /**
+   * @return the current min/max pyramid, or null if it hasn't been built (or is stale)
+   */
+  public MinMaxPyramid pyramid () {
+    return pyramid;
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -187,6 +255,47 @@ public class SampledFunction extends Function {
     return new At (xy, r, n - m, p - o);
   }
 
+  /**
+   * evaluate the function and its 1st derivatives at a batch of coordinates without allocating
+   * anything per point. the arithmetic is the same as at (Tuple), step for step, so the results
+   * are identical to evaluating each point separately.
+   * @param xs x-coordinates to evaluate in the domain
+   * @param ys y-coordinates to evaluate in the domain, must be the same length as xs
+   * @param f output array for the value of the function at each (x, y), at least as long as xs
+   * @param dx optional output array for the x-derivative at each (x, y), may be null
+   * @param dy optional output array for the y-derivative at each (x, y), may be null
+   */
+  @Override
+  public void at (double[] xs, double[] ys, double[] f, double[] dx, double[] dy) {
+    assert (xs.length == ys.length);
+    double minX = domain.min.x, maxX = domain.max.x, minY = domain.min.y, maxY = domain.max.y;
+    for (int i = 0, count = xs.length; i < count; ++i) {
+      // condition the input coordinate and map it to the sample array space
+      double sx = (bbX.condition (xs[i], minX, maxX) - minX) / interval.x;
+      double sy = (bbY.condition (ys[i], minY, maxY) - minY) / interval.y;
+
+      int x0 = (int) Math.floor(sx);
+      int x1 = (x0 + 1) % dimX;
+      double xInterpolant = sx - x0;
+
+      int y0 = (int) Math.floor(sy);
+      int y1 = (y0 + 1) % dimY;
+      double yInterpolant = sy - y0;
+
+      // get the 4 sample values and interpolate them (see at (Tuple) for the diagram)
+      double a = getSample(x0, y0);
+      double b = getSample(x1, y0);
+      double c = getSample(x0, y1);
+      double d = getSample(x1, y1);
+
+      double m = Numerics.lerp (a, c, yInterpolant);
+      double n = Numerics.lerp (b, d, yInterpolant);
+      f[i] = Numerics.lerp (m, n, xInterpolant);
+      if (dx != null) dx[i] = n - m;
+      if (dy != null) dy[i] = Numerics.lerp (c, d, xInterpolant) - Numerics.lerp (a, b, xInterpolant);
+    }
+  }
+
   // -----------------------------------------------------------------------------------------------
   // compute iso contours
   // -----------------------------------------------------------------------------------------------
@@ -204,97 +313,299 @@ public class SampledFunction extends Function {
     // complicate things, so this is not the most efficient variant in the sense that a lot of
     // redundant calculations are not re-used as they would be in the traditional implementation.
     List<Segment> output = new ArrayList<>();
+    isoRows (new double[] { targetValue }, List.of (output), 0, isoEnd ()[1]);
+
+    // return our unordered list of segments
+    return output;
+  }
+
+  /**
+   * extract an iso-line from the sampled function for a target value, splitting the grid into
+   * bands of rows that are processed in parallel on the common fork-join pool. the bands are
+   * merged in row order, so the result is identical to iso (targetValue), order included.
+   * @param targetValue the value to extract iso-contours for
+   * @return - a list of segments representing piecewise linear approximations to the iso-contour.
+   */
+  public List<Segment> isoParallel (double targetValue) {
+    return isoParallel (targetValue, ForkJoinPool.commonPool ());
+  }
+
+  /**
+   * the minimum number of cells we want in a band before it's worth handing it to another thread
+   */
+  private static final int ISO_MIN_BAND_CELLS = 1 << 14;
+
+  /**
+   * extract an iso-line from the sampled function for a target value, splitting the grid into
+   * bands of rows that are processed in parallel on the supplied pool.
+   * @param targetValue the value to extract iso-contours for
+   * @param pool the fork-join pool to run the bands on
+   * @return - a list of segments representing piecewise linear approximations to the iso-contour.
+   */
+  public List<Segment> isoParallel (double targetValue, ForkJoinPool pool) {
+    // figure out how many bands to use, we want a few more bands than threads so the work balances
+    // out when the contours are concentrated in some part of the grid
+    int[] end = isoEnd ();
+    int rows = end[1];
+    int bands = Math.min (rows, Math.min (pool.getParallelism () * 4, Math.max (1, (rows * end[0]) / ISO_MIN_BAND_CELLS)));
+    if (bands <= 1) {
+      return iso (targetValue);
+    }
 
-    Tuple size = domain.size ();
-    Tuple end = size.hquotient (interval).floor ();
-    for (int iy = 0, iyEnd = (int) end.y; iy < iyEnd; iy++) {
+    // submit one task per band of rows
+    List<ForkJoinTask<List<Segment>>> tasks = new ArrayList<>(bands);
+    for (int band = 0; band < bands; ++band) {
+      int iyStart = (int) (((long) rows * band) / bands);
+      int iyEnd = (int) (((long) rows * (band + 1)) / bands);
+      tasks.add (pool.submit (() -> {
+        List<Segment> bandOutput = new ArrayList<>();
+        isoRows (new double[] { targetValue }, List.of (bandOutput), iyStart, iyEnd);
+        return bandOutput;
+      }));
+    }
+
+    // gather the band results in order
+    List<List<Segment>> bandOutputs = new ArrayList<>(bands);
+    int total = 0;
+    for (ForkJoinTask<List<Segment>> task : tasks) {
+      List<Segment> bandOutput = task.join ();
+      bandOutputs.add (bandOutput);
+      total += bandOutput.size ();
+    }
+    List<Segment> output = new ArrayList<>(total);
+    for (List<Segment> bandOutput : bandOutputs) {
+      output.addAll (bandOutput);
+    }
+    return output;
+  }
+
+  /**
+   * extract iso-lines from the sampled function for a set of target values in a single pass over
+   * the sample grid. each cell is loaded once, and only the levels that fall between the minimum
+   * and maximum of its corners are processed. the list for each level is identical to the result
+   * of iso (level).
+   * @param levels the values to extract iso-contours for
+   * @return a map from each level to the list of segments for that level (empty if the level is
+   * not crossed anywhere), ordered by level
+   */
+  public Map<Double, List<Segment>> iso (double[] levels) {
+    // sort the levels so we can find the ones a cell crosses with a binary search
+    double[] sorted = Arrays.stream (levels).sorted ().distinct ().toArray ();
+    List<List<Segment>> outputs = new ArrayList<>(sorted.length);
+    for (int i = 0; i < sorted.length; ++i) {
+      outputs.add (new ArrayList<>());
+    }
+
+    if (sorted.length > 0) {
+      isoRows (sorted, outputs, 0, isoEnd ()[1]);
+    }
+
+    // package up the results by level
+    Map<Double, List<Segment>> result = new TreeMap<>();
+    for (int i = 0; i < sorted.length; ++i) {
+      result.put (sorted[i], outputs.get (i));
+    }
+    return result;
+  }
+
+  /**
+   * @return the sample value for the purposes of computing a cell range, with NaN mapped below
+   * every possible level
+   */
+  static double isoBelow (double value) {
+    return (value == value) ? value : Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * @return the index of the first level in the sorted array that is strictly greater than value,
+   * or the length of the array if there isn't one
+   */
+  private static int isoFirstAbove (double[] sorted, double value) {
+    int low = 0, high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] > value) high = mid; else low = mid + 1;
+    }
+    return low;
+  }
+
+  /**
+   * @return the number of cells to walk in x and y when extracting iso-contours
+   */
+  int[] isoEnd () {
+    Tuple end = domain.size ().hquotient (interval).floor ();
+    return new int[] { (int) end.x, (int) end.y };
+  }
+
+  /**
+   * @return whether any of the sorted levels crosses a cell (or block of cells) with the given
+   * range of sample values, which is to say: min < level <= max
+   */
+  static boolean isoCrosses (double min, double max, double[] sorted) {
+    if ((max < sorted[0]) || (min >= sorted[sorted.length - 1])) {
+      return false;
+    }
+    int i = isoFirstAbove (sorted, min);
+    return (i < sorted.length) && (sorted[i] <= max);
+  }
+
+  /**
+   * walk a band of rows in the sample grid, extracting iso-line segments from each cell. if a
+   * pyramid has been built, whole blocks of cells that can't cross any level are skipped, but the
+   * cells that are visited are visited in the same order, so the output is the same either way.
+   * @param sorted the values to extract iso-contours for, sorted and distinct
+   * @param outputs the lists to add segments to, one for each level
+   * @param iyStart the first row of cells to walk
+   * @param iyEnd the row of cells to stop at (exclusive)
+   */
+  private void isoRows (double[] sorted, List<List<Segment>> outputs, int iyStart, int iyEnd) {
+    MinMaxPyramid pyramid = this.pyramid;
+    int ixEnd = isoEnd ()[0];
+    for (int iy = iyStart; iy < iyEnd; iy++) {
       double y = domain.min.y + (iy * interval.y);
       double y1 = y + interval.y;
       int iy1 = (iy + 1) % dimY;
-      for (int ix = 0, ixEnd = (int) end.x; ix < ixEnd; ix++) {
+
+      // checkedEnd is the end of the last pyramid block we found that might cross a level, we
+      // don't need to consult the pyramid again until we walk past it
+      int checkedEnd = 0;
+      for (int ix = 0; ix < ixEnd; ) {
+        if ((pyramid != null) && (ix >= checkedEnd)) {
+          int next = pyramid.skip (ix, iy, sorted);
+          if (next > ix) {
+            ix = next;
+            continue;
+          }
+          checkedEnd = pyramid.blockEnd (ix);
+        }
+
         double x = domain.min.x + (ix * interval.x);
         double x1 = x + interval.x;
         int ix1 = (ix + 1) % dimX;
 
-        // get the 4 samples for the corners of each 2x2 sample square and compute a code based on
-        // whether each corner is above the targetValue (as a threshold)
+        // get the 4 samples for the corners of each 2x2 sample square
         //
         //      c - d
         //      |   |
         //      a - b
 
         double a = getSample(ix, iy), b = getSample (ix1, iy), c = getSample (ix, iy1), d = getSample (ix1, iy1);
-        boolean ath = (a >= targetValue), bth = (b >= targetValue), cth = (c >= targetValue), dth = (d >= targetValue);
-        int code = (ath ? 1 : 0) | (bth ? 2 : 0) | (cth ? 4 : 0) | (dth ? 8 : 0);
-
-        // handle the line output for this quad based on the code
-        switch (code) {
-          case 0: case 15:
-            // all 4 corners of this quad are above or below the targetValue, no edges have endpoints
-            break;
-          case 1: case 14: {
-            // bottom left corner is different, bottom and left have endpoints
-            Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
-            Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
-            output.add (new Segment (left, bottom));
-          } break;
-          case 2: case 13: {
-            // bottom right corner is different, bottom and right have endpoints
-            Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
-            Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
-            output.add (new Segment (right, bottom));
-          } break;
-          case 4: case 11: {
-            // top left corner is different, top and left have endpoints
-            Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
-            Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
-            output.add (new Segment (left, top));
-          } break;
-          case 8: case 7: {
-            // top right corner is different, top and right have endpoints
-            Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
-            Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
-            output.add (new Segment (right, top));
-          } break;
-          case 3: case 12: {
-            // two bottom corners are different from the two top corners, left and right have endpoints
-            Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
-            Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
-            output.add (new Segment (left, right));
-          } break;
-          case 5: case 10: {
-            // two left corners are different from the two right corners, bottom and top have endpoints
-            Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
-            Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
-            output.add (new Segment (bottom, top));
-          } break;
-          case 6: case 9: {
-            // saddle point, all 4 edges have endpoints. we have to decide which direction to do 2 lines.
-            Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
-            Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
-            Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
-            Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
-
-            // a good heuristic to resolve the ambiguity here is to choose the shortest combined pair
-            Segment leftTop = new Segment (left, top);
-            Segment leftBottom = new Segment (left, bottom);
-            Segment rightTop = new Segment (right, top);
-            Segment rightBottom = new Segment (right, bottom);
-
-            if ((leftTop.lengthSq() + rightBottom.lengthSq()) < (leftBottom.lengthSq() + rightTop.lengthSq())) {
-              output.add (leftTop);
-              output.add (rightBottom);
-            } else {
-              output.add (leftBottom);
-              output.add (rightTop);
+        if (sorted.length == 1) {
+          isoCell (sorted[0], x, y, x1, y1, a, b, c, d, outputs.get (0));
+        } else {
+          // compute the range of the corners. the marching squares code treats NaN as below any
+          // level, so we do the same when computing the range
+          double min = Math.min (Math.min (isoBelow (a), isoBelow (b)), Math.min (isoBelow (c), isoBelow (d)));
+          double max = Math.max (Math.max (isoBelow (a), isoBelow (b)), Math.max (isoBelow (c), isoBelow (d)));
+          if (isoCrosses (min, max, sorted)) {
+            for (int i = isoFirstAbove (sorted, min); (i < sorted.length) && (sorted[i] <= max); ++i) {
+              isoCell (sorted[i], x, y, x1, y1, a, b, c, d, outputs.get (i));
             }
-          } break;
+          }
         }
+        ix++;
       }
     }
+  }
 
-    // return our unordered list of segments
-    return output;
+  /**
+   * extract the iso-line segments for a single cell of the sample grid
+   * @param targetValue the value to extract iso-contours for
+   * @param x the left edge of the cell
+   * @param y the bottom edge of the cell
+   * @param x1 the right edge of the cell
+   * @param y1 the top edge of the cell
+   * @param a the sample at the bottom left corner
+   * @param b the sample at the bottom right corner
+   * @param c the sample at the top left corner
+   * @param d the sample at the top right corner
+   * @param output the list to add segments to
+   */
+  private static void isoCell (double targetValue, double x, double y, double x1, double y1, double a, double b, double c, double d, List<Segment> output) {
+    // compute a code based on whether each corner is above the targetValue (as a threshold)
+    boolean ath = (a >= targetValue), bth = (b >= targetValue), cth = (c >= targetValue), dth = (d >= targetValue);
+    int code = (ath ? 1 : 0) | (bth ? 2 : 0) | (cth ? 4 : 0) | (dth ? 8 : 0);
+
+    // handle the line output for this quad based on the code
+    switch (code) {
+      case 0: case 15:
+        // all 4 corners of this quad are above or below the targetValue, no edges have endpoints
+        break;
+      case 1: case 14: {
+        // bottom left corner is different, bottom and left have endpoints
+        Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
+        Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
+        output.add (new Segment (left, bottom));
+      } break;
+      case 2: case 13: {
+        // bottom right corner is different, bottom and right have endpoints
+        Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
+        Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
+        output.add (new Segment (right, bottom));
+      } break;
+      case 4: case 11: {
+        // top left corner is different, top and left have endpoints
+        Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
+        Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
+        output.add (new Segment (left, top));
+      } break;
+      case 8: case 7: {
+        // top right corner is different, top and right have endpoints
+        Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
+        Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
+        output.add (new Segment (right, top));
+      } break;
+      case 3: case 12: {
+        // two bottom corners are different from the two top corners, left and right have endpoints
+        Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
+        Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
+        output.add (new Segment (left, right));
+      } break;
+      case 5: case 10: {
+        // two left corners are different from the two right corners, bottom and top have endpoints
+        Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
+        Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
+        output.add (new Segment (bottom, top));
+      } break;
+      case 6: case 9: {
+        // saddle point, all 4 edges have endpoints. we have to decide which direction to do 2 lines.
+        Tuple left = Tuple.PT (x, Numerics.where(targetValue, y, a, y1, c));
+        Tuple right = Tuple.PT (x1, Numerics.where(targetValue, y, b, y1, d));
+        Tuple bottom = Tuple.PT (Numerics.where(targetValue, x, a, x1, b), y);
+        Tuple top = Tuple.PT (Numerics.where(targetValue, x, c, x1, d), y1);
+
+        // a good heuristic to resolve the ambiguity here is to choose the shortest combined pair
+        Segment leftTop = new Segment (left, top);
+        Segment leftBottom = new Segment (left, bottom);
+        Segment rightTop = new Segment (right, top);
+        Segment rightBottom = new Segment (right, bottom);
+
+        if ((leftTop.lengthSq() + rightBottom.lengthSq()) < (leftBottom.lengthSq() + rightTop.lengthSq())) {
+          output.add (leftTop);
+          output.add (rightBottom);
+        } else {
+          output.add (leftBottom);
+          output.add (rightTop);
+        }
+      } break;
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // trace iso contours
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * extract an iso-line from the sampled function for a target value as a set of connected
+   * polylines. the cells are walked in the same way as iso, but each edge crossing is computed once
+   * and shared by the cells on either side of it, so the lines are connected by following the
+   * shared edges rather than by matching segment endpoints (see PolyLine.polyLinesFromSegments).
+   * @param targetValue the value to extract iso-contours for
+   * @return a list of polylines, lines that reach the edge of the sample grid are open, and the
+   * rest are closed loops
+   */
+  public List<PolyLine> isoLines (double targetValue) {
+    return new ContourTracer (this, targetValue).trace ();
   }
 
   // -----------------------------------------------------------------------------------------------
@@ -0,0 +1,322 @@
+package us.irdev.gtk.xyw;
+
+import us.irdev.gtk.xyw.bb.BoundaryBehavior;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorAccordion;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorClamp;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorValue;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorWrap;
+import us.irdev.gtk.xyw.samples.Samples;
+import us.irdev.gtk.xyw.samples.SamplesDouble;
+import us.irdev.gtk.xyw.samples.SamplesFloat;
+import us.irdev.gtk.xyw.samples.SamplesMapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary file format for a SampledFunction, so grids can be loaded without parsing any
+ * text. all values are little-endian. the file is a fixed size header:
+ *
+ *   magic "GTKS" (4 bytes), version (int), sample type (byte: 0 = float, 1 = double), compression
+ *   (byte: 0 = none, 1 = deflate), bbX and bbY (byte each: 0 = value, 1 = clamp, 2 = wrap,
+ *   3 = accordion), samples per chunk (int), the raw domain (4 doubles: min x, min y, max x,
+ *   max y), the interval (2 doubles), and the sample dimensions (2 ints)
+ *
+ * followed by the samples in row order (the same order as the samples in the SampledFunction). an
+ * uncompressed file can be memory-mapped directly. a compressed file stores the samples in chunks
+ * of a fixed number of samples, each compressed separately, after a table of the compressed sizes
+ * of the chunks (longs).
+ */
+public class SampledFunctionFile {
+  public enum Compression {
+    NONE, DEFLATE
+  }
+
+  private static final int MAGIC = ('G') | ('T' << 8) | ('K' << 16) | ('S' << 24);
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 72;
+  private static final int CHUNK_SAMPLES = 1 << 16;
+
+  /**
+   * the header fields, as read from a file
+   */
+  private record Header (SamplesMapped.Type type, Compression compression, BoundaryBehavior bbX,
+                         BoundaryBehavior bbY, int chunkSamples, Domain domain, Tuple interval,
+                         int dimX, int dimY) {
+    long count () {
+      return (long) dimX * dimY;
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // boundary behavior codes
+  // -----------------------------------------------------------------------------------------------
+
+  private static byte code (BoundaryBehavior bb) {
+    if (bb instanceof BoundaryBehaviorValue) return 0;
+    if (bb instanceof BoundaryBehaviorClamp) return 1;
+    if (bb instanceof BoundaryBehaviorWrap) return 2;
+    if (bb instanceof BoundaryBehaviorAccordion) return 3;
+    throw new IllegalArgumentException ("unsupported boundary behavior: " + bb.getClass ().getName ());
+  }
+
+  private static BoundaryBehavior boundaryBehavior (byte code) throws IOException {
+    switch (code) {
+      case 0: return new BoundaryBehaviorValue ();
+      case 1: return new BoundaryBehaviorClamp ();
+      case 2: return new BoundaryBehaviorWrap ();
+      case 3: return new BoundaryBehaviorAccordion ();
+    }
+    throw new IOException ("unknown boundary behavior code: " + code);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // writing
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * write a sampled function to a file, uncompressed, with double samples
+   * @param function the sampled function to write
+   * @param path the file to write
+   * @throws IOException if the file can't be written
+   */
+  public static void write (SampledFunction function, Path path) throws IOException {
+    write (function, path, SamplesMapped.Type.DOUBLE, Compression.NONE);
+  }
+
+  /**
+   * write a sampled function to a file
+   * @param function the sampled function to write
+   * @param path the file to write
+   * @param type the type to store the samples as, float samples are rounded
+   * @param compression whether to compress the samples
+   * @throws IOException if the file can't be written
+   */
+  public static void write (SampledFunction function, Path path, SamplesMapped.Type type, Compression compression) throws IOException {
+    try (FileChannel channel = FileChannel.open (path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      // the header
+      ByteBuffer header = ByteBuffer.allocate (HEADER_BYTES).order (ByteOrder.LITTLE_ENDIAN);
+      header.putInt (MAGIC).putInt (VERSION);
+      header.put ((byte) type.ordinal ()).put ((byte) compression.ordinal ());
+      header.put (code (function.bbX)).put (code (function.bbY));
+      header.putInt (CHUNK_SAMPLES);
+      Domain domain = function.rawDomain;
+      header.putDouble (domain.min.x).putDouble (domain.min.y).putDouble (domain.max.x).putDouble (domain.max.y);
+      header.putDouble (function.interval.x).putDouble (function.interval.y);
+      header.putInt (function.dimX).putInt (function.dimY);
+      writeFully (channel, header.flip ());
+
+      Samples samples = function.samples;
+      long count = samples.size ();
+      int chunkCount = (int) ((count + CHUNK_SAMPLES - 1) / CHUNK_SAMPLES);
+      ByteBuffer buffer = ByteBuffer.allocate (CHUNK_SAMPLES * type.bytes).order (ByteOrder.LITTLE_ENDIAN);
+      if (compression == Compression.NONE) {
+        // the samples, one chunk at a time
+        for (int chunk = 0; chunk < chunkCount; ++chunk) {
+          writeFully (channel, fill (buffer, samples, chunk, type));
+        }
+      } else {
+        // leave space for the table of compressed sizes, and fill it in at the end
+        ByteBuffer table = ByteBuffer.allocate (chunkCount * 8).order (ByteOrder.LITTLE_ENDIAN);
+        channel.position (HEADER_BYTES + table.capacity ());
+        Deflater deflater = new Deflater ();
+        byte[] compressed = new byte[buffer.capacity () + 1024];
+        try {
+          for (int chunk = 0; chunk < chunkCount; ++chunk) {
+            fill (buffer, samples, chunk, type);
+            deflater.reset ();
+            deflater.setInput (buffer.array (), 0, buffer.limit ());
+            deflater.finish ();
+            long size = 0;
+            while (! deflater.finished ()) {
+              int length = deflater.deflate (compressed);
+              writeFully (channel, ByteBuffer.wrap (compressed, 0, length));
+              size += length;
+            }
+            table.putLong (size);
+          }
+        } finally {
+          deflater.end ();
+        }
+        channel.position (HEADER_BYTES);
+        writeFully (channel, table.flip ());
+      }
+    }
+  }
+
+  /**
+   * fill a buffer with the samples in a chunk
+   * @return the buffer, ready to read
+   */
+  private static ByteBuffer fill (ByteBuffer buffer, Samples samples, int chunk, SamplesMapped.Type type) {
+    buffer.clear ();
+    long start = (long) chunk * CHUNK_SAMPLES;
+    long end = Math.min (start + CHUNK_SAMPLES, samples.size ());
+    for (long i = start; i < end; ++i) {
+      if (type == SamplesMapped.Type.DOUBLE) {
+        buffer.putDouble (samples.get (i));
+      } else {
+        buffer.putFloat ((float) samples.get (i));
+      }
+    }
+    return buffer.flip ();
+  }
+
+  private static void writeFully (FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining ()) {
+      channel.write (buffer);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // reading
+  // -----------------------------------------------------------------------------------------------
+
+  private static void readFully (FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining ()) {
+      if (channel.read (buffer) < 0) {
+        throw new IOException ("unexpected end of file");
+      }
+    }
+    buffer.flip ();
+  }
+
+  private static Header readHeader (FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate (HEADER_BYTES).order (ByteOrder.LITTLE_ENDIAN);
+    readFully (channel, buffer);
+    if (buffer.getInt () != MAGIC) {
+      throw new IOException ("not a sampled function file");
+    }
+    int version = buffer.getInt ();
+    if (version != VERSION) {
+      throw new IOException ("unsupported sampled function file version: " + version);
+    }
+    byte type = buffer.get (), compression = buffer.get ();
+    if ((type < 0) || (type >= SamplesMapped.Type.values ().length) || (compression < 0) || (compression >= Compression.values ().length)) {
+      throw new IOException ("invalid sample type or compression");
+    }
+    BoundaryBehavior bbX = boundaryBehavior (buffer.get ()), bbY = boundaryBehavior (buffer.get ());
+    int chunkSamples = buffer.getInt ();
+    if (chunkSamples <= 0) {
+      throw new IOException ("invalid chunk size: " + chunkSamples);
+    }
+    Domain domain = new Domain (Tuple.PT (buffer.getDouble (), buffer.getDouble ()), Tuple.PT (buffer.getDouble (), buffer.getDouble ()));
+    Tuple interval = Tuple.VEC (buffer.getDouble (), buffer.getDouble ());
+    return new Header (SamplesMapped.Type.values ()[type], Compression.values ()[compression], bbX, bbY,
+            chunkSamples, domain, interval, buffer.getInt (), buffer.getInt ());
+  }
+
+  /**
+   * create the sampled function described by a header, and check it agrees about the dimensions
+   */
+  private static SampledFunction create (Header header, Samples.Allocator allocator) throws IOException {
+    SampledFunction function = new SampledFunction (header.domain, header.interval, header.bbX, header.bbY, allocator);
+    if ((function.dimX != header.dimX) || (function.dimY != header.dimY)) {
+      throw new IOException ("sample dimensions don't match the domain and interval");
+    }
+    return function;
+  }
+
+  /**
+   * memory-map the samples of an uncompressed file directly into a sampled function, read only.
+   * nothing is read beyond the header until the samples are used.
+   * @param path the file to map
+   * @return a sampled function backed by the file
+   * @throws IOException if the file can't be read, or is compressed
+   */
+  public static SampledFunction map (Path path) throws IOException {
+    Header header;
+    try (FileChannel channel = FileChannel.open (path, StandardOpenOption.READ)) {
+      header = readHeader (channel);
+      if (header.compression != Compression.NONE) {
+        throw new IOException ("compressed files can't be mapped");
+      }
+      if (channel.size () < HEADER_BYTES + (header.count () * header.type.bytes)) {
+        throw new IOException ("unexpected end of file");
+      }
+    }
+    return create (header, SamplesMapped.allocator (path, HEADER_BYTES, header.type, false));
+  }
+
+  /**
+   * read a file into a sampled function on the heap, using float or double samples to match the
+   * file
+   * @param path the file to read
+   * @return a sampled function with the samples from the file
+   * @throws IOException if the file can't be read
+   */
+  public static SampledFunction read (Path path) throws IOException {
+    return read (path, null);
+  }
+
+  /**
+   * read a file into a sampled function
+   * @param path the file to read
+   * @param allocator creates the storage for the samples, or null to match the file
+   * @return a sampled function with the samples from the file
+   * @throws IOException if the file can't be read
+   */
+  public static SampledFunction read (Path path, Samples.Allocator allocator) throws IOException {
+    try (FileChannel channel = FileChannel.open (path, StandardOpenOption.READ)) {
+      Header header = readHeader (channel);
+      if (allocator == null) {
+        allocator = (header.type == SamplesMapped.Type.DOUBLE) ? SamplesDouble::new : SamplesFloat::new;
+      }
+      SampledFunction function = create (header, allocator);
+      Samples samples = function.samples;
+      long count = header.count ();
+      int chunkCount = (int) ((count + header.chunkSamples - 1) / header.chunkSamples);
+      ByteBuffer buffer = ByteBuffer.allocate (header.chunkSamples * header.type.bytes).order (ByteOrder.LITTLE_ENDIAN);
+
+      if (header.compression == Compression.NONE) {
+        for (int chunk = 0; chunk < chunkCount; ++chunk) {
+          long start = (long) chunk * header.chunkSamples;
+          buffer.clear ().limit ((int) (Math.min (header.chunkSamples, count - start) * header.type.bytes));
+          readFully (channel, buffer);
+          drain (buffer, samples, start, header.type);
+        }
+      } else {
+        ByteBuffer table = ByteBuffer.allocate (chunkCount * 8).order (ByteOrder.LITTLE_ENDIAN);
+        readFully (channel, table);
+        Inflater inflater = new Inflater ();
+        try {
+          for (int chunk = 0; chunk < chunkCount; ++chunk) {
+            long start = (long) chunk * header.chunkSamples;
+            ByteBuffer compressed = ByteBuffer.allocate ((int) table.getLong ());
+            readFully (channel, compressed);
+            inflater.reset ();
+            inflater.setInput (compressed.array (), 0, compressed.limit ());
+            int expect = (int) (Math.min (header.chunkSamples, count - start) * header.type.bytes);
+            int length = inflater.inflate (buffer.array (), 0, expect);
+            if ((length != expect) || (! inflater.finished ())) {
+              throw new IOException ("corrupt compressed chunk: " + chunk);
+            }
+            buffer.clear ().limit (length);
+            drain (buffer, samples, start, header.type);
+          }
+        } catch (DataFormatException exception) {
+          throw new IOException (exception);
+        } finally {
+          inflater.end ();
+        }
+      }
+      return function;
+    }
+  }
+
+  /**
+   * copy the values in a buffer into the samples, starting at the given index
+   */
+  private static void drain (ByteBuffer buffer, Samples samples, long start, SamplesMapped.Type type) {
+    for (long i = start; buffer.hasRemaining (); ++i) {
+      samples.put (i, (type == SamplesMapped.Type.DOUBLE) ? buffer.getDouble () : buffer.getFloat ());
+    }
+  }
+}
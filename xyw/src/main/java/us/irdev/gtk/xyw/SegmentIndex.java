@@ -0,0 +1,209 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static us.irdev.gtk.xyw.Numerics.TOLERANCE;
+
+/**
+ * A spatial index over a list of segments, using a uniform grid of buckets. each segment is stored
+ * in every bucket its bounding box overlaps, in a compact (CSR) layout: one array of segment
+ * indices ordered by bucket, and an array of offsets to the start of each bucket. the bounding
+ * boxes are padded slightly so that pairs of segments that only touch within numerical tolerance
+ * are still found as candidates.
+ */
+public class SegmentIndex {
+  public final List<Segment> segments;
+  private final double[] minX, minY, maxX, maxY;
+  private final double pad;
+
+  // the bucket grid
+  private final double originX, originY, scaleX, scaleY;
+  private final int width, height;
+  private final int[] offsets;
+  private final int[] entries;
+
+  /**
+   * constructor
+   * @param segments the segments to index
+   */
+  public SegmentIndex (List<Segment> segments) {
+    this.segments = segments;
+    int count = segments.size ();
+    minX = new double[count];
+    minY = new double[count];
+    maxX = new double[count];
+    maxY = new double[count];
+
+    // gather the bounding boxes and the overall domain
+    double dMinX = Double.POSITIVE_INFINITY, dMinY = Double.POSITIVE_INFINITY;
+    double dMaxX = Double.NEGATIVE_INFINITY, dMaxY = Double.NEGATIVE_INFINITY;
+    double sumX = 0, sumY = 0;
+    for (int i = 0; i < count; ++i) {
+      Segment segment = segments.get (i);
+      minX[i] = Math.min (segment.a.x, segment.b.x);
+      minY[i] = Math.min (segment.a.y, segment.b.y);
+      maxX[i] = Math.max (segment.a.x, segment.b.x);
+      maxY[i] = Math.max (segment.a.y, segment.b.y);
+      dMinX = Math.min (dMinX, minX[i]);
+      dMinY = Math.min (dMinY, minY[i]);
+      dMaxX = Math.max (dMaxX, maxX[i]);
+      dMaxY = Math.max (dMaxY, maxY[i]);
+      sumX += maxX[i] - minX[i];
+      sumY += maxY[i] - minY[i];
+    }
+
+    // pad the boxes relative to the magnitude of the coordinates
+    double magnitude = (count > 0) ? Math.max (Math.max (Math.abs (dMinX), Math.abs (dMaxX)), Math.max (Math.abs (dMinY), Math.abs (dMaxY))) : 0;
+    pad = TOLERANCE * (1 + magnitude);
+    for (int i = 0; i < count; ++i) {
+      minX[i] -= pad;
+      minY[i] -= pad;
+      maxX[i] += pad;
+      maxY[i] += pad;
+    }
+
+    // size the grid so there are about as many buckets as segments, but don't make the buckets much
+    // smaller than the average segment, or every segment ends up in a lot of buckets
+    double sizeX = (count > 0) ? (dMaxX - dMinX) + (2 * pad) : 1;
+    double sizeY = (count > 0) ? (dMaxY - dMinY) + (2 * pad) : 1;
+    double cellSize = Math.sqrt ((sizeX * sizeY) / Math.max (1, count));
+    double cellX = Math.max (cellSize, (count > 0) ? sumX / count : 0);
+    double cellY = Math.max (cellSize, (count > 0) ? sumY / count : 0);
+    width = (int) Math.max (1, Math.min (Math.ceil (sizeX / cellX), 1 << 14));
+    height = (int) Math.max (1, Math.min (Math.ceil (sizeY / cellY), 1 << 14));
+    originX = (count > 0) ? dMinX - pad : 0;
+    originY = (count > 0) ? dMinY - pad : 0;
+    scaleX = width / sizeX;
+    scaleY = height / sizeY;
+
+    // count the entries in each bucket, then compute the offsets, and fill them
+    offsets = new int[(width * height) + 1];
+    for (int i = 0; i < count; ++i) {
+      for (int y = cellY (minY[i]), yEnd = cellY (maxY[i]); y <= yEnd; ++y) {
+        for (int x = cellX (minX[i]), xEnd = cellX (maxX[i]); x <= xEnd; ++x) {
+          ++offsets[(y * width) + x + 1];
+        }
+      }
+    }
+    for (int i = 1; i < offsets.length; ++i) {
+      offsets[i] += offsets[i - 1];
+    }
+    entries = new int[offsets[offsets.length - 1]];
+    int[] fill = Arrays.copyOf (offsets, offsets.length - 1);
+    for (int i = 0; i < count; ++i) {
+      for (int y = cellY (minY[i]), yEnd = cellY (maxY[i]); y <= yEnd; ++y) {
+        for (int x = cellX (minX[i]), xEnd = cellX (maxX[i]); x <= xEnd; ++x) {
+          entries[fill[(y * width) + x]++] = i;
+        }
+      }
+    }
+  }
+
+  private int cellX (double x) {
+    return Math.max (0, Math.min (width - 1, (int) Math.floor ((x - originX) * scaleX)));
+  }
+
+  private int cellY (double y) {
+    return Math.max (0, Math.min (height - 1, (int) Math.floor ((y - originY) * scaleY)));
+  }
+
+  /**
+   * an interface for receiving the indices of candidate segments
+   */
+  public interface Candidates {
+    void accept (int index);
+  }
+
+  /**
+   * find the indexed segments whose (padded) bounding boxes overlap a box. each candidate is
+   * reported exactly once: a pair is only reported from the bucket that contains the lower left
+   * corner of the overlap of the two boxes.
+   * @param qMinX the left edge of the box
+   * @param qMinY the bottom edge of the box
+   * @param qMaxX the right edge of the box
+   * @param qMaxY the top edge of the box
+   * @param candidates receives the index of each candidate segment, in no particular order
+   */
+  public void query (double qMinX, double qMinY, double qMaxX, double qMaxY, Candidates candidates) {
+    if (entries.length == 0) {
+      return;
+    }
+    for (int y = cellY (qMinY), yEnd = cellY (qMaxY); y <= yEnd; ++y) {
+      for (int x = cellX (qMinX), xEnd = cellX (qMaxX); x <= xEnd; ++x) {
+        int bucket = (y * width) + x;
+        for (int e = offsets[bucket], end = offsets[bucket + 1]; e < end; ++e) {
+          int i = entries[e];
+          if ((minX[i] <= qMaxX) && (maxX[i] >= qMinX) && (minY[i] <= qMaxY) && (maxY[i] >= qMinY)
+                  && (cellX (Math.max (minX[i], qMinX)) == x) && (cellY (Math.max (minY[i], qMinY)) == y)) {
+            candidates.accept (i);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * find the indexed segments whose bounding boxes overlap a domain
+   * @param domain the domain to search
+   * @return the indices of the candidate segments, in ascending order
+   */
+  public int[] query (Domain domain) {
+    IntList found = new IntList ();
+    query (domain.min.x, domain.min.y, domain.max.x, domain.max.y, found::add);
+    return found.sorted ();
+  }
+
+  /**
+   * compute the intersections between a list of segments and the indexed segments. the result is
+   * the same as testing every pair with Segment.intersect in a nested loop (the other segments in
+   * the outer loop, the indexed segments in the inner loop), in the same order, but only pairs with
+   * overlapping bounding boxes are actually tested.
+   * @param others the segments to intersect with the indexed segments
+   * @return the list of intersection points, possibly empty
+   */
+  public List<Tuple> intersections (List<Segment> others) {
+    List<Tuple> result = new ArrayList<>();
+    IntList found = new IntList ();
+    for (Segment other : others) {
+      found.clear ();
+      query (Math.min (other.a.x, other.b.x) - pad, Math.min (other.a.y, other.b.y) - pad,
+              Math.max (other.a.x, other.b.x) + pad, Math.max (other.a.y, other.b.y) + pad, found::add);
+      if (found.size > 0) {
+        for (int i : found.sorted ()) {
+          Tuple intersection = Segment.intersect (other, segments.get (i));
+          if (intersection != null) {
+            result.add (intersection);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * a minimal growable list of ints
+   */
+  private static class IntList {
+    int[] values = new int[16];
+    int size;
+
+    void add (int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf (values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    void clear () {
+      size = 0;
+    }
+
+    int[] sorted () {
+      int[] result = Arrays.copyOf (values, size);
+      Arrays.sort (result);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A static R-tree over a list of segments, for nearest segment queries. the tree is bulk loaded
+ * with sort-tile-recursive (STR) packing: the items at each level are sorted into vertical slices
+ * by the x-coordinate of their centers, each slice is sorted by y, and runs of NODE_SIZE items
+ * become the nodes of the next level up. the nodes are stored in flat arrays, with the children of
+ * each node in a contiguous range (of nodes, or of segments for the leaves).
+ *
+ * queries are branch-and-bound, best first: a priority queue holds nodes keyed by the distance to
+ * their boxes and segments keyed by their true distance, so segments come out of the queue in
+ * order of distance, and nothing farther than the k-th nearest segment is ever opened. the queries
+ * read the tree through the SegmentTreeNodes interface, so the same search runs on node arrays that were
+ * written to a file and mapped back in place.
+ */
+public class SegmentTree implements SegmentTreeNodes {
+  public static final int NODE_SIZE = 16;
+
+  /**
+   * a segment found by a query
+   * @param index the index of the segment in the list the tree was built from
+   * @param distance the distance from the query point to the segment
+   */
+  public record Nearest (int index, double distance) {}
+
+  public final List<Segment> segments;
+
+  // the segments in leaf order, and the nodes with their boxes and the range of their children,
+  // the leaves are the first leafCount nodes, and the root is the last one
+  private final int[] entries;
+  private final double[] minX, minY, maxX, maxY;
+  private final int[] childStart, childEnd;
+  private final int leafCount;
+  private final int root;
+
+  /**
+   * constructor
+   * @param segments the segments to index
+   */
+  public SegmentTree (List<Segment> segments) {
+    this.segments = segments;
+    int count = segments.size ();
+
+    // the segments in STR order
+    double[] cx = new double[count], cy = new double[count];
+    for (int i = 0; i < count; ++i) {
+      Segment segment = segments.get (i);
+      cx[i] = (segment.a.x + segment.b.x) * 0.5;
+      cy[i] = (segment.a.y + segment.b.y) * 0.5;
+    }
+    entries = strOrder (IntStream.range (0, count).toArray (), cx, cy);
+
+    // allocate enough nodes for every level
+    int nodeCount = 0;
+    for (int level = Math.max (1, nodesFor (count)); ; level = nodesFor (level)) {
+      nodeCount += level;
+      if (level == 1) break;
+    }
+    minX = new double[nodeCount];
+    minY = new double[nodeCount];
+    maxX = new double[nodeCount];
+    maxY = new double[nodeCount];
+    childStart = new int[nodeCount];
+    childEnd = new int[nodeCount];
+
+    // the leaves, each a run of segments
+    int next = 0;
+    for (int start = 0; (start < count) || (next == 0); start += NODE_SIZE) {
+      int end = Math.min (count, start + NODE_SIZE);
+      childStart[next] = start;
+      childEnd[next] = end;
+      minX[next] = minY[next] = Double.POSITIVE_INFINITY;
+      maxX[next] = maxY[next] = Double.NEGATIVE_INFINITY;
+      for (int e = start; e < end; ++e) {
+        Segment segment = segments.get (entries[e]);
+        minX[next] = Math.min (minX[next], Math.min (segment.a.x, segment.b.x));
+        minY[next] = Math.min (minY[next], Math.min (segment.a.y, segment.b.y));
+        maxX[next] = Math.max (maxX[next], Math.max (segment.a.x, segment.b.x));
+        maxY[next] = Math.max (maxY[next], Math.max (segment.a.y, segment.b.y));
+      }
+      ++next;
+    }
+    leafCount = next;
+
+    // each level above, the nodes of the level below are put in STR order (which doesn't disturb
+    // their own children), and grouped into runs
+    int levelStart = 0, levelEnd = next;
+    while (levelEnd - levelStart > 1) {
+      reorder (levelStart, levelEnd);
+      for (int start = levelStart; start < levelEnd; start += NODE_SIZE) {
+        int end = Math.min (levelEnd, start + NODE_SIZE);
+        childStart[next] = start;
+        childEnd[next] = end;
+        minX[next] = minY[next] = Double.POSITIVE_INFINITY;
+        maxX[next] = maxY[next] = Double.NEGATIVE_INFINITY;
+        for (int child = start; child < end; ++child) {
+          minX[next] = Math.min (minX[next], minX[child]);
+          minY[next] = Math.min (minY[next], minY[child]);
+          maxX[next] = Math.max (maxX[next], maxX[child]);
+          maxY[next] = Math.max (maxY[next], maxY[child]);
+        }
+        ++next;
+      }
+      levelStart = levelEnd;
+      levelEnd = next;
+    }
+    root = next - 1;
+  }
+
+  private static int nodesFor (int items) {
+    return (items + NODE_SIZE - 1) / NODE_SIZE;
+  }
+
+  // sort items into vertical slices by x, then each slice by y
+  private static int[] strOrder (int[] items, double[] x, double[] y) {
+    int count = items.length;
+    Integer[] boxed = Arrays.stream (items).boxed ().toArray (Integer[]::new);
+    Arrays.sort (boxed, Comparator.comparingDouble (i -> x[i]));
+    int sliceCount = (int) Math.ceil (Math.sqrt (nodesFor (count)));
+    int sliceSize = Math.max (1, sliceCount * NODE_SIZE);
+    for (int start = 0; start < count; start += sliceSize) {
+      Arrays.sort (boxed, start, Math.min (count, start + sliceSize), Comparator.comparingDouble (i -> y[i]));
+    }
+    return Arrays.stream (boxed).mapToInt (Integer::intValue).toArray ();
+  }
+
+  // put a range of nodes in STR order by the centers of their boxes
+  private void reorder (int start, int end) {
+    int count = end - start;
+    double[] cx = new double[count], cy = new double[count];
+    for (int i = 0; i < count; ++i) {
+      cx[i] = (minX[start + i] + maxX[start + i]) * 0.5;
+      cy[i] = (minY[start + i] + maxY[start + i]) * 0.5;
+    }
+    int[] order = strOrder (IntStream.range (0, count).toArray (), cx, cy);
+    double[][] boxes = { minX, minY, maxX, maxY };
+    for (double[] values : boxes) {
+      double[] copy = Arrays.copyOfRange (values, start, end);
+      for (int i = 0; i < count; ++i) {
+        values[start + i] = copy[order[i]];
+      }
+    }
+    for (int[] values : new int[][] { childStart, childEnd }) {
+      int[] copy = Arrays.copyOfRange (values, start, end);
+      for (int i = 0; i < count; ++i) {
+        values[start + i] = copy[order[i]];
+      }
+    }
+  }
+
+  @Override
+  public int size () {
+    return entries.length;
+  }
+
+  @Override
+  public int nodeCount () {
+    return root + 1;
+  }
+
+  @Override
+  public int leafCount () {
+    return leafCount;
+  }
+
+  @Override
+  public double minX (int node) {
+    return minX[node];
+  }
+
+  @Override
+  public double minY (int node) {
+    return minY[node];
+  }
+
+  @Override
+  public double maxX (int node) {
+    return maxX[node];
+  }
+
+  @Override
+  public double maxY (int node) {
+    return maxY[node];
+  }
+
+  @Override
+  public int childStart (int node) {
+    return childStart[node];
+  }
+
+  @Override
+  public int childEnd (int node) {
+    return childEnd[node];
+  }
+
+  @Override
+  public int entry (int e) {
+    return entries[e];
+  }
+
+  @Override
+  public double distance (int index, double x, double y) {
+    return distance (segments.get (index), x, y);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // distances
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * @return the distance from a point to the closest point on a segment (not its line)
+   */
+  public static double distance (Segment segment, double x, double y) {
+    return distance (segment.a.x, segment.a.y, segment.b.x, segment.b.y, x, y);
+  }
+
+  /**
+   * @return the distance from a point to the closest point on the segment from (ax, ay) to (bx, by)
+   */
+  public static double distance (double ax, double ay, double bx, double by, double x, double y) {
+    double vx = bx - ax, vy = by - ay;
+    double dx = x - ax, dy = y - ay;
+    double lengthSq = (vx * vx) + (vy * vy);
+    if (lengthSq > 0) {
+      double t = Math.max (0, Math.min (1, ((dx * vx) + (dy * vy)) / lengthSq));
+      dx -= t * vx;
+      dy -= t * vy;
+    }
+    return Math.sqrt ((dx * dx) + (dy * dy));
+  }
+
+  // the distance from a point to the box of a node, 0 inside it
+  private static double boxDistance (SegmentTreeNodes nodes, int node, double x, double y) {
+    double dx = Math.max (0, Math.max (nodes.minX (node) - x, x - nodes.maxX (node)));
+    double dy = Math.max (0, Math.max (nodes.minY (node) - y, y - nodes.maxY (node)));
+    return Math.sqrt ((dx * dx) + (dy * dy));
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // queries
+  // -----------------------------------------------------------------------------------------------
+
+  // a binary min-heap of distances, each with a node (>= 0) or a segment (encoded as -1 - index)
+  private static class Queue {
+    double[] keys = new double[64];
+    int[] items = new int[64];
+    int size;
+
+    void push (double key, int item) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf (keys, size * 2);
+        items = Arrays.copyOf (items, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >> 1;
+        if (keys[parent] <= key) break;
+        keys[i] = keys[parent];
+        items[i] = items[parent];
+        i = parent;
+      }
+      keys[i] = key;
+      items[i] = item;
+    }
+
+    // remove the top of the heap, after reading it from keys[0] and items[0]
+    void pop () {
+      double key = keys[--size];
+      int item = items[size];
+      int i = 0;
+      while (true) {
+        int child = (2 * i) + 1;
+        if (child >= size) break;
+        if ((child + 1 < size) && (keys[child + 1] < keys[child])) ++child;
+        if (keys[child] >= key) break;
+        keys[i] = keys[child];
+        items[i] = items[child];
+        i = child;
+      }
+      keys[i] = key;
+      items[i] = item;
+    }
+  }
+
+  /**
+   * find the k segments nearest to a point
+   * @param x the x-coordinate of the point
+   * @param y the y-coordinate of the point
+   * @param k the most segments to find
+   * @param limit the largest distance to search
+   * @return up to k segments no farther than the limit, nearest first
+   */
+  public List<Nearest> nearest (double x, double y, int k, double limit) {
+    return nearest (this, x, y, k, limit);
+  }
+
+  /**
+   * find the k segments nearest to a point in a tree given by its node arrays
+   * @param nodes the tree to search
+   * @param x the x-coordinate of the point
+   * @param y the y-coordinate of the point
+   * @param k the most segments to find
+   * @param limit the largest distance to search
+   * @return up to k segments no farther than the limit, nearest first
+   */
+  public static List<Nearest> nearest (SegmentTreeNodes nodes, double x, double y, int k, double limit) {
+    List<Nearest> result = new ArrayList<> ();
+    if ((nodes.size () == 0) || (k <= 0)) {
+      return result;
+    }
+    int root = nodes.nodeCount () - 1, leafCount = nodes.leafCount ();
+    Queue queue = new Queue ();
+    queue.push (boxDistance (nodes, root, x, y), root);
+    while ((queue.size > 0) && (result.size () < k)) {
+      double key = queue.keys[0];
+      int item = queue.items[0];
+      queue.pop ();
+      if (key > limit) {
+        // everything left in the queue is at least this far away
+        break;
+      }
+      if (item < 0) {
+        result.add (new Nearest (-1 - item, key));
+      } else if (item < leafCount) {
+        for (int e = nodes.childStart (item), end = nodes.childEnd (item); e < end; ++e) {
+          int index = nodes.entry (e);
+          double distance = nodes.distance (index, x, y);
+          if (distance <= limit) {
+            queue.push (distance, -1 - index);
+          }
+        }
+      } else {
+        for (int child = nodes.childStart (item), end = nodes.childEnd (item); child < end; ++child) {
+          double distance = boxDistance (nodes, child, x, y);
+          if (distance <= limit) {
+            queue.push (distance, child);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * find the segment nearest to a point
+   * @param x the x-coordinate of the point
+   * @param y the y-coordinate of the point
+   * @param limit the largest distance to search
+   * @return the nearest segment, or null if there is none within the limit
+   */
+  public Nearest nearest (double x, double y, double limit) {
+    List<Nearest> found = nearest (x, y, 1, limit);
+    return found.isEmpty () ? null : found.get (0);
+  }
+}
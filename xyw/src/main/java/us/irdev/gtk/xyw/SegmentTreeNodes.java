@@ -0,0 +1,33 @@
+package us.irdev.gtk.xyw;
+
+/**
+ * the flat arrays of a SegmentTree, as its queries read them, so they can be somewhere other than
+ * the heap, like a memory-mapped file. the leaves are nodes 0 to leafCount - 1, the root is the
+ * last node, and the children of a node are the range childStart to childEnd of the level below
+ * (or of the entries, for a leaf).
+ */
+public interface SegmentTreeNodes {
+  int nodeCount ();
+  int leafCount ();
+  double minX (int node);
+  double minY (int node);
+  double maxX (int node);
+  double maxY (int node);
+  int childStart (int node);
+  int childEnd (int node);
+
+  /**
+   * @return the number of segments (entries) in the tree
+   */
+  int size ();
+
+  /**
+   * @return the index of the segment at a position in leaf order
+   */
+  int entry (int e);
+
+  /**
+   * @return the distance from a point to a segment, by its index
+   */
+  double distance (int index, double x, double y);
+}
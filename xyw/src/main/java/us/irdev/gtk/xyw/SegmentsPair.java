@@ -75,16 +75,14 @@ public class SegmentsPair {
     return output;
   }
 
+  /**
+   * compute the intersections between the two sets of segments. the segments in b are indexed in a
+   * bucket grid so only pairs with overlapping bounds are tested, but the result is the same as
+   * testing every segment in a against every segment in b, in that order.
+   * @return the list of intersection points, or null if there are none
+   */
   public List<Tuple> intersections () {
-    var result = new ArrayList<Tuple>();
-    for (var sa: a.segments) {
-      for (var sb: b.segments) {
-        var intersection = Segment.intersect (sa, sb);
-        if (intersection != null) {
-          result.add(intersection);
-        }
-      }
-    }
+    var result = new SegmentIndex (b.segments).intersections (a.segments);
     return result.isEmpty() ? null : result;
   }
 
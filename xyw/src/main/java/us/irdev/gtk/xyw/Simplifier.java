@@ -0,0 +1,498 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visvalingam-Whyatt simplification, computed once as an importance for every vertex so that a
+ * simplification at any tolerance can be pulled out later in a single pass. the vertices are
+ * removed one at a time, always the one whose triangle with its two neighbors has the smallest
+ * area, and that area (or the largest one removed before it, so the values never go down) is the
+ * importance of the vertex. keeping the vertices with an importance at or above a tolerance gives
+ * exactly the state after removing everything below it.
+ *
+ * a vertex is only removed when no other vertex (of any of the chains simplified together) is in
+ * its triangle. the chains are assumed not to cross, so an edge can only cross the new shortcut
+ * if one of its ends is in the triangle, and the check keeps the chains from crossing each other
+ * or themselves at every tolerance. a vertex that is blocked gets another chance whenever one of
+ * its neighbors is removed, or is kept otherwise. the ends of an open chain are always kept, and
+ * a closed chain always keeps at least 3 vertices.
+ *
+ * rings that share borders, like the regions of a map, can be simplified together so the borders
+ * stay shared (see sharedImportance). the rings are cut into arcs where they meet, and each arc is
+ * simplified once, as an open chain, so a vertex gets the same importance in every ring it is in.
+ *
+ * the importance is an area, so tolerances are in squared units.
+ */
+public class Simplifier {
+  // the vertices of all the chains, the live neighbors of each, and the chain each is in
+  private final double[] xs, ys;
+  private final int[] prev, next, chainOf;
+  private final int[] remaining;
+  private final int[] minimum;
+  private final boolean[] removed;
+  private final double[] importance;
+
+  // the bucket grid of vertices, for the triangle checks
+  private final double originX, originY, scaleX, scaleY;
+  private final int width, height;
+  private final int[] offsets;
+  private final int[] entries;
+
+  // the candidates in a binary min-heap on the area, with the position of each vertex in the heap
+  // (-1 when it isn't in it)
+  private final double[] keys;
+  private final int[] heap;
+  private final int[] heapPos;
+  private int heapSize;
+
+  private Simplifier (List<Tuple[]> chains, boolean[] closed) {
+    int count = 0;
+    for (Tuple[] chain : chains) {
+      count += chain.length;
+    }
+    xs = new double[count];
+    ys = new double[count];
+    prev = new int[count];
+    next = new int[count];
+    chainOf = new int[count];
+    remaining = new int[chains.size ()];
+    minimum = new int[chains.size ()];
+    removed = new boolean[count];
+    importance = new double[count];
+    keys = new double[count];
+    heap = new int[count];
+    heapPos = new int[count];
+
+    // link the vertices of each chain
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    for (int c = 0, start = 0; c < chains.size (); ++c) {
+      Tuple[] chain = chains.get (c);
+      int length = chain.length;
+      remaining[c] = length;
+      minimum[c] = closed[c] ? 3 : 2;
+      for (int i = 0; i < length; ++i) {
+        int v = start + i;
+        xs[v] = chain[i].x;
+        ys[v] = chain[i].y;
+        chainOf[v] = c;
+        prev[v] = (i > 0) ? v - 1 : (closed[c] ? start + length - 1 : -1);
+        next[v] = (i < length - 1) ? v + 1 : (closed[c] ? start : -1);
+        minX = Math.min (minX, xs[v]);
+        minY = Math.min (minY, ys[v]);
+        maxX = Math.max (maxX, xs[v]);
+        maxY = Math.max (maxY, ys[v]);
+      }
+      start += length;
+    }
+
+    // size the grid so there are about as many buckets as vertices, and fill it in CSR layout
+    double sizeX = (count > 0) ? Math.max (maxX - minX, Double.MIN_NORMAL) : 1;
+    double sizeY = (count > 0) ? Math.max (maxY - minY, Double.MIN_NORMAL) : 1;
+    double cellSize = Math.sqrt ((sizeX * sizeY) / Math.max (1, count));
+    width = (int) Math.max (1, Math.min (Math.ceil (sizeX / cellSize), 1 << 12));
+    height = (int) Math.max (1, Math.min (Math.ceil (sizeY / cellSize), 1 << 12));
+    originX = (count > 0) ? minX : 0;
+    originY = (count > 0) ? minY : 0;
+    scaleX = width / sizeX;
+    scaleY = height / sizeY;
+    offsets = new int[(width * height) + 1];
+    int[] cells = new int[count];
+    for (int v = 0; v < count; ++v) {
+      cells[v] = (row (ys[v]) * width) + column (xs[v]);
+      ++offsets[cells[v] + 1];
+    }
+    for (int i = 0; i < width * height; ++i) {
+      offsets[i + 1] += offsets[i];
+    }
+    entries = new int[count];
+    int[] fill = Arrays.copyOf (offsets, width * height);
+    for (int v = 0; v < count; ++v) {
+      entries[fill[cells[v]]++] = v;
+    }
+  }
+
+  private int column (double x) {
+    return Math.max (0, Math.min (width - 1, (int) ((x - originX) * scaleX)));
+  }
+
+  private int row (double y) {
+    return Math.max (0, Math.min (height - 1, (int) ((y - originY) * scaleY)));
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // triangles
+  // -----------------------------------------------------------------------------------------------
+
+  // the area of the triangle a vertex makes with its neighbors, or infinity for the end of a chain
+  private double area (int v) {
+    int p = prev[v], n = next[v];
+    if ((p < 0) || (n < 0)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return Math.abs (((xs[p] - xs[v]) * (ys[n] - ys[v])) - ((xs[n] - xs[v]) * (ys[p] - ys[v]))) * 0.5;
+  }
+
+  private static double cross (double ax, double ay, double bx, double by, double x, double y) {
+    return ((bx - ax) * (y - ay)) - ((by - ay) * (x - ax));
+  }
+
+  // whether any live vertex other than the corners is in the triangle a vertex makes with its
+  // neighbors, including on its edges
+  private boolean isBlocked (int v) {
+    int p = prev[v], n = next[v];
+    double ax = xs[p], ay = ys[p], bx = xs[v], by = ys[v], cx = xs[n], cy = ys[n];
+    double orientation = cross (ax, ay, bx, by, cx, cy);
+    if (orientation == 0) {
+      // a straight line, nothing can cross the shortcut that doesn't cross the line already
+      return false;
+    }
+    int col0 = column (Math.min (ax, Math.min (bx, cx))), col1 = column (Math.max (ax, Math.max (bx, cx)));
+    int row0 = row (Math.min (ay, Math.min (by, cy))), row1 = row (Math.max (ay, Math.max (by, cy)));
+    for (int r = row0; r <= row1; ++r) {
+      for (int c = col0; c <= col1; ++c) {
+        int cell = (r * width) + c;
+        for (int e = offsets[cell]; e < offsets[cell + 1]; ++e) {
+          int w = entries[e];
+          if (removed[w] || (w == v) || (w == p) || (w == n)) {
+            continue;
+          }
+          double x = xs[w], y = ys[w];
+          if (((x == ax) && (y == ay)) || ((x == bx) && (y == by)) || ((x == cx) && (y == cy))) {
+            // a vertex of another chain touching at a corner
+            continue;
+          }
+          double d0 = cross (ax, ay, bx, by, x, y) * orientation;
+          double d1 = cross (bx, by, cx, cy, x, y) * orientation;
+          double d2 = cross (cx, cy, ax, ay, x, y) * orientation;
+          if ((d0 >= 0) && (d1 >= 0) && (d2 >= 0)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the heap
+  // -----------------------------------------------------------------------------------------------
+
+  private void place (int i, int v) {
+    heap[i] = v;
+    heapPos[v] = i;
+  }
+
+  private void siftUp (int i) {
+    int v = heap[i];
+    double key = keys[v];
+    while (i > 0) {
+      int parent = (i - 1) >> 1;
+      if (keys[heap[parent]] <= key) break;
+      place (i, heap[parent]);
+      i = parent;
+    }
+    place (i, v);
+  }
+
+  private void siftDown (int i) {
+    int v = heap[i];
+    double key = keys[v];
+    while (true) {
+      int child = (2 * i) + 1;
+      if (child >= heapSize) break;
+      if ((child + 1 < heapSize) && (keys[heap[child + 1]] < keys[heap[child]])) ++child;
+      if (keys[heap[child]] >= key) break;
+      place (i, heap[child]);
+      i = child;
+    }
+    place (i, v);
+  }
+
+  private void push (int v) {
+    place (heapSize, v);
+    siftUp (heapSize++);
+  }
+
+  private int pop () {
+    int v = heap[0];
+    heapPos[v] = -1;
+    if (--heapSize > 0) {
+      place (0, heap[heapSize]);
+      siftDown (0);
+    }
+    return v;
+  }
+
+  // put a vertex in the heap with a new area, or move it if it's already there
+  private void update (int v) {
+    keys[v] = area (v);
+    if (heapPos[v] < 0) {
+      push (v);
+    } else {
+      siftUp (heapPos[v]);
+      siftDown (heapPos[v]);
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // removal
+  // -----------------------------------------------------------------------------------------------
+
+  private double[] run () {
+    int count = xs.length;
+    Arrays.fill (importance, Double.POSITIVE_INFINITY);
+    for (int v = 0; v < count; ++v) {
+      keys[v] = area (v);
+      heapPos[v] = -1;
+      if (keys[v] < Double.POSITIVE_INFINITY) {
+        push (v);
+      }
+    }
+
+    double last = 0;
+    while (heapSize > 0) {
+      int v = pop ();
+      int c = chainOf[v];
+      if ((remaining[c] <= minimum[c]) || isBlocked (v)) {
+        // keep it, unless a neighbor changes
+        continue;
+      }
+      last = Math.max (last, keys[v]);
+      importance[v] = last;
+      removed[v] = true;
+      --remaining[c];
+      int p = prev[v], n = next[v];
+      next[p] = n;
+      prev[n] = p;
+      if (area (p) < Double.POSITIVE_INFINITY) {
+        update (p);
+      }
+      if (area (n) < Double.POSITIVE_INFINITY) {
+        update (n);
+      }
+    }
+    return importance;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the interface
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * compute the importance of every vertex of a set of chains, simplified together so they don't
+   * cross each other
+   * @param chains the vertices of each chain, closed chains don't repeat the first vertex
+   * @param closed true if the chains are rings
+   * @return the importance of each vertex of each chain, infinite for the ones that are always kept
+   */
+  public static double[][] importance (List<Tuple[]> chains, boolean closed) {
+    boolean[] closedChains = new boolean[chains.size ()];
+    Arrays.fill (closedChains, closed);
+    return importance (chains, closedChains);
+  }
+
+  /**
+   * compute the importance of every vertex of a set of chains, simplified together so they don't
+   * cross each other, where some of the chains are rings and some aren't
+   * @param chains the vertices of each chain, closed chains don't repeat the first vertex
+   * @param closed true for each chain that is a ring
+   * @return the importance of each vertex of each chain, infinite for the ones that are always kept
+   */
+  public static double[][] importance (List<Tuple[]> chains, boolean[] closed) {
+    double[] flat = new Simplifier (chains, closed).run ();
+    double[][] result = new double[chains.size ()][];
+    for (int c = 0, start = 0; c < chains.size (); ++c) {
+      result[c] = Arrays.copyOfRange (flat, start, start + chains.get (c).length);
+      start += chains.get (c).length;
+    }
+    return result;
+  }
+
+  /**
+   * @param points the vertices of a chain
+   * @param importance the importance of each vertex
+   * @param tolerance the smallest importance to keep
+   * @return the vertices with an importance at or above the tolerance, in order
+   */
+  public static List<Tuple> select (Tuple[] points, double[] importance, double tolerance) {
+    List<Tuple> result = new ArrayList<> ();
+    for (int i = 0; i < points.length; ++i) {
+      if (importance[i] >= tolerance) {
+        result.add (points[i]);
+      }
+    }
+    return result;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // shared borders
+  // -----------------------------------------------------------------------------------------------
+
+  // a vertex position, exact, with negative zero folded into zero
+  private record Position (double x, double y) {
+    Position (Tuple pt) {
+      this (pt.x + 0.0, pt.y + 0.0);
+    }
+  }
+
+  // a key for the undirected edge between two vertices
+  private static long edgeKey (int a, int b) {
+    return ((long) Math.min (a, b) << 32) | Math.max (a, b);
+  }
+
+  /**
+   * compute the importance of every vertex of a set of rings that share borders, like the regions
+   * of a map, so that the rings simplified at any tolerance still share their borders exactly and
+   * don't cross. the rings are joined into a graph on their vertex positions (exact matches), and
+   * cut into arcs at the junctions, the vertices that don't have exactly two neighbors. a ring
+   * that meets the others at only one or two junctions gets more at a third and two thirds of the
+   * way around, so it can't collapse. the arcs are simplified together as open chains, with their
+   * ends always kept, and the rings that meet nothing as closed chains, then each ring takes the
+   * importance of its vertices from the graph.
+   * @param rings the vertices of each ring, not repeating the first vertex
+   * @return the importance of each vertex of each ring, infinite for the ones that are always kept
+   */
+  public static double[][] sharedImportance (List<Tuple[]> rings) {
+    // number the distinct positions, and find the distinct edges between them
+    Map<Position, Integer> ids = new HashMap<> ();
+    List<Tuple> positions = new ArrayList<> ();
+    int[][] ringIds = new int[rings.size ()][];
+    Set<Long> edges = new HashSet<> ();
+    for (int r = 0; r < rings.size (); ++r) {
+      Tuple[] ring = rings.get (r);
+      ringIds[r] = new int[ring.length];
+      for (int i = 0; i < ring.length; ++i) {
+        Integer id = ids.putIfAbsent (new Position (ring[i]), positions.size ());
+        if (id == null) {
+          id = positions.size ();
+          positions.add (ring[i]);
+        }
+        ringIds[r][i] = id;
+      }
+      for (int i = 0; i < ring.length; ++i) {
+        int a = ringIds[r][i], b = ringIds[r][(i + 1) % ring.length];
+        if (a != b) {
+          edges.add (edgeKey (a, b));
+        }
+      }
+    }
+
+    // the neighbors of each position, in CSR layout
+    int count = positions.size ();
+    int[] offsets = new int[count + 1];
+    for (long edge : edges) {
+      ++offsets[(int) (edge >> 32) + 1];
+      ++offsets[(int) edge + 1];
+    }
+    for (int i = 0; i < count; ++i) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] neighbors = new int[offsets[count]];
+    int[] fill = Arrays.copyOf (offsets, count);
+    for (long edge : edges) {
+      int a = (int) (edge >> 32), b = (int) edge;
+      neighbors[fill[a]++] = b;
+      neighbors[fill[b]++] = a;
+    }
+
+    // the junctions, and the extra ones for the rings that meet the others only once or twice
+    boolean[] locked = new boolean[count];
+    for (int i = 0; i < count; ++i) {
+      locked[i] = (offsets[i + 1] - offsets[i]) != 2;
+    }
+    for (int[] ring : ringIds) {
+      int junctions = 0;
+      for (int id : ring) {
+        junctions += locked[id] ? 1 : 0;
+      }
+      if ((junctions > 0) && (junctions < 3)) {
+        for (int k = 0; k < 3; ++k) {
+          locked[ring[(k * ring.length) / 3]] = true;
+        }
+      }
+    }
+
+    // walk the arcs out of every junction, then the rings that are left have no junctions
+    List<int[]> chainIds = new ArrayList<> ();
+    List<Boolean> closed = new ArrayList<> ();
+    Set<Long> walked = new HashSet<> ();
+    for (int j = 0; j < count; ++j) {
+      if (locked[j]) {
+        for (int e = offsets[j]; e < offsets[j + 1]; ++e) {
+          if (walked.add (edgeKey (j, neighbors[e]))) {
+            chainIds.add (walk (j, neighbors[e], offsets, neighbors, locked, walked));
+            closed.add (false);
+          }
+        }
+      }
+    }
+    for (int[] ring : ringIds) {
+      for (int id : ring) {
+        if ((! locked[id]) && (offsets[id + 1] > offsets[id]) && walked.add (edgeKey (id, neighbors[offsets[id]]))) {
+          int[] chain = walk (id, neighbors[offsets[id]], offsets, neighbors, locked, walked);
+          chainIds.add (Arrays.copyOf (chain, chain.length - 1));
+          closed.add (true);
+        }
+      }
+    }
+
+    // simplify the chains together, and give each position the importance of its vertex in them
+    List<Tuple[]> chains = new ArrayList<> (chainIds.size ());
+    boolean[] closedChains = new boolean[chainIds.size ()];
+    for (int c = 0; c < chainIds.size (); ++c) {
+      int[] chain = chainIds.get (c);
+      Tuple[] tuples = new Tuple[chain.length];
+      for (int i = 0; i < chain.length; ++i) {
+        tuples[i] = positions.get (chain[i]);
+      }
+      chains.add (tuples);
+      closedChains[c] = closed.get (c);
+    }
+    double[][] chainImportance = importance (chains, closedChains);
+    double[] positionImportance = new double[count];
+    Arrays.fill (positionImportance, Double.POSITIVE_INFINITY);
+    for (int c = 0; c < chainIds.size (); ++c) {
+      int[] chain = chainIds.get (c);
+      for (int i = 0; i < chain.length; ++i) {
+        if (! locked[chain[i]]) {
+          positionImportance[chain[i]] = chainImportance[c][i];
+        }
+      }
+    }
+
+    double[][] result = new double[ringIds.length][];
+    for (int r = 0; r < ringIds.length; ++r) {
+      result[r] = new double[ringIds[r].length];
+      for (int i = 0; i < ringIds[r].length; ++i) {
+        result[r][i] = positionImportance[ringIds[r][i]];
+      }
+    }
+    return result;
+  }
+
+  // follow the edges from a vertex through its neighbor, and on through the vertices with two
+  // neighbors, to a locked vertex or back to the start, marking the edges as walked
+  private static int[] walk (int start, int first, int[] offsets, int[] neighbors, boolean[] locked, Set<Long> walked) {
+    List<Integer> chain = new ArrayList<> ();
+    chain.add (start);
+    int from = start, at = first;
+    while (true) {
+      chain.add (at);
+      if (locked[at] || (at == start)) {
+        break;
+      }
+      int to = (neighbors[offsets[at]] != from) ? neighbors[offsets[at]] : neighbors[offsets[at] + 1];
+      walked.add (edgeKey (at, to));
+      from = at;
+      at = to;
+    }
+    return chain.stream ().mapToInt (Integer::intValue).toArray ();
+  }
+}
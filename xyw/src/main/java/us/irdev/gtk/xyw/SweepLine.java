@@ -0,0 +1,263 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static us.irdev.gtk.xyw.Numerics.TOLERANCE;
+
+/**
+ * A sweep-line engine for finding all the intersections in a set of segments (or between two sets
+ * of segments). a vertical line sweeps across the segments from left to right, and the segments
+ * whose x-extent currently spans the line are kept in an interval tree keyed on their y-extent.
+ * when a segment is reached, only the active segments whose y-extents overlap it are tested with
+ * Segment.intersect, so the cost is O(n log n) plus the number of pairs with overlapping bounding
+ * boxes, rather than the O(n^2) of testing every pair.
+ */
+public class SweepLine {
+  /**
+   * an interface for receiving intersections
+   */
+  public interface Handler {
+    /**
+     * @param a the index of the first segment
+     * @param b the index of the second segment
+     * @param pt the point where the segments intersect
+     */
+    void intersection (int a, int b, Tuple pt);
+  }
+
+  /**
+   * an interface for receiving candidate pairs of segments with overlapping bounding boxes
+   */
+  public interface PairHandler {
+    /**
+     * @param a the index of the segment that was reached first in the sweep
+     * @param b the index of the segment that was reached second
+     * @return true to continue the sweep, false to stop it
+     */
+    boolean pair (int a, int b);
+  }
+
+  private final List<Segment> segments;
+  private final double[] minX, minY, maxX, maxY;
+
+  // the interval tree of active segments, a treap keyed on (minY, index) with the maximum maxY
+  // of each subtree, stored in arrays indexed by segment
+  private final int[] left, right, priority;
+  private final double[] subtreeMaxY;
+  private int root = -1;
+
+  private SweepLine (List<Segment> segments) {
+    this.segments = segments;
+    int count = segments.size ();
+    minX = new double[count];
+    minY = new double[count];
+    maxX = new double[count];
+    maxY = new double[count];
+    left = new int[count];
+    right = new int[count];
+    priority = new int[count];
+    subtreeMaxY = new double[count];
+
+    // compute the bounding boxes, padded relative to the magnitude of the coordinates so that
+    // segments that only touch within numerical tolerance are still tested
+    double magnitude = 0;
+    for (Segment segment : segments) {
+      magnitude = Math.max (magnitude, Math.max (Math.max (Math.abs (segment.a.x), Math.abs (segment.a.y)), Math.max (Math.abs (segment.b.x), Math.abs (segment.b.y))));
+    }
+    double pad = TOLERANCE * (1 + magnitude);
+    Random random = new Random (count);
+    for (int i = 0; i < count; ++i) {
+      Segment segment = segments.get (i);
+      minX[i] = Math.min (segment.a.x, segment.b.x) - pad;
+      minY[i] = Math.min (segment.a.y, segment.b.y) - pad;
+      maxX[i] = Math.max (segment.a.x, segment.b.x) + pad;
+      maxY[i] = Math.max (segment.a.y, segment.b.y) + pad;
+      priority[i] = random.nextInt ();
+    }
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the interval treap
+  // -----------------------------------------------------------------------------------------------
+
+  private boolean less (int a, int b) {
+    return (minY[a] < minY[b]) || ((minY[a] == minY[b]) && (a < b));
+  }
+
+  private int update (int node) {
+    double max = maxY[node];
+    if (left[node] >= 0) max = Math.max (max, subtreeMaxY[left[node]]);
+    if (right[node] >= 0) max = Math.max (max, subtreeMaxY[right[node]]);
+    subtreeMaxY[node] = max;
+    return node;
+  }
+
+  private int insert (int node, int item) {
+    if (node < 0) {
+      left[item] = right[item] = -1;
+      return update (item);
+    }
+    if (less (item, node)) {
+      left[node] = insert (left[node], item);
+      if (priority[left[node]] > priority[node]) {
+        // rotate right
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = update (node);
+        return update (pivot);
+      }
+    } else {
+      right[node] = insert (right[node], item);
+      if (priority[right[node]] > priority[node]) {
+        // rotate left
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = update (node);
+        return update (pivot);
+      }
+    }
+    return update (node);
+  }
+
+  private int merge (int a, int b) {
+    if (a < 0) return b;
+    if (b < 0) return a;
+    if (priority[a] > priority[b]) {
+      right[a] = merge (right[a], b);
+      return update (a);
+    }
+    left[b] = merge (a, left[b]);
+    return update (b);
+  }
+
+  private int remove (int node, int item) {
+    if (node == item) {
+      return merge (left[node], right[node]);
+    }
+    if (less (item, node)) {
+      left[node] = remove (left[node], item);
+    } else {
+      right[node] = remove (right[node], item);
+    }
+    return update (node);
+  }
+
+  /**
+   * report every active segment whose y-extent overlaps the y-extent of the item
+   * @return false if the handler asked to stop
+   */
+  private boolean query (int node, int item, PairHandler handler) {
+    if ((node < 0) || (subtreeMaxY[node] < minY[item])) {
+      return true;
+    }
+    if (! query (left[node], item, handler)) {
+      return false;
+    }
+    if (minY[node] > maxY[item]) {
+      // everything to the right starts even higher
+      return true;
+    }
+    if ((maxY[node] >= minY[item]) && (! handler.pair (node, item))) {
+      return false;
+    }
+    return query (right[node], item, handler);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the sweep
+  // -----------------------------------------------------------------------------------------------
+
+  private void sweep (PairHandler handler) {
+    int count = segments.size ();
+    int[] byMinX = IntStream.range (0, count).boxed ().sorted (Comparator.comparingDouble (i -> minX[i])).mapToInt (i -> i).toArray ();
+    int[] byMaxX = IntStream.range (0, count).boxed ().sorted (Comparator.comparingDouble (i -> maxX[i])).mapToInt (i -> i).toArray ();
+    for (int i = 0, j = 0; i < count; ++i) {
+      int item = byMinX[i];
+
+      // retire the segments the sweep line has passed, anything with maxX < minX of the new item
+      // was necessarily inserted already
+      for (; (j < count) && (maxX[byMaxX[j]] < minX[item]); ++j) {
+        root = remove (root, byMaxX[j]);
+      }
+
+      // test the new segment against the active segments, then make it active
+      if (! query (root, item, handler)) {
+        return;
+      }
+      root = insert (root, item);
+    }
+  }
+
+  /**
+   * find the pairs of segments with overlapping bounding boxes (padded by a small tolerance)
+   * @param segments the segments to sweep
+   * @param handler receives each candidate pair once, and may stop the sweep early
+   */
+  public static void candidates (List<Segment> segments, PairHandler handler) {
+    new SweepLine (segments).sweep (handler);
+  }
+
+  /**
+   * find the intersections between the segments in a set, skipping pairs of segments that share an
+   * endpoint and only meet at that endpoint (like consecutive segments in a polyline or polygon)
+   * @param segments the segments to test
+   * @param handler receives the indices of the two segments (in ascending order) and the
+   *                intersection point, in the order the sweep finds them
+   */
+  public static void intersections (List<Segment> segments, Handler handler) {
+    candidates (segments, (a, b) -> {
+      Segment sa = segments.get (Math.min (a, b)), sb = segments.get (Math.max (a, b));
+      Tuple pt = Segment.intersect (sa, sb);
+      if ((pt != null) && (! shareEndpoint (sa, sb))) {
+        handler.intersection (Math.min (a, b), Math.max (a, b), pt);
+      }
+      return true;
+    });
+  }
+
+  /**
+   * find the intersections between the segments in two sets
+   * @param a the first set of segments
+   * @param b the second set of segments
+   * @param handler receives the index of the segment in a, the index of the segment in b, and the
+   *                intersection point, in the order the sweep finds them
+   */
+  public static void intersections (List<Segment> a, List<Segment> b, Handler handler) {
+    List<Segment> all = new ArrayList<>(a.size () + b.size ());
+    all.addAll (a);
+    all.addAll (b);
+    int split = a.size ();
+    candidates (all, (i, j) -> {
+      // only pairs with one segment from each set are interesting
+      if ((i < split) != (j < split)) {
+        int ia = Math.min (i, j), ib = Math.max (i, j) - split;
+        Tuple pt = Segment.intersect (a.get (ia), b.get (ib));
+        if (pt != null) {
+          handler.intersection (ia, ib, pt);
+        }
+      }
+      return true;
+    });
+  }
+
+  /**
+   * segments that share an endpoint and aren't collinear can only meet at that endpoint (the
+   * computed intersection may drift from it when the segments are nearly parallel, so the point
+   * itself isn't compared)
+   * @return true if the segments share an endpoint
+   */
+  static boolean shareEndpoint (Segment a, Segment b) {
+    for (Tuple ea : new Tuple[] { a.a, a.b }) {
+      for (Tuple eb : new Tuple[] { b.a, b.b }) {
+        if (Tuple.similar (ea, eb)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
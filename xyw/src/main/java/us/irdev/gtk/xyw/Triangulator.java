@@ -0,0 +1,643 @@
+package us.irdev.gtk.xyw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ear clipping triangulation of polygons with holes, after the approach of mapbox's earcut. each
+ * hole is first joined to the boundary with a bridge (a pair of coincident edges) from its leftmost
+ * vertex, leaving a single ring that is then clipped one ear at a time. for large rings the
+ * vertices are linked in z-order as well, so the check that no other vertex is inside a candidate
+ * ear only looks at the vertices near it, which makes the whole thing about O(n log n).
+ *
+ * the rings are cleaned up as they go: repeated vertices, and vertices on a straight line between
+ * their neighbors, are dropped. if the clipping gets stuck on a ring that isn't simple, it fixes
+ * small self intersections, and then splits the ring along a valid diagonal and carries on with the
+ * two halves, so it always finishes with whatever triangles it could find.
+ *
+ * the triangles are given as a flat array of vertex indices, three per triangle, counterclockwise.
+ */
+public class Triangulator {
+  /**
+   * a triangulation
+   * @param coordinates the vertices, as interleaved x and y coordinates
+   * @param triangles the indices of the vertices of each triangle, three per triangle
+   */
+  public record Mesh (double[] coordinates, int[] triangles) {
+    public int triangleCount () {
+      return triangles.length / 3;
+    }
+
+    /**
+     * @return the total area of the triangles
+     */
+    public double area () {
+      double area = 0;
+      for (int t = 0; t < triangles.length; t += 3) {
+        int a = triangles[t] * 2, b = triangles[t + 1] * 2, c = triangles[t + 2] * 2;
+        area += ((coordinates[b] - coordinates[a]) * (coordinates[c + 1] - coordinates[a + 1])) -
+                ((coordinates[c] - coordinates[a]) * (coordinates[b + 1] - coordinates[a + 1]));
+      }
+      return area * 0.5;
+    }
+  }
+
+  // a vertex in a ring, with its neighbors in the ring and in z-order
+  private static class Node {
+    final int i;
+    final double x, y;
+    Node prev, next;
+    int z;
+    Node prevZ, nextZ;
+    boolean steiner;
+
+    Node (int i, double x, double y) {
+      this.i = i;
+      this.x = x;
+      this.y = y;
+    }
+  }
+
+  // rings with more vertices than this are hashed in z-order
+  private static final int HASH_THRESHOLD = 80;
+
+  // the triangles found so far, three indices each
+  private int[] triangles = new int[48];
+  private int size;
+  private double minX, minY, invSize;
+
+  private Triangulator () {
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // the interface
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * triangulate a polygon with holes, packed into one array
+   * @param coordinates the vertices of the boundary, then of each hole, as interleaved x and y
+   *                    coordinates. the rings don't need to repeat their first vertex, and can go
+   *                    either way around.
+   * @param holeStarts the index of the first vertex of each hole
+   * @return the indices of the vertices of the triangles, three per triangle
+   */
+  public static int[] triangulate (double[] coordinates, int[] holeStarts) {
+    return new Triangulator ().run (coordinates, holeStarts);
+  }
+
+  /**
+   * triangulate a polygon with holes
+   * @param rings the boundary, then the holes
+   * @return the packed vertices of the rings and the triangles over them
+   */
+  public static Mesh triangulate (List<Polygon> rings) {
+    int count = 0;
+    for (Polygon ring : rings) {
+      count += ring.segments.length;
+    }
+    double[] coordinates = new double[count * 2];
+    int[] holeStarts = new int[Math.max (0, rings.size () - 1)];
+    int vertex = 0;
+    for (int r = 0; r < rings.size (); ++r) {
+      if (r > 0) {
+        holeStarts[r - 1] = vertex;
+      }
+      for (Segment segment : rings.get (r).segments.segments) {
+        coordinates[vertex * 2] = segment.a.x;
+        coordinates[(vertex * 2) + 1] = segment.a.y;
+        ++vertex;
+      }
+    }
+    return new Mesh (coordinates, triangulate (coordinates, holeStarts));
+  }
+
+  private int[] run (double[] coordinates, int[] holeStarts) {
+    int outerLength = (holeStarts.length > 0) ? holeStarts[0] * 2 : coordinates.length;
+    Node outer = linkedList (coordinates, 0, outerLength, true);
+    if ((outer == null) || (outer.next == outer.prev)) {
+      return new int[0];
+    }
+    if (holeStarts.length > 0) {
+      outer = eliminateHoles (coordinates, holeStarts, outer);
+    }
+
+    // hash large rings in z-order over the bounds of the boundary
+    if (coordinates.length > HASH_THRESHOLD * 2) {
+      minX = Double.POSITIVE_INFINITY;
+      minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < outerLength; i += 2) {
+        minX = Math.min (minX, coordinates[i]);
+        minY = Math.min (minY, coordinates[i + 1]);
+        maxX = Math.max (maxX, coordinates[i]);
+        maxY = Math.max (maxY, coordinates[i + 1]);
+      }
+      invSize = Math.max (maxX - minX, maxY - minY);
+      invSize = (invSize != 0) ? 32767 / invSize : 0;
+    }
+
+    earcutLinked (outer, 0);
+    return Arrays.copyOf (triangles, size);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // rings
+  // -----------------------------------------------------------------------------------------------
+
+  // twice the signed area of a triangle, negative when a, b, c turn left (counterclockwise)
+  private static double area (Node a, Node b, Node c) {
+    return ((b.y - a.y) * (c.x - b.x)) - ((b.x - a.x) * (c.y - b.y));
+  }
+
+  private static boolean equals (Node a, Node b) {
+    return (a.x == b.x) && (a.y == b.y);
+  }
+
+  private static Node insertNode (int i, double x, double y, Node last) {
+    Node node = new Node (i, x, y);
+    if (last == null) {
+      node.prev = node;
+      node.next = node;
+    } else {
+      node.next = last.next;
+      node.prev = last;
+      last.next.prev = node;
+      last.next = node;
+    }
+    return node;
+  }
+
+  private static void removeNode (Node node) {
+    node.next.prev = node.prev;
+    node.prev.next = node.next;
+    if (node.prevZ != null) {
+      node.prevZ.nextZ = node.nextZ;
+    }
+    if (node.nextZ != null) {
+      node.nextZ.prevZ = node.prevZ;
+    }
+  }
+
+  // link the vertices from start to end (coordinate offsets) into a ring, counterclockwise for the
+  // boundary and clockwise for a hole
+  private static Node linkedList (double[] coordinates, int start, int end, boolean boundary) {
+    double sum = 0;
+    for (int i = start, j = end - 2; i < end; j = i, i += 2) {
+      sum += (coordinates[j] - coordinates[i]) * (coordinates[i + 1] + coordinates[j + 1]);
+    }
+    Node last = null;
+    if (boundary == (sum > 0)) {
+      for (int i = start; i < end; i += 2) {
+        last = insertNode (i / 2, coordinates[i], coordinates[i + 1], last);
+      }
+    } else {
+      for (int i = end - 2; i >= start; i -= 2) {
+        last = insertNode (i / 2, coordinates[i], coordinates[i + 1], last);
+      }
+    }
+    if ((last != null) && equals (last, last.next)) {
+      removeNode (last);
+      last = last.next;
+    }
+    return last;
+  }
+
+  // drop repeated and collinear vertices from a ring, from start until end
+  private static Node filterPoints (Node start, Node end) {
+    if (start == null) {
+      return null;
+    }
+    if (end == null) {
+      end = start;
+    }
+    Node p = start;
+    boolean again;
+    do {
+      again = false;
+      if ((! p.steiner) && (equals (p, p.next) || (area (p.prev, p, p.next) == 0))) {
+        removeNode (p);
+        p = end = p.prev;
+        if (p == p.next) {
+          break;
+        }
+        again = true;
+      } else {
+        p = p.next;
+      }
+    } while (again || (p != end));
+    return end;
+  }
+
+  // split a ring in two along the diagonal from a to b, returning the copy of b in the second ring
+  private static Node splitPolygon (Node a, Node b) {
+    Node a2 = new Node (a.i, a.x, a.y);
+    Node b2 = new Node (b.i, b.x, b.y);
+    Node an = a.next;
+    Node bp = b.prev;
+    a.next = b;
+    b.prev = a;
+    a2.next = an;
+    an.prev = a2;
+    b2.next = a2;
+    a2.prev = b2;
+    bp.next = b2;
+    b2.prev = bp;
+    return b2;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // holes
+  // -----------------------------------------------------------------------------------------------
+
+  private static Node eliminateHoles (double[] coordinates, int[] holeStarts, Node outer) {
+    List<Node> queue = new ArrayList<> ();
+    for (int h = 0; h < holeStarts.length; ++h) {
+      int start = holeStarts[h] * 2;
+      int end = (h < holeStarts.length - 1) ? holeStarts[h + 1] * 2 : coordinates.length;
+      Node list = linkedList (coordinates, start, end, false);
+      if (list == null) {
+        continue;
+      }
+      if (list == list.next) {
+        list.steiner = true;
+      }
+      queue.add (leftmost (list));
+    }
+
+    // bridge the holes from left to right, so each bridge can't cross a hole that isn't joined yet
+    queue.sort ((a, b) -> Double.compare (a.x, b.x));
+    for (Node hole : queue) {
+      outer = eliminateHole (hole, outer);
+    }
+    return outer;
+  }
+
+  private static Node leftmost (Node start) {
+    Node p = start, leftmost = start;
+    do {
+      if ((p.x < leftmost.x) || ((p.x == leftmost.x) && (p.y < leftmost.y))) {
+        leftmost = p;
+      }
+      p = p.next;
+    } while (p != start);
+    return leftmost;
+  }
+
+  private static Node eliminateHole (Node hole, Node outer) {
+    Node bridge = findHoleBridge (hole, outer);
+    if (bridge == null) {
+      return outer;
+    }
+    Node bridgeReverse = splitPolygon (bridge, hole);
+    filterPoints (bridgeReverse, bridgeReverse.next);
+    return filterPoints (bridge, bridge.next);
+  }
+
+  // find a vertex of the ring that can be joined to the leftmost vertex of a hole without crossing
+  // anything (David Eberly's algorithm)
+  private static Node findHoleBridge (Node hole, Node outer) {
+    Node p = outer;
+    double hx = hole.x, hy = hole.y, qx = Double.NEGATIVE_INFINITY;
+    Node m = null;
+
+    // find the segment left of the hole that is closest along the ray to the left, and the end of
+    // it farther to the right
+    do {
+      if ((hy <= p.y) && (hy >= p.next.y) && (p.next.y != p.y)) {
+        double x = p.x + (((hy - p.y) * (p.next.x - p.x)) / (p.next.y - p.y));
+        if ((x <= hx) && (x > qx)) {
+          qx = x;
+          m = (p.x < p.next.x) ? p : p.next;
+          if (x == hx) {
+            // the hole touches the ring
+            return m;
+          }
+        }
+      }
+      p = p.next;
+    } while (p != outer);
+    if (m == null) {
+      return null;
+    }
+
+    // look for vertices inside the triangle of the hole vertex, the ray hit, and that end point. if
+    // there are any, take the one with the smallest angle to the ray instead.
+    Node stop = m;
+    double mx = m.x, my = m.y, tanMin = Double.POSITIVE_INFINITY;
+    p = m;
+    do {
+      if ((hx >= p.x) && (p.x >= mx) && (hx != p.x) &&
+              pointInTriangle ((hy < my) ? hx : qx, hy, mx, my, (hy < my) ? qx : hx, hy, p.x, p.y)) {
+        double tan = Math.abs (hy - p.y) / (hx - p.x);
+        if (locallyInside (p, hole) &&
+                ((tan < tanMin) || ((tan == tanMin) && ((p.x > m.x) || ((p.x == m.x) && sectorContainsSector (m, p)))))) {
+          m = p;
+          tanMin = tan;
+        }
+      }
+      p = p.next;
+    } while (p != stop);
+    return m;
+  }
+
+  // whether the sector of vertex p is inside the sector of vertex m, where they are the same point
+  private static boolean sectorContainsSector (Node m, Node p) {
+    return (area (m.prev, m, p.prev) < 0) && (area (p.next, m, m.next) < 0);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // z-order
+  // -----------------------------------------------------------------------------------------------
+
+  // interleave the bits of the coordinates, scaled to 15 bits over the bounds
+  private int zOrder (double px, double py) {
+    int x = (int) ((px - minX) * invSize);
+    int y = (int) ((py - minY) * invSize);
+    x = (x | (x << 8)) & 0x00ff00ff;
+    x = (x | (x << 4)) & 0x0f0f0f0f;
+    x = (x | (x << 2)) & 0x33333333;
+    x = (x | (x << 1)) & 0x55555555;
+    y = (y | (y << 8)) & 0x00ff00ff;
+    y = (y | (y << 4)) & 0x0f0f0f0f;
+    y = (y | (y << 2)) & 0x33333333;
+    y = (y | (y << 1)) & 0x55555555;
+    return x | (y << 1);
+  }
+
+  private void indexCurve (Node start) {
+    Node p = start;
+    do {
+      if (p.z == 0) {
+        p.z = zOrder (p.x, p.y);
+      }
+      p.prevZ = p.prev;
+      p.nextZ = p.next;
+      p = p.next;
+    } while (p != start);
+    p.prevZ.nextZ = null;
+    p.prevZ = null;
+    sortLinked (p);
+  }
+
+  // merge sort the z-order links (Simon Tatham's linked list merge sort)
+  private static Node sortLinked (Node list) {
+    int inSize = 1;
+    int merges;
+    do {
+      Node p = list, tail = null;
+      list = null;
+      merges = 0;
+      while (p != null) {
+        ++merges;
+        Node q = p;
+        int pSize = 0;
+        for (int i = 0; i < inSize; ++i) {
+          ++pSize;
+          q = q.nextZ;
+          if (q == null) {
+            break;
+          }
+        }
+        int qSize = inSize;
+        while ((pSize > 0) || ((qSize > 0) && (q != null))) {
+          Node e;
+          if ((pSize != 0) && ((qSize == 0) || (q == null) || (p.z <= q.z))) {
+            e = p;
+            p = p.nextZ;
+            --pSize;
+          } else {
+            e = q;
+            q = q.nextZ;
+            --qSize;
+          }
+          if (tail != null) {
+            tail.nextZ = e;
+          } else {
+            list = e;
+          }
+          e.prevZ = tail;
+          tail = e;
+        }
+        p = q;
+      }
+      tail.nextZ = null;
+      inSize *= 2;
+    } while (merges > 1);
+    return list;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // ears
+  // -----------------------------------------------------------------------------------------------
+
+  private void emit (Node a, Node b, Node c) {
+    if (size + 3 > triangles.length) {
+      triangles = Arrays.copyOf (triangles, triangles.length * 2);
+    }
+    triangles[size++] = a.i;
+    triangles[size++] = b.i;
+    triangles[size++] = c.i;
+  }
+
+  private void earcutLinked (Node ear, int pass) {
+    if (ear == null) {
+      return;
+    }
+    if ((pass == 0) && (invSize != 0)) {
+      indexCurve (ear);
+    }
+    Node stop = ear;
+    while (ear.prev != ear.next) {
+      Node prev = ear.prev, next = ear.next;
+      if ((invSize != 0) ? isEarHashed (ear) : isEar (ear)) {
+        emit (prev, ear, next);
+        removeNode (ear);
+
+        // skipping the next vertex leads to fewer sliver triangles
+        ear = next.next;
+        stop = next.next;
+        continue;
+      }
+      ear = next;
+
+      // went all the way around without finding an ear
+      if (ear == stop) {
+        if (pass == 0) {
+          // try again after filtering the points
+          earcutLinked (filterPoints (ear, null), 1);
+        } else if (pass == 1) {
+          // fix small self intersections
+          earcutLinked (cureLocalIntersections (filterPoints (ear, null)), 2);
+        } else {
+          // split the ring in two, and handle each half
+          splitEarcut (ear);
+        }
+        break;
+      }
+    }
+  }
+
+  private static boolean pointInTriangle (double ax, double ay, double bx, double by, double cx, double cy, double px, double py) {
+    return (((cx - px) * (ay - py)) >= ((ax - px) * (cy - py))) &&
+            (((ax - px) * (by - py)) >= ((bx - px) * (ay - py))) &&
+            (((bx - px) * (cy - py)) >= ((cx - px) * (by - py)));
+  }
+
+  // whether a vertex is an ear: convex, with no reflex vertex inside its triangle
+  private static boolean isEar (Node ear) {
+    Node a = ear.prev, b = ear, c = ear.next;
+    if (area (a, b, c) >= 0) {
+      return false;
+    }
+    double x0 = Math.min (a.x, Math.min (b.x, c.x)), y0 = Math.min (a.y, Math.min (b.y, c.y));
+    double x1 = Math.max (a.x, Math.max (b.x, c.x)), y1 = Math.max (a.y, Math.max (b.y, c.y));
+    for (Node p = c.next; p != a; p = p.next) {
+      if (blocks (p, a, b, c, x0, y0, x1, y1)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean blocks (Node p, Node a, Node b, Node c, double x0, double y0, double x1, double y1) {
+    return (p.x >= x0) && (p.x <= x1) && (p.y >= y0) && (p.y <= y1) && (p != a) && (p != c) &&
+            pointInTriangle (a.x, a.y, b.x, b.y, c.x, c.y, p.x, p.y) && (area (p.prev, p, p.next) >= 0);
+  }
+
+  // the same as isEar, but only looking at the vertices in the z-order range of the triangle
+  private boolean isEarHashed (Node ear) {
+    Node a = ear.prev, b = ear, c = ear.next;
+    if (area (a, b, c) >= 0) {
+      return false;
+    }
+    double x0 = Math.min (a.x, Math.min (b.x, c.x)), y0 = Math.min (a.y, Math.min (b.y, c.y));
+    double x1 = Math.max (a.x, Math.max (b.x, c.x)), y1 = Math.max (a.y, Math.max (b.y, c.y));
+    int minZ = zOrder (x0, y0), maxZ = zOrder (x1, y1);
+
+    // look both ways along the z-order at once, then finish whichever side is left
+    Node p = ear.prevZ, n = ear.nextZ;
+    while ((p != null) && (p.z >= minZ) && (n != null) && (n.z <= maxZ)) {
+      if (blocks (p, a, b, c, x0, y0, x1, y1)) {
+        return false;
+      }
+      p = p.prevZ;
+      if (blocks (n, a, b, c, x0, y0, x1, y1)) {
+        return false;
+      }
+      n = n.nextZ;
+    }
+    while ((p != null) && (p.z >= minZ)) {
+      if (blocks (p, a, b, c, x0, y0, x1, y1)) {
+        return false;
+      }
+      p = p.prevZ;
+    }
+    while ((n != null) && (n.z <= maxZ)) {
+      if (blocks (n, a, b, c, x0, y0, x1, y1)) {
+        return false;
+      }
+      n = n.nextZ;
+    }
+    return true;
+  }
+
+  // go through the ring and clip out the small loops where two edges a vertex apart cross
+  private Node cureLocalIntersections (Node start) {
+    Node p = start;
+    do {
+      Node a = p.prev, b = p.next.next;
+      if ((! equals (a, b)) && intersects (a, p, p.next, b) && locallyInside (a, b) && locallyInside (b, a)) {
+        emit (a, p, b);
+        removeNode (p);
+        removeNode (p.next);
+        p = start = b;
+      }
+      p = p.next;
+    } while (p != start);
+    return filterPoints (p, null);
+  }
+
+  // find a valid diagonal that divides the ring in two, and triangulate the halves separately
+  private void splitEarcut (Node start) {
+    Node a = start;
+    do {
+      for (Node b = a.next.next; b != a.prev; b = b.next) {
+        if ((a.i != b.i) && isValidDiagonal (a, b)) {
+          Node c = splitPolygon (a, b);
+          a = filterPoints (a, a.next);
+          c = filterPoints (c, c.next);
+          earcutLinked (a, 0);
+          earcutLinked (c, 0);
+          return;
+        }
+      }
+      a = a.next;
+    } while (a != start);
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // diagonals
+  // -----------------------------------------------------------------------------------------------
+
+  private static int sign (double value) {
+    return (value > 0) ? 1 : (value < 0) ? -1 : 0;
+  }
+
+  // whether q is in the bounds of the segment from p to r, for collinear points
+  private static boolean onSegment (Node p, Node q, Node r) {
+    return (q.x <= Math.max (p.x, r.x)) && (q.x >= Math.min (p.x, r.x)) && (q.y <= Math.max (p.y, r.y)) && (q.y >= Math.min (p.y, r.y));
+  }
+
+  private static boolean intersects (Node p1, Node q1, Node p2, Node q2) {
+    int o1 = sign (area (p1, q1, p2));
+    int o2 = sign (area (p1, q1, q2));
+    int o3 = sign (area (p2, q2, p1));
+    int o4 = sign (area (p2, q2, q1));
+    return ((o1 != o2) && (o3 != o4)) ||
+            ((o1 == 0) && onSegment (p1, p2, q1)) ||
+            ((o2 == 0) && onSegment (p1, q2, q1)) ||
+            ((o3 == 0) && onSegment (p2, p1, q2)) ||
+            ((o4 == 0) && onSegment (p2, q1, q2));
+  }
+
+  // whether the diagonal from a to b crosses any edge of the ring
+  private static boolean intersectsPolygon (Node a, Node b) {
+    Node p = a;
+    do {
+      if ((p.i != a.i) && (p.next.i != a.i) && (p.i != b.i) && (p.next.i != b.i) && intersects (p, p.next, a, b)) {
+        return true;
+      }
+      p = p.next;
+    } while (p != a);
+    return false;
+  }
+
+  // whether the diagonal from a to b starts into the inside of the ring at a
+  private static boolean locallyInside (Node a, Node b) {
+    return (area (a.prev, a, a.next) < 0) ?
+            ((area (a, b, a.next) >= 0) && (area (a, a.prev, b) >= 0)) :
+            ((area (a, b, a.prev) < 0) || (area (a, a.next, b) < 0));
+  }
+
+  // whether the middle of the diagonal from a to b is inside the ring
+  private static boolean middleInside (Node a, Node b) {
+    Node p = a;
+    boolean inside = false;
+    double px = (a.x + b.x) / 2, py = (a.y + b.y) / 2;
+    do {
+      if (((p.y > py) != (p.next.y > py)) && (p.next.y != p.y) && (px < ((((p.next.x - p.x) * (py - p.y)) / (p.next.y - p.y)) + p.x))) {
+        inside = ! inside;
+      }
+      p = p.next;
+    } while (p != a);
+    return inside;
+  }
+
+  private static boolean isValidDiagonal (Node a, Node b) {
+    return (a.next.i != b.i) && (a.prev.i != b.i) && (! intersectsPolygon (a, b)) &&
+            ((locallyInside (a, b) && locallyInside (b, a) && middleInside (a, b) &&
+                    ((area (a.prev, a, b.prev) != 0) || (area (a, b.prev, b) != 0))) ||
+             (equals (a, b) && (area (a.prev, a, a.next) > 0) && (area (b.prev, b, b.next) > 0)));
+  }
+}
@@ -0,0 +1,266 @@
+package us.irdev.gtk.xyw.db;
+
+import us.irdev.gtk.xyw.Domain;
+import us.irdev.gtk.xyw.SampledFunction;
+import us.irdev.gtk.xyw.Tuple;
+import us.irdev.gtk.xyw.bb.BoundaryBehavior;
+import us.irdev.gtk.xyw.samples.Samples;
+import us.irdev.gtk.xyw.samples.SamplesDouble;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static java.lang.Double.parseDouble;
+
+/**
+ * a streaming reader for (x, y, value) columns in a delimited file (like CSV), that writes the
+ * samples straight into a SampledFunction one line at a time, without building a table or rows in
+ * between. the format follows the Table reader: comment lines are skipped, the first line is the
+ * column names, quoted fields are allowed, and lines that are missing a value or can't be parsed
+ * are skipped.
+ */
+public class RowStream {
+  /**
+   * the layout of a sample grid, as inferred from a scan of the file
+   */
+  public record Layout (Domain domain, Tuple interval) {}
+
+  private final char delimiter;
+  private final char comment;
+  private final String xName, yName, valueName;
+
+  /**
+   * constructor
+   * @param delimiter the character used to delimit fields in the row format (e.g. ',' or '\t')
+   * @param comment the character used to precede a comment line
+   * @param xName name of the column for the x-value for each row
+   * @param yName name of the column for the y-value for each row
+   * @param valueName name of the column for the sample-value for each row
+   */
+  public RowStream (char delimiter, char comment, String xName, String yName, String valueName) {
+    this.delimiter = delimiter;
+    this.comment = comment;
+    this.xName = xName;
+    this.yName = yName;
+    this.valueName = valueName;
+  }
+
+  /**
+   * constructor - for Comma-Separated Values (CSV) with '#' comments
+   */
+  public RowStream (String xName, String yName, String valueName) {
+    this (',', '#', xName, yName, valueName);
+  }
+
+  /**
+   * an interface for receiving each row as it's read
+   */
+  private interface RowConsumer {
+    void accept (double x, double y, double value);
+  }
+
+  /**
+   * @return whether a line is blank or a comment
+   */
+  private boolean skip (String line) {
+    String trimmed = line.strip ();
+    return trimmed.isEmpty () || (trimmed.charAt (0) == comment);
+  }
+
+  /**
+   * split a line into fields, honoring quotes
+   * @param line the line to split
+   * @param fields an array to receive the fields, or null to just count them
+   * @param wanted the indices of the fields to extract, in ascending order (only used with fields)
+   * @return the number of fields in the line
+   */
+  private int split (String line, String[] fields, int[] wanted) {
+    int field = 0, start = 0, next = 0;
+    boolean quoted = false;
+    for (int i = 0, length = line.length (); i <= length; ++i) {
+      char c = (i < length) ? line.charAt (i) : delimiter;
+      if (c == '"') {
+        quoted = !quoted;
+      } else if ((c == delimiter) && (!quoted)) {
+        if ((fields != null) && (next < wanted.length) && (wanted[next] == field)) {
+          fields[next++] = unquote (line.substring (start, i));
+        }
+        ++field;
+        start = i + 1;
+      }
+    }
+    return field;
+  }
+
+  private static String unquote (String field) {
+    String trimmed = field.strip ();
+    return ((trimmed.length () >= 2) && (trimmed.charAt (0) == '"') && (trimmed.charAt (trimmed.length () - 1) == '"'))
+            ? trimmed.substring (1, trimmed.length () - 1)
+            : trimmed;
+  }
+
+  /**
+   * read the rows from a reader, passing each valid one to the consumer
+   * @return the number of rows passed to the consumer
+   */
+  private long read (Reader reader, RowConsumer consumer) throws IOException {
+    BufferedReader lines = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader (reader, 1 << 16);
+
+    // find the titles line, and the columns we want
+    String line;
+    while (((line = lines.readLine ()) != null) && skip (line));
+    if (line == null) {
+      throw new IOException ("no column names found");
+    }
+    int titleCount = split (line, null, null);
+    int[] all = new int[titleCount];
+    for (int i = 0; i < titleCount; ++i) {
+      all[i] = i;
+    }
+    String[] titles = new String[titleCount];
+    split (line, titles, all);
+    int x = -1, y = -1, value = -1;
+    for (int i = 0; i < titleCount; ++i) {
+      if (titles[i].equals (xName)) x = i;
+      if (titles[i].equals (yName)) y = i;
+      if (titles[i].equals (valueName)) value = i;
+    }
+    if ((x < 0) || (y < 0) || (value < 0)) {
+      throw new IOException ("missing column(s), looking for: " + xName + ", " + yName + ", " + valueName);
+    }
+
+    // the columns have to be extracted in order, so sort them and remember where each one went
+    int[] wanted = { x, y, value };
+    Arrays.sort (wanted);
+    int xAt = Arrays.binarySearch (wanted, x), yAt = Arrays.binarySearch (wanted, y), valueAt = Arrays.binarySearch (wanted, value);
+
+    // stream the rows
+    long count = 0;
+    String[] fields = new String[3];
+    while ((line = lines.readLine ()) != null) {
+      if (!skip (line)) {
+        Arrays.fill (fields, null);
+        split (line, fields, wanted);
+        try {
+          if ((fields[0] != null) && (fields[1] != null) && (fields[2] != null)) {
+            consumer.accept (parseDouble (fields[xAt]), parseDouble (fields[yAt]), parseDouble (fields[valueAt]));
+            ++count;
+          }
+        } catch (NumberFormatException ignored) {}
+      }
+    }
+    return count;
+  }
+
+  /**
+   * read the rows into a preallocated sampled function. rows that don't fall on the sample grid of
+   * the function are skipped.
+   * @param reader the delimited input
+   * @param function the function to put the samples into
+   * @return the number of samples put into the function
+   * @throws IOException if the input can't be read, or doesn't have the named columns
+   */
+  public long read (Reader reader, SampledFunction function) throws IOException {
+    Tuple min = function.rawDomain.min, interval = function.interval;
+    Tuple size = function.rawDomain.size ();
+    long maxX = Math.round (size.x / interval.x), maxY = Math.round (size.y / interval.y);
+    long[] count = { 0 };
+    read (reader, (x, y, value) -> {
+      long ix = Math.round ((x - min.x) / interval.x), iy = Math.round ((y - min.y) / interval.y);
+      if ((ix >= 0) && (ix <= maxX) && (iy >= 0) && (iy <= maxY)) {
+        function.putSample (Tuple.PT (x, y), value);
+        ++count[0];
+      }
+    });
+    return count[0];
+  }
+
+  /**
+   * scan the rows to infer the layout of the sample grid. only the distinct x and y values are
+   * kept, so the memory needed is proportional to the width and height of the grid rather than the
+   * number of rows. the interval is the smallest gap between distinct values, adjusted slightly so
+   * it evenly divides the domain.
+   * @param reader the delimited input
+   * @return the layout of the grid
+   * @throws IOException if the input can't be read, or doesn't have enough rows to infer a grid
+   */
+  public Layout scan (Reader reader) throws IOException {
+    TreeSet<Double> xValues = new TreeSet<> (), yValues = new TreeSet<> ();
+    read (reader, (x, y, value) -> {
+      xValues.add (x);
+      yValues.add (y);
+    });
+    if ((xValues.size () < 2) || (yValues.size () < 2)) {
+      throw new IOException ("not enough distinct x and y values to infer a grid");
+    }
+    Domain domain = new Domain (xValues.first (), xValues.last (), yValues.first (), yValues.last ());
+    return new Layout (domain, Tuple.VEC (interval (xValues), interval (yValues)));
+  }
+
+  private static double interval (TreeSet<Double> values) {
+    double interval = Double.MAX_VALUE;
+    Double last = null;
+    for (Double value : values) {
+      if (last != null) {
+        interval = Math.min (interval, value - last);
+      }
+      last = value;
+    }
+    double size = values.last () - values.first ();
+    return size / Math.round (size / interval);
+  }
+
+  /**
+   * load a sampled function from a file in two passes, first to infer the layout of the grid, and
+   * then to read the samples into the function
+   * @param path the delimited file
+   * @param bbX boundary behavior for the x-axis
+   * @param bbY boundary behavior for the y-axis
+   * @param allocator creates the storage for the samples
+   * @return a new SampledFunction instance
+   * @throws IOException if the file can't be read
+   */
+  public SampledFunction load (Path path, BoundaryBehavior bbX, BoundaryBehavior bbY, Samples.Allocator allocator) throws IOException {
+    Layout layout;
+    try (Reader reader = Files.newBufferedReader (path, StandardCharsets.UTF_8)) {
+      layout = scan (reader);
+    }
+    return load (path, layout, bbX, bbY, allocator);
+  }
+
+  /**
+   * load a sampled function from a file with a known layout in a single pass
+   * @param path the delimited file
+   * @param layout the layout of the grid
+   * @param bbX boundary behavior for the x-axis
+   * @param bbY boundary behavior for the y-axis
+   * @param allocator creates the storage for the samples
+   * @return a new SampledFunction instance
+   * @throws IOException if the file can't be read
+   */
+  public SampledFunction load (Path path, Layout layout, BoundaryBehavior bbX, BoundaryBehavior bbY, Samples.Allocator allocator) throws IOException {
+    SampledFunction function = new SampledFunction (layout.domain, layout.interval, bbX, bbY, allocator);
+    try (Reader reader = Files.newBufferedReader (path, StandardCharsets.UTF_8)) {
+      read (reader, function);
+    }
+    return function;
+  }
+
+  /**
+   * load a sampled function from a file, with samples stored as doubles on the heap
+   * @param path the delimited file
+   * @param bbX boundary behavior for the x-axis
+   * @param bbY boundary behavior for the y-axis
+   * @return a new SampledFunction instance
+   * @throws IOException if the file can't be read
+   */
+  public SampledFunction load (Path path, BoundaryBehavior bbX, BoundaryBehavior bbY) throws IOException {
+    return load (path, bbX, bbY, SamplesDouble::new);
+  }
+}
@@ -0,0 +1,32 @@
+package us.irdev.gtk.xyw.samples;
+
+/**
+ * an abstract base class for the storage behind a sampled function. the samples are a flat array
+ * of values addressed by a (long) index, and backends are free to store them however they like -
+ * at full or reduced precision, on the heap or off it.
+ */
+public abstract class Samples {
+  /**
+   * an interface for creating the storage for a given number of samples
+   */
+  public interface Allocator {
+    Samples allocate (long count);
+  }
+
+  /**
+   * @return the number of samples
+   */
+  public abstract long size ();
+
+  /**
+   * @param index the index of the sample to fetch (range is [0..size))
+   * @return the sample value
+   */
+  public abstract double get (long index);
+
+  /**
+   * @param index the index of the sample to store (range is [0..size))
+   * @param value the value to store, backends with reduced precision round it
+   */
+  public abstract void put (long index, double value);
+}
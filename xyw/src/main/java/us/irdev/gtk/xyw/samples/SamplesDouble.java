@@ -0,0 +1,30 @@
+package us.irdev.gtk.xyw.samples;
+
+/**
+ * samples stored at full precision in a double array on the heap, this is the default
+ */
+public class SamplesDouble extends Samples {
+  private final double[] values;
+
+  public SamplesDouble (long count) {
+    if ((count < 0) || (count > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException ("too many samples for a double array (" + count + "), use SamplesMapped");
+    }
+    values = new double[(int) count];
+  }
+
+  @Override
+  public long size () {
+    return values.length;
+  }
+
+  @Override
+  public double get (long index) {
+    return values[(int) index];
+  }
+
+  @Override
+  public void put (long index, double value) {
+    values[(int) index] = value;
+  }
+}
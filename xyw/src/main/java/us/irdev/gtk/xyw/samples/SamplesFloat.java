@@ -0,0 +1,31 @@
+package us.irdev.gtk.xyw.samples;
+
+/**
+ * samples stored in a float array on the heap, which takes half the memory of a double array.
+ * values are rounded to the nearest float when they are stored.
+ */
+public class SamplesFloat extends Samples {
+  private final float[] values;
+
+  public SamplesFloat (long count) {
+    if ((count < 0) || (count > Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException ("too many samples for a float array (" + count + "), use SamplesMapped");
+    }
+    values = new float[(int) count];
+  }
+
+  @Override
+  public long size () {
+    return values.length;
+  }
+
+  @Override
+  public double get (long index) {
+    return values[(int) index];
+  }
+
+  @Override
+  public void put (long index, double value) {
+    values[(int) index] = (float) value;
+  }
+}
@@ -0,0 +1,136 @@
+package us.irdev.gtk.xyw.samples;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * samples stored off the heap in a memory-mapped file, as little-endian floats or doubles. opening
+ * a mapped file is nearly instant, the operating system pages the samples in as they are touched,
+ * and any number of processes mapping the same file share the pages in the OS cache. a single
+ * mapping is limited to 2GB, so large files are mapped as a series of chunks.
+ */
+public class SamplesMapped extends Samples {
+  /**
+   * the type of the values in the file
+   */
+  public enum Type {
+    FLOAT (4), DOUBLE (8);
+
+    public final int bytes;
+
+    Type (int bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * the size of each mapped chunk, a multiple of both value sizes
+   */
+  private static final int DEFAULT_CHUNK_BYTES = 1 << 30;
+
+  private final Type type;
+  private final long count;
+  private final int chunkShift;
+  private final long chunkMask;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Constructor - map the samples in a region of a file
+   * @param path the file to map, it is created (or extended) if the mapping is writable
+   * @param offset the byte offset of the first sample in the file
+   * @param count the number of samples
+   * @param type the type of the values in the file
+   * @param writable whether to map the file for writing, or read only
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public SamplesMapped (Path path, long offset, long count, Type type, boolean writable) throws IOException {
+    this (path, offset, count, type, writable, DEFAULT_CHUNK_BYTES);
+  }
+
+  /**
+   * Constructor - with a chunk size, which must be a power of 2 at least as big as a value
+   */
+  SamplesMapped (Path path, long offset, long count, Type type, boolean writable, int chunkBytes) throws IOException {
+    assert (Integer.bitCount (chunkBytes) == 1) && (chunkBytes >= type.bytes);
+    this.type = type;
+    this.count = count;
+
+    // compute the chunk addressing in terms of samples
+    int chunkSamples = chunkBytes / type.bytes;
+    chunkShift = Integer.numberOfTrailingZeros (chunkSamples);
+    chunkMask = chunkSamples - 1;
+
+    // map the chunks, the mappings stay valid after the channel is closed
+    int chunkCount = (int) ((count + chunkMask) >> chunkShift);
+    chunks = new MappedByteBuffer[chunkCount];
+    try (FileChannel channel = writable
+            ? FileChannel.open (path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+            : FileChannel.open (path, StandardOpenOption.READ)) {
+      for (int i = 0; i < chunkCount; ++i) {
+        long chunkStart = (long) i << chunkShift;
+        long chunkSize = Math.min (count - chunkStart, chunkSamples) * type.bytes;
+        chunks[i] = channel.map (writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, offset + (chunkStart * type.bytes), chunkSize);
+        chunks[i].order (ByteOrder.LITTLE_ENDIAN);
+      }
+    }
+  }
+
+  /**
+   * @param path the file to map
+   * @param offset the byte offset of the first sample in the file
+   * @param type the type of the values in the file
+   * @param writable whether to map the file for writing, or read only
+   * @return an allocator that maps the requested number of samples from the file
+   */
+  public static Allocator allocator (Path path, long offset, Type type, boolean writable) {
+    return count -> {
+      try {
+        return new SamplesMapped (path, offset, count, type, writable);
+      } catch (IOException exception) {
+        throw new UncheckedIOException (exception);
+      }
+    };
+  }
+
+  public Type type () {
+    return type;
+  }
+
+  /**
+   * write any changes to a writable mapping through to the file
+   */
+  public void force () {
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force ();
+    }
+  }
+
+  @Override
+  public long size () {
+    return count;
+  }
+
+  @Override
+  public double get (long index) {
+    ByteBuffer chunk = chunks[(int) (index >> chunkShift)];
+    int at = (int) (index & chunkMask) * type.bytes;
+    return (type == Type.DOUBLE) ? chunk.getDouble (at) : chunk.getFloat (at);
+  }
+
+  @Override
+  public void put (long index, double value) {
+    ByteBuffer chunk = chunks[(int) (index >> chunkShift)];
+    int at = (int) (index & chunkMask) * type.bytes;
+    if (type == Type.DOUBLE) {
+      chunk.putDouble (at, value);
+    } else {
+      chunk.putFloat (at, (float) value);
+    }
+  }
+}
@@ -1,4 +1,102 @@
 package us.irdev.gtk.xyw;
 
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
+import static us.irdev.gtk.xyw.Tuple.VEC;
+
 public class GridTest {
+    private static Grid<String> populate (int every) {
+        var grid = new Grid<String> (new Domain (0, 10, 0, 10), VEC (1, 1));
+        var i = 0;
+        for (var domain : grid.enumerate ()) {
+            if ((i++ % every) == 0) {
+                grid.putAt (domain.center (), "a" + domain.center ());
+                grid.putAt (domain.center (), "b" + domain.center ());
+                grid.putAt (domain.center (), "b" + domain.center ());
+            }
+        }
+        return grid;
+    }
+
+    private static void assertSameContents (Grid<String> expect, Grid<String> actual) {
+        for (var domain : expect.enumerate ()) {
+            var center = domain.center ();
+            assertEquals (expect.getAt (center), actual.getAt (center));
+            assertEquals (expect.getAt (center), actual.getAt (center.x, center.y));
+        }
+    }
+
+    @Test
+    public void testFreezeDense () {
+        var grid = populate (2);
+        assertEquals (0.5, grid.occupancy ());
+        assertFalse (grid.isFrozen ());
+        assertEquals (Set.of ("a(0.500000, 0.500000, 1.000000)", "b(0.500000, 0.500000, 1.000000)"), new HashSet<> (grid.getAt (PT (0.5, 0.5))));
+
+        var frozen = populate (2).freeze ();
+        assertTrue (frozen.isFrozen ());
+        assertTrue (frozen.isDense ());
+        assertEquals (0.5, frozen.occupancy ());
+        assertSameContents (grid, frozen);
+        assertEquals (2, frozen.getAt (PT (0.5, 0.5)).size ());
+        assertTrue (frozen.getAt (PT (1.5, 0.5)).isEmpty ());
+        assertTrue (frozen.getAt (PT (-5, -5)).isEmpty ());
+        assertTrue (frozen.getAt (PT (50, 50)).isEmpty ());
+    }
+
+    @Test
+    public void testFreezeSparse () {
+        var grid = populate (10);
+        var frozen = populate (10).freeze ();
+        assertTrue (frozen.isFrozen ());
+        assertFalse (frozen.isDense ());
+        assertEquals (0.1, frozen.occupancy ());
+        assertSameContents (grid, frozen);
+        assertTrue (frozen.getAt (PT (1.5, 0.5)).isEmpty ());
+    }
+
+    @Test
+    public void testFrozenIsReadOnly () {
+        var frozen = populate (1).freeze ();
+        assertThrows (UnsupportedOperationException.class, () -> frozen.putAt (PT (0.5, 0.5), "c"));
+        assertThrows (UnsupportedOperationException.class, () -> frozen.getAt (PT (0.5, 0.5)).add ("c"));
+        assertThrows (UnsupportedOperationException.class, () -> frozen.getAt (PT (0.5, 0.5)).clear ());
+    }
+
+    @Test
+    public void testFreezeOrdered () {
+        var grid = populate (3).freeze (Comparator.reverseOrder ());
+        assertEquals (List.of ("b(0.500000, 0.500000, 1.000000)", "a(0.500000, 0.500000, 1.000000)"), List.copyOf (grid.getAt (PT (0.5, 0.5))));
+        assertSameContents (populate (3), grid);
+    }
+
+    @Test
+    public void testFreezeRepeats () {
+        // one cell with many values put twice over, and cells off the domain, frozen without an
+        // order keep the values in the order they were first put
+        var grid = new Grid<String> (new Domain (0, 10, 0, 10), VEC (1, 1));
+        var expect = new ArrayList<String> ();
+        for (var pass = 0; pass < 2; ++pass) {
+            for (var i = 0; i < 40; ++i) {
+                grid.putAt (PT (2.5, 3.5), "v" + i);
+                grid.putAt (PT (-4.5, -4.5), "w" + (i % 3));
+                if (pass == 0) {
+                    expect.add ("v" + i);
+                }
+            }
+        }
+        grid.freeze ();
+        assertFalse (grid.isDense ());
+        assertEquals (expect, List.copyOf (grid.getAt (PT (2.5, 3.5))));
+        assertEquals (List.of ("w0", "w1", "w2"), List.copyOf (grid.getAt (PT (-4.5, -4.5))));
+        assertTrue (grid.getAt (PT (3.5, 3.5)).isEmpty ());
+    }
 }
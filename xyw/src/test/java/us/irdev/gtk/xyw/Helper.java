@@ -1,7 +1,12 @@
 package us.irdev.gtk.xyw;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static us.irdev.gtk.xyw.Tuple.PT;
 
 public class Helper {
   public static void assertSimilar (Tuple expect, Tuple actual) {
@@ -36,4 +41,53 @@ public class Helper {
     assertFalse(Domain.similar (expect, actual));
   }
 
+  // -----------------------------------------------------------------------------------------------
+  // shapes for tests (see also Shapes in xyw-test, for the modules that use xyw)
+  // -----------------------------------------------------------------------------------------------
+
+  // a random star shaped ring around a center, with the radius varying from half to all of the
+  // given radius
+  public static Polygon star (Random random, double cx, double cy, double radius, int count) {
+    List<Tuple> tuples = new ArrayList<> ();
+    for (int i = 0; i < count; ++i) {
+      double angle = (Math.PI * 2 * i) / count;
+      double r = radius * (0.5 + (random.nextDouble () * 0.5));
+      tuples.add (PT (cx + (Math.cos (angle) * r), cy + (Math.sin (angle) * r)));
+    }
+    return new Polygon (tuples);
+  }
+
+  // a counterclockwise rectangle
+  public static Polygon box (double x0, double y0, double x1, double y1) {
+    return new Polygon (new Tuple[] { PT (x0, y0), PT (x1, y0), PT (x1, y1), PT (x0, y1) });
+  }
+
+  // the signed area of a ring, by the shoelace formula
+  public static double area (Polygon ring) {
+    double area = 0;
+    for (Segment segment : ring.segments.segments) {
+      area += (segment.a.x * segment.b.y) - (segment.b.x * segment.a.y);
+    }
+    return area * 0.5;
+  }
+
+  // whether a point is inside a boundary (the first ring) and not inside any of the holes
+  public static boolean contains (List<Polygon> rings, Tuple pt) {
+    boolean inside = rings.get (0).contains (pt);
+    for (int i = 1; inside && (i < rings.size ()); ++i) {
+      inside = ! rings.get (i).contains (pt);
+    }
+    return inside;
+  }
+
+  // the distance from a point to the nearest edge of any of the rings
+  public static double distance (List<Polygon> rings, Tuple pt) {
+    double distance = Double.POSITIVE_INFINITY;
+    for (Polygon ring : rings) {
+      for (Segment segment : ring.segments.segments) {
+        distance = Math.min (distance, SegmentTree.distance (segment, pt.x, pt.y));
+      }
+    }
+    return distance;
+  }
 }
@@ -0,0 +1,105 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class PackedPolygonTest {
+  // the per-segment containment test, as Polygon.contains did it before packing
+  private static boolean reference (Polygon polygon, Tuple pt) {
+    int windingNumber = 0;
+    for (Segment segment : polygon.segments.segments) {
+      int classification = Polygon.classifySegment (pt, segment);
+      if (classification == Polygon.ON_BOUNDARY) return true;
+      windingNumber += classification;
+    }
+    return windingNumber != 0;
+  }
+
+  private static List<Tuple> testPoints (Polygon polygon, Random random) {
+    List<Tuple> points = new ArrayList<>();
+    Domain domain = polygon.domain ();
+    for (Segment segment : polygon.segments.segments) {
+      // vertices, mid points, and points just off the edges
+      points.add (segment.a);
+      points.add (segment.mid ());
+      points.add (segment.lerp (0.25).add (Tuple.VEC (0, 1e-12)));
+      points.add (PT (segment.a.x, segment.a.y + 0.5));
+      points.add (PT (segment.a.x + 0.5, segment.a.y));
+    }
+    for (int i = 0; i < 2000; ++i) {
+      points.add (PT (domain.min.x - 1 + (random.nextDouble () * (domain.size ().x + 2)), domain.min.y - 1 + (random.nextDouble () * (domain.size ().y + 2))));
+    }
+    return points;
+  }
+
+  @Test
+  public void testMatchesPolygon() {
+    Random random = new Random (8675309);
+    List<Polygon> polygons = new ArrayList<>();
+
+    // a square, a diamond with vertices on the test lines, and a concave W
+    polygons.add (new Polygon (new Tuple[] { PT(1, 1), PT(-1, 1), PT(-1, -1), PT(1, -1) }));
+    polygons.add (new Polygon (new Tuple[] { PT(1, 0), PT(0, 1), PT(-1, 0), PT(0, -1) }));
+    polygons.add (new Polygon (new Tuple[] { PT(2, 1), PT(-1, 1), PT(-1, -1), PT(0, 0.5), PT(1, -1), PT(1.25, -0.5), PT(1.75, -0.5), PT(2, -1) }));
+
+    // random star shaped polygons with integer vertices, so lots of points line up with them
+    for (int p = 0; p < 20; ++p) {
+      List<Tuple> pts = new ArrayList<>();
+      int count = 6 + random.nextInt (30);
+      for (int i = 0; i < count; ++i) {
+        double angle = (i * 2 * Math.PI) / count;
+        double radius = 2 + random.nextInt (8);
+        Tuple pt = PT (Math.round (Math.cos (angle) * radius), Math.round (Math.sin (angle) * radius));
+        if (pts.isEmpty () || (! pt.equals (pts.get (pts.size () - 1)))) {
+          pts.add (pt);
+        }
+      }
+      if (pts.get (0).equals (pts.get (pts.size () - 1))) {
+        pts.remove (pts.size () - 1);
+      }
+      polygons.add (new Polygon (pts));
+    }
+
+    // a square with a square hole, as two separate rings in one set of segments
+    Polygon outer = new Polygon (new Tuple[] { PT(-4, -4), PT(4, -4), PT(4, 4), PT(-4, 4) });
+    Polygon inner = new Polygon (new Tuple[] { PT(-2, -2), PT(-2, 2), PT(2, 2), PT(2, -2) });
+    polygons.add (new Polygon (Segments.join (outer.segments, inner.segments)));
+
+    for (Polygon polygon : polygons) {
+      PackedPolygon packed = new PackedPolygon (polygon);
+      assertEquals (polygon.segments.length, packed.edgeCount ());
+      for (Tuple pt : testPoints (polygon, random)) {
+        boolean expect = reference (polygon, pt);
+        assertEquals (expect, packed.contains (pt.x, pt.y), pt.toString ());
+        assertEquals (expect, polygon.contains (pt), pt.toString ());
+      }
+    }
+  }
+
+  @Test
+  public void testRing() {
+    var packed = new PackedPolygon (new double[] { 1, -1, -1, 1 }, new double[] { 1, 1, -1, -1 });
+    assertEquals (4, packed.edgeCount ());
+    assertEquals (1, packed.chainCount ());
+    assertTrue (packed.contains (0, 0));
+    assertTrue (packed.contains (1, 0));
+    assertTrue (packed.contains (-1, -1));
+    assertFalse (packed.contains (2, 0));
+    assertFalse (packed.contains (0, -2));
+
+    // the hole in a joined polygon is its own chain
+    Polygon outer = new Polygon (new Tuple[] { PT(-4, -4), PT(4, -4), PT(4, 4), PT(-4, 4) });
+    Polygon inner = new Polygon (new Tuple[] { PT(-2, -2), PT(-2, 2), PT(2, 2), PT(2, -2) });
+    var holed = new PackedPolygon (new Polygon (Segments.join (outer.segments, inner.segments)));
+    assertEquals (2, holed.chainCount ());
+    assertTrue (holed.contains (3, 0));
+    assertTrue (holed.contains (2, 0));
+    assertFalse (holed.contains (0, 0));
+  }
+}
@@ -0,0 +1,169 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.assertSimilar;
+import static us.irdev.gtk.xyw.Helper.box;
+import static us.irdev.gtk.xyw.Helper.star;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class PolygonBooleanTest {
+  private static boolean contains (List<List<Polygon>> polygons, Tuple pt) {
+    for (List<Polygon> rings : polygons) {
+      if (Helper.contains (rings, pt)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double distance (List<List<Polygon>> polygons, Tuple pt) {
+    double distance = Double.POSITIVE_INFINITY;
+    for (List<Polygon> rings : polygons) {
+      distance = Math.min (distance, Helper.distance (rings, pt));
+    }
+    return distance;
+  }
+
+  private static double area (List<List<Polygon>> polygons) {
+    double area = 0;
+    for (List<Polygon> rings : polygons) {
+      area += Math.abs (Helper.area (rings.get (0)));
+      for (int i = 1; i < rings.size (); ++i) {
+        area -= Math.abs (Helper.area (rings.get (i)));
+      }
+    }
+    return area;
+  }
+
+  // check every operation on two sets of polygons against the containment of the inputs, at points
+  // that aren't too close to any of the edges
+  private static void check (Random random, List<List<Polygon>> a, List<List<Polygon>> b, Domain domain, int samples) {
+    List<BiPredicate<Boolean, Boolean>> expects = List.of (
+            (inA, inB) -> inA && inB,
+            (inA, inB) -> inA || inB,
+            (inA, inB) -> inA && ! inB,
+            (inA, inB) -> inA ^ inB
+    );
+    PolygonBoolean.Operation[] operations = PolygonBoolean.Operation.values ();
+    for (int o = 0; o < operations.length; ++o) {
+      List<List<Polygon>> result = PolygonBoolean.compute (a, b, operations[o]);
+      for (int i = 0; i < samples; ++i) {
+        Tuple pt = PT (domain.min.x + (random.nextDouble () * domain.width ()), domain.min.y + (random.nextDouble () * domain.height ()));
+        if ((distance (a, pt) > 1e-6) && (distance (b, pt) > 1e-6)) {
+          assertEquals (expects.get (o).test (contains (a, pt), contains (b, pt)), contains (result, pt), operations[o] + " at " + pt);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBoxes() {
+    List<List<Polygon>> a = List.of (List.of (box (0, 0, 2, 2)));
+    List<List<Polygon>> b = List.of (List.of (box (1, 1, 3, 3)));
+    assertSimilar (1, area (PolygonBoolean.intersection (a, b)));
+    assertSimilar (7, area (PolygonBoolean.union (a, b)));
+    assertSimilar (3, area (PolygonBoolean.difference (a, b)));
+    assertSimilar (6, area (PolygonBoolean.xor (a, b)));
+
+    // a box inside another makes a hole in the difference
+    List<List<Polygon>> inner = List.of (List.of (box (0.5, 0.5, 1.5, 1.5)));
+    List<List<Polygon>> difference = PolygonBoolean.difference (a, inner);
+    assertEquals (1, difference.size ());
+    assertEquals (2, difference.get (0).size ());
+    assertSimilar (3, area (difference));
+    assertSimilar (1, area (PolygonBoolean.intersection (a, inner)));
+
+    // disjoint boxes take the early outs
+    List<List<Polygon>> far = List.of (List.of (box (5, 5, 6, 6)));
+    assertTrue (PolygonBoolean.intersection (a, far).isEmpty ());
+    assertEquals (2, PolygonBoolean.union (a, far).size ());
+    assertSame (a.get (0), PolygonBoolean.difference (a, far).get (0));
+    assertTrue (PolygonBoolean.intersection (a, List.of ()).isEmpty ());
+  }
+
+  @Test
+  public void testDegenerate() {
+    List<List<Polygon>> a = List.of (List.of (box (0, 0, 2, 2)));
+
+    // identical polygons
+    assertSimilar (4, area (PolygonBoolean.intersection (a, a)));
+    assertSimilar (4, area (PolygonBoolean.union (a, a)));
+    assertTrue (PolygonBoolean.difference (a, a).isEmpty ());
+    assertTrue (PolygonBoolean.xor (a, a).isEmpty ());
+
+    // a shared edge
+    List<List<Polygon>> b = List.of (List.of (box (2, 0, 4, 2)));
+    assertTrue (PolygonBoolean.intersection (a, b).isEmpty ());
+    List<List<Polygon>> union = PolygonBoolean.union (a, b);
+    assertEquals (1, union.size ());
+    assertSimilar (8, area (union));
+    assertSimilar (4, area (PolygonBoolean.difference (a, b)));
+
+    // a partly shared edge, and a shared corner
+    List<List<Polygon>> c = List.of (List.of (box (2, 1, 3, 3)));
+    assertSimilar (6, area (PolygonBoolean.union (a, c)));
+    assertSimilar (4, area (PolygonBoolean.difference (a, c)));
+    List<List<Polygon>> d = List.of (List.of (box (2, 2, 3, 3)));
+    assertSimilar (5, area (PolygonBoolean.union (a, d)));
+    assertTrue (PolygonBoolean.intersection (a, d).isEmpty ());
+
+    // the orientation of the rings doesn't matter
+    List<List<Polygon>> reversed = List.of (List.of (new Polygon (new Tuple[] { PT (1, 1), PT (1, 3), PT (3, 3), PT (3, 1) })));
+    assertSimilar (1, area (PolygonBoolean.intersection (a, reversed)));
+  }
+
+  @Test
+  public void testRandom() {
+    Random random = new Random (8675309);
+    Domain domain = new Domain (-2, 2, -2, 2);
+    for (int trial = 0; trial < 50; ++trial) {
+      // a star with a hole, and two smaller stars overlapping it
+      List<List<Polygon>> a = List.of (List.of (star (random, 0, 0, 1.5, 40), star (random, 0.1, 0, 0.3, 12)));
+      List<List<Polygon>> b = List.of (
+              List.of (star (random, 0.5, 0.3, 1, 25)),
+              List.of (star (random, -1, -0.8, 0.7, 17))
+      );
+      check (random, a, b, domain, 200);
+
+      // inclusion-exclusion on the areas (the two stars in b don't touch)
+      double union = area (PolygonBoolean.union (a, b));
+      double intersection = area (PolygonBoolean.intersection (a, b));
+      assertEquals (area (a) + area (b), union + intersection, 1e-9);
+      assertEquals (union - intersection, area (PolygonBoolean.xor (a, b)), 1e-9);
+      assertEquals (area (PolygonBoolean.difference (a, b)) + intersection, area (a), 1e-9);
+    }
+  }
+
+  @Test
+  public void testClipToDomain() {
+    Random random = new Random (12345);
+    Domain domain = new Domain (-0.5, 1, -0.25, 0.75);
+    for (int trial = 0; trial < 50; ++trial) {
+      Polygon polygon = star (random, 0, 0, 1.5, 30);
+      Polygon clipped = polygon.clipToDomain (domain);
+      assertNotNull (clipped);
+
+      // the clip has the same area as the intersection with the domain as a polygon
+      List<List<Polygon>> expect = polygon.intersection (box (domain.min.x, domain.min.y, domain.max.x, domain.max.y));
+      assertEquals (area (expect), Math.abs (Helper.area (clipped)), 1e-9);
+      for (int i = 0; i < 200; ++i) {
+        Tuple pt = domain.randomSample ();
+        if (distance (List.of (List.of (polygon)), pt) > 1e-6) {
+          assertEquals (polygon.contains (pt), clipped.contains (pt));
+        }
+      }
+    }
+
+    // trivial cases
+    Polygon polygon = box (0, 0, 1, 1);
+    assertSame (polygon, polygon.clipToDomain (new Domain (-1, 2, -1, 2)));
+    assertNull (polygon.clipToDomain (new Domain (2, 3, 2, 3)));
+    assertNull (polygon.clipToDomain (new Domain (1, 2, 0, 1)));
+  }
+}
@@ -108,4 +108,33 @@ public class PolygonTest {
         assertFalse(polygon.contains(PT(2.5, -0.5)));
         assertFalse(polygon.contains(PT(1.5, -0.75)));
     }
+
+    @Test
+    public void testIsSimple() {
+        // a square, and a concave "W" are simple
+        assertTrue (new Polygon (new Tuple[] { PT(1, 1), PT(-1, 1), PT(-1, -1), PT(1, -1) }).isSimple ());
+        assertTrue (new Polygon (new Tuple[] { PT(0, 0), PT(4, 0), PT(4, 3), PT(3, 1), PT(2, 3), PT(1, 1), PT(0, 3) }).isSimple ());
+
+        // a bow-tie crosses itself
+        assertFalse (new Polygon (new Tuple[] { PT(0, 0), PT(1, 1), PT(1, 0), PT(0, 1) }).isSimple ());
+
+        // a figure eight that touches itself at a repeated vertex
+        assertFalse (new Polygon (new Tuple[] { PT(0, 0), PT(1, 1), PT(2, 0), PT(2, 2), PT(1, 1), PT(0, 2) }).isSimple ());
+
+        // a vertex that touches another edge
+        assertFalse (new Polygon (new Tuple[] { PT(0, 0), PT(4, 0), PT(4, 4), PT(2, 0), PT(0, 4) }).isSimple ());
+
+        // a big wobbly ring is simple, and stays fast
+        List<Tuple> ring = new ArrayList<>();
+        for (int i = 0; i < 100000; ++i) {
+            double angle = (i * 2 * Math.PI) / 100000;
+            double radius = 10 + Math.sin (angle * 50);
+            ring.add (PT (Math.cos (angle) * radius, Math.sin (angle) * radius));
+        }
+        assertTrue (new Polygon (ring).isSimple ());
+
+        // and a single spike crossing back over the ring breaks it
+        ring.set (50000, PT (15, 0));
+        assertFalse (new Polygon (ring).isSimple ());
+    }
 }
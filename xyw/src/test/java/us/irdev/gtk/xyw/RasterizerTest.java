@@ -0,0 +1,120 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorClamp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class RasterizerTest {
+  // a 101 x 51 grid, with cells 0.1 on a side
+  private static SampledFunction grid () {
+    return new SampledFunction (new Domain (0, 10, 0, 5), Tuple.VEC (0.1, 0.1), new BoundaryBehaviorClamp ());
+  }
+
+  private static Tuple sampleAt (SampledFunction function, int x, int y) {
+    return PT (function.domain.min.x + (x * function.interval.x), function.domain.min.y + (y * function.interval.y));
+  }
+
+  @Test
+  public void testMask() {
+    Random random = new Random (8675309);
+    for (int trial = 0; trial < 20; ++trial) {
+      List<Polygon> rings = List.of (star (random, 5, 2.5, 2.4, 200), star (random, 5.2, 2.5, 0.8, 30));
+      SampledFunction function = grid ();
+      BitSet mask = Rasterizer.mask (function, rings);
+      Rasterizer.fill (function, rings, 7);
+      for (int y = 0; y < function.dimY; ++y) {
+        for (int x = 0; x < function.dimX; ++x) {
+          Tuple pt = sampleAt (function, x, y);
+          boolean inside = mask.get ((y * function.dimX) + x);
+          assertEquals (inside ? 7 : 0, function.getSample (x, y));
+          if (distance (rings, pt) > 1e-6) {
+            assertEquals (contains (rings, pt), inside, pt.toString ());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFillAll() {
+    // overlapping stars, some off the edges of the grid and some with holes, with the later ones
+    // on top, so a row leaves and re-enters shapes under the topmost one
+    Random random = new Random (12345);
+    List<List<Polygon>> shapes = new ArrayList<> ();
+    for (int i = 0; i < 12; ++i) {
+      double cx = (random.nextDouble () * 12) - 1, cy = (random.nextDouble () * 7) - 1;
+      Polygon outer = star (random, cx, cy, 2, 50);
+      shapes.add (((i % 2) == 0) ? List.of (outer) : List.of (outer, star (random, cx, cy, 0.6, 20)));
+    }
+    double[] ids = new double[shapes.size ()];
+    for (int i = 0; i < ids.length; ++i) {
+      ids[i] = i + 1;
+    }
+    SampledFunction function = grid ();
+    Rasterizer.fillAll (function, shapes, ids);
+    for (int y = 0; y < function.dimY; ++y) {
+      for (int x = 0; x < function.dimX; ++x) {
+        Tuple pt = sampleAt (function, x, y);
+        double expect = 0;
+        boolean nearEdge = false;
+        for (int i = 0; i < shapes.size (); ++i) {
+          nearEdge |= distance (shapes.get (i), pt) < 1e-6;
+          if (contains (shapes.get (i), pt)) {
+            expect = ids[i];
+          }
+        }
+        if (! nearEdge) {
+          assertEquals (expect, function.getSample (x, y), pt.toString ());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCoverage() {
+    Random random = new Random (8675309);
+    double cellArea = 0.1 * 0.1;
+    for (int trial = 0; trial < 20; ++trial) {
+      // the coverage adds up to the area, and is exact away from the edges
+      Polygon outer = star (random, 5, 2.5, 2.4, 200);
+      Polygon hole = star (random, 4.8, 2.5, 0.8, 30);
+      List<Polygon> rings = List.of (outer, hole);
+      SampledFunction function = grid ();
+      Rasterizer.coverage (function, rings);
+      double sum = 0;
+      for (int y = 0; y < function.dimY; ++y) {
+        for (int x = 0; x < function.dimX; ++x) {
+          double coverage = function.getSample (x, y);
+          assertTrue ((coverage >= 0) && (coverage <= 1));
+          sum += coverage;
+          Tuple pt = sampleAt (function, x, y);
+          if (distance (rings, pt) > 0.08) {
+            assertEquals (contains (rings, pt) ? 1 : 0, coverage, 1e-9, pt.toString ());
+          }
+        }
+      }
+      assertEquals (Math.abs (area (outer)) - Math.abs (area (hole)), sum * cellArea, 1e-9);
+
+      // a shape hanging off the grid only counts the part over the cells
+      Polygon big = star (random, 0, 0, 4, 100);
+      function = grid ();
+      Rasterizer.coverage (function, List.of (big));
+      sum = 0;
+      for (int y = 0; y < function.dimY; ++y) {
+        for (int x = 0; x < function.dimX; ++x) {
+          sum += function.getSample (x, y);
+        }
+      }
+      Polygon clipped = big.clipToDomain (new Domain (-0.05, 10.05, -0.05, 5.05));
+      assertEquals (Math.abs (area (clipped)), sum * cellArea, 1e-9);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package us.irdev.gtk.xyw;
+
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorAccordion;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorWrap;
+import us.irdev.gtk.xyw.db.Rows;
+import us.irdev.gtk.xyw.samples.SamplesMapped;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static us.irdev.gtk.xyw.Helper.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.VEC;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SampledFunctionFileTest {
+  private static void check (SampledFunction expect, SampledFunction actual, double tolerance) {
+    assertSimilar (expect.rawDomain, actual.rawDomain);
+    assertSimilar (expect.domain, actual.domain);
+    assertSimilar (expect.interval, actual.interval);
+    assertEquals (expect.bbX.getClass (), actual.bbX.getClass ());
+    assertEquals (expect.bbY.getClass (), actual.bbY.getClass ());
+    for (double y = -95; y <= 95; y += 1.7) {
+      for (double x = -190; x <= 190; x += 1.3) {
+        assertEquals (expect.f (x, y), actual.f (x, y), tolerance);
+      }
+    }
+    List<Segment> expectIso = expect.iso (12.5), actualIso = actual.iso (12.5);
+    assertEquals (expectIso.size (), actualIso.size ());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    // a grid big enough to need a few chunks
+    Domain domain = new Domain (-180, 179.5, -90, 90);
+    Tuple interval = VEC (0.5, 0.5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (xy.y * 0.95) + (3 * Math.cos(1 + Math.toRadians(xy.x) * 2)));
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+    Path path = Files.createTempFile ("sampled-function", ".gtks");
+    try {
+      // uncompressed doubles can be read or mapped, and are exact
+      SampledFunctionFile.write (function, path);
+      assertEquals (72 + (720L * 361 * 8), Files.size (path));
+      check (function, SampledFunctionFile.read (path), 0);
+      check (function, SampledFunctionFile.map (path), 0);
+
+      // floats are half the size
+      SampledFunctionFile.write (function, path, SamplesMapped.Type.FLOAT, SampledFunctionFile.Compression.NONE);
+      assertEquals (72 + (720L * 361 * 4), Files.size (path));
+      check (function, SampledFunctionFile.read (path), 1e-5);
+      check (function, SampledFunctionFile.map (path), 1e-5);
+
+      // compressed files are smaller, but can't be mapped
+      SampledFunctionFile.write (function, path, SamplesMapped.Type.DOUBLE, SampledFunctionFile.Compression.DEFLATE);
+      assertTrue (Files.size (path) < 720L * 361 * 8);
+      check (function, SampledFunctionFile.read (path), 0);
+      assertThrows (IOException.class, () -> SampledFunctionFile.map (path));
+
+      // not a grid file at all
+      Files.writeString (path, "geo lon (deg),geo lat (deg),mag lat (deg)\n");
+      assertThrows (IOException.class, () -> SampledFunctionFile.read (path));
+    } finally {
+      Files.deleteIfExists (path);
+    }
+  }
+}
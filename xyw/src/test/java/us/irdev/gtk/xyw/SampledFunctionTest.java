@@ -409,6 +409,224 @@ public class SampledFunctionTest {
     Utility.writeFile(Paths.get("output", "testWithSinusoidal.csv").toString(), db.toString ("geo lon (deg)", "geo lat (deg)", "mag lat (deg)"));
   }
 
+  @Test
+  public void testBatch() {
+    Domain domain = new Domain (-180, 175, -90, 90);
+    Tuple interval = VEC (5, 5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (xy.y * 0.95) + (3 * Math.cos(1 + Math.toRadians(xy.x) * 2)));
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+    // sample some points inside and outside the domain
+    int count = 1000;
+    double[] xs = new double[count], ys = new double[count];
+    for (int i = 0; i < count; ++i) {
+      xs[i] = (Math.random () * 720) - 360;
+      ys[i] = (Math.random () * 360) - 180;
+    }
+
+    // the batch evaluation should be identical to the scalar evaluation
+    double[] f = new double[count], dx = new double[count], dy = new double[count];
+    function.at (xs, ys, f, dx, dy);
+    for (int i = 0; i < count; ++i) {
+      At at = function.at (xs[i], ys[i]);
+      assertEquals (at.f, f[i]);
+      assertEquals (at.dxdy.x, dx[i]);
+      assertEquals (at.dxdy.y, dy[i]);
+    }
+
+    // the value-only variant should match, too
+    double[] fOnly = new double[count];
+    function.f (xs, ys, fOnly);
+    assertArrayEquals (f, fOnly);
+  }
+
+  @Test
+  public void testIsoParallel() {
+    Domain domain = new Domain (-180, 179.5, -90, 90);
+    Tuple interval = VEC (0.5, 0.5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (xy.y * 0.95) + (30 * Math.cos(1 + Math.toRadians(xy.x) * 6) * Math.sin(Math.toRadians(xy.y) * 4)));
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+    // the parallel extraction should be identical to the serial extraction, order included
+    for (double targetValue : new double[] { -45, 0, 12.5, 60 }) {
+      List<Segment> serial = function.iso (targetValue);
+      List<Segment> parallel = function.isoParallel (targetValue);
+      assertFalse (serial.isEmpty ());
+      assertEquals (serial.size (), parallel.size ());
+      for (int i = 0; i < serial.size (); ++i) {
+        assertSimilar (serial.get (i), parallel.get (i));
+      }
+    }
+  }
+
+  @Test
+  public void testIsoLevels() {
+    Domain domain = new Domain (-180, 175, -90, 90);
+    Tuple interval = VEC (5, 5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (xy.y * 0.95) + (3 * Math.cos(1 + Math.toRadians(xy.x) * 2)));
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+    // include a duplicate, a level exactly on the samples, and levels outside the range entirely
+    double[] levels = { 60, -30, 0.5, 0, 10, 0.5, 85.5, 200, -200 };
+    Map<Double, List<Segment>> isos = function.iso (levels);
+    assertEquals (8, isos.size ());
+    for (double level : levels) {
+      List<Segment> expect = function.iso (level);
+      List<Segment> actual = isos.get (level);
+      assertEquals (expect.size (), actual.size ());
+      for (int i = 0; i < expect.size (); ++i) {
+        assertSimilar (expect.get (i), actual.get (i));
+      }
+    }
+    assertTrue (isos.get (200.0).isEmpty ());
+    assertTrue (isos.get (-200.0).isEmpty ());
+    assertFalse (isos.get (0.5).isEmpty ());
+  }
+
+  @Test
+  public void testPyramid() {
+    // a sparse field, a couple of bumps in an otherwise flat plane
+    Domain domain = new Domain (-180, 179.5, -90, 90);
+    Tuple interval = VEC (0.5, 0.5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (10 * Math.exp (-xy.subtract (PT (20, 30)).normSq () / 50)) - (5 * Math.exp (-xy.subtract (PT (-100, -45)).normSq () / 20)));
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorClamp ());
+
+    // compute the expected results without a pyramid
+    double[] levels = { -4, -1, 0.5, 5, 9.9, 20 };
+    Map<Double, List<Segment>> expect = function.iso (levels);
+    List<Segment> expect05 = function.iso (0.5);
+
+    // iso with the pyramid should be the same, order included
+    MinMaxPyramid pyramid = function.buildPyramid ();
+    assertTrue (pyramid.levels () > 1);
+    for (double level : levels) {
+      List<Segment> actual = function.iso (level);
+      assertEquals (expect.get (level).size (), actual.size ());
+      for (int i = 0; i < actual.size (); ++i) {
+        assertSimilar (expect.get (level).get (i), actual.get (i));
+      }
+    }
+    Map<Double, List<Segment>> actualLevels = function.iso (levels);
+    for (double level : levels) {
+      assertEquals (expect.get (level).size (), actualLevels.get (level).size ());
+    }
+    List<Segment> actualParallel = function.isoParallel (0.5);
+    assertEquals (expect05.size (), actualParallel.size ());
+    for (int i = 0; i < expect05.size (); ++i) {
+      assertSimilar (expect05.get (i), actualParallel.get (i));
+    }
+
+    // range queries over a domain aligned to the grid should match the samples exactly
+    Domain query = new Domain (10, 30.5, 20, 40);
+    double max = Double.NEGATIVE_INFINITY, min = Double.POSITIVE_INFINITY;
+    for (double y = query.min.y; y <= query.max.y; y += interval.y) {
+      for (double x = query.min.x; x <= query.max.x; x += interval.x) {
+        max = Math.max (max, function.f (x, y));
+        min = Math.min (min, function.f (x, y));
+      }
+    }
+    assertEquals (max, pyramid.max (query), 1e-12);
+    assertEquals (min, pyramid.min (query), 1e-12);
+    assertTrue (pyramid.max (new Domain (-170, -160, 60, 70)) < 1e-6);
+
+    // domains off each side of the grid don't overlap any cells
+    Domain grid = function.domain;
+    Domain[] offGrid = {
+            new Domain (grid.min.x - 20, grid.min.x - 10, 0, 10),
+            new Domain (grid.max.x + 10, grid.max.x + 20, 0, 10),
+            new Domain (0, 10, grid.min.y - 20, grid.min.y - 10),
+            new Domain (0, 10, grid.max.y + 10, grid.max.y + 20)
+    };
+    for (Domain off : offGrid) {
+      assertEquals (Double.NEGATIVE_INFINITY, pyramid.max (off));
+      assertEquals (Double.POSITIVE_INFINITY, pyramid.min (off));
+    }
+
+    // every sample above the threshold is covered by the result of above
+    List<Domain> above = pyramid.above (5);
+    assertFalse (above.isEmpty ());
+    for (Row row : db.rows) {
+      if (row.value > 5) {
+        assertTrue (above.stream ().anyMatch (d -> d.contains (row.xy)));
+      }
+    }
+    assertTrue (pyramid.above (20).isEmpty ());
+
+    // changing a sample discards the pyramid
+    function.putSample (PT (0, 0), 1);
+    assertNull (function.pyramid ());
+  }
+
+  @Test
+  public void testIsoLines() {
+    assertDoesNotThrow(() -> {
+      // the real file has a single open line across the wrapped domain
+      String input = Utility.slurpFile ("data/sample.txt");
+      Table tableReader = new Table (input, ',', '#');
+      Rows rows = Rows.fromTable (tableReader.readTable (), "geo lon (deg)", "geo lat (deg)", "mag lat (deg)");
+      rows.addRow (90, 90);
+      SampledFunction function = SampledFunction.fromDatabase (rows, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+      List<PolyLine> expect = PolyLine.polyLinesFromSegments (function.iso (55));
+      List<PolyLine> actual = function.isoLines (55);
+      assertEquals (1, actual.size ());
+      assertFalse (actual.get (0).isClosed ());
+      assertEquals (expect.get (0).getPoints ().length, actual.get (0).getPoints ().length);
+
+      // the two lines might run in opposite directions
+      Tuple[] expectPoints = expect.get (0).getPoints (), actualPoints = actual.get (0).getPoints ();
+      boolean reversed = ! Tuple.similar (expectPoints[0], actualPoints[0]);
+      for (int i = 0; i < expectPoints.length; ++i) {
+        assertSimilar (expectPoints[i], actualPoints[reversed ? (actualPoints.length - 1 - i) : i]);
+      }
+    });
+
+    // a ring around the center of a bowl
+    Domain domain = new Domain (-4, 4, -4, 4);
+    Tuple interval = VEC (0.25, 0.25);
+    Rows db = Rows.fromFxy (domain, interval, xy -> xy.normSq ());
+    SampledFunction function = SampledFunction.fromDatabase (db, new BoundaryBehaviorClamp ());
+    List<PolyLine> rings = function.isoLines (4);
+    assertEquals (1, rings.size ());
+    assertTrue (rings.get (0).isClosed ());
+    assertEquals (function.iso (4).size (), rings.get (0).getPoints ().length);
+    for (Tuple pt : rings.get (0).getPoints ()) {
+      assertEquals (2, pt.norm (), 0.05);
+    }
+
+    // a level that runs off the edge of the grid in each corner
+    List<PolyLine> corners = function.isoLines (25);
+    assertEquals (4, corners.size ());
+    for (PolyLine corner : corners) {
+      assertFalse (corner.isClosed ());
+    }
+
+    // two bumps with a saddle between them, at levels below, near, and above the saddle
+    db = Rows.fromFxy (domain, interval, xy -> Math.exp (-xy.subtract (PT (-1, 0)).normSq ()) + Math.exp (-xy.subtract (PT (1, 0)).normSq ()));
+    function = SampledFunction.fromDatabase (db, new BoundaryBehaviorClamp ());
+    for (double level : new double[] { 0.2, 0.5, 0.9 }) {
+      List<Segment> segments = function.iso (level);
+      List<PolyLine> expect = PolyLine.polyLinesFromSegments (segments);
+      List<PolyLine> actual = function.isoLines (level);
+      assertEquals (expect.size (), actual.size ());
+      int points = 0;
+      for (PolyLine line : actual) {
+        assertTrue (line.isClosed ());
+        points += line.getPoints ().length;
+      }
+      assertEquals (segments.size (), points);
+
+      // the pyramid doesn't change the result
+      function.buildPyramid ();
+      List<PolyLine> culled = function.isoLines (level);
+      assertEquals (actual.size (), culled.size ());
+      for (int i = 0; i < actual.size (); ++i) {
+        assertEquals (actual.get (i).getPoints ().length, culled.get (i).getPoints ().length);
+      }
+      function.putSample (PT (4, 4), 0);
+    }
+  }
+
   @Test
   public void testSaddle() {
     double[] array = new double[]{
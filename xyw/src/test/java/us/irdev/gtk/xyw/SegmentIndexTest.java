@@ -0,0 +1,88 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class SegmentIndexTest {
+  private static List<Tuple> nestedLoop (List<Segment> a, List<Segment> b) {
+    List<Tuple> result = new ArrayList<>();
+    for (Segment sa : a) {
+      for (Segment sb : b) {
+        Tuple intersection = Segment.intersect (sa, sb);
+        if (intersection != null) {
+          result.add (intersection);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void assertSameIntersections (List<Segment> a, List<Segment> b) {
+    List<Tuple> expect = nestedLoop (a, b);
+    List<Tuple> actual = new SegmentIndex (b).intersections (a);
+    assertEquals (expect.size (), actual.size ());
+    for (int i = 0; i < expect.size (); ++i) {
+      assertSimilar (expect.get (i), actual.get (i));
+    }
+  }
+
+  @Test
+  public void testSpirals() {
+    final double stepSize = 0.005;
+    Segments a = Segments.fromTupleFunction (1, 12, stepSize, x -> PT(1.0 + (Math.cos(x * 2 * Math.PI) * x), 0.5 + (Math.sin(x * 2 * Math.PI) * x)));
+    Segments b = Segments.fromTupleFunction (1, 5, stepSize, x -> PT(-4.5 + (Math.cos(x * 2 * Math.PI) * x), -3.0 + (Math.sin(x * 2 * Math.PI) * x)));
+    assertSameIntersections (a.segments, b.segments);
+    assertSameIntersections (b.segments, a.segments);
+
+    // the pair uses the index, and gives the same answer
+    List<Tuple> expect = nestedLoop (a.segments, b.segments);
+    List<Tuple> actual = new SegmentsPair (a, b).intersections ();
+    assertEquals (expect.size (), actual.size ());
+  }
+
+  @Test
+  public void testRandom() {
+    // a mix of short and long segments, with some vertical and horizontal ones
+    Random random = new Random (12345);
+    List<Segment> a = new ArrayList<>(), b = new ArrayList<>();
+    for (int i = 0; i < 2000; ++i) {
+      double x = random.nextDouble () * 100, y = random.nextDouble () * 100;
+      double length = (random.nextInt (10) == 0) ? 50 : 2;
+      a.add (new Segment (PT (x, y), PT (x + ((random.nextDouble () - 0.5) * length), y + ((random.nextDouble () - 0.5) * length))));
+      b.add (new Segment (PT (x, y + 1), PT (x, y + 1 + length)));
+      b.add (new Segment (PT (y, x), PT (y + length, x)));
+    }
+    assertSameIntersections (a, b);
+    assertSameIntersections (b, a);
+  }
+
+  @Test
+  public void testTouching() {
+    // segments that share an endpoint or meet at an endpoint, as in SegmentsPairTest
+    List<Segment> a = List.of (new Segment (PT (0, 0), PT (1, 1)), new Segment (PT (1, 1), PT (2, 2)));
+    List<Segment> b = List.of (new Segment (PT (0, 1), PT (2, 1)), new Segment (PT (2, 2), PT (3, 0)));
+    assertSameIntersections (a, b);
+
+    // degenerate inputs
+    assertTrue (new SegmentIndex (List.of ()).intersections (a).isEmpty ());
+    assertSameIntersections (a, List.of (new Segment (PT (1, 0), PT (1, 3))));
+  }
+
+  @Test
+  public void testQuery() {
+    List<Segment> segments = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      segments.add (new Segment (PT (i, 0), PT (i + 1, 1)));
+    }
+    SegmentIndex index = new SegmentIndex (segments);
+    assertArrayEquals (new int[] { 9, 10, 11, 12, 13, 14, 15 }, index.query (new Domain (10, 15, 0.25, 0.75)));
+    assertArrayEquals (new int[] {}, index.query (new Domain (10, 15, 2, 3)));
+  }
+}
@@ -0,0 +1,59 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class SegmentTreeTest {
+  @Test
+  public void testDistance() {
+    Segment segment = new Segment (PT (0, 0), PT (4, 0));
+    assertSimilar (0, SegmentTree.distance (segment, 2, 0));
+    assertSimilar (3, SegmentTree.distance (segment, 2, 3));
+    assertSimilar (3, SegmentTree.distance (segment, 2, -3));
+
+    // beyond the ends, the distance is to the end point, not the line
+    assertSimilar (5, SegmentTree.distance (segment, 7, 4));
+    assertSimilar (5, SegmentTree.distance (segment, -3, -4));
+  }
+
+  @Test
+  public void testMatchesBruteForce() {
+    Random random = new Random (8675309);
+    for (int count : new int[] { 0, 1, 15, 16, 17, 300, 5000 }) {
+      List<Segment> segments = new ArrayList<>();
+      for (int i = 0; i < count; ++i) {
+        double x = random.nextDouble () * 100, y = random.nextDouble () * 100;
+        segments.add (new Segment (PT (x, y), PT (x + random.nextGaussian (), y + random.nextGaussian ())));
+      }
+      SegmentTree tree = new SegmentTree (segments);
+      assertEquals (count, tree.size ());
+      for (int q = 0; q < 200; ++q) {
+        double x = (random.nextDouble () * 120) - 10, y = (random.nextDouble () * 120) - 10;
+        double limit = random.nextBoolean () ? Double.POSITIVE_INFINITY : random.nextDouble () * 5;
+
+        // the distances in ascending order, by brute force
+        double[] distances = segments.stream ().mapToDouble (segment -> SegmentTree.distance (segment, x, y)).filter (d -> d <= limit).sorted ().toArray ();
+        List<SegmentTree.Nearest> found = tree.nearest (x, y, 5, limit);
+        assertEquals (Math.min (5, distances.length), found.size ());
+        for (int i = 0; i < found.size (); ++i) {
+          assertEquals (distances[i], found.get (i).distance ());
+          assertEquals (found.get (i).distance (), SegmentTree.distance (segments.get (found.get (i).index ()), x, y));
+        }
+
+        SegmentTree.Nearest nearest = tree.nearest (x, y, limit);
+        if (distances.length == 0) {
+          assertNull (nearest);
+        } else {
+          assertEquals (distances[0], nearest.distance ());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.contains;
+import static us.irdev.gtk.xyw.Helper.distance;
+import static us.irdev.gtk.xyw.Helper.star;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class SimplifierTest {
+  @Test
+  public void testPolygon() {
+    Random random = new Random (8675309);
+    double[] tolerances = { 0, 1e-4, 1e-3, 1e-2, 0.1, 1, 10 };
+    for (int trial = 0; trial < 20; ++trial) {
+      Polygon polygon = star (random, 0, 0, 1, 200);
+      assertTrue (polygon.isSimple ());
+      double[] importance = polygon.importance ();
+      assertEquals (polygon.segments.length, importance.length);
+      assertSame (importance, polygon.importance ());
+
+      // nothing is removed at a zero tolerance
+      assertSame (polygon, polygon.simplify (0));
+
+      // larger tolerances keep fewer vertices, never fewer than 3, and never cross
+      int last = polygon.segments.length;
+      for (double tolerance : tolerances) {
+        Polygon simplified = polygon.simplify (tolerance);
+        assertTrue (simplified.segments.length <= last);
+        assertTrue (simplified.segments.length >= 3);
+        assertTrue (simplified.isSimple (), "tolerance " + tolerance);
+        last = simplified.segments.length;
+      }
+      assertEquals (3, last);
+    }
+  }
+
+  @Test
+  public void testNested() {
+    // a ring with a hole close to it, simplified together so the hole stays inside
+    Random random = new Random (12345);
+    for (int trial = 0; trial < 20; ++trial) {
+      Polygon outer = star (random, 0, 0, 1, 100);
+      Polygon inner = star (random, 0, 0, 0.45, 100);
+      double[][] importance = Simplifier.importance (List.of (outer.vertices (), inner.vertices ()), true);
+      for (double tolerance : new double[] { 1e-3, 1e-2, 0.1, 1 }) {
+        Polygon a = new Polygon (Simplifier.select (outer.vertices (), importance[0], tolerance));
+        Polygon b = new Polygon (Simplifier.select (inner.vertices (), importance[1], tolerance));
+        assertTrue (a.isSimple ());
+        assertTrue (b.isSimple ());
+        for (Segment segment : b.segments.segments) {
+          assertTrue (a.contains (segment.a), "tolerance " + tolerance);
+        }
+      }
+    }
+  }
+
+  // a noisy edge between two corners, the noise tapering to nothing at the ends so the edges
+  // meeting at a corner can't cross
+  private static List<Tuple> edge (Random random, Tuple a, Tuple b, int count) {
+    List<Tuple> points = new ArrayList<> ();
+    double nx = a.y - b.y, ny = b.x - a.x;
+    for (int i = 0; i <= count; ++i) {
+      double t = (double) i / count;
+      double offset = (i % count == 0) ? 0 : (random.nextDouble () - 0.5) * 0.3 * Math.sin (Math.PI * t);
+      points.add (PT (a.x + ((b.x - a.x) * t) + (nx * offset), a.y + ((b.y - a.y) * t) + (ny * offset)));
+    }
+    return points;
+  }
+
+  @Test
+  public void testShared() {
+    // a 3 x 3 map of cells with noisy shared borders, one with a hole that has an island in it
+    Random random = new Random (8675309);
+    int n = 3;
+    List<List<Tuple>> horizontal = new ArrayList<> (), vertical = new ArrayList<> ();
+    for (int j = 0; j <= n; ++j) {
+      for (int i = 0; i <= n; ++i) {
+        horizontal.add ((i < n) ? edge (random, PT (i, j), PT (i + 1, j), 30) : null);
+        vertical.add ((j < n) ? edge (random, PT (i, j), PT (i, j + 1), 30) : null);
+      }
+    }
+    List<List<Polygon>> regions = new ArrayList<> ();
+    Polygon island = star (random, 1.5, 1.5, 0.3, 40);
+    for (int j = 0; j < n; ++j) {
+      for (int i = 0; i < n; ++i) {
+        List<Tuple> ring = new ArrayList<> ();
+        for (List<Tuple> side : List.of (horizontal.get ((j * (n + 1)) + i), vertical.get ((j * (n + 1)) + i + 1),
+                reversed (horizontal.get (((j + 1) * (n + 1)) + i)), reversed (vertical.get ((j * (n + 1)) + i)))) {
+          ring.addAll (side.subList (0, side.size () - 1));
+        }
+        regions.add (((i == 1) && (j == 1)) ? List.of (new Polygon (ring), island) : List.of (new Polygon (ring)));
+      }
+    }
+    regions.add (List.of (island));
+
+    List<Tuple[]> rings = new ArrayList<> ();
+    for (List<Polygon> region : regions) {
+      for (Polygon ring : region) {
+        rings.add (ring.vertices ());
+      }
+    }
+    double[][] importance = Simplifier.sharedImportance (rings);
+
+    // a position has the same importance in every ring it is in
+    Map<Tuple, Double> byPosition = new HashMap<> ();
+    for (int r = 0; r < rings.size (); ++r) {
+      for (int i = 0; i < rings.get (r).length; ++i) {
+        Double other = byPosition.putIfAbsent (rings.get (r)[i], importance[r][i]);
+        if (other != null) {
+          assertEquals (other, importance[r][i], rings.get (r)[i].toString ());
+        }
+      }
+    }
+
+    for (double tolerance : new double[] { 1e-4, 1e-3, 1e-2, 0.1, 1 }) {
+      List<List<Polygon>> simplified = new ArrayList<> ();
+      for (int r = 0; r < rings.size (); ) {
+        List<Polygon> region = new ArrayList<> ();
+        for (int k = 0; k < regions.get (simplified.size ()).size (); ++k, ++r) {
+          Polygon ring = new Polygon (Simplifier.select (rings.get (r), importance[r], tolerance));
+          assertTrue (ring.segments.length >= 3);
+          assertTrue (ring.isSimple (), "tolerance " + tolerance);
+          region.add (ring);
+        }
+        simplified.add (region);
+      }
+
+      // away from the edges, a point is never in two regions, and one well inside the map is in
+      // exactly one. the corners of the map only have two edges, so at a large enough tolerance
+      // they are cut off, and the regions there don't reach the edge of the map any more.
+      for (int i = 0; i < 2000; ++i) {
+        Tuple pt = PT (random.nextDouble () * n, random.nextDouble () * n);
+        int count = 0;
+        boolean nearEdge = false;
+        for (List<Polygon> region : simplified) {
+          nearEdge |= distance (region, pt) < 1e-9;
+          count += contains (region, pt) ? 1 : 0;
+        }
+        boolean inner = (pt.x > 0.5) && (pt.x < n - 0.5) && (pt.y > 0.5) && (pt.y < n - 0.5);
+        if (! nearEdge) {
+          assertTrue (count <= 1, "tolerance " + tolerance + " at " + pt);
+          if (inner && (tolerance <= 0.1)) {
+            assertEquals (1, count, "tolerance " + tolerance + " at " + pt);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<Tuple> reversed (List<Tuple> points) {
+    List<Tuple> result = new ArrayList<> (points);
+    Collections.reverse (result);
+    return result;
+  }
+
+  @Test
+  public void testPolyLine() {
+    // a zigzag line keeps its ends at any tolerance
+    List<Tuple> points = new ArrayList<> ();
+    for (int i = 0; i < 50; ++i) {
+      points.add (PT (i, ((i % 2) == 0) ? 0 : 0.1));
+    }
+    PolyLine line = new PolyLine (points, false);
+    double[] importance = line.importance ();
+    assertEquals (Double.POSITIVE_INFINITY, importance[0]);
+    assertEquals (Double.POSITIVE_INFINITY, importance[49]);
+
+    PolyLine simplified = line.simplify (10);
+    assertEquals (2, simplified.getPoints ().length);
+    assertEquals (points.get (0), simplified.getPoints ()[0]);
+    assertEquals (points.get (49), simplified.getPoints ()[1]);
+    assertSame (line, line.simplify (0));
+
+    // the zigzags go before the big bend in an L
+    List<Tuple> ell = new ArrayList<> (List.of (PT (0, 0), PT (0.5, 0.01), PT (1, 0), PT (1, 0.5), PT (1.01, 1), PT (1, 2)));
+    PolyLine bent = new PolyLine (ell, false).simplify (0.02);
+    assertEquals (3, bent.getPoints ().length);
+    assertEquals (PT (1, 0), bent.getPoints ()[1]);
+  }
+}
@@ -0,0 +1,90 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class SweepLineTest {
+  private static List<Segment> random (Random random, int count) {
+    List<Segment> segments = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      double x = random.nextDouble () * 100, y = random.nextDouble () * 100;
+      double length = (random.nextInt (10) == 0) ? 40 : 3;
+      switch (random.nextInt (4)) {
+        case 0 -> segments.add (new Segment (PT (x, y), PT (x + length, y)));
+        case 1 -> segments.add (new Segment (PT (x, y), PT (x, y + length)));
+        default -> segments.add (new Segment (PT (x, y), PT (x + ((random.nextDouble () - 0.5) * length), y + ((random.nextDouble () - 0.5) * length))));
+      }
+    }
+    return segments;
+  }
+
+  @Test
+  public void testSelfIntersections() {
+    List<Segment> segments = random (new Random (8675309), 3000);
+
+    // brute force
+    Set<String> expect = new TreeSet<>();
+    for (int i = 0; i < segments.size (); ++i) {
+      for (int j = i + 1; j < segments.size (); ++j) {
+        Tuple pt = Segment.intersect (segments.get (i), segments.get (j));
+        if ((pt != null) && (! SweepLine.shareEndpoint (segments.get (i), segments.get (j)))) {
+          expect.add (i + ":" + j);
+        }
+      }
+    }
+    assertFalse (expect.isEmpty ());
+
+    Set<String> actual = new TreeSet<>();
+    SweepLine.intersections (segments, (a, b, pt) -> {
+      assertTrue (a < b);
+      assertTrue (segments.get (a).contains (pt) || Tuple.similar (pt, Segment.intersect (segments.get (a), segments.get (b))));
+      assertTrue (actual.add (a + ":" + b));
+    });
+    assertEquals (expect, actual);
+  }
+
+  @Test
+  public void testTwoSets() {
+    Random random = new Random (12345);
+    List<Segment> a = random (random, 1500), b = random (random, 2500);
+    Set<String> expect = new TreeSet<>();
+    for (int i = 0; i < a.size (); ++i) {
+      for (int j = 0; j < b.size (); ++j) {
+        if (Segment.intersect (a.get (i), b.get (j)) != null) {
+          expect.add (i + ":" + j);
+        }
+      }
+    }
+    Set<String> actual = new TreeSet<>();
+    SweepLine.intersections (a, b, (ia, ib, pt) -> assertTrue (actual.add (ia + ":" + ib)));
+    assertEquals (expect, actual);
+  }
+
+  @Test
+  public void testPolyline() {
+    // consecutive segments in a polyline only meet at their shared endpoints, so nothing is found
+    // until the line doubles back across itself
+    List<Segment> segments = new ArrayList<>();
+    Tuple last = PT (0, 0);
+    for (int i = 1; i <= 10; ++i) {
+      Tuple next = PT (i, (i % 2 == 0) ? 0 : 1);
+      segments.add (new Segment (last, next));
+      last = next;
+    }
+    List<Tuple> found = new ArrayList<>();
+    SweepLine.intersections (segments, (a, b, pt) -> found.add (pt));
+    assertTrue (found.isEmpty ());
+
+    segments.add (new Segment (last, PT (0.5, 0.25)));
+    SweepLine.intersections (segments, (a, b, pt) -> found.add (pt));
+    assertEquals (8, found.size ());
+  }
+}
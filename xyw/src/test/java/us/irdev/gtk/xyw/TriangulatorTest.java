@@ -0,0 +1,101 @@
+package us.irdev.gtk.xyw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static us.irdev.gtk.xyw.Helper.*;
+import static us.irdev.gtk.xyw.Tuple.PT;
+
+public class TriangulatorTest {
+  // check the triangles are counterclockwise, cover the area of the rings, and have their centers
+  // inside the boundary and outside the holes
+  private static void check (List<Polygon> rings, Triangulator.Mesh mesh) {
+    double expect = Math.abs (area (rings.get (0)));
+    for (int i = 1; i < rings.size (); ++i) {
+      expect -= Math.abs (area (rings.get (i)));
+    }
+    assertEquals (expect, mesh.area (), 1e-9 * Math.max (1, expect));
+    double[] xy = mesh.coordinates ();
+    int[] triangles = mesh.triangles ();
+    for (int t = 0; t < triangles.length; t += 3) {
+      int a = triangles[t] * 2, b = triangles[t + 1] * 2, c = triangles[t + 2] * 2;
+      double cross = ((xy[b] - xy[a]) * (xy[c + 1] - xy[a + 1])) - ((xy[c] - xy[a]) * (xy[b + 1] - xy[a + 1]));
+      assertTrue (cross >= 0);
+      if (cross > 1e-12) {
+        Tuple center = PT ((xy[a] + xy[b] + xy[c]) / 3, (xy[a + 1] + xy[b + 1] + xy[c + 1]) / 3);
+        assertTrue (rings.get (0).contains (center), center.toString ());
+        for (int i = 1; i < rings.size (); ++i) {
+          assertFalse (rings.get (i).contains (center), center.toString ());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSimple() {
+    Polygon square = box (0, 0, 1, 1);
+    Triangulator.Mesh mesh = square.triangulate ();
+    assertEquals (2, mesh.triangleCount ());
+    assertSimilar (1, mesh.area ());
+
+    // either way around
+    Polygon reversed = new Polygon (new Tuple[] { PT (0, 0), PT (0, 1), PT (1, 1), PT (1, 0) });
+    check (List.of (reversed), reversed.triangulate ());
+
+    // a square with a hole makes 8 triangles
+    List<Polygon> rings = List.of (box (0, 0, 3, 3), box (1, 1, 2, 2));
+    mesh = Triangulator.triangulate (rings);
+    assertEquals (8, mesh.triangleCount ());
+    check (rings, mesh);
+  }
+
+  @Test
+  public void testRandom() {
+    Random random = new Random (8675309);
+    for (int trial = 0; trial < 50; ++trial) {
+      // big enough to hash in z-order, with holes in a row across the middle
+      List<Polygon> rings = new ArrayList<> ();
+      rings.add (star (random, 0, 0, 10, 500));
+      for (int h = -2; h <= 2; ++h) {
+        rings.add (star (random, h * 1.5, 0, 0.7, 20 + random.nextInt (30)));
+      }
+      Triangulator.Mesh mesh = Triangulator.triangulate (rings);
+      int count = 0;
+      for (Polygon ring : rings) {
+        count += ring.segments.length;
+      }
+      // one triangle per vertex, less two, plus two for each bridge to a hole
+      assertEquals (count - 2 + (2 * (rings.size () - 1)), mesh.triangleCount ());
+      check (rings, mesh);
+    }
+  }
+
+  @Test
+  public void testDegenerate() {
+    // repeated vertices, a repeated closing vertex, and vertices on straight lines
+    double[] coordinates = { 0, 0, 1, 0, 1, 0, 2, 0, 2, 1, 2, 2, 2, 2, 0, 2, 0, 1, 0, 0 };
+    int[] triangles = Triangulator.triangulate (coordinates, new int[0]);
+    assertEquals (2, triangles.length / 3);
+    assertSimilar (4, new Triangulator.Mesh (coordinates, triangles).area ());
+
+    // a hole touching an edge of the boundary
+    coordinates = new double[] { 0, 0, 4, 0, 4, 4, 0, 4, 0, 2, 2, 1, 2, 3 };
+    triangles = Triangulator.triangulate (coordinates, new int[] { 4 });
+    assertSimilar (14, new Triangulator.Mesh (coordinates, triangles).area ());
+
+    // a bow tie, which isn't simple, still gives triangles
+    coordinates = new double[] { 0, 0, 2, 2, 2, 0, 0, 2 };
+    triangles = Triangulator.triangulate (coordinates, new int[0]);
+    assertTrue (triangles.length > 0);
+
+    // rings that collapse to nothing
+    assertEquals (0, Triangulator.triangulate (new double[] { 0, 0, 1, 1 }, new int[0]).length);
+    assertEquals (0, Triangulator.triangulate (new double[] { 0, 0, 1, 1, 2, 2 }, new int[0]).length);
+    assertEquals (0, Triangulator.triangulate (new double[] { 1, 1, 1, 1, 1, 1, 1, 1 }, new int[0]).length);
+    assertEquals (0, Triangulator.triangulate (new double[0], new int[0]).length);
+  }
+}
@@ -0,0 +1,76 @@
+package us.irdev.gtk.xyw.db;
+
+import us.irdev.gtk.io.Table;
+import us.irdev.gtk.io.Utility;
+import us.irdev.gtk.xyw.Domain;
+import us.irdev.gtk.xyw.SampledFunction;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorAccordion;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorWrap;
+import us.irdev.gtk.xyw.samples.SamplesFloat;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static us.irdev.gtk.xyw.Helper.assertSimilar;
+import static us.irdev.gtk.xyw.Tuple.PT;
+import static us.irdev.gtk.xyw.Tuple.VEC;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowStreamTest {
+  @Test
+  public void testRealFile() throws IOException {
+    // the streamed function should match the one built through a table and rows
+    Path path = Paths.get ("data/sample.txt");
+    Table table = new Table (Utility.slurpFile (path.toString ()), ',', '#');
+    Rows rows = Rows.fromTable (table.readTable (), "geo lon (deg)", "geo lat (deg)", "mag lat (deg)");
+    SampledFunction expect = SampledFunction.fromDatabase (rows, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+
+    RowStream stream = new RowStream ("geo lon (deg)", "geo lat (deg)", "mag lat (deg)");
+    SampledFunction actual = stream.load (path, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion ());
+    assertSimilar (expect.domain, actual.domain);
+    assertSimilar (expect.interval, actual.interval);
+    for (double y = -90; y <= 90; y += 2.9) {
+      for (double x = -180; x <= 180; x += 3.1) {
+        assertEquals (expect.f (x, y), actual.f (x, y));
+      }
+    }
+
+    // with float storage
+    actual = stream.load (path, new BoundaryBehaviorWrap (), new BoundaryBehaviorAccordion (), SamplesFloat::new);
+    assertEquals (expect.f (12.3, 45.6), actual.f (12.3, 45.6), 1e-4);
+  }
+
+  @Test
+  public void testFormat() throws IOException {
+    String input = """
+            # a comment before the titles
+            "v", x ,y,extra
+            1.5, 0, 0, a
+            # a comment in the middle
+
+            "2.5",1,0,"b,c"
+            3.5,0,1
+            4.5,1,1,d
+            ,0,0,missing value is skipped
+            nan?,1,1,unparseable value is skipped
+            9,5,5,off the grid is skipped
+            """;
+    RowStream stream = new RowStream ("x", "y", "v");
+    RowStream.Layout layout = stream.scan (new StringReader (input));
+    assertSimilar (PT (0, 0), layout.domain ().min);
+    assertSimilar (PT (5, 5), layout.domain ().max);
+    assertSimilar (VEC (1, 1), layout.interval ());
+
+    SampledFunction function = new SampledFunction (new Domain (0, 1, 0, 1), VEC (1, 1), new BoundaryBehaviorWrap ());
+    assertEquals (4, stream.read (new StringReader (input), function));
+    assertEquals (1.5, function.f (0, 0));
+    assertEquals (2.5, function.f (1, 0));
+    assertEquals (3.5, function.f (0, 1));
+    assertEquals (4.5, function.f (1, 1));
+
+    assertThrows (IOException.class, () -> new RowStream ("x", "y", "w").scan (new StringReader (input)));
+  }
+}
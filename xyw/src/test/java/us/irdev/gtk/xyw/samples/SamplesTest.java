@@ -0,0 +1,120 @@
+package us.irdev.gtk.xyw.samples;
+
+import us.irdev.gtk.xyw.Domain;
+import us.irdev.gtk.xyw.SampledFunction;
+import us.irdev.gtk.xyw.Segment;
+import us.irdev.gtk.xyw.Tuple;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorClamp;
+import us.irdev.gtk.xyw.bb.BoundaryBehaviorWrap;
+import us.irdev.gtk.xyw.db.Row;
+import us.irdev.gtk.xyw.db.Rows;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static us.irdev.gtk.xyw.Tuple.VEC;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SamplesTest {
+  private static void fill (Samples samples) {
+    for (long i = 0; i < samples.size (); ++i) {
+      samples.put (i, i * 0.5);
+    }
+  }
+
+  private static void check (Samples samples, long count) {
+    assertEquals (count, samples.size ());
+    for (long i = 0; i < count; ++i) {
+      assertEquals (i * 0.5, samples.get (i));
+    }
+  }
+
+  @Test
+  public void testHeap() {
+    Samples samples = new SamplesDouble (100);
+    fill (samples);
+    check (samples, 100);
+
+    // floats round to the nearest float
+    samples = new SamplesFloat (100);
+    fill (samples);
+    check (samples, 100);
+    samples.put (0, 0.1);
+    assertEquals ((float) 0.1, samples.get (0));
+
+    // heap arrays can't hold more than 2^31 - 1 samples, even with assertions off
+    assertThrows (IllegalArgumentException.class, () -> new SamplesDouble (1L << 32));
+    assertThrows (IllegalArgumentException.class, () -> new SamplesFloat ((long) Integer.MAX_VALUE + 1));
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    Path path = Files.createTempFile ("samples", ".bin");
+    try {
+      // use tiny chunks so the samples span several of them, and a header offset
+      SamplesMapped samples = new SamplesMapped (path, 16, 1000, SamplesMapped.Type.DOUBLE, true, 64);
+      fill (samples);
+      samples.force ();
+      assertEquals (16 + (1000 * 8), Files.size (path));
+
+      // re-open the file read only, with the default chunking
+      SamplesMapped reopened = new SamplesMapped (path, 16, 1000, SamplesMapped.Type.DOUBLE, false);
+      check (reopened, 1000);
+      assertThrows (java.nio.ReadOnlyBufferException.class, () -> reopened.put (0, 1));
+
+      // floats, and little endian
+      SamplesMapped floats = new SamplesMapped (path, 0, 10, SamplesMapped.Type.FLOAT, true, 8);
+      floats.put (0, 1.0);
+      floats.force ();
+      byte[] bytes = Files.readAllBytes (path);
+      assertEquals (0x3f, bytes[3]);
+      assertEquals ((byte) 0x80, bytes[2]);
+      assertEquals (1.0, floats.get (0));
+    } finally {
+      Files.deleteIfExists (path);
+    }
+  }
+
+  @Test
+  public void testSampledFunction() throws IOException {
+    Domain domain = new Domain (-180, 175, -90, 90);
+    Tuple interval = VEC (5, 5);
+    Rows db = Rows.fromFxy (domain, interval, xy -> (xy.y * 0.95) + (3 * Math.cos(1 + Math.toRadians(xy.x) * 2)));
+    SampledFunction expect = SampledFunction.fromDatabase (db, new BoundaryBehaviorWrap (), new BoundaryBehaviorClamp ());
+    List<Segment> expectIso = expect.iso (30);
+
+    Path path = Files.createTempFile ("samples", ".bin");
+    try {
+      Samples.Allocator[] allocators = {
+              SamplesFloat::new,
+              SamplesMapped.allocator (path, 0, SamplesMapped.Type.DOUBLE, true)
+      };
+      for (Samples.Allocator allocator : allocators) {
+        SampledFunction function = new SampledFunction (domain, interval, new BoundaryBehaviorWrap (), new BoundaryBehaviorClamp (), allocator);
+        for (Row row : db.rows) {
+          function.putSample (row.xy, row.value);
+        }
+
+        // interpolation and iso work the same, to within the precision of the storage
+        for (double y = -90; y <= 90; y += 3.3) {
+          for (double x = -180; x <= 180; x += 3.3) {
+            assertEquals (expect.f (x, y), function.f (x, y), 1e-5);
+          }
+        }
+        List<Segment> iso = function.iso (30);
+        assertEquals (expectIso.size (), iso.size ());
+        for (int i = 0; i < iso.size (); ++i) {
+          assertEquals (expectIso.get (i).a.x, iso.get (i).a.x, 1e-4);
+          assertEquals (expectIso.get (i).a.y, iso.get (i).a.y, 1e-4);
+          assertEquals (expectIso.get (i).b.x, iso.get (i).b.x, 1e-4);
+          assertEquals (expectIso.get (i).b.y, iso.get (i).b.y, 1e-4);
+        }
+      }
+    } finally {
+      Files.deleteIfExists (path);
+    }
+  }
+}